@@ -5,12 +5,20 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import com.sentinel.platform.aggregation.config.AggregationProperties;
+import com.sentinel.platform.archive.config.ArchiveProperties;
 import com.sentinel.platform.ingestion.config.IngestionProperties;
+import com.sentinel.platform.pipeline.config.PipelineProperties;
+import com.sentinel.platform.replay.config.ReplayProperties;
+import com.sentinel.platform.retention.config.RetentionProperties;
 import com.sentinel.platform.ruleengine.config.RuleEngineProperties;
+import com.sentinel.platform.shared.logging.HotPathLoggingProperties;
 
 @SpringBootApplication
 @EnableScheduling
-@EnableConfigurationProperties({IngestionProperties.class, RuleEngineProperties.class})
+@EnableConfigurationProperties({IngestionProperties.class, RuleEngineProperties.class, HotPathLoggingProperties.class,
+        RetentionProperties.class, ArchiveProperties.class, ReplayProperties.class, PipelineProperties.class,
+        AggregationProperties.class})
 public class PlatformApplication {
 
     public static void main(String[] args) {
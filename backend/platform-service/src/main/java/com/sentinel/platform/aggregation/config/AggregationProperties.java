@@ -0,0 +1,415 @@
+package com.sentinel.platform.aggregation.config;
+
+import java.util.List;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Validated
+@ConfigurationProperties(prefix = "aggregation")
+public class AggregationProperties {
+
+    private boolean rollupEnabled = true;
+
+    @Min(1)
+    private int rollupIntervalSeconds = 60;
+
+    /**
+     * A bucket is rolled up once it ended this long ago, leaving time for queued evaluations to land.
+     */
+    @Min(0)
+    private int rollupGraceMinutes = 5;
+
+    /**
+     * Already rolled buckets recomputed on every pass to pick up stragglers; rollups overwrite, so
+     * recomputing is safe.
+     */
+    @Min(0)
+    private int rollupRestateBuckets = 1;
+
+    /**
+     * Upper bound on buckets rolled per resolution and pass, so catching up after downtime is spread out.
+     */
+    @Min(1)
+    private int rollupMaxBucketsPerRun = 168;
+
+    /**
+     * Day rollups older than this are deleted by the rollup job. Minute and hour retention follow
+     * {@code retention.tables.stage_aggregate} and {@code retention.tables.stage_aggregate_hour}.
+     */
+    @Min(1)
+    private int dayRetentionDays = 1825;
+
+    private boolean inflightReconcileEnabled = true;
+
+    /**
+     * How often the in-flight gauges are compared with outstanding expectations; a drift is corrected on
+     * the second pass that sees it.
+     */
+    @Min(1)
+    private int inflightReconcileIntervalSeconds = 300;
+
+    /**
+     * Most buckets one time-series request may span; a longer range needs a coarser step.
+     */
+    @Min(1)
+    private int seriesMaxPoints = 2000;
+
+    private boolean recentStoreEnabled = true;
+
+    /**
+     * Trailing span of minute aggregates kept in memory for recent-range queries.
+     */
+    @Min(60)
+    private int recentStoreWindowMinutes = 1440;
+
+    /**
+     * Most (version, group, node) series held in memory; past it the store stops answering queries.
+     */
+    @Min(1)
+    private int recentStoreMaxSeries = 20000;
+
+    @Min(1)
+    private int recentStoreRefreshSeconds = 15;
+
+    /**
+     * Trailing minutes reloaded from the database on every refresh, to pick up other nodes' writes;
+     * should exceed the aggregation pipeline's worst lag.
+     */
+    @Min(1)
+    private int recentStoreRefreshMinutes = 10;
+
+    private boolean hotspotEnabled = true;
+
+    /**
+     * Items kept per workflow version, group and hotspot list (longest overdue, slowest); also the most a
+     * hotspot request returns.
+     */
+    @Min(1)
+    private int hotspotCapacity = 50;
+
+    /**
+     * Trailing span the slowest-items list covers.
+     */
+    @Min(1)
+    private int hotspotWindowMinutes = 60;
+
+    /**
+     * How often each node writes its hotspot lists to {@code stage_hotspot} for the other nodes to read.
+     */
+    @Min(1)
+    private int hotspotFlushSeconds = 10;
+
+    private boolean backlogEnabled = true;
+
+    /**
+     * Overdue age boundaries, ascending, that split the backlog of each stage into age buckets; with
+     * {@code [5, 30]} the buckets are not yet due, 0-5m, 5-30m and 30m+ overdue.
+     */
+    @NotEmpty
+    private List<@Min(1) Integer> backlogAgeBoundsMinutes = List.of(5, 30);
+
+    /**
+     * How often backlog rows overdue past the last age boundary are folded into one row per stage.
+     */
+    @Min(1)
+    private int backlogFoldIntervalSeconds = 60;
+
+    /**
+     * How often the backlog rows are compared with outstanding expectations; a drift is corrected on the
+     * second pass that sees it.
+     */
+    @Min(1)
+    private int backlogReconcileIntervalSeconds = 300;
+
+    private boolean volumeEnabled = true;
+
+    /**
+     * How often closed hours are learned into the volume baselines and the trailing window is checked
+     * against them.
+     */
+    @Min(1)
+    private int volumeIntervalSeconds = 60;
+
+    /**
+     * Trailing minutes of completions compared with the baseline on each check.
+     */
+    @Min(1)
+    private int volumeWindowMinutes = 60;
+
+    /**
+     * Width of the band below the expected volume, in standard deviations; less is alerted.
+     */
+    @DecimalMin("0.0")
+    private double volumeBandSigmas = 3.0;
+
+    /**
+     * Series expecting fewer completions than this in the window are not checked.
+     */
+    @Min(1)
+    private int volumeMinExpected = 10;
+
+    /**
+     * Weeks an hour-of-week slot must have learned before its series is checked.
+     */
+    @Min(1)
+    private int volumeMinSamples = 4;
+
+    /**
+     * Weight of the newest week in a slot once it has learned more than {@code 1 / volume-smoothing} weeks;
+     * until then every week weighs the same.
+     */
+    @DecimalMin(value = "0.0", inclusive = false)
+    @DecimalMax("1.0")
+    private double volumeSmoothing = 0.2;
+
+    /**
+     * Weeks of hour rollups learned when the baselines start empty.
+     */
+    @Min(0)
+    private int volumeBackfillWeeks = 4;
+
+    public boolean isRollupEnabled() {
+        return rollupEnabled;
+    }
+
+    public void setRollupEnabled(boolean rollupEnabled) {
+        this.rollupEnabled = rollupEnabled;
+    }
+
+    public int getRollupIntervalSeconds() {
+        return rollupIntervalSeconds;
+    }
+
+    public void setRollupIntervalSeconds(int rollupIntervalSeconds) {
+        this.rollupIntervalSeconds = rollupIntervalSeconds;
+    }
+
+    public int getRollupGraceMinutes() {
+        return rollupGraceMinutes;
+    }
+
+    public void setRollupGraceMinutes(int rollupGraceMinutes) {
+        this.rollupGraceMinutes = rollupGraceMinutes;
+    }
+
+    public int getRollupRestateBuckets() {
+        return rollupRestateBuckets;
+    }
+
+    public void setRollupRestateBuckets(int rollupRestateBuckets) {
+        this.rollupRestateBuckets = rollupRestateBuckets;
+    }
+
+    public int getRollupMaxBucketsPerRun() {
+        return rollupMaxBucketsPerRun;
+    }
+
+    public void setRollupMaxBucketsPerRun(int rollupMaxBucketsPerRun) {
+        this.rollupMaxBucketsPerRun = rollupMaxBucketsPerRun;
+    }
+
+    public int getDayRetentionDays() {
+        return dayRetentionDays;
+    }
+
+    public void setDayRetentionDays(int dayRetentionDays) {
+        this.dayRetentionDays = dayRetentionDays;
+    }
+
+    public boolean isInflightReconcileEnabled() {
+        return inflightReconcileEnabled;
+    }
+
+    public void setInflightReconcileEnabled(boolean inflightReconcileEnabled) {
+        this.inflightReconcileEnabled = inflightReconcileEnabled;
+    }
+
+    public int getInflightReconcileIntervalSeconds() {
+        return inflightReconcileIntervalSeconds;
+    }
+
+    public void setInflightReconcileIntervalSeconds(int inflightReconcileIntervalSeconds) {
+        this.inflightReconcileIntervalSeconds = inflightReconcileIntervalSeconds;
+    }
+
+    public int getSeriesMaxPoints() {
+        return seriesMaxPoints;
+    }
+
+    public void setSeriesMaxPoints(int seriesMaxPoints) {
+        this.seriesMaxPoints = seriesMaxPoints;
+    }
+
+    public boolean isRecentStoreEnabled() {
+        return recentStoreEnabled;
+    }
+
+    public void setRecentStoreEnabled(boolean recentStoreEnabled) {
+        this.recentStoreEnabled = recentStoreEnabled;
+    }
+
+    public int getRecentStoreWindowMinutes() {
+        return recentStoreWindowMinutes;
+    }
+
+    public void setRecentStoreWindowMinutes(int recentStoreWindowMinutes) {
+        this.recentStoreWindowMinutes = recentStoreWindowMinutes;
+    }
+
+    public int getRecentStoreMaxSeries() {
+        return recentStoreMaxSeries;
+    }
+
+    public void setRecentStoreMaxSeries(int recentStoreMaxSeries) {
+        this.recentStoreMaxSeries = recentStoreMaxSeries;
+    }
+
+    public int getRecentStoreRefreshSeconds() {
+        return recentStoreRefreshSeconds;
+    }
+
+    public void setRecentStoreRefreshSeconds(int recentStoreRefreshSeconds) {
+        this.recentStoreRefreshSeconds = recentStoreRefreshSeconds;
+    }
+
+    public int getRecentStoreRefreshMinutes() {
+        return recentStoreRefreshMinutes;
+    }
+
+    public void setRecentStoreRefreshMinutes(int recentStoreRefreshMinutes) {
+        this.recentStoreRefreshMinutes = recentStoreRefreshMinutes;
+    }
+
+    public boolean isHotspotEnabled() {
+        return hotspotEnabled;
+    }
+
+    public void setHotspotEnabled(boolean hotspotEnabled) {
+        this.hotspotEnabled = hotspotEnabled;
+    }
+
+    public int getHotspotCapacity() {
+        return hotspotCapacity;
+    }
+
+    public void setHotspotCapacity(int hotspotCapacity) {
+        this.hotspotCapacity = hotspotCapacity;
+    }
+
+    public int getHotspotWindowMinutes() {
+        return hotspotWindowMinutes;
+    }
+
+    public void setHotspotWindowMinutes(int hotspotWindowMinutes) {
+        this.hotspotWindowMinutes = hotspotWindowMinutes;
+    }
+
+    public int getHotspotFlushSeconds() {
+        return hotspotFlushSeconds;
+    }
+
+    public void setHotspotFlushSeconds(int hotspotFlushSeconds) {
+        this.hotspotFlushSeconds = hotspotFlushSeconds;
+    }
+
+    public boolean isBacklogEnabled() {
+        return backlogEnabled;
+    }
+
+    public void setBacklogEnabled(boolean backlogEnabled) {
+        this.backlogEnabled = backlogEnabled;
+    }
+
+    public List<Integer> getBacklogAgeBoundsMinutes() {
+        return backlogAgeBoundsMinutes;
+    }
+
+    public void setBacklogAgeBoundsMinutes(List<Integer> backlogAgeBoundsMinutes) {
+        this.backlogAgeBoundsMinutes = backlogAgeBoundsMinutes;
+    }
+
+    public int getBacklogFoldIntervalSeconds() {
+        return backlogFoldIntervalSeconds;
+    }
+
+    public void setBacklogFoldIntervalSeconds(int backlogFoldIntervalSeconds) {
+        this.backlogFoldIntervalSeconds = backlogFoldIntervalSeconds;
+    }
+
+    public int getBacklogReconcileIntervalSeconds() {
+        return backlogReconcileIntervalSeconds;
+    }
+
+    public void setBacklogReconcileIntervalSeconds(int backlogReconcileIntervalSeconds) {
+        this.backlogReconcileIntervalSeconds = backlogReconcileIntervalSeconds;
+    }
+
+    public boolean isVolumeEnabled() {
+        return volumeEnabled;
+    }
+
+    public void setVolumeEnabled(boolean volumeEnabled) {
+        this.volumeEnabled = volumeEnabled;
+    }
+
+    public int getVolumeIntervalSeconds() {
+        return volumeIntervalSeconds;
+    }
+
+    public void setVolumeIntervalSeconds(int volumeIntervalSeconds) {
+        this.volumeIntervalSeconds = volumeIntervalSeconds;
+    }
+
+    public int getVolumeWindowMinutes() {
+        return volumeWindowMinutes;
+    }
+
+    public void setVolumeWindowMinutes(int volumeWindowMinutes) {
+        this.volumeWindowMinutes = volumeWindowMinutes;
+    }
+
+    public double getVolumeBandSigmas() {
+        return volumeBandSigmas;
+    }
+
+    public void setVolumeBandSigmas(double volumeBandSigmas) {
+        this.volumeBandSigmas = volumeBandSigmas;
+    }
+
+    public int getVolumeMinExpected() {
+        return volumeMinExpected;
+    }
+
+    public void setVolumeMinExpected(int volumeMinExpected) {
+        this.volumeMinExpected = volumeMinExpected;
+    }
+
+    public int getVolumeMinSamples() {
+        return volumeMinSamples;
+    }
+
+    public void setVolumeMinSamples(int volumeMinSamples) {
+        this.volumeMinSamples = volumeMinSamples;
+    }
+
+    public double getVolumeSmoothing() {
+        return volumeSmoothing;
+    }
+
+    public void setVolumeSmoothing(double volumeSmoothing) {
+        this.volumeSmoothing = volumeSmoothing;
+    }
+
+    public int getVolumeBackfillWeeks() {
+        return volumeBackfillWeeks;
+    }
+
+    public void setVolumeBackfillWeeks(int volumeBackfillWeeks) {
+        this.volumeBackfillWeeks = volumeBackfillWeeks;
+    }
+}
@@ -0,0 +1,68 @@
+package com.sentinel.platform.aggregation.model;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+public enum AggregateResolution {
+    /**
+     * Bucket sizes stage aggregates are stored at, finest first. Each coarser table is rolled up from the
+     * one before it; {@link #bucketExpression} truncates a {@code bucket_start} column to this resolution
+     * in SQL so a finer table can answer for a coarser step.
+     */
+    MINUTE("stage_aggregate", ChronoUnit.MINUTES, "%s"),
+    HOUR("stage_aggregate_hour", ChronoUnit.HOURS, "timestamp(date(%1$s), maketime(hour(%1$s), 0, 0))"),
+    DAY("stage_aggregate_day", ChronoUnit.DAYS, "timestamp(date(%s))");
+
+    private final String table;
+    private final ChronoUnit unit;
+    private final String bucketExpression;
+
+    AggregateResolution(String table, ChronoUnit unit, String bucketExpression) {
+        this.table = table;
+        this.unit = unit;
+        this.bucketExpression = bucketExpression;
+    }
+
+    public String table() {
+        return table;
+    }
+
+    public Instant truncate(Instant instant) {
+        return instant.truncatedTo(unit);
+    }
+
+    public Instant next(Instant bucketStart) {
+        return bucketStart.plus(1, unit);
+    }
+
+    public Instant previous(Instant bucketStart) {
+        return bucketStart.minus(1, unit);
+    }
+
+    public String bucketExpression(String column) {
+        return bucketExpression.formatted(column);
+    }
+
+    /**
+     * The resolution this one is rolled up from, or null for minutes.
+     */
+    public AggregateResolution finer() {
+        return ordinal() == 0 ? null : values()[ordinal() - 1];
+    }
+
+    /**
+     * Parses a request parameter ({@code minute}, {@code hour}, {@code day}); blank means "let the planner
+     * choose" and yields null.
+     */
+    public static AggregateResolution parse(String value) {
+        if (value == null || value.isBlank() || "auto".equalsIgnoreCase(value.trim())) {
+            return null;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("unknown step " + value + " (expected minute, hour, day or auto)");
+        }
+    }
+}
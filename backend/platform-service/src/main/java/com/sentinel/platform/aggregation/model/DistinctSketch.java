@@ -0,0 +1,165 @@
+package com.sentinel.platform.aggregation.model;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+public final class DistinctSketch {
+    /**
+     * HyperLogLog sketch of distinct correlation keys with 2^12 one-byte registers (standard error about
+     * 1.6%). Sketches merge by taking the larger register, so the per-minute sketches stored on
+     * {@code stage_aggregate} rows combine into a distinct count for any node, group and time range
+     * without touching the events. Small cardinalities are estimated by linear counting. The binary form
+     * lists only non-empty registers as varint (index delta) and rank pairs while that is shorter than
+     * the raw registers.
+     */
+    private static final int PRECISION = 12;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final int MAX_RANK = 64 - PRECISION + 1;
+    private static final byte FORMAT_SPARSE = 1;
+    private static final byte FORMAT_DENSE = 2;
+
+    private final byte[] registers = new byte[REGISTERS];
+
+    public void offer(String value) {
+        if (value == null) {
+            return;
+        }
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - PRECISION));
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << PRECISION) + 1, MAX_RANK);
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public void merge(DistinctSketch other) {
+        for (int index = 0; index < REGISTERS; index++) {
+            if (other.registers[index] > registers[index]) {
+                registers[index] = other.registers[index];
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        for (byte register : registers) {
+            if (register != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+        double raw = alpha * REGISTERS * REGISTERS / sum;
+        if (raw <= 2.5 * REGISTERS && zeros > 0) {
+            return Math.round(REGISTERS * Math.log((double) REGISTERS / zeros));
+        }
+        return Math.round(raw);
+    }
+
+    public byte[] toBytes() {
+        int used = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                used++;
+            }
+        }
+        if (used * 3 >= REGISTERS) {
+            byte[] dense = new byte[REGISTERS + 1];
+            dense[0] = FORMAT_DENSE;
+            System.arraycopy(registers, 0, dense, 1, REGISTERS);
+            return dense;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2 + used * 3);
+        out.write(FORMAT_SPARSE);
+        writeVarint(out, used);
+        int previous = 0;
+        for (int index = 0; index < REGISTERS; index++) {
+            if (registers[index] != 0) {
+                writeVarint(out, index - previous);
+                out.write(registers[index]);
+                previous = index;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static DistinctSketch fromBytes(byte[] bytes) {
+        DistinctSketch sketch = new DistinctSketch();
+        if (bytes == null || bytes.length == 0) {
+            return sketch;
+        }
+        if (bytes[0] == FORMAT_DENSE) {
+            if (bytes.length != REGISTERS + 1) {
+                throw new IllegalArgumentException("Truncated distinct sketch");
+            }
+            System.arraycopy(bytes, 1, sketch.registers, 0, REGISTERS);
+            return sketch;
+        }
+        if (bytes[0] != FORMAT_SPARSE) {
+            throw new IllegalArgumentException("Unknown distinct sketch format: " + bytes[0]);
+        }
+        int[] position = {1};
+        int used = readVarint(bytes, position);
+        int index = 0;
+        for (int i = 0; i < used; i++) {
+            index += readVarint(bytes, position);
+            if (index < 0 || index >= REGISTERS || position[0] >= bytes.length) {
+                throw new IllegalArgumentException("Truncated distinct sketch");
+            }
+            sketch.registers[index] = bytes[position[0]++];
+        }
+        return sketch;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer so every bit depends on
+     * the whole key.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] bytes, int[] position) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            if (position[0] >= bytes.length || shift > 28) {
+                throw new IllegalArgumentException("Truncated distinct sketch");
+            }
+            byte b = bytes[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.sentinel.platform.aggregation.model;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+public final class LatencyHistogram {
+    /**
+     * Mergeable log-linear histogram of latencies in milliseconds. Values below 32 get a bucket each; above
+     * that every power of two is split into 32 equal buckets, so a value is known to within about 3% in
+     * any bucket. Histograms merge by adding bucket counts, which lets per-minute histograms stored on
+     * {@code stage_aggregate} rows be combined into percentiles for any node, group and time range in
+     * O(buckets) per row. The binary form lists only non-empty buckets as varint (index delta, count) pairs.
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final byte FORMAT_VERSION = 1;
+
+    private long[] counts = new long[SUB_BUCKETS * 2];
+    private long total;
+
+    public void record(long valueMs) {
+        add(indexOf(Math.max(0, valueMs)), 1);
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int index = 0; index < other.counts.length; index++) {
+            if (other.counts[index] != 0) {
+                add(index, other.counts[index]);
+            }
+        }
+    }
+
+    public long count() {
+        return total;
+    }
+
+    /**
+     * Latency at quantile {@code q} (0..1]: the midpoint of the bucket holding that rank, or -1 when empty.
+     */
+    public long percentile(double q) {
+        if (total == 0) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int index = 0; index < counts.length; index++) {
+            seen += counts[index];
+            if (seen >= rank) {
+                return lowerBound(index) + (upperBound(index) - lowerBound(index)) / 2;
+            }
+        }
+        return upperBound(counts.length - 1);
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(FORMAT_VERSION);
+        int buckets = 0;
+        for (long count : counts) {
+            if (count != 0) {
+                buckets++;
+            }
+        }
+        writeVarint(out, buckets);
+        int previous = 0;
+        for (int index = 0; index < counts.length; index++) {
+            if (counts[index] != 0) {
+                writeVarint(out, index - previous);
+                writeVarint(out, counts[index]);
+                previous = index;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static LatencyHistogram fromBytes(byte[] bytes) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        if (bytes == null || bytes.length == 0) {
+            return histogram;
+        }
+        if (bytes[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unknown latency histogram format: " + bytes[0]);
+        }
+        int[] position = {1};
+        long buckets = readVarint(bytes, position);
+        int index = 0;
+        for (long i = 0; i < buckets; i++) {
+            index += (int) readVarint(bytes, position);
+            histogram.add(index, readVarint(bytes, position));
+        }
+        return histogram;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return ((long) (SUB_BUCKETS + index % SUB_BUCKETS + 1) << shift) - 1;
+    }
+
+    private void add(int index, long count) {
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length * 2));
+        }
+        counts[index] += count;
+        total += count;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] bytes, int[] position) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            if (position[0] >= bytes.length || shift > 63) {
+                throw new IllegalArgumentException("Truncated latency histogram");
+            }
+            byte b = bytes[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.sentinel.platform.aggregation.model;
+
+/**
+ * How time-series rows are split into lines: one line overall, one per node, one per group hash, or
+ * one per value of a single group dimension ({@code dimension:<name>}).
+ */
+public record SeriesGroupBy(Kind kind, String dimension) {
+
+    public enum Kind {
+        NONE,
+        NODE,
+        GROUP_HASH,
+        DIMENSION
+    }
+
+    public static SeriesGroupBy parse(String value) {
+        if (value == null || value.isBlank() || "none".equalsIgnoreCase(value.trim())) {
+            return new SeriesGroupBy(Kind.NONE, null);
+        }
+        String trimmed = value.trim();
+        if ("node".equalsIgnoreCase(trimmed)) {
+            return new SeriesGroupBy(Kind.NODE, null);
+        }
+        if ("groupHash".equalsIgnoreCase(trimmed)) {
+            return new SeriesGroupBy(Kind.GROUP_HASH, null);
+        }
+        if (trimmed.regionMatches(true, 0, "dimension:", 0, "dimension:".length())
+                && trimmed.length() > "dimension:".length()) {
+            return new SeriesGroupBy(Kind.DIMENSION, trimmed.substring("dimension:".length()));
+        }
+        throw new IllegalArgumentException("unknown groupBy " + value + " (expected none, node, groupHash or dimension:<name>)");
+    }
+
+    public String wire() {
+        return switch (kind) {
+            case NONE -> "none";
+            case NODE -> "node";
+            case GROUP_HASH -> "groupHash";
+            case DIMENSION -> "dimension:" + dimension;
+        };
+    }
+
+    public boolean byGroup() {
+        return kind == Kind.GROUP_HASH || kind == Kind.DIMENSION;
+    }
+
+    public boolean byNode() {
+        return kind == Kind.NODE;
+    }
+}
@@ -0,0 +1,54 @@
+package com.sentinel.platform.aggregation.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public enum SeriesMetric {
+    /**
+     * Counters a time series can carry, named as in the API. {@code inFlight} is the net change of
+     * in-flight items within each bucket, not the backlog at its end.
+     */
+    IN_FLIGHT("inFlight"),
+    COMPLETED("completed"),
+    LATE("late"),
+    FAILED("failed");
+
+    private final String wire;
+
+    SeriesMetric(String wire) {
+        this.wire = wire;
+    }
+
+    public String wire() {
+        return wire;
+    }
+
+    /**
+     * Parses a comma-separated list of metric names; blank means all of them.
+     */
+    public static List<SeriesMetric> parseList(String value) {
+        if (value == null || value.isBlank()) {
+            return List.of(values());
+        }
+        Set<SeriesMetric> metrics = new LinkedHashSet<>();
+        for (String name : value.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            metrics.add(parse(trimmed));
+        }
+        return new ArrayList<>(metrics);
+    }
+
+    private static SeriesMetric parse(String name) {
+        for (SeriesMetric metric : values()) {
+            if (metric.wire.equalsIgnoreCase(name)) {
+                return metric;
+            }
+        }
+        throw new IllegalArgumentException("unknown metric " + name + " (expected inFlight, completed, late or failed)");
+    }
+}
@@ -0,0 +1,31 @@
+package com.sentinel.platform.aggregation.model;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+public record VolumeBaseline(int samples, double mean, double variance) {
+    /**
+     * Running mean and variance of the completions one series sees in one hour of the week. Each closed
+     * hour is folded in with weight {@code max(1 / samples, smoothing)}: an exact running mean while the
+     * slot is young, an exponentially weighted one afterwards so the baseline follows gradual change.
+     * Three numbers per slot, updated in O(1); no history is kept.
+     */
+    public static final int HOURS_PER_WEEK = 7 * 24;
+    public static final VolumeBaseline EMPTY = new VolumeBaseline(0, 0, 0);
+
+    public VolumeBaseline update(double observed, double smoothing) {
+        int next = samples + 1;
+        double weight = Math.max(1.0 / next, smoothing);
+        double delta = observed - mean;
+        return new VolumeBaseline(next, mean + weight * delta, (1 - weight) * (variance + weight * delta * delta));
+    }
+
+    /**
+     * Hour of the UTC week starting Monday 00:00, 0 to 167.
+     */
+    public static int hourOfWeek(Instant instant) {
+        ZonedDateTime utc = instant.atZone(ZoneOffset.UTC);
+        return (utc.getDayOfWeek().getValue() - 1) * 24 + utc.getHour();
+    }
+}
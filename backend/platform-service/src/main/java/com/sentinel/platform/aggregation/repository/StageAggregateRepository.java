@@ -17,12 +17,14 @@ public interface StageAggregateRepository extends JpaRepository<StageAggregate,
     /**
      * Maintains minute-level aggregates for workflow stages. Upsert semantics
      * are handled in SQL to keep operations idempotent under concurrent updates.
+     * The partitioned table cannot carry a foreign key, so the insert selects through
+     * {@code workflow_version} and writes nothing for an unknown version.
      */
     @Modifying
     @Transactional
     @Query(value = """
             INSERT INTO stage_aggregate (workflow_version_id, group_dim_hash, node_key, bucket_start, in_flight, completed, late, failed)
-            VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?7, ?8)
+            SELECT id, ?2, ?3, ?4, ?5, ?6, ?7, ?8 FROM workflow_version WHERE id = ?1
             ON DUPLICATE KEY UPDATE
                 in_flight = GREATEST(0, in_flight + VALUES(in_flight)),
                 completed = completed + VALUES(completed),
@@ -38,22 +40,7 @@ public interface StageAggregateRepository extends JpaRepository<StageAggregate,
                 int lateDelta,
                 int failedDelta);
 
-    List<StageAggregate> findByWorkflowVersionIdOrderByBucketStartDesc(Long workflowVersionId, Pageable pageable);
-
-    List<StageAggregate> findByWorkflowVersionIdAndGroupDimHashOrderByBucketStartDesc(Long workflowVersionId, String groupDimHash, Pageable pageable);
-
     List<StageAggregate> findAllByOrderByBucketStartDesc(Pageable pageable);
 
-    List<StageAggregate> findByWorkflowVersionIdAndBucketStartBetweenOrderByBucketStartDesc(Long workflowVersionId,
-                                                                                            Instant start,
-                                                                                            Instant end,
-                                                                                            Pageable pageable);
-
-    List<StageAggregate> findByWorkflowVersionIdAndGroupDimHashAndBucketStartBetweenOrderByBucketStartDesc(Long workflowVersionId,
-                                                                                                            String groupDimHash,
-                                                                                                            Instant start,
-                                                                                                            Instant end,
-                                                                                                            Pageable pageable);
-
     List<StageAggregate> findAllByBucketStartBetweenOrderByBucketStartDesc(Instant start, Instant end, Pageable pageable);
 }
@@ -0,0 +1,212 @@
+package com.sentinel.platform.aggregation.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.sentinel.platform.aggregation.model.AggregateResolution;
+import com.sentinel.platform.aggregation.model.DistinctSketch;
+import com.sentinel.platform.aggregation.model.LatencyHistogram;
+import com.sentinel.platform.aggregation.web.dto.StageAggregateView;
+
+@Repository
+public class StageAggregateRollupRepository {
+    /**
+     * SQL for the hour and day rollups of {@code stage_aggregate} and for reading any resolution at any
+     * coarser step. A rollup bucket is recomputed from scratch out of the finer table and replaces what
+     * was there, so rolling a bucket twice is harmless; latency histograms and distinct sketches are
+     * merged in Java since SQL cannot add them.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    public StageAggregateRollupRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * End of the last bucket rolled into {@code resolution}, or null if nothing has been rolled yet.
+     */
+    public Instant rolledUntil(AggregateResolution resolution) {
+        List<Timestamp> rows = jdbcTemplate.queryForList("select rolled_until from aggregate_rollup_state where resolution = ?",
+                Timestamp.class, resolution.name());
+        return rows.isEmpty() ? null : rows.get(0).toInstant();
+    }
+
+    public Instant earliestBucket(AggregateResolution resolution) {
+        Timestamp earliest = jdbcTemplate.queryForObject("select min(bucket_start) from " + resolution.table(), Timestamp.class);
+        return earliest != null ? earliest.toInstant() : null;
+    }
+
+    /**
+     * Recomputes the {@code target} bucket starting at {@code bucketStart} from the next finer table and
+     * moves the watermark past it (never backwards). The bucket's rows are deleted first, so a series
+     * that no longer has finer rows (after a rebuild or replay rewrote them) loses its rollup row too.
+     */
+    @Transactional
+    public int rollUp(AggregateResolution target, Instant bucketStart) {
+        AggregateResolution source = target.finer();
+        Timestamp from = Timestamp.from(bucketStart);
+        Timestamp to = Timestamp.from(target.next(bucketStart));
+        jdbcTemplate.update("delete from " + target.table() + " where bucket_start = ?", from);
+        int rows = jdbcTemplate.update("""
+                        insert into %s (workflow_version_id, group_dim_hash, node_key, bucket_start, in_flight, completed, late, failed)
+                        select workflow_version_id, coalesce(group_dim_hash, ''), node_key, ?,
+                               sum(in_flight), sum(completed), sum(late), sum(failed)
+                        from %s
+                        where bucket_start >= ? and bucket_start < ?
+                        group by workflow_version_id, coalesce(group_dim_hash, ''), node_key
+                        """.formatted(target.table(), source.table()),
+                from, from, to);
+
+        Map<List<Object>, LatencyHistogram> histograms = new HashMap<>();
+        Map<List<Object>, DistinctSketch> sketches = new HashMap<>();
+        jdbcTemplate.query("""
+                        select workflow_version_id, coalesce(group_dim_hash, '') group_dim_hash, node_key, latency_histogram, distinct_sketch
+                        from %s
+                        where bucket_start >= ? and bucket_start < ? and (latency_histogram is not null or distinct_sketch is not null)
+                        """.formatted(source.table()),
+                rs -> {
+                    List<Object> key = List.of(rs.getLong("workflow_version_id"), rs.getString("group_dim_hash"), rs.getString("node_key"));
+                    byte[] histogram = rs.getBytes("latency_histogram");
+                    if (histogram != null) {
+                        histograms.computeIfAbsent(key, k -> new LatencyHistogram()).merge(LatencyHistogram.fromBytes(histogram));
+                    }
+                    byte[] sketch = rs.getBytes("distinct_sketch");
+                    if (sketch != null) {
+                        sketches.computeIfAbsent(key, k -> new DistinctSketch()).merge(DistinctSketch.fromBytes(sketch));
+                    }
+                }, from, to);
+        Set<List<Object>> keys = new HashSet<>(histograms.keySet());
+        keys.addAll(sketches.keySet());
+        if (!keys.isEmpty()) {
+            List<Object[]> updates = new ArrayList<>(keys.size());
+            for (List<Object> key : keys) {
+                LatencyHistogram histogram = histograms.get(key);
+                DistinctSketch sketch = sketches.get(key);
+                updates.add(new Object[]{histogram != null ? histogram.toBytes() : null, sketch != null ? sketch.toBytes() : null,
+                        key.get(0), key.get(1), key.get(2), from});
+            }
+            jdbcTemplate.batchUpdate("update " + target.table() + " set latency_histogram = ?, distinct_sketch = ? "
+                    + "where workflow_version_id = ? and group_dim_hash = ? and node_key = ? and bucket_start = ?", updates);
+        }
+
+        jdbcTemplate.update("""
+                insert into aggregate_rollup_state (resolution, rolled_until) values (?, ?)
+                on duplicate key update rolled_until = greatest(rolled_until, values(rolled_until))
+                """, target.name(), to);
+        return rows;
+    }
+
+    /**
+     * Moves the watermark of {@code resolution} back to {@code bucketStart} so the buckets from there on
+     * are rolled again, e.g. after a live replay rewrote old minute buckets.
+     */
+    public void rewind(AggregateResolution resolution, Instant bucketStart) {
+        jdbcTemplate.update("update aggregate_rollup_state set rolled_until = least(rolled_until, ?) where resolution = ?",
+                Timestamp.from(bucketStart), resolution.name());
+    }
+
+    public int deleteBefore(AggregateResolution resolution, Instant cutoff, int limit) {
+        return jdbcTemplate.update("delete from " + resolution.table() + " where bucket_start < ? limit ?", Timestamp.from(cutoff), limit);
+    }
+
+    /**
+     * Rows of {@code table} in {@code [from, to)} (either bound may be null) summed into buckets of
+     * {@code step}, latest first. Minute rows without a group come back with a null group hash, like
+     * the rollups' {@code ''}.
+     */
+    public List<StageAggregateView> findSeries(AggregateResolution table,
+                                               AggregateResolution step,
+                                               long workflowVersionId,
+                                               String groupHash,
+                                               Instant from,
+                                               Instant to,
+                                               int limit) {
+        StringBuilder sql = new StringBuilder("""
+                select workflow_version_id, nullif(group_dim_hash, '') group_hash, node_key, %s bucket,
+                       sum(in_flight) in_flight, sum(completed) completed, sum(late) late, sum(failed) failed
+                from %s
+                where workflow_version_id = ?""".formatted(step.bucketExpression("bucket_start"), table.table()));
+        List<Object> params = new ArrayList<>();
+        params.add(workflowVersionId);
+        appendFilters(sql, params, groupHash, null, from, to);
+        sql.append(" group by workflow_version_id, group_hash, node_key, bucket order by bucket desc limit ?");
+        params.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new StageAggregateView(
+                rs.getLong("workflow_version_id"),
+                rs.getString("group_hash"),
+                rs.getString("node_key"),
+                rs.getTimestamp("bucket").toInstant(),
+                rs.getLong("in_flight"),
+                rs.getLong("completed"),
+                rs.getLong("late"),
+                rs.getLong("failed")
+        ), params.toArray());
+    }
+
+    /**
+     * Counters of {@code table} in {@code [from, to)} summed into buckets of {@code step} and, optionally,
+     * per group hash and/or node; columns not grouped by come back null. Rows are unordered.
+     */
+    public List<SeriesRow> findGroupedSeries(AggregateResolution table,
+                                             AggregateResolution step,
+                                             long workflowVersionId,
+                                             String groupHash,
+                                             String nodeKey,
+                                             Instant from,
+                                             Instant to,
+                                             boolean byGroup,
+                                             boolean byNode) {
+        String groupColumn = byGroup ? "nullif(group_dim_hash, '')" : "null";
+        String nodeColumn = byNode ? "node_key" : "null";
+        StringBuilder sql = new StringBuilder("""
+                select %s group_hash, %s node, %s bucket,
+                       sum(in_flight) in_flight, sum(completed) completed, sum(late) late, sum(failed) failed
+                from %s
+                where workflow_version_id = ?""".formatted(groupColumn, nodeColumn, step.bucketExpression("bucket_start"), table.table()));
+        List<Object> params = new ArrayList<>();
+        params.add(workflowVersionId);
+        appendFilters(sql, params, groupHash, nodeKey, from, to);
+        sql.append(" group by group_hash, node, bucket");
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new SeriesRow(
+                rs.getString("group_hash"),
+                rs.getString("node"),
+                rs.getTimestamp("bucket").toInstant(),
+                rs.getLong("in_flight"),
+                rs.getLong("completed"),
+                rs.getLong("late"),
+                rs.getLong("failed")
+        ), params.toArray());
+    }
+
+    private static void appendFilters(StringBuilder sql, List<Object> params, String groupHash, String nodeKey, Instant from, Instant to) {
+        if (groupHash != null) {
+            sql.append(" and group_dim_hash = ?");
+            params.add(groupHash);
+        }
+        if (nodeKey != null) {
+            sql.append(" and node_key = ?");
+            params.add(nodeKey);
+        }
+        if (from != null) {
+            sql.append(" and bucket_start >= ?");
+            params.add(Timestamp.from(from));
+        }
+        if (to != null) {
+            sql.append(" and bucket_start < ?");
+            params.add(Timestamp.from(to));
+        }
+    }
+
+    public record SeriesRow(String groupHash, String nodeKey, Instant bucket, long inFlight, long completed, long late, long failed) {
+    }
+}
@@ -0,0 +1,199 @@
+package com.sentinel.platform.aggregation.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.sentinel.platform.ruleengine.model.BacklogDelta;
+import com.sentinel.platform.shared.group.GroupLabelService;
+
+@Repository
+public class StageBacklogRepository {
+    /**
+     * The {@code stage_backlog} rows: outstanding expectations per workflow version, group, target node and
+     * due minute. Ages are never stored; a row's age bucket follows from its due minute and the clock, so
+     * the histogram ages forward on its own and {@link #fold} only has to collapse the minutes past the
+     * last boundary into the {@link #FOLDED} row. A null group is stored as {@code ''}.
+     */
+    public static final Instant FOLDED = Instant.EPOCH;
+
+    private static final String ADD = """
+            insert into stage_backlog (workflow_version_id, group_dim_hash, node_key, due_minute, outstanding)
+            values (?, ?, ?, ?, ?)
+            on duplicate key update outstanding = outstanding + values(outstanding)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GroupLabelService groupLabelService;
+
+    public StageBacklogRepository(JdbcTemplate jdbcTemplate, GroupLabelService groupLabelService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.groupLabelService = groupLabelService;
+    }
+
+    /**
+     * Adds {@code deltas} to the rows of one version and group, merging deltas of the same node and due
+     * minute first so each row is upserted once.
+     */
+    public void add(long workflowVersionId, String groupHash, List<BacklogDelta> deltas) {
+        Map<Key, Long> merged = new LinkedHashMap<>();
+        String group = groupHash != null ? groupHash : "";
+        for (BacklogDelta delta : deltas) {
+            if (delta.delta() != 0 && delta.nodeKey() != null && delta.dueAt() != null) {
+                merged.merge(new Key(workflowVersionId, group, delta.nodeKey(), delta.dueAt().truncatedTo(ChronoUnit.MINUTES)),
+                        (long) delta.delta(), Long::sum);
+            }
+        }
+        merged.values().removeIf(delta -> delta == 0);
+        add(merged);
+    }
+
+    public void add(Map<Key, Long> deltas) {
+        List<Object[]> updates = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> updates.add(new Object[]{key.workflowVersionId(), key.groupHash(), key.nodeKey(),
+                Timestamp.from(key.dueMinute()), delta}));
+        if (updates.size() == 1) {
+            jdbcTemplate.update(ADD, updates.get(0));
+        } else if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD, updates);
+        }
+    }
+
+    /**
+     * Moves every row due before {@code before} into its stage's {@link #FOLDED} row and deletes rows that
+     * netted out to zero; returns the number of rows removed.
+     */
+    @Transactional
+    public int fold(Instant before) {
+        Timestamp cutoff = Timestamp.from(before.truncatedTo(ChronoUnit.MINUTES));
+        Timestamp folded = Timestamp.from(FOLDED);
+        jdbcTemplate.update("""
+                insert into stage_backlog (workflow_version_id, group_dim_hash, node_key, due_minute, outstanding)
+                select old.workflow_version_id, old.group_dim_hash, old.node_key, ?, old.total
+                from (select workflow_version_id, group_dim_hash, node_key, sum(outstanding) total
+                      from stage_backlog
+                      where due_minute < ? and due_minute > ?
+                      group by workflow_version_id, group_dim_hash, node_key) old
+                on duplicate key update outstanding = stage_backlog.outstanding + values(outstanding)
+                """, folded, cutoff, folded);
+        int removed = jdbcTemplate.update("delete from stage_backlog where due_minute < ? and due_minute > ?", cutoff, folded);
+        return removed + jdbcTemplate.update("delete from stage_backlog where outstanding = 0");
+    }
+
+    /**
+     * Every row, with minutes due before {@code foldBefore} counted into the {@link #FOLDED} row as
+     * {@link #fold} would.
+     */
+    public Map<Key, Long> findAll(Instant foldBefore) {
+        Instant cutoff = foldBefore.truncatedTo(ChronoUnit.MINUTES);
+        Map<Key, Long> rows = new HashMap<>();
+        jdbcTemplate.query("select workflow_version_id, group_dim_hash, node_key, due_minute, outstanding from stage_backlog", rs -> {
+            rows.merge(new Key(rs.getLong("workflow_version_id"), rs.getString("group_dim_hash"), rs.getString("node_key"),
+                    folded(rs.getTimestamp("due_minute").toInstant(), cutoff)), rs.getLong("outstanding"), Long::sum);
+        });
+        return rows;
+    }
+
+    /**
+     * What the rows should read: the outstanding count of pending and fired expectations per workflow
+     * version, group, target node and due minute, folded like {@link #findAll}. Group hashes are computed
+     * from the runs' dimensions as the rule engine does.
+     */
+    public Map<Key, Long> expectedFromExpectations(Instant foldBefore) {
+        Instant cutoff = foldBefore.truncatedTo(ChronoUnit.MINUTES);
+        Map<Key, Long> expected = new HashMap<>();
+        jdbcTemplate.query("""
+                select r.workflow_version_id, r.group_dims, e.to_node_key,
+                       cast(date_format(e.due_at, '%Y-%m-%d %H:%i:00') as datetime) due_minute,
+                       sum(e.remaining_count) outstanding
+                from expectation e
+                join workflow_run r on r.id = e.workflow_run_id
+                where e.status in ('pending','fired') and e.remaining_count > 0
+                group by r.workflow_version_id, r.group_dims, e.to_node_key, due_minute
+                """, rs -> {
+            Map<String, Object> group = groupLabelService.parseGroupJson(rs.getString("group_dims"));
+            String groupHash = group.isEmpty() ? "" : groupLabelService.hashGroup(group);
+            expected.merge(new Key(rs.getLong("workflow_version_id"), groupHash, rs.getString("to_node_key"),
+                    folded(rs.getTimestamp("due_minute").toInstant(), cutoff)), rs.getLong("outstanding"), Long::sum);
+        });
+        return expected;
+    }
+
+    /**
+     * Outstanding counts of one workflow version per group, node and age bucket. {@code cutoffs} are
+     * descending due-minute thresholds: a row falls into the first bucket whose cutoff it is not before,
+     * or into bucket {@code cutoffs.size()} when it is before all of them.
+     */
+    public List<AgeCount> ages(long workflowVersionId, String groupHash, List<Instant> cutoffs) {
+        List<Object> params = new ArrayList<>();
+        String bucket = bucketExpression(cutoffs, params);
+        StringBuilder sql = new StringBuilder("""
+                select group_dim_hash, node_key, %s bucket, sum(outstanding) outstanding
+                from stage_backlog
+                where workflow_version_id = ?""".formatted(bucket));
+        params.add(workflowVersionId);
+        if (groupHash != null) {
+            sql.append(" and group_dim_hash = ?");
+            params.add(groupHash);
+        }
+        sql.append(" group by group_dim_hash, node_key, bucket order by group_dim_hash, node_key, bucket");
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new AgeCount(workflowVersionId, rs.getString("group_dim_hash"),
+                rs.getString("node_key"), rs.getInt("bucket"), rs.getLong("outstanding")), params.toArray());
+    }
+
+    /**
+     * Outstanding counts per group (summed over nodes) and age bucket for each of {@code workflowVersionIds};
+     * the group without dimensions is keyed {@code ''}.
+     */
+    public List<AgeCount> agesByGroup(Collection<Long> workflowVersionIds, List<Instant> cutoffs) {
+        if (workflowVersionIds.isEmpty()) {
+            return List.of();
+        }
+        List<Object> params = new ArrayList<>();
+        String bucket = bucketExpression(cutoffs, params);
+        params.addAll(workflowVersionIds);
+        String placeholders = workflowVersionIds.stream().map(id -> "?").collect(Collectors.joining(","));
+        return jdbcTemplate.query("""
+                        select workflow_version_id, group_dim_hash, %s bucket, sum(outstanding) outstanding
+                        from stage_backlog
+                        where workflow_version_id in (%s)
+                        group by workflow_version_id, group_dim_hash, bucket
+                        """.formatted(bucket, placeholders),
+                (rs, rowNum) -> new AgeCount(rs.getLong("workflow_version_id"), rs.getString("group_dim_hash"), null,
+                        rs.getInt("bucket"), rs.getLong("outstanding")),
+                params.toArray());
+    }
+
+    private static String bucketExpression(List<Instant> cutoffs, List<Object> params) {
+        StringBuilder bucket = new StringBuilder("case");
+        for (int i = 0; i < cutoffs.size(); i++) {
+            bucket.append(" when due_minute >= ? then ").append(i);
+            params.add(Timestamp.from(cutoffs.get(i)));
+        }
+        return bucket.append(" else ").append(cutoffs.size()).append(" end").toString();
+    }
+
+    private static Instant folded(Instant dueMinute, Instant cutoff) {
+        return dueMinute.isBefore(cutoff) ? FOLDED : dueMinute;
+    }
+
+    public record Key(long workflowVersionId, String groupHash, String nodeKey, Instant dueMinute) {
+    }
+
+    /**
+     * Outstanding occurrences of one age bucket; {@code nodeKey} is null when summed over nodes.
+     */
+    public record AgeCount(long workflowVersionId, String groupHash, String nodeKey, int bucket, long outstanding) {
+    }
+}
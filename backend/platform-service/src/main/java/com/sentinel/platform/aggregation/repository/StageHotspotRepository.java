@@ -0,0 +1,70 @@
+package com.sentinel.platform.aggregation.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class StageHotspotRepository {
+    /**
+     * The {@code stage_hotspot} snapshots: each node's hotspot lists per workflow version and group, as
+     * JSON, with {@code updated_at} doubling as the node's heartbeat. A null group is stored as {@code ''}.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    public StageHotspotRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void save(long workflowVersionId, String groupHash, String instanceId, String overdueJson, String slowestJson, Instant at) {
+        jdbcTemplate.update("""
+                        insert into stage_hotspot (workflow_version_id, group_dim_hash, instance_id, overdue, slowest, updated_at)
+                        values (?, ?, ?, ?, ?, ?)
+                        on duplicate key update
+                            overdue = values(overdue),
+                            slowest = values(slowest),
+                            updated_at = values(updated_at)
+                        """,
+                workflowVersionId, groupHash != null ? groupHash : "", instanceId, overdueJson, slowestJson, Timestamp.from(at));
+    }
+
+    public void delete(long workflowVersionId, String groupHash, String instanceId) {
+        jdbcTemplate.update("delete from stage_hotspot where workflow_version_id = ? and group_dim_hash = ? and instance_id = ?",
+                workflowVersionId, groupHash != null ? groupHash : "", instanceId);
+    }
+
+    /**
+     * Marks every snapshot of {@code instanceId} as current, whether or not its lists changed.
+     */
+    public void touch(String instanceId, Instant at) {
+        jdbcTemplate.update("update stage_hotspot set updated_at = ? where instance_id = ?", Timestamp.from(at), instanceId);
+    }
+
+    public int deleteStale(Instant before) {
+        return jdbcTemplate.update("delete from stage_hotspot where updated_at < ?", Timestamp.from(before));
+    }
+
+    /**
+     * Snapshots of one workflow version (and group, when given) written since {@code freshSince} by nodes
+     * other than {@code excludeInstanceId}.
+     */
+    public List<Snapshot> find(long workflowVersionId, String groupHash, Instant freshSince, String excludeInstanceId) {
+        StringBuilder sql = new StringBuilder("""
+                select overdue, slowest from stage_hotspot
+                where workflow_version_id = ? and updated_at >= ? and instance_id <> ?""");
+        List<Object> params = new ArrayList<>(List.of(workflowVersionId, Timestamp.from(freshSince), excludeInstanceId));
+        if (groupHash != null) {
+            sql.append(" and group_dim_hash = ?");
+            params.add(groupHash);
+        }
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new Snapshot(rs.getString("overdue"), rs.getString("slowest")),
+                params.toArray());
+    }
+
+    public record Snapshot(String overdueJson, String slowestJson) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.sentinel.platform.aggregation.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.sentinel.platform.shared.group.GroupLabelService;
+
+@Repository
+public class StageInFlightRepository {
+    /**
+     * The {@code stage_inflight} gauge: the current in-flight count per workflow version, group and node.
+     * Deltas are applied with a single upsert each, so concurrent writers never lose an update; the
+     * expected value is derived from the expectation tables for reconciliation.
+     */
+    private static final String ADD = """
+            insert into stage_inflight (workflow_version_id, group_dim_hash, node_key, in_flight, updated_at)
+            values (?, ?, ?, greatest(0, ?), ?)
+            on duplicate key update
+                in_flight = greatest(0, in_flight + ?),
+                updated_at = values(updated_at)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GroupLabelService groupLabelService;
+
+    public StageInFlightRepository(JdbcTemplate jdbcTemplate, GroupLabelService groupLabelService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.groupLabelService = groupLabelService;
+    }
+
+    /**
+     * Adds {@code deltas} (node key to delta) to the gauges of one version and group; a null group is
+     * stored as {@code ''}.
+     */
+    public void add(long workflowVersionId, String groupHash, Map<String, Integer> deltas, Instant at) {
+        Timestamp updatedAt = Timestamp.from(at);
+        String group = groupHash != null ? groupHash : "";
+        List<Object[]> updates = new ArrayList<>(deltas.size());
+        deltas.forEach((nodeKey, delta) -> {
+            if (delta != null && delta != 0) {
+                updates.add(new Object[]{workflowVersionId, group, nodeKey, delta, updatedAt, delta});
+            }
+        });
+        if (updates.size() == 1) {
+            jdbcTemplate.update(ADD, updates.get(0));
+        } else if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD, updates);
+        }
+    }
+
+    public Map<Key, Long> findAll() {
+        Map<Key, Long> gauges = new HashMap<>();
+        jdbcTemplate.query("select workflow_version_id, group_dim_hash, node_key, in_flight from stage_inflight", rs -> {
+            gauges.put(new Key(rs.getLong("workflow_version_id"), rs.getString("group_dim_hash"), rs.getString("node_key")),
+                    rs.getLong("in_flight"));
+        });
+        return gauges;
+    }
+
+    /**
+     * In-flight totals per group (summed over nodes) for each of {@code workflowVersionIds}; the group
+     * without dimensions is keyed {@code ''}.
+     */
+    public Map<Long, Map<String, Long>> totalsByGroup(Collection<Long> workflowVersionIds) {
+        if (workflowVersionIds.isEmpty()) {
+            return Map.of();
+        }
+        String placeholders = workflowVersionIds.stream().map(id -> "?").collect(Collectors.joining(","));
+        Map<Long, Map<String, Long>> totals = new HashMap<>();
+        jdbcTemplate.query("""
+                        select workflow_version_id, group_dim_hash, sum(in_flight) in_flight
+                        from stage_inflight
+                        where workflow_version_id in (%s)
+                        group by workflow_version_id, group_dim_hash
+                        """.formatted(placeholders),
+                rs -> {
+                    totals.computeIfAbsent(rs.getLong("workflow_version_id"), id -> new HashMap<>())
+                            .put(rs.getString("group_dim_hash"), rs.getLong("in_flight"));
+                }, workflowVersionIds.toArray());
+        return totals;
+    }
+
+    /**
+     * What the gauges should read: the outstanding count of pending and fired expectations per workflow
+     * version, group and target node. Group hashes are computed from the runs' dimensions as the rule
+     * engine does, so runs are grouped by their stored {@code group_dims} first.
+     */
+    public Map<Key, Long> expectedFromExpectations() {
+        Map<Key, Long> expected = new HashMap<>();
+        jdbcTemplate.query("""
+                select r.workflow_version_id, r.group_dims, e.to_node_key, sum(e.remaining_count) outstanding
+                from expectation e
+                join workflow_run r on r.id = e.workflow_run_id
+                where e.status in ('pending','fired')
+                group by r.workflow_version_id, r.group_dims, e.to_node_key
+                """, rs -> {
+            Map<String, Object> group = groupLabelService.parseGroupJson(rs.getString("group_dims"));
+            String groupHash = group.isEmpty() ? "" : groupLabelService.hashGroup(group);
+            expected.merge(new Key(rs.getLong("workflow_version_id"), groupHash, rs.getString("to_node_key")),
+                    rs.getLong("outstanding"), Long::sum);
+        });
+        return expected;
+    }
+
+    public record Key(long workflowVersionId, String groupHash, String nodeKey) {
+    }
+}
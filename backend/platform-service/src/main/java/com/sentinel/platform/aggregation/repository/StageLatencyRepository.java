@@ -0,0 +1,176 @@
+package com.sentinel.platform.aggregation.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.sentinel.platform.aggregation.model.AggregateResolution;
+import com.sentinel.platform.aggregation.model.DistinctSketch;
+import com.sentinel.platform.aggregation.model.LatencyHistogram;
+
+@Repository
+public class StageLatencyRepository {
+    /**
+     * Reads and merges the latency histograms and distinct-correlation sketches stored on
+     * {@code stage_aggregate} rows. JdbcTemplate rather than the JPA repository: a sketch cannot be added
+     * to in SQL like the counters, so merging is a locked read-modify-write of the row's blobs, and queries
+     * fold rows into one sketch per node as they stream instead of materializing entities.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    public StageLatencyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds {@code histogram} and {@code distinct} (either may be null) to the row of
+     * {@code (workflowVersionId, groupHash, nodeKey, bucketStart)} in {@code tablePrefix + "stage_aggregate"},
+     * creating a row without counts if there is none yet. Rows without a group hash are not unique per
+     * bucket, so the first one takes the sketches; readers merge every row anyway.
+     */
+    @Transactional
+    public void merge(String tablePrefix,
+                      long workflowVersionId,
+                      String groupHash,
+                      String nodeKey,
+                      Instant bucketStart,
+                      LatencyHistogram histogram,
+                      DistinctSketch distinct) {
+        String table = table(tablePrefix);
+        Timestamp bucket = Timestamp.from(bucketStart);
+        for (int attempt = 0; attempt < 2; attempt++) {
+            List<Object[]> rows = jdbcTemplate.query("""
+                            select id, latency_histogram, distinct_sketch from %s
+                            where workflow_version_id = ? and group_dim_hash <=> ? and node_key = ? and bucket_start = ?
+                            order by id
+                            limit 1
+                            for update
+                            """.formatted(table),
+                    (rs, rowNum) -> new Object[]{rs.getLong("id"), rs.getBytes("latency_histogram"), rs.getBytes("distinct_sketch")},
+                    workflowVersionId, groupHash, nodeKey, bucket);
+            if (!rows.isEmpty()) {
+                byte[] mergedHistogram = (byte[]) rows.get(0)[1];
+                if (histogram != null) {
+                    LatencyHistogram merged = LatencyHistogram.fromBytes(mergedHistogram);
+                    merged.merge(histogram);
+                    mergedHistogram = merged.toBytes();
+                }
+                byte[] mergedDistinct = (byte[]) rows.get(0)[2];
+                if (distinct != null) {
+                    DistinctSketch merged = DistinctSketch.fromBytes(mergedDistinct);
+                    merged.merge(distinct);
+                    mergedDistinct = merged.toBytes();
+                }
+                jdbcTemplate.update("update " + table + " set latency_histogram = ?, distinct_sketch = ? where id = ? and bucket_start = ?",
+                        mergedHistogram, mergedDistinct, rows.get(0)[0], bucket);
+                return;
+            }
+            try {
+                jdbcTemplate.update("insert into " + table + " (workflow_version_id, group_dim_hash, node_key, bucket_start, "
+                                + "in_flight, completed, late, failed, latency_histogram, distinct_sketch) "
+                                + "select id, ?, ?, ?, 0, 0, 0, 0, ?, ? from workflow_version where id = ?",
+                        groupHash, nodeKey, bucket,
+                        histogram != null ? histogram.toBytes() : null,
+                        distinct != null ? distinct.toBytes() : null,
+                        workflowVersionId);
+                return;
+            } catch (DuplicateKeyException ex) {
+                // Another writer created the row first; merge into it.
+            }
+        }
+    }
+
+    /**
+     * Histograms of a workflow version merged per node over the rows of {@code resolution}'s table matching
+     * the optional group, node and {@code [from, to)} bucket filters (either bound may be null).
+     */
+    public Map<String, LatencyHistogram> histogramsByNode(AggregateResolution resolution,
+                                                          long workflowVersionId,
+                                                          String groupHash,
+                                                          String nodeKey,
+                                                          Instant from,
+                                                          Instant to) {
+        StringBuilder sql = new StringBuilder("""
+                select node_key, latency_histogram from %s
+                where workflow_version_id = ? and latency_histogram is not null""".formatted(resolution.table()));
+        List<Object> params = new ArrayList<>();
+        params.add(workflowVersionId);
+        appendFilters(sql, params, groupHash, nodeKey, from, to);
+        Map<String, LatencyHistogram> byNode = new HashMap<>();
+        jdbcTemplate.query(sql.toString(), rs -> {
+            byNode.computeIfAbsent(rs.getString("node_key"), key -> new LatencyHistogram())
+                    .merge(LatencyHistogram.fromBytes(rs.getBytes("latency_histogram")));
+        }, params.toArray());
+        return byNode;
+    }
+
+    /**
+     * Distinct-correlation sketches of a workflow version merged per node, per group hash when
+     * {@code byGroup}, and per {@code step} bucket when a step is given, over the rows of
+     * {@code resolution}'s table matching the optional group, node and {@code [from, to)} filters.
+     * Key parts not split by come back null, as does the hash of rows without a group.
+     */
+    public Map<DistinctKey, DistinctSketch> distinctSketches(AggregateResolution resolution,
+                                                             AggregateResolution step,
+                                                             boolean byGroup,
+                                                             long workflowVersionId,
+                                                             String groupHash,
+                                                             String nodeKey,
+                                                             Instant from,
+                                                             Instant to) {
+        StringBuilder sql = new StringBuilder("""
+                select %s group_hash, node_key, %s bucket, distinct_sketch from %s
+                where workflow_version_id = ? and distinct_sketch is not null""".formatted(
+                byGroup ? "nullif(group_dim_hash, '')" : "null",
+                step != null ? step.bucketExpression("bucket_start") : "null",
+                resolution.table()));
+        List<Object> params = new ArrayList<>();
+        params.add(workflowVersionId);
+        appendFilters(sql, params, groupHash, nodeKey, from, to);
+        Map<DistinctKey, DistinctSketch> sketches = new HashMap<>();
+        jdbcTemplate.query(sql.toString(), rs -> {
+            Timestamp bucket = rs.getTimestamp("bucket");
+            sketches.computeIfAbsent(new DistinctKey(rs.getString("group_hash"), rs.getString("node_key"),
+                            bucket != null ? bucket.toInstant() : null), key -> new DistinctSketch())
+                    .merge(DistinctSketch.fromBytes(rs.getBytes("distinct_sketch")));
+        }, params.toArray());
+        return sketches;
+    }
+
+    private static void appendFilters(StringBuilder sql, List<Object> params, String groupHash, String nodeKey, Instant from, Instant to) {
+        if (groupHash != null) {
+            sql.append(" and group_dim_hash = ?");
+            params.add(groupHash);
+        }
+        if (nodeKey != null) {
+            sql.append(" and node_key = ?");
+            params.add(nodeKey);
+        }
+        if (from != null) {
+            sql.append(" and bucket_start >= ?");
+            params.add(Timestamp.from(from));
+        }
+        if (to != null) {
+            sql.append(" and bucket_start < ?");
+            params.add(Timestamp.from(to));
+        }
+    }
+
+    private static String table(String tablePrefix) {
+        if (!"".equals(tablePrefix) && !"shadow_".equals(tablePrefix)) {
+            throw new IllegalArgumentException("Unknown state set prefix: " + tablePrefix);
+        }
+        return tablePrefix + "stage_aggregate";
+    }
+
+    public record DistinctKey(String groupHash, String nodeKey, Instant bucket) {
+    }
+}
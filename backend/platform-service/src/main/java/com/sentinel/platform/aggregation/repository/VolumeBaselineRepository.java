@@ -0,0 +1,111 @@
+package com.sentinel.platform.aggregation.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.sentinel.platform.aggregation.model.VolumeBaseline;
+
+@Repository
+public class VolumeBaselineRepository {
+    /**
+     * The {@code volume_baseline} slots, the learning watermark (an {@code aggregate_rollup_state} row),
+     * and the completion counts they are learned from and checked against. Group hashes are {@code ''} for
+     * no group throughout, as in the rollup tables.
+     */
+    private static final String WATERMARK = "baseline";
+    private static final String SAVE = """
+            insert into volume_baseline (workflow_version_id, group_dim_hash, node_key, hour_of_week, samples, mean, variance)
+            values (?, ?, ?, ?, ?, ?, ?)
+            on duplicate key update
+                samples = values(samples),
+                mean = values(mean),
+                variance = values(variance)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VolumeBaselineRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * End of the last hour learned into the baselines, or null if none has been learned yet.
+     */
+    public Instant learnedUntil() {
+        List<Timestamp> rows = jdbcTemplate.queryForList("select rolled_until from aggregate_rollup_state where resolution = ?",
+                Timestamp.class, WATERMARK);
+        return rows.isEmpty() ? null : rows.get(0).toInstant();
+    }
+
+    public void markLearned(Instant until) {
+        jdbcTemplate.update("""
+                insert into aggregate_rollup_state (resolution, rolled_until) values (?, ?)
+                on duplicate key update rolled_until = values(rolled_until)
+                """, WATERMARK, Timestamp.from(until));
+    }
+
+    public Map<SeriesKey, VolumeBaseline> findSlot(int hourOfWeek) {
+        Map<SeriesKey, VolumeBaseline> slot = new HashMap<>();
+        jdbcTemplate.query("""
+                select workflow_version_id, group_dim_hash, node_key, samples, mean, variance
+                from volume_baseline
+                where hour_of_week = ?
+                """, rs -> {
+            slot.put(new SeriesKey(rs.getLong("workflow_version_id"), rs.getString("group_dim_hash"), rs.getString("node_key")),
+                    new VolumeBaseline(rs.getInt("samples"), rs.getDouble("mean"), rs.getDouble("variance")));
+        }, hourOfWeek);
+        return slot;
+    }
+
+    public void saveSlot(int hourOfWeek, Map<SeriesKey, VolumeBaseline> slot) {
+        List<Object[]> rows = new ArrayList<>(slot.size());
+        slot.forEach((key, baseline) -> rows.add(new Object[]{key.workflowVersionId(), key.groupHash(), key.nodeKey(), hourOfWeek,
+                baseline.samples(), baseline.mean(), baseline.variance()}));
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(SAVE, rows);
+        }
+    }
+
+    /**
+     * Completions per series in the hour starting at {@code hour}, from its {@code stage_aggregate_hour} rows.
+     */
+    public Map<SeriesKey, Long> hourCompletions(Instant hour) {
+        Map<SeriesKey, Long> completions = new HashMap<>();
+        jdbcTemplate.query("""
+                select workflow_version_id, group_dim_hash, node_key, completed
+                from stage_aggregate_hour
+                where bucket_start = ? and completed > 0
+                """, rs -> {
+            completions.merge(new SeriesKey(rs.getLong("workflow_version_id"), rs.getString("group_dim_hash"), rs.getString("node_key")),
+                    rs.getLong("completed"), Long::sum);
+        }, Timestamp.from(hour));
+        return completions;
+    }
+
+    /**
+     * Completions per series in the minute buckets of {@code [from, to)}.
+     */
+    public Map<SeriesKey, Long> windowCompletions(Instant from, Instant to) {
+        Map<SeriesKey, Long> completions = new HashMap<>();
+        jdbcTemplate.query("""
+                select workflow_version_id, coalesce(group_dim_hash, '') group_dim_hash, node_key, sum(completed) completed
+                from stage_aggregate
+                where bucket_start >= ? and bucket_start < ?
+                group by workflow_version_id, coalesce(group_dim_hash, ''), node_key
+                """, rs -> {
+            completions.merge(new SeriesKey(rs.getLong("workflow_version_id"), rs.getString("group_dim_hash"), rs.getString("node_key")),
+                    rs.getLong("completed"), Long::sum);
+        }, Timestamp.from(from), Timestamp.from(to));
+        return completions;
+    }
+
+    public record SeriesKey(long workflowVersionId, String groupHash, String nodeKey) {
+    }
+}
@@ -0,0 +1,121 @@
+package com.sentinel.platform.aggregation.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.sentinel.platform.aggregation.config.AggregationProperties;
+import com.sentinel.platform.aggregation.model.AggregateResolution;
+import com.sentinel.platform.aggregation.repository.StageAggregateRollupRepository;
+import com.sentinel.platform.retention.repository.PartitionRepository;
+
+@Service
+public class AggregateRollupService {
+    /**
+     * Rolls closed minute buckets of {@code stage_aggregate} into hours and closed hours into days. A
+     * bucket is closed once it ended {@code aggregation.rollup-grace-minutes} ago; each pass rolls forward
+     * from the resolution's watermark and recomputes the last {@code rollup-restate-buckets} rolled
+     * buckets to catch stragglers. One node rolls at a time, under a MariaDB named lock.
+     */
+    private static final Logger log = LoggerFactory.getLogger(AggregateRollupService.class);
+    public static final String LOCK_NAME = "sentinel.aggregate-rollup";
+    private static final int PURGE_BATCH = 10_000;
+
+    private final StageAggregateRollupRepository rollupRepository;
+    private final PartitionRepository partitionRepository;
+    private final AggregationProperties properties;
+    private final Clock clock;
+
+    public AggregateRollupService(StageAggregateRollupRepository rollupRepository,
+                                  PartitionRepository partitionRepository,
+                                  AggregationProperties properties,
+                                  Clock clock) {
+        this.rollupRepository = rollupRepository;
+        this.partitionRepository = partitionRepository;
+        this.properties = properties;
+        this.clock = clock;
+    }
+
+    @Scheduled(fixedDelayString = "${aggregation.rollup-interval-seconds:60}000")
+    public void scheduledRollup() {
+        if (!properties.isRollupEnabled()) {
+            return;
+        }
+        boolean ran = partitionRepository.withMaintenanceLock(LOCK_NAME, () -> {
+            try {
+                Instant closedBefore = clock.instant().minus(Duration.ofMinutes(properties.getRollupGraceMinutes()));
+                int hours = rollForward(AggregateResolution.HOUR, AggregateResolution.HOUR.truncate(closedBefore));
+                Instant hoursRolled = rollupRepository.rolledUntil(AggregateResolution.HOUR);
+                int days = hoursRolled == null ? 0 : rollForward(AggregateResolution.DAY, AggregateResolution.DAY.truncate(hoursRolled));
+                int purged = purgeDays();
+                if (hours > 0 || days > 0 || purged > 0) {
+                    log.info("Aggregate rollup pass hours={} days={} purgedDayRows={} hoursRolledUntil={}",
+                            hours, days, purged, rollupRepository.rolledUntil(AggregateResolution.HOUR));
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Aggregate rollup pass failed", ex);
+            }
+        });
+        if (!ran) {
+            log.debug("Aggregate rollup skipped; another node holds {}", LOCK_NAME);
+        }
+    }
+
+    /**
+     * Makes the rollups covering {@code from} onwards be recomputed, for writers that changed minute
+     * buckets which were already rolled (live replays).
+     */
+    public void rewind(Instant from) {
+        rollupRepository.rewind(AggregateResolution.HOUR, AggregateResolution.HOUR.truncate(from));
+        rollupRepository.rewind(AggregateResolution.DAY, AggregateResolution.DAY.truncate(from));
+        log.info("Aggregate rollups rewound from={}", from);
+    }
+
+    /**
+     * Rolls {@code target} buckets that end at or before {@code closedUntil}, restating the last few
+     * rolled ones first; returns how many buckets were newly rolled.
+     */
+    private int rollForward(AggregateResolution target, Instant closedUntil) {
+        Instant watermark = rollupRepository.rolledUntil(target);
+        Instant next;
+        if (watermark == null) {
+            Instant earliest = rollupRepository.earliestBucket(target.finer());
+            if (earliest == null) {
+                return 0;
+            }
+            next = target.truncate(earliest);
+        } else {
+            next = watermark;
+            for (int i = 0; i < properties.getRollupRestateBuckets(); i++) {
+                next = target.previous(next);
+            }
+        }
+        int rolled = 0;
+        int added = 0;
+        while (!target.next(next).isAfter(closedUntil) && rolled < properties.getRollupMaxBucketsPerRun()) {
+            rollupRepository.rollUp(target, next);
+            if (watermark == null || !next.isBefore(watermark)) {
+                added++;
+            }
+            next = target.next(next);
+            rolled++;
+        }
+        return added;
+    }
+
+    private int purgeDays() {
+        Instant cutoff = AggregateResolution.DAY.truncate(clock.instant()).minus(Duration.ofDays(properties.getDayRetentionDays()));
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = rollupRepository.deleteBefore(AggregateResolution.DAY, cutoff, PURGE_BATCH);
+            purged += deleted;
+        } while (deleted == PURGE_BATCH);
+        return purged;
+    }
+}
@@ -1,12 +1,39 @@
 package com.sentinel.platform.aggregation.service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import com.sentinel.platform.aggregation.config.AggregationProperties;
+import com.sentinel.platform.aggregation.model.AggregateResolution;
+import com.sentinel.platform.aggregation.model.DistinctSketch;
+import com.sentinel.platform.aggregation.model.LatencyHistogram;
+import com.sentinel.platform.aggregation.model.SeriesGroupBy;
+import com.sentinel.platform.aggregation.model.SeriesMetric;
 import com.sentinel.platform.aggregation.model.StageAggregate;
 import com.sentinel.platform.aggregation.repository.StageAggregateRepository;
+import com.sentinel.platform.aggregation.repository.StageAggregateRollupRepository;
+import com.sentinel.platform.aggregation.repository.StageAggregateRollupRepository.SeriesRow;
+import com.sentinel.platform.aggregation.repository.StageLatencyRepository.DistinctKey;
+import com.sentinel.platform.aggregation.repository.StageLatencyRepository;
+import com.sentinel.platform.aggregation.state.RecentAggregateStore;
+import com.sentinel.platform.aggregation.web.dto.StageAggregateView;
+import com.sentinel.platform.aggregation.web.dto.StageDistinctView;
+import com.sentinel.platform.aggregation.web.dto.StageLatencyView;
+import com.sentinel.platform.aggregation.web.dto.StageSeriesLine;
+import com.sentinel.platform.aggregation.web.dto.StageSeriesView;
+import com.sentinel.platform.shared.group.GroupLabelService;
 import com.sentinel.platform.shared.time.DateRange;
 
 @Service
@@ -14,35 +41,334 @@ public class AggregationQueryService {
     /**
      * Read-only service for surfacing aggregate snapshots to REST controllers.
      */
+    private static final Duration MINUTE_STEP_MAX_SPAN = Duration.ofDays(1);
+    private static final Duration HOUR_STEP_MAX_SPAN = Duration.ofDays(31);
+
     private final StageAggregateRepository repository;
+    private final StageAggregateRollupRepository rollupRepository;
+    private final StageLatencyRepository latencyRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final GroupLabelService groupLabelService;
+    private final AggregationProperties properties;
+    private final RecentAggregateStore recentStore;
 
-    public AggregationQueryService(StageAggregateRepository repository) {
+    public AggregationQueryService(StageAggregateRepository repository,
+                                   StageAggregateRollupRepository rollupRepository,
+                                   StageLatencyRepository latencyRepository,
+                                   JdbcTemplate jdbcTemplate,
+                                   GroupLabelService groupLabelService,
+                                   AggregationProperties properties,
+                                   RecentAggregateStore recentStore) {
         this.repository = repository;
+        this.rollupRepository = rollupRepository;
+        this.latencyRepository = latencyRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.groupLabelService = groupLabelService;
+        this.properties = properties;
+        this.recentStore = recentStore;
     }
 
-    public List<StageAggregate> findAggregates(Long workflowVersionId, int limit, String groupHash, DateRange dateRange) {
-        PageRequest page = PageRequest.of(0, limit);
-        boolean allDays = dateRange == null || dateRange.isAllDays();
-        if (!allDays) {
-            if (groupHash != null) {
-                return repository.findByWorkflowVersionIdAndGroupDimHashAndBucketStartBetweenOrderByBucketStartDesc(
-                        workflowVersionId, groupHash, dateRange.start(), dateRange.end(), page);
+    /**
+     * Stage aggregates summed into buckets of {@code step}, latest first. A null step lets the planner
+     * pick the coarsest resolution that still charts the range usefully: minutes up to a day, hours up to
+     * a month, days beyond. The rows come from the coarsest rolled-up table that covers each part of the
+     * range, so a long range reads a few hundred day or hour rows instead of every minute bucket; only
+     * the stretch past a rollup's watermark falls through to the finer table, and minutes inside the
+     * {@link RecentAggregateStore} window are read from memory.
+     */
+    public List<StageAggregateView> findAggregates(Long workflowVersionId,
+                                                   int limit,
+                                                   String groupHash,
+                                                   DateRange dateRange,
+                                                   AggregateResolution step) {
+        AggregateResolution resolution = step != null ? step : planStep(dateRange);
+        Map<List<Object>, StageAggregateView> merged = new HashMap<>();
+        for (Segment segment : segments(resolution, dateRange, true)) {
+            List<StageAggregateView> rows = segment.inMemory()
+                    ? recentStore.findSeries(resolution, workflowVersionId, groupHash, segment.from(), segment.to(), limit)
+                    : rollupRepository.findSeries(segment.table(), resolution, workflowVersionId, groupHash, segment.from(), segment.to(), limit);
+            for (StageAggregateView row : rows) {
+                // A step bucket straddling a watermark arrives in parts from two tables.
+                merged.merge(Arrays.asList(row.groupHash(), row.nodeKey(), row.bucketStart()), row, AggregationQueryService::sum);
             }
-            return repository.findByWorkflowVersionIdAndBucketStartBetweenOrderByBucketStartDesc(
-                    workflowVersionId, dateRange.start(), dateRange.end(), page);
         }
-        if (groupHash != null) {
-            return repository.findByWorkflowVersionIdAndGroupDimHashOrderByBucketStartDesc(workflowVersionId, groupHash, page);
+        return merged.values().stream()
+                .sorted(Comparator.comparing(StageAggregateView::bucketStart).reversed()
+                        .thenComparing(StageAggregateView::nodeKey))
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Dense time series of {@code metrics} in buckets of {@code step} (planned from the range when null),
+     * one line per {@code groupBy} value. Summing happens in SQL (or the recent store) over the same
+     * table split as {@link #findAggregates}; lines are then folded in memory onto one shared, gap-free bucket axis. An
+     * unbounded range spans the first to the last bucket with data. Ranges over
+     * {@code aggregation.series-max-points} buckets are rejected.
+     */
+    public StageSeriesView series(Long workflowVersionId,
+                                  DateRange dateRange,
+                                  AggregateResolution step,
+                                  SeriesGroupBy groupBy,
+                                  List<SeriesMetric> metrics,
+                                  String groupHash,
+                                  String nodeKey) {
+        AggregateResolution resolution = step != null ? step : planStep(dateRange);
+        boolean bounded = dateRange != null && !dateRange.isAllDays();
+        Instant start = bounded ? resolution.truncate(dateRange.start()) : null;
+        Instant end = bounded ? dateRange.end() : null;
+        if (bounded) {
+            checkPoints(start, end, resolution);
+        }
+        List<SeriesRow> rows = new ArrayList<>();
+        for (Segment segment : segments(resolution, dateRange, true)) {
+            rows.addAll(segment.inMemory()
+                    ? recentStore.findGroupedSeries(resolution, workflowVersionId, groupHash, nodeKey,
+                            segment.from(), segment.to(), groupBy.byGroup(), groupBy.byNode())
+                    : rollupRepository.findGroupedSeries(segment.table(), resolution, workflowVersionId, groupHash, nodeKey,
+                            segment.from(), segment.to(), groupBy.byGroup(), groupBy.byNode()));
+        }
+        if (!bounded && !rows.isEmpty()) {
+            start = rows.stream().map(SeriesRow::bucket).min(Comparator.naturalOrder()).orElseThrow();
+            end = resolution.next(rows.stream().map(SeriesRow::bucket).max(Comparator.naturalOrder()).orElseThrow());
+            checkPoints(start, end, resolution);
         }
-        return repository.findByWorkflowVersionIdOrderByBucketStartDesc(workflowVersionId, page);
+
+        List<Instant> buckets = new ArrayList<>();
+        Map<Instant, Integer> bucketIndex = new HashMap<>();
+        for (Instant bucket = start; bucket != null && bucket.isBefore(end); bucket = resolution.next(bucket)) {
+            bucketIndex.put(bucket, buckets.size());
+            buckets.add(bucket);
+        }
+        Map<String, Map<String, Object>> groups = groupBy.byGroup() ? groupDimensions(workflowVersionId) : Map.of();
+        Map<String, SeriesLine> lines = new HashMap<>();
+        for (SeriesRow row : rows) {
+            Integer index = bucketIndex.get(row.bucket());
+            if (index == null) {
+                continue;
+            }
+            String key = lineKey(groupBy, row, groups);
+            SeriesLine line = lines.computeIfAbsent(key, k -> new SeriesLine(lineLabel(groupBy, k, groups), metrics.size(), buckets.size()));
+            for (int m = 0; m < metrics.size(); m++) {
+                line.values[m][index] += switch (metrics.get(m)) {
+                    case IN_FLIGHT -> row.inFlight();
+                    case COMPLETED -> row.completed();
+                    case LATE -> row.late();
+                    case FAILED -> row.failed();
+                };
+            }
+        }
+        List<StageSeriesLine> series = lines.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> {
+                    Map<String, long[]> values = new LinkedHashMap<>();
+                    for (int m = 0; m < metrics.size(); m++) {
+                        values.put(metrics.get(m).wire(), entry.getValue().values[m]);
+                    }
+                    return new StageSeriesLine(entry.getKey(), entry.getValue().label, values);
+                })
+                .toList();
+        return new StageSeriesView(workflowVersionId, resolution.name().toLowerCase(Locale.ROOT), groupBy.wire(),
+                start, end, buckets, series);
     }
 
-    public List<StageAggregate> wallboard(int limit, DateRange dateRange) {
+    /**
+     * Stage latency percentiles per node, merged from the histograms of every matching row of the
+     * coarsest tables covering the range.
+     */
+    public List<StageLatencyView> stageLatencies(Long workflowVersionId, String groupHash, String nodeKey, DateRange dateRange) {
+        Map<String, LatencyHistogram> byNode = new HashMap<>();
+        for (Segment segment : segments(AggregateResolution.DAY, dateRange, false)) {
+            latencyRepository.histogramsByNode(segment.table(), workflowVersionId, groupHash, nodeKey, segment.from(), segment.to())
+                    .forEach((node, histogram) -> byNode.computeIfAbsent(node, key -> new LatencyHistogram()).merge(histogram));
+        }
+        return byNode.entrySet().stream()
+                .map(entry -> StageLatencyView.from(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparing(StageLatencyView::nodeKey))
+                .toList();
+    }
+
+    /**
+     * Approximate distinct correlation keys that reached each node (and group hash when {@code byGroup}),
+     * per {@code step} bucket, or over the whole range when the step is null, latest first. Merges the
+     * HyperLogLog sketches of the coarsest tables covering the range, so the cost is a few kilobytes per
+     * row read whatever the traffic was.
+     */
+    public List<StageDistinctView> distinctCounts(Long workflowVersionId,
+                                                  DateRange dateRange,
+                                                  AggregateResolution step,
+                                                  boolean byGroup,
+                                                  String groupHash,
+                                                  String nodeKey,
+                                                  int limit) {
+        if (step != null && dateRange != null && !dateRange.isAllDays()) {
+            checkPoints(step.truncate(dateRange.start()), dateRange.end(), step);
+        }
+        Map<DistinctKey, DistinctSketch> merged = new HashMap<>();
+        for (Segment segment : segments(step != null ? step : AggregateResolution.DAY, dateRange, false)) {
+            latencyRepository.distinctSketches(segment.table(), step, byGroup, workflowVersionId, groupHash, nodeKey, segment.from(), segment.to())
+                    .forEach((key, sketch) -> merged.computeIfAbsent(key, k -> new DistinctSketch()).merge(sketch));
+        }
+        return merged.entrySet().stream()
+                .map(entry -> new StageDistinctView(entry.getKey().groupHash(), entry.getKey().nodeKey(), entry.getKey().bucket(),
+                        entry.getValue().estimate()))
+                .sorted(Comparator.comparing(StageDistinctView::bucketStart, Comparator.nullsFirst(Comparator.reverseOrder()))
+                        .thenComparing(StageDistinctView::nodeKey)
+                        .thenComparing(StageDistinctView::groupHash, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * The latest {@code limit} minute rows across all workflows, from memory when the recent store covers
+     * the whole range.
+     */
+    public List<StageAggregateView> wallboard(int limit, DateRange dateRange) {
         boolean allDays = dateRange == null || dateRange.isAllDays();
-        if (!allDays) {
-            return repository.findAllByBucketStartBetweenOrderByBucketStartDesc(
-                    dateRange.start(), dateRange.end(), PageRequest.of(0, limit));
+        Instant coveredFrom = recentStore.coveredFrom();
+        if (!allDays && coveredFrom != null && !dateRange.start().isBefore(coveredFrom)) {
+            return recentStore.latest(dateRange.start(), dateRange.end(), limit);
+        }
+        List<StageAggregate> rows = allDays
+                ? repository.findAllByOrderByBucketStartDesc(PageRequest.of(0, limit))
+                : repository.findAllByBucketStartBetweenOrderByBucketStartDesc(dateRange.start(), dateRange.end(), PageRequest.of(0, limit));
+        return rows.stream().map(StageAggregateView::from).toList();
+    }
+
+    static AggregateResolution planStep(DateRange dateRange) {
+        if (dateRange == null || dateRange.isAllDays()) {
+            return AggregateResolution.DAY;
+        }
+        Duration span = Duration.between(dateRange.start(), dateRange.end());
+        if (span.compareTo(MINUTE_STEP_MAX_SPAN) <= 0) {
+            return AggregateResolution.MINUTE;
+        }
+        return span.compareTo(HOUR_STEP_MAX_SPAN) <= 0 ? AggregateResolution.HOUR : AggregateResolution.DAY;
+    }
+
+    /**
+     * Splits the range into consecutive parts answered by {@code coarsest}, then each finer resolution:
+     * a rollup table answers the whole buckets of the range below its watermark, a finer table the
+     * partial bucket at either end and whatever lies past the watermark, and the minute table answers what
+     * is left, from memory where {@code useRecentStore} and the recent store covers it.
+     */
+    private List<Segment> segments(AggregateResolution coarsest, DateRange dateRange, boolean useRecentStore) {
+        boolean allDays = dateRange == null || dateRange.isAllDays();
+        List<Segment> segments = new ArrayList<>();
+        addSegments(segments, coarsest, allDays ? null : dateRange.start(), allDays ? null : dateRange.end(), useRecentStore);
+        return segments;
+    }
+
+    /**
+     * Adds the parts of {@code [from, to)} (null bounds are open) answered by {@code table} and the finer
+     * resolutions, in time order.
+     */
+    private void addSegments(List<Segment> segments, AggregateResolution table, Instant from, Instant to, boolean useRecentStore) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            return;
+        }
+        if (table == AggregateResolution.MINUTE) {
+            addMinuteSegments(segments, from, to, useRecentStore);
+            return;
+        }
+        Instant rolledUntil = rollupRepository.rolledUntil(table);
+        if (rolledUntil == null) {
+            addSegments(segments, table.finer(), from, to, useRecentStore);
+            return;
+        }
+        Instant head = from == null || table.truncate(from).equals(from) ? from : table.next(table.truncate(from));
+        Instant tail = table.truncate(to != null && to.isBefore(rolledUntil) ? to : rolledUntil);
+        if (head != null && !head.isBefore(tail)) {
+            addSegments(segments, table.finer(), from, to, useRecentStore);
+            return;
+        }
+        if (head != null) {
+            addSegments(segments, table.finer(), from, head, useRecentStore);
+        }
+        segments.add(new Segment(table, head, tail, false));
+        addSegments(segments, table.finer(), tail, to, useRecentStore);
+    }
+
+    private void addMinuteSegments(List<Segment> segments, Instant from, Instant to, boolean useRecentStore) {
+        Instant coveredFrom = useRecentStore ? recentStore.coveredFrom() : null;
+        if (coveredFrom != null && (to == null || to.isAfter(coveredFrom))) {
+            if (from == null || from.isBefore(coveredFrom)) {
+                segments.add(new Segment(AggregateResolution.MINUTE, from, coveredFrom, false));
+                from = coveredFrom;
+            }
+            segments.add(new Segment(AggregateResolution.MINUTE, from, to, true));
+            return;
+        }
+        segments.add(new Segment(AggregateResolution.MINUTE, from, to, false));
+    }
+
+    private static StageAggregateView sum(StageAggregateView left, StageAggregateView right) {
+        return new StageAggregateView(left.workflowVersionId(), left.groupHash(), left.nodeKey(), left.bucketStart(),
+                left.inFlight() + right.inFlight(),
+                left.completed() + right.completed(),
+                left.late() + right.late(),
+                left.failed() + right.failed());
+    }
+
+    private record Segment(AggregateResolution table, Instant from, Instant to, boolean inMemory) {
+    }
+
+    private void checkPoints(Instant start, Instant end, AggregateResolution step) {
+        long points = 0;
+        for (Instant bucket = start; bucket.isBefore(end); bucket = step.next(bucket)) {
+            if (++points > properties.getSeriesMaxPoints()) {
+                throw new IllegalArgumentException("range has more than " + properties.getSeriesMaxPoints()
+                        + " " + step.name().toLowerCase(Locale.ROOT) + " buckets; use a coarser step or a shorter range");
+            }
+        }
+    }
+
+    /**
+     * Group dimensions of the version's runs keyed by group hash, for labels and dimension lines.
+     */
+    private Map<String, Map<String, Object>> groupDimensions(Long workflowVersionId) {
+        Map<String, Map<String, Object>> groups = new HashMap<>();
+        jdbcTemplate.query("select distinct group_dims from workflow_run where workflow_version_id = ? and group_dims is not null",
+                rs -> {
+                    Map<String, Object> group = groupLabelService.parseGroupJson(rs.getString("group_dims"));
+                    if (!group.isEmpty()) {
+                        groups.putIfAbsent(groupLabelService.hashGroup(group), group);
+                    }
+                }, workflowVersionId);
+        return groups;
+    }
+
+    private static String lineKey(SeriesGroupBy groupBy, SeriesRow row, Map<String, Map<String, Object>> groups) {
+        return switch (groupBy.kind()) {
+            case NONE -> "all";
+            case NODE -> row.nodeKey();
+            case GROUP_HASH -> row.groupHash() != null ? row.groupHash() : "default";
+            case DIMENSION -> {
+                Object value = row.groupHash() != null
+                        ? groups.getOrDefault(row.groupHash(), Map.of()).get(groupBy.dimension())
+                        : null;
+                yield value != null ? String.valueOf(value) : "(none)";
+            }
+        };
+    }
+
+    private String lineLabel(SeriesGroupBy groupBy, String key, Map<String, Map<String, Object>> groups) {
+        if (groupBy.kind() == SeriesGroupBy.Kind.GROUP_HASH && groups.containsKey(key)) {
+            return groupLabelService.formatGroupLabel(groups.get(key));
+        }
+        if (groupBy.kind() == SeriesGroupBy.Kind.DIMENSION) {
+            return groupBy.dimension() + "=" + key;
+        }
+        return key;
+    }
+
+    private static final class SeriesLine {
+        private final String label;
+        private final long[][] values;
+
+        private SeriesLine(String label, int metrics, int buckets) {
+            this.label = label;
+            this.values = new long[metrics][buckets];
         }
-        return repository.findAllByOrderByBucketStartDesc(PageRequest.of(0, limit));
     }
 }
@@ -2,48 +2,144 @@ package com.sentinel.platform.aggregation.service;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.sentinel.platform.aggregation.model.DistinctSketch;
+import com.sentinel.platform.aggregation.model.LatencyHistogram;
 import com.sentinel.platform.aggregation.repository.StageAggregateRepository;
+import com.sentinel.platform.aggregation.repository.StageInFlightRepository;
+import com.sentinel.platform.aggregation.repository.StageLatencyRepository;
+import com.sentinel.platform.aggregation.state.HotspotTracker;
+import com.sentinel.platform.aggregation.state.RecentAggregateStore;
 import com.sentinel.platform.ruleengine.model.RuleEvaluatedEvent;
+import com.sentinel.platform.shared.logging.HotPathCategory;
+import com.sentinel.platform.shared.logging.HotPathLogSampler;
 
 @Service
 public class AggregationService {
     /**
      * Consumes rule evaluation events and maintains stage-level aggregates for wallboards
-     * and detail views. Aggregates are keyed by workflow version, group hash, node, and minute bucket.
+     * and detail views. Aggregates are keyed by workflow version, group hash, node, and minute bucket;
+     * in-flight deltas also move the current-state gauge in {@code stage_inflight}, every applied delta is
+     * mirrored into the {@link RecentAggregateStore}, misses and latencies feed the {@link HotspotTracker},
+     * backlog deltas move the due-minute rows of the {@link BacklogAgingService}, and stage latencies and
+     * correlation keys are merged into each row's latency histogram and distinct sketch once per batch and
+     * bucket. A batch is applied all or nothing; see {@link #applyRuleEvaluations}.
      */
     private static final Logger log = LoggerFactory.getLogger(AggregationService.class);
 
     private final StageAggregateRepository repository;
+    private final StageLatencyRepository latencyRepository;
+    private final StageInFlightRepository inFlightRepository;
+    private final RecentAggregateStore recentStore;
+    private final HotspotTracker hotspotTracker;
+    private final BacklogAgingService backlogAgingService;
     private final ObjectMapper objectMapper;
+    private final HotPathLogSampler logSampler;
 
-    public AggregationService(StageAggregateRepository repository, ObjectMapper objectMapper) {
+    public AggregationService(StageAggregateRepository repository,
+                              StageLatencyRepository latencyRepository,
+                              StageInFlightRepository inFlightRepository,
+                              RecentAggregateStore recentStore,
+                              HotspotTracker hotspotTracker,
+                              BacklogAgingService backlogAgingService,
+                              ObjectMapper objectMapper,
+                              HotPathLogSampler logSampler) {
         this.repository = repository;
+        this.latencyRepository = latencyRepository;
+        this.inFlightRepository = inFlightRepository;
+        this.recentStore = recentStore;
+        this.hotspotTracker = hotspotTracker;
+        this.backlogAgingService = backlogAgingService;
         this.objectMapper = objectMapper;
+        this.logSampler = logSampler;
     }
 
     public void handleRuleEvaluated(String payload) {
         try {
-            RuleEvaluatedEvent event = objectMapper.readValue(payload, RuleEvaluatedEvent.class);
+            applyRuleEvaluations(List.of(objectMapper.readValue(payload, RuleEvaluatedEvent.class)));
+        } catch (Exception ex) {
+            log.warn("Failed to aggregate rule evaluated payload", ex);
+        }
+    }
+
+    /**
+     * Applies a batch of rule evaluations from the aggregation pipeline stage. Every database write of the
+     * batch shares one transaction and a failure is thrown rather than skipped, so a failed batch leaves
+     * nothing behind and the stage can hand it in again; the in-memory views are updated last, once all
+     * the writes have gone through. Stage latencies and correlation keys are merged into each row's
+     * latency histogram and distinct sketch once per batch; synthetic misses count no correlation key,
+     * since nothing reached their node.
+     */
+    @Transactional
+    public void applyRuleEvaluations(List<RuleEvaluatedEvent> events) {
+        List<Instant> buckets = new ArrayList<>(events.size());
+        for (RuleEvaluatedEvent event : events) {
             Instant bucket = (event.getReceivedAt() != null ? event.getReceivedAt() : Instant.now()).truncatedTo(ChronoUnit.MINUTES);
+            buckets.add(bucket);
             repository.upsert(event.getWorkflowVersionId(), event.getGroupHash(), event.getNode(), bucket,
                     0, event.getCompletedDelta(), event.getLateDelta(), event.getFailedDelta());
-            Map<String, Integer> inflightDeltas = event.getInFlightDeltas() != null ? event.getInFlightDeltas() : Map.of();
-            for (Map.Entry<String, Integer> inflight : inflightDeltas.entrySet()) {
+            for (Map.Entry<String, Integer> inflight : inFlightDeltas(event).entrySet()) {
                 repository.upsert(event.getWorkflowVersionId(), event.getGroupHash(), inflight.getKey(), bucket,
                         inflight.getValue(), 0, 0, 0);
             }
-            log.info("Aggregated rule evaluation workflowVersionId={} node={} bucket={} completedDelta={} lateDelta={} failedDelta={} inflightAdjusted={}",
-                    event.getWorkflowVersionId(), event.getNode(), bucket, event.getCompletedDelta(), event.getLateDelta(),
-                    event.getFailedDelta(), inflightDeltas);
-        } catch (Exception ex) {
-            log.warn("Failed to aggregate rule evaluated payload", ex);
+            inFlightRepository.add(event.getWorkflowVersionId(), event.getGroupHash(), inFlightDeltas(event), Instant.now());
+            backlogAgingService.record(event);
+        }
+        mergeSketches(events, buckets);
+        for (int i = 0; i < events.size(); i++) {
+            RuleEvaluatedEvent event = events.get(i);
+            Instant bucket = buckets.get(i);
+            recentStore.add(event.getWorkflowVersionId(), event.getGroupHash(), event.getNode(), bucket,
+                    0, event.getCompletedDelta(), event.getLateDelta(), event.getFailedDelta());
+            for (Map.Entry<String, Integer> inflight : inFlightDeltas(event).entrySet()) {
+                recentStore.add(event.getWorkflowVersionId(), event.getGroupHash(), inflight.getKey(), bucket,
+                        inflight.getValue(), 0, 0, 0);
+            }
+            hotspotTracker.record(event);
+            if (logSampler.sample(HotPathCategory.AGGREGATION)) {
+                log.info("Aggregated rule evaluation workflowVersionId={} node={} bucket={} completedDelta={} lateDelta={} failedDelta={} inflightAdjusted={}",
+                        event.getWorkflowVersionId(), event.getNode(), bucket, event.getCompletedDelta(), event.getLateDelta(),
+                        event.getFailedDelta(), inFlightDeltas(event));
+            }
         }
     }
+
+    private void mergeSketches(List<RuleEvaluatedEvent> events, List<Instant> buckets) {
+        Map<SketchKey, LatencyHistogram> histograms = new HashMap<>();
+        Map<SketchKey, DistinctSketch> sketches = new HashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            RuleEvaluatedEvent event = events.get(i);
+            SketchKey key = new SketchKey(event.getWorkflowVersionId(), event.getGroupHash(), event.getNode(), buckets.get(i));
+            if (event.getStageLatencyMs() != null) {
+                histograms.computeIfAbsent(key, k -> new LatencyHistogram()).record(event.getStageLatencyMs());
+            }
+            if (event.getCompletedDelta() > 0 && event.getCorrelationKey() != null) {
+                sketches.computeIfAbsent(key, k -> new DistinctSketch()).offer(event.getCorrelationKey());
+            }
+        }
+        Set<SketchKey> keys = new HashSet<>(histograms.keySet());
+        keys.addAll(sketches.keySet());
+        for (SketchKey key : keys) {
+            latencyRepository.merge("", key.workflowVersionId(), key.groupHash(), key.nodeKey(), key.bucket(),
+                    histograms.get(key), sketches.get(key));
+        }
+    }
+
+    private static Map<String, Integer> inFlightDeltas(RuleEvaluatedEvent event) {
+        return event.getInFlightDeltas() != null ? event.getInFlightDeltas() : Map.of();
+    }
+
+    private record SketchKey(long workflowVersionId, String groupHash, String nodeKey, Instant bucket) {}
 }
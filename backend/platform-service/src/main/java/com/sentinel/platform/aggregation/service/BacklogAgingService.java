@@ -0,0 +1,209 @@
+package com.sentinel.platform.aggregation.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.sentinel.platform.aggregation.config.AggregationProperties;
+import com.sentinel.platform.aggregation.repository.StageBacklogRepository;
+import com.sentinel.platform.aggregation.repository.StageBacklogRepository.AgeCount;
+import com.sentinel.platform.aggregation.repository.StageBacklogRepository.Key;
+import com.sentinel.platform.aggregation.web.dto.StageBacklogView;
+import com.sentinel.platform.retention.repository.PartitionRepository;
+import com.sentinel.platform.ruleengine.model.RuleEvaluatedEvent;
+
+@Service
+public class BacklogAgingService {
+    /**
+     * Age-bucketed backlog per workflow version, group and target node, kept incrementally in
+     * {@code stage_backlog} from the backlog deltas of each rule evaluation (expectation created, cleared,
+     * cancelled). Rows are keyed by due minute, so the buckets of {@code aggregation.backlog-age-bounds-minutes}
+     * are cutoffs against the clock: a row shifts from "not due" into the overdue buckets as time passes
+     * without being rewritten, and a fired expectation changes nothing until it is cleared. Every
+     * {@code backlog-fold-interval-seconds} the minutes past the last bound are folded into one row per
+     * stage; every {@code backlog-reconcile-interval-seconds} the rows are reconciled with the outstanding
+     * expectations through {@link DriftReconciler} like the in-flight gauges, which also seeds the table for expectations created before it.
+     */
+    private static final Logger log = LoggerFactory.getLogger(BacklogAgingService.class);
+    public static final String LOCK_NAME = "sentinel.backlog-aging";
+    public static final String NOT_DUE = "notDue";
+
+    private final StageBacklogRepository repository;
+    private final PartitionRepository partitionRepository;
+    private final AggregationProperties properties;
+    private final Clock clock;
+    private final DriftReconciler<Key> reconciler;
+    private final List<Integer> bounds;
+    private final List<String> labels;
+
+    public BacklogAgingService(StageBacklogRepository repository,
+                               PartitionRepository partitionRepository,
+                               AggregationProperties properties,
+                               Clock clock,
+                               MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.partitionRepository = partitionRepository;
+        this.properties = properties;
+        this.clock = clock;
+        this.reconciler = new DriftReconciler<>(log, "Backlog", "rows", Counter.builder("aggregation.backlog.corrections")
+                .description("Backlog rows corrected against outstanding expectations")
+                .register(meterRegistry));
+        this.bounds = properties.getBacklogAgeBoundsMinutes().stream().distinct().sorted().toList();
+        List<String> names = new ArrayList<>();
+        names.add(NOT_DUE);
+        int lower = 0;
+        for (int bound : bounds) {
+            names.add(lower + "-" + bound + "m");
+            lower = bound;
+        }
+        names.add(lower + "m+");
+        this.labels = List.copyOf(names);
+    }
+
+    /**
+     * Age bucket names in order, from not yet due to overdue past the last bound.
+     */
+    public List<String> labels() {
+        return labels;
+    }
+
+    public void record(RuleEvaluatedEvent event) {
+        if (!properties.isBacklogEnabled() || event.getBacklogDeltas() == null || event.getBacklogDeltas().isEmpty()) {
+            return;
+        }
+        repository.add(event.getWorkflowVersionId(), event.getGroupHash(), event.getBacklogDeltas());
+    }
+
+    /**
+     * Backlog of one workflow version per node, of one group or (null group hash) of all groups; with
+     * {@code byGroup} every group is listed separately instead of summed.
+     */
+    public List<StageBacklogView> backlog(long workflowVersionId, String groupHash, boolean byGroup) {
+        if (!properties.isBacklogEnabled()) {
+            return List.of();
+        }
+        Map<List<String>, long[]> counts = new LinkedHashMap<>();
+        for (AgeCount count : repository.ages(workflowVersionId, groupHash, cutoffs(clock.instant()))) {
+            String group = groupHash != null || byGroup ? count.groupHash() : null;
+            counts.computeIfAbsent(Arrays.asList(group, count.nodeKey()), k -> new long[labels.size()])
+                    [count.bucket()] += count.outstanding();
+        }
+        List<StageBacklogView> views = new ArrayList<>(counts.size());
+        counts.forEach((key, buckets) -> {
+            long outstanding = 0;
+            for (long bucket : buckets) {
+                outstanding += bucket;
+            }
+            if (outstanding != 0) {
+                views.add(new StageBacklogView(key.get(0), key.get(1), outstanding, toAges(buckets)));
+            }
+        });
+        views.sort(Comparator.comparing(StageBacklogView::nodeKey)
+                .thenComparing(StageBacklogView::groupHash, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return views;
+    }
+
+    /**
+     * Backlog ages per group, summed over nodes, for each of {@code workflowVersionIds}; the group without
+     * dimensions is keyed {@code ''}. Empty when the backlog is disabled.
+     */
+    public Map<Long, Map<String, Map<String, Long>>> agesByGroup(Collection<Long> workflowVersionIds) {
+        if (!properties.isBacklogEnabled()) {
+            return Map.of();
+        }
+        Map<Long, Map<String, long[]>> counts = new HashMap<>();
+        for (AgeCount count : repository.agesByGroup(workflowVersionIds, cutoffs(clock.instant()))) {
+            counts.computeIfAbsent(count.workflowVersionId(), id -> new HashMap<>())
+                    .computeIfAbsent(count.groupHash(), g -> new long[labels.size()])[count.bucket()] += count.outstanding();
+        }
+        Map<Long, Map<String, Map<String, Long>>> ages = new HashMap<>();
+        counts.forEach((versionId, groups) -> groups.forEach((group, buckets) ->
+                ages.computeIfAbsent(versionId, id -> new HashMap<>()).put(group, toAges(buckets))));
+        return ages;
+    }
+
+    @Scheduled(fixedDelayString = "${aggregation.backlog-fold-interval-seconds:60}000")
+    public void scheduledFold() {
+        runLocked("fold", this::fold);
+    }
+
+    @Scheduled(fixedDelayString = "${aggregation.backlog-reconcile-interval-seconds:300}000")
+    public void scheduledReconcile() {
+        runLocked("reconciliation", this::reconcile);
+    }
+
+    /**
+     * Folds the minutes overdue past the last bound into each stage's folded row; returns the rows removed.
+     */
+    public int fold() {
+        int removed = repository.fold(foldBefore(clock.instant()));
+        if (removed > 0) {
+            log.debug("Backlog rows folded removed={}", removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Runs one reconciliation pass and returns the number of rows corrected.
+     */
+    public int reconcile() {
+        Instant foldBefore = foldBefore(clock.instant());
+        return reconciler.reconcile(repository.findAll(foldBefore), repository.expectedFromExpectations(foldBefore), repository::add);
+    }
+
+    private void runLocked(String task, Runnable action) {
+        if (!properties.isBacklogEnabled()) {
+            return;
+        }
+        boolean ran = partitionRepository.withMaintenanceLock(LOCK_NAME, () -> {
+            try {
+                action.run();
+            } catch (RuntimeException ex) {
+                log.warn("Backlog {} failed", task, ex);
+            }
+        });
+        if (!ran) {
+            log.debug("Backlog {} skipped; lock held elsewhere lock={}", task, LOCK_NAME);
+        }
+    }
+
+    /**
+     * Due-minute cutoffs of the buckets after "not due", newest first: the current minute, then one per bound.
+     */
+    private List<Instant> cutoffs(Instant now) {
+        Instant minute = now.truncatedTo(ChronoUnit.MINUTES);
+        List<Instant> cutoffs = new ArrayList<>(bounds.size() + 1);
+        cutoffs.add(minute);
+        for (int bound : bounds) {
+            cutoffs.add(minute.minus(bound, ChronoUnit.MINUTES));
+        }
+        return cutoffs;
+    }
+
+    private Instant foldBefore(Instant now) {
+        return now.truncatedTo(ChronoUnit.MINUTES).minus(bounds.get(bounds.size() - 1), ChronoUnit.MINUTES);
+    }
+
+    private Map<String, Long> toAges(long[] buckets) {
+        Map<String, Long> ages = new LinkedHashMap<>();
+        for (int i = 0; i < labels.size(); i++) {
+            ages.put(labels.get(i), buckets[i]);
+        }
+        return ages;
+    }
+}
@@ -0,0 +1,70 @@
+package com.sentinel.platform.aggregation.service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+
+final class DriftReconciler<K> {
+    /**
+     * Two-pass drift correction shared by the counters kept incrementally from rule evaluation deltas
+     * (in-flight gauges, backlog rows): each pass compares what the table holds with what the outstanding
+     * expectations say. Evaluations still queued in the aggregation pipeline show up as drift too, but only
+     * for a moment, so a key is corrected only once two consecutive passes saw the same drift, and the
+     * correction is added rather than overwritten so deltas landing meanwhile still count.
+     */
+    private final Logger log;
+    private final String name;
+    private final String rowsLabel;
+    private final Counter corrections;
+    private Map<K, Long> previousDrift = Map.of();
+
+    /**
+     * Logs through {@code log} as {@code "<name> reconciliation <rowsLabel>=..."}.
+     */
+    DriftReconciler(Logger log, String name, String rowsLabel, Counter corrections) {
+        this.log = log;
+        this.name = name;
+        this.rowsLabel = rowsLabel;
+        this.corrections = corrections;
+    }
+
+    /**
+     * Runs one pass over {@code actual} and {@code expected}, hands the drifts seen twice in a row to
+     * {@code correct} and returns how many keys it corrected.
+     */
+    synchronized int reconcile(Map<K, Long> actual, Map<K, Long> expected, Consumer<Map<K, Long>> correct) {
+        Set<K> keys = new HashSet<>(actual.keySet());
+        keys.addAll(expected.keySet());
+
+        Map<K, Long> drift = new HashMap<>();
+        Map<K, Long> corrected = new HashMap<>();
+        long totalDrift = 0;
+        for (K key : keys) {
+            long delta = expected.getOrDefault(key, 0L) - actual.getOrDefault(key, 0L);
+            if (delta == 0) {
+                continue;
+            }
+            if (!Long.valueOf(delta).equals(previousDrift.get(key))) {
+                drift.put(key, delta);
+                continue;
+            }
+            corrected.put(key, delta);
+            totalDrift += Math.abs(delta);
+        }
+        if (!corrected.isEmpty()) {
+            correct.accept(corrected);
+        }
+        previousDrift = drift;
+        corrections.increment(corrected.size());
+        if (!corrected.isEmpty() || !drift.isEmpty()) {
+            log.info("{} reconciliation {}={} corrected={} absDriftCorrected={} pendingDrift={}",
+                    name, rowsLabel, keys.size(), corrected.size(), totalDrift, drift.size());
+        }
+        return corrected.size();
+    }
+}
@@ -0,0 +1,155 @@
+package com.sentinel.platform.aggregation.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.sentinel.platform.aggregation.config.AggregationProperties;
+import com.sentinel.platform.aggregation.repository.StageHotspotRepository;
+import com.sentinel.platform.aggregation.state.HotspotTracker;
+import com.sentinel.platform.aggregation.state.HotspotTracker.GroupKey;
+import com.sentinel.platform.aggregation.state.HotspotTracker.Lists;
+import com.sentinel.platform.aggregation.web.dto.HotspotView;
+import com.sentinel.platform.aggregation.web.dto.LatencyHotspot;
+import com.sentinel.platform.aggregation.web.dto.OverdueHotspot;
+
+@Service
+public class HotspotService {
+    /**
+     * Shares the {@link HotspotTracker} lists across nodes. Each node evaluates only the runs of its own
+     * partitions, so every {@code aggregation.hotspot-flush-seconds} it writes the groups whose lists
+     * changed to {@code stage_hotspot} and touches the rest; a hotspot query merges this node's live lists
+     * with the other nodes' snapshots that are no older than three flushes.
+     */
+    private static final Logger log = LoggerFactory.getLogger(HotspotService.class);
+    private static final TypeReference<List<OverdueHotspot>> OVERDUE_LIST = new TypeReference<>() {};
+    private static final TypeReference<List<LatencyHotspot>> LATENCY_LIST = new TypeReference<>() {};
+
+    private final HotspotTracker tracker;
+    private final StageHotspotRepository repository;
+    private final ObjectMapper objectMapper;
+    private final AggregationProperties properties;
+    private final Clock clock;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public HotspotService(HotspotTracker tracker,
+                          StageHotspotRepository repository,
+                          ObjectMapper objectMapper,
+                          AggregationProperties properties,
+                          Clock clock) {
+        this.tracker = tracker;
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.clock = clock;
+    }
+
+    @Scheduled(fixedDelayString = "${aggregation.hotspot-flush-seconds:10}000")
+    public void scheduledFlush() {
+        if (!tracker.isEnabled()) {
+            return;
+        }
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.warn("Hotspot flush failed instanceId={}", instanceId, ex);
+        }
+    }
+
+    /**
+     * Writes the changed groups, refreshes this node's heartbeat and drops snapshots of nodes that
+     * stopped flushing; returns the number of groups written or deleted.
+     */
+    public int flush() {
+        Instant now = clock.instant();
+        Map<GroupKey, Lists> changed = tracker.drainChanged(now);
+        changed.forEach((key, lists) -> {
+            if (lists == null) {
+                repository.delete(key.workflowVersionId(), key.groupHash(), instanceId);
+            } else {
+                repository.save(key.workflowVersionId(), key.groupHash(), instanceId,
+                        toJson(lists.overdue()), toJson(lists.slowest()), now);
+            }
+        });
+        repository.touch(instanceId, now);
+        int stale = repository.deleteStale(now.minus(flushInterval().multipliedBy(10)));
+        if (!changed.isEmpty() || stale > 0) {
+            log.debug("Hotspots flushed instanceId={} groups={} staleRowsDeleted={}", instanceId, changed.size(), stale);
+        }
+        return changed.size();
+    }
+
+    /**
+     * The longest overdue expectations and the slowest stage arrivals of one workflow version across all
+     * nodes, optionally of one group, at most {@code limit} of each (capped at
+     * {@code aggregation.hotspot-capacity}).
+     */
+    public HotspotView hotspots(long workflowVersionId, String groupHash, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        int size = Math.min(limit, tracker.capacity());
+        Instant now = clock.instant();
+        Instant observedSince = now.minus(tracker.window());
+        Lists local = tracker.current(workflowVersionId, groupHash, now);
+        List<OverdueHotspot> overdue = new ArrayList<>(local.overdue());
+        List<LatencyHotspot> slowest = new ArrayList<>(local.slowest());
+        for (StageHotspotRepository.Snapshot snapshot : repository.find(workflowVersionId, groupHash,
+                now.minus(flushInterval().multipliedBy(3)), instanceId)) {
+            overdue.addAll(fromJson(snapshot.overdueJson(), OVERDUE_LIST));
+            fromJson(snapshot.slowestJson(), LATENCY_LIST).stream()
+                    .filter(item -> !item.observedAt().isBefore(observedSince))
+                    .forEach(slowest::add);
+        }
+        // A run that moved between nodes may be listed by both; keep its earliest entry.
+        Set<List<Object>> seen = new HashSet<>();
+        List<OverdueHotspot> oldest = overdue.stream()
+                .sorted(HotspotTracker.OLDEST_DUE)
+                .filter(item -> seen.add(List.of(item.workflowRunId(), item.nodeKey())))
+                .limit(size)
+                .toList();
+        List<LatencyHotspot> slowestItems = slowest.stream()
+                .sorted(HotspotTracker.SLOWEST)
+                .limit(size)
+                .toList();
+        return new HotspotView(workflowVersionId, groupHash, now, properties.getHotspotWindowMinutes(), oldest, slowestItems);
+    }
+
+    private Duration flushInterval() {
+        return Duration.ofSeconds(properties.getHotspotFlushSeconds());
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to serialize hotspots", ex);
+        }
+    }
+
+    private <T> List<T> fromJson(String json, TypeReference<List<T>> type) {
+        if (json == null || json.isBlank()) {
+            return List.of();
+        }
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException ex) {
+            log.warn("Skipping unreadable hotspot snapshot", ex);
+            return List.of();
+        }
+    }
+}
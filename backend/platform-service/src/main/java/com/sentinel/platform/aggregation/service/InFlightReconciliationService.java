@@ -0,0 +1,78 @@
+package com.sentinel.platform.aggregation.service;
+
+import java.time.Clock;
+import java.util.Map;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.sentinel.platform.aggregation.config.AggregationProperties;
+import com.sentinel.platform.aggregation.repository.StageInFlightRepository;
+import com.sentinel.platform.aggregation.repository.StageInFlightRepository.Key;
+import com.sentinel.platform.retention.repository.PartitionRepository;
+
+@Service
+public class InFlightReconciliationService {
+    /**
+     * Keeps the {@code stage_inflight} gauges honest. Deltas can be lost (a shed or failed pipeline item)
+     * or outlive their expectations (rows of a dropped expectation partition never clear), so every
+     * {@code aggregation.inflight-reconcile-interval-seconds} the gauges are compared with the outstanding
+     * pending and fired expectations, correcting stable drift through {@link DriftReconciler}.
+     */
+    private static final Logger log = LoggerFactory.getLogger(InFlightReconciliationService.class);
+    public static final String LOCK_NAME = "sentinel.inflight-reconcile";
+
+    private final StageInFlightRepository inFlightRepository;
+    private final PartitionRepository partitionRepository;
+    private final AggregationProperties properties;
+    private final Clock clock;
+    private final DriftReconciler<Key> reconciler;
+
+    public InFlightReconciliationService(StageInFlightRepository inFlightRepository,
+                                         PartitionRepository partitionRepository,
+                                         AggregationProperties properties,
+                                         Clock clock,
+                                         MeterRegistry meterRegistry) {
+        this.inFlightRepository = inFlightRepository;
+        this.partitionRepository = partitionRepository;
+        this.properties = properties;
+        this.clock = clock;
+        this.reconciler = new DriftReconciler<>(log, "In-flight", "gauges", Counter.builder("aggregation.inflight.corrections")
+                .description("In-flight gauges corrected against outstanding expectations")
+                .register(meterRegistry));
+    }
+
+    @Scheduled(fixedDelayString = "${aggregation.inflight-reconcile-interval-seconds:300}000")
+    public void scheduledReconcile() {
+        if (!properties.isInflightReconcileEnabled()) {
+            return;
+        }
+        boolean ran = partitionRepository.withMaintenanceLock(LOCK_NAME, () -> {
+            try {
+                reconcile();
+            } catch (RuntimeException ex) {
+                log.warn("In-flight reconciliation failed", ex);
+            }
+        });
+        if (!ran) {
+            log.debug("In-flight reconciliation skipped; lock held elsewhere lock={}", LOCK_NAME);
+        }
+    }
+
+    /**
+     * Runs one pass and returns the number of gauges corrected.
+     */
+    public int reconcile() {
+        return reconciler.reconcile(inFlightRepository.findAll(), inFlightRepository.expectedFromExpectations(), corrected ->
+                corrected.forEach((key, delta) -> {
+                    inFlightRepository.add(key.workflowVersionId(), key.groupHash(), Map.of(key.nodeKey(), Math.toIntExact(delta)),
+                            clock.instant());
+                    log.debug("In-flight gauge corrected workflowVersionId={} groupHash={} node={} drift={}",
+                            key.workflowVersionId(), key.groupHash(), key.nodeKey(), delta);
+                }));
+    }
+}
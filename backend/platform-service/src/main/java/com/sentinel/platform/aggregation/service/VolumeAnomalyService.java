@@ -0,0 +1,223 @@
+package com.sentinel.platform.aggregation.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.sentinel.platform.aggregation.config.AggregationProperties;
+import com.sentinel.platform.aggregation.model.AggregateResolution;
+import com.sentinel.platform.aggregation.model.VolumeBaseline;
+import com.sentinel.platform.aggregation.repository.StageAggregateRollupRepository;
+import com.sentinel.platform.aggregation.repository.VolumeBaselineRepository;
+import com.sentinel.platform.aggregation.repository.VolumeBaselineRepository.SeriesKey;
+import com.sentinel.platform.aggregation.state.RecentAggregateStore;
+import com.sentinel.platform.alerting.model.AlertTriggerEvent;
+import com.sentinel.platform.alerting.service.AlertingService;
+import com.sentinel.platform.retention.repository.PartitionRepository;
+
+@Service
+public class VolumeAnomalyService {
+    /**
+     * Catches feeds that go quiet, which edge rules cannot see when no run ever starts. Per workflow
+     * version, group and node it keeps a {@link VolumeBaseline} of completions for each hour of the week,
+     * folding in every hour once {@code AggregateRollupService} has rolled it (one row per series from
+     * {@code stage_aggregate_hour}, never a history scan). Every {@code aggregation.volume-interval-seconds}
+     * the completions of the trailing {@code volume-window-minutes} are compared with the slots the window
+     * spans; a series below {@code volume-band-sigmas} standard deviations under its expected volume raises
+     * an alert. The deviation is at least the Poisson one, the square root of the expected count, so a slot
+     * with a perfectly steady history does not alert on noise. One node runs the job at a time, under a
+     * MariaDB named lock, and keeps only the slots of the current window in memory.
+     */
+    private static final Logger log = LoggerFactory.getLogger(VolumeAnomalyService.class);
+    public static final String LOCK_NAME = "sentinel.volume-anomaly";
+    private static final int MAX_HOURS_PER_PASS = VolumeBaseline.HOURS_PER_WEEK;
+
+    private final VolumeBaselineRepository repository;
+    private final StageAggregateRollupRepository rollupRepository;
+    private final RecentAggregateStore recentStore;
+    private final AlertingService alertingService;
+    private final PartitionRepository partitionRepository;
+    private final AggregationProperties properties;
+    private final Clock clock;
+    private final Counter anomalies;
+    private final Map<Integer, Map<SeriesKey, VolumeBaseline>> slots = new HashMap<>();
+    private Instant slotsLearnedUntil;
+
+    public VolumeAnomalyService(VolumeBaselineRepository repository,
+                                StageAggregateRollupRepository rollupRepository,
+                                RecentAggregateStore recentStore,
+                                AlertingService alertingService,
+                                PartitionRepository partitionRepository,
+                                AggregationProperties properties,
+                                Clock clock,
+                                MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.rollupRepository = rollupRepository;
+        this.recentStore = recentStore;
+        this.alertingService = alertingService;
+        this.partitionRepository = partitionRepository;
+        this.properties = properties;
+        this.clock = clock;
+        this.anomalies = Counter.builder("aggregation.volume.anomalies")
+                .description("Series whose completions fell below their volume baseline band")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${aggregation.volume-interval-seconds:60}000")
+    public void scheduledCheck() {
+        if (!properties.isVolumeEnabled()) {
+            return;
+        }
+        boolean ran = partitionRepository.withMaintenanceLock(LOCK_NAME, () -> {
+            try {
+                learn();
+                List<AlertTriggerEvent> alerts = check();
+                if (!alerts.isEmpty()) {
+                    alertingService.handleAlertsTriggered(alerts);
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Volume anomaly pass failed", ex);
+            }
+        });
+        if (!ran) {
+            log.debug("Volume anomaly pass skipped; lock held elsewhere lock={}", LOCK_NAME);
+        }
+    }
+
+    /**
+     * Folds the hours rolled since the last pass into their slots, at most a week of hours per pass;
+     * returns the number of hours learned. Without a watermark, learning starts
+     * {@code volume-backfill-weeks} before the rollups' end.
+     */
+    public synchronized int learn() {
+        Instant hoursRolled = rollupRepository.rolledUntil(AggregateResolution.HOUR);
+        Instant learned = repository.learnedUntil();
+        if (!Objects.equals(learned, slotsLearnedUntil)) {
+            // Another node learned since this one last held the lock.
+            slots.clear();
+        }
+        slotsLearnedUntil = learned;
+        if (hoursRolled == null) {
+            return 0;
+        }
+        Instant next = learned != null ? learned : hoursRolled.minus(Duration.ofDays(7L * properties.getVolumeBackfillWeeks()));
+        int hours = 0;
+        while (!next.plus(1, ChronoUnit.HOURS).isAfter(hoursRolled) && hours < MAX_HOURS_PER_PASS) {
+            int hourOfWeek = VolumeBaseline.hourOfWeek(next);
+            Map<SeriesKey, VolumeBaseline> slot = new HashMap<>(slot(hourOfWeek));
+            Map<SeriesKey, Long> observed = repository.hourCompletions(next);
+            Set<SeriesKey> keys = new HashSet<>(slot.keySet());
+            keys.addAll(observed.keySet());
+            for (SeriesKey key : keys) {
+                slot.put(key, slot.getOrDefault(key, VolumeBaseline.EMPTY)
+                        .update(observed.getOrDefault(key, 0L), properties.getVolumeSmoothing()));
+            }
+            repository.saveSlot(hourOfWeek, slot);
+            slots.put(hourOfWeek, slot);
+            next = next.plus(1, ChronoUnit.HOURS);
+            hours++;
+        }
+        if (hours > 0) {
+            repository.markLearned(next);
+            slotsLearnedUntil = next;
+            log.debug("Volume baselines learned hours={} learnedUntil={}", hours, next);
+        }
+        return hours;
+    }
+
+    /**
+     * Compares the trailing window's completions with the baselines and returns an alert per series below
+     * its band.
+     */
+    public synchronized List<AlertTriggerEvent> check() {
+        Instant now = clock.instant();
+        Instant to = now.truncatedTo(ChronoUnit.MINUTES);
+        Instant from = to.minus(properties.getVolumeWindowMinutes(), ChronoUnit.MINUTES);
+
+        // Expected mean and variance per series, each slot weighted by the share of its hour in the window.
+        Map<SeriesKey, Expected> expected = new HashMap<>();
+        Set<Integer> windowSlots = new HashSet<>();
+        for (Instant hour = from.truncatedTo(ChronoUnit.HOURS); hour.isBefore(to); hour = hour.plus(1, ChronoUnit.HOURS)) {
+            Instant start = hour.isBefore(from) ? from : hour;
+            Instant end = hour.plus(1, ChronoUnit.HOURS).isAfter(to) ? to : hour.plus(1, ChronoUnit.HOURS);
+            double share = Duration.between(start, end).toMinutes() / 60.0;
+            int hourOfWeek = VolumeBaseline.hourOfWeek(hour);
+            windowSlots.add(hourOfWeek);
+            slot(hourOfWeek).forEach((key, baseline) -> expected.computeIfAbsent(key, k -> new Expected())
+                    .add(share, baseline));
+        }
+        slots.keySet().retainAll(windowSlots);
+        if (expected.isEmpty()) {
+            return List.of();
+        }
+
+        Instant coveredFrom = recentStore.coveredFrom();
+        Map<SeriesKey, Long> observed = coveredFrom != null && !coveredFrom.isAfter(from)
+                ? recentStore.completions(from, to)
+                : repository.windowCompletions(from, to);
+
+        List<AlertTriggerEvent> alerts = new ArrayList<>();
+        expected.forEach((key, window) -> {
+            if (window.slots < windowSlots.size() || window.minSamples < properties.getVolumeMinSamples()
+                    || window.mean < properties.getVolumeMinExpected()) {
+                return;
+            }
+            double lowerBound = window.mean - properties.getVolumeBandSigmas() * Math.sqrt(Math.max(window.variance, window.mean));
+            long count = observed.getOrDefault(key, 0L);
+            if (count < lowerBound) {
+                alerts.add(alert(key, count, window.mean, lowerBound, now));
+            }
+        });
+        anomalies.increment(alerts.size());
+        return alerts;
+    }
+
+    private AlertTriggerEvent alert(SeriesKey key, long observed, double expected, double lowerBound, Instant now) {
+        log.warn("Volume below baseline workflowVersionId={} groupHash={} node={} observed={} expected={} lowerBound={} windowMinutes={}",
+                key.workflowVersionId(), key.groupHash(), key.nodeKey(), observed, Math.round(expected), Math.round(lowerBound),
+                properties.getVolumeWindowMinutes());
+        AlertTriggerEvent alert = new AlertTriggerEvent();
+        alert.setDedupeKey("volume:" + key.workflowVersionId() + ":" + key.nodeKey() + ":" + key.groupHash());
+        alert.setWorkflowVersionId(key.workflowVersionId());
+        alert.setNode(key.nodeKey());
+        alert.setCorrelationKey(key.groupHash().isEmpty() ? "volume" : "volume:" + key.groupHash());
+        alert.setSeverity("amber");
+        alert.setReason("Completions below baseline: observed %d, expected %d over %d minutes"
+                .formatted(observed, Math.round(expected), properties.getVolumeWindowMinutes()));
+        alert.setTriggeredAt(now);
+        return alert;
+    }
+
+    private Map<SeriesKey, VolumeBaseline> slot(int hourOfWeek) {
+        return slots.computeIfAbsent(hourOfWeek, repository::findSlot);
+    }
+
+    private static final class Expected {
+        private double mean;
+        private double variance;
+        private int minSamples = Integer.MAX_VALUE;
+        private int slots;
+
+        void add(double share, VolumeBaseline baseline) {
+            mean += share * baseline.mean();
+            variance += share * baseline.variance();
+            minSamples = Math.min(minSamples, baseline.samples());
+            slots++;
+        }
+    }
+}
@@ -15,7 +15,8 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.sentinel.platform.aggregation.model.StageAggregate;
+import com.sentinel.platform.aggregation.repository.StageInFlightRepository;
+import com.sentinel.platform.aggregation.web.dto.StageAggregateView;
 import com.sentinel.platform.aggregation.web.dto.WallboardGroupTile;
 import com.sentinel.platform.aggregation.web.dto.WallboardView;
 import com.sentinel.platform.aggregation.web.dto.WallboardWorkflowTile;
@@ -30,17 +31,23 @@ import com.sentinel.platform.shared.time.DateRange;
 public class WallboardViewService {
 
     private final AggregationQueryService aggregationQueryService;
+    private final StageInFlightRepository inFlightRepository;
+    private final BacklogAgingService backlogAgingService;
     private final WorkflowVersionRepository workflowVersionRepository;
     private final WorkflowRepository workflowRepository;
     private final JdbcTemplate jdbcTemplate;
     private final GroupLabelService groupLabelService;
 
     public WallboardViewService(AggregationQueryService aggregationQueryService,
+                                StageInFlightRepository inFlightRepository,
+                                BacklogAgingService backlogAgingService,
                                 WorkflowVersionRepository workflowVersionRepository,
                                 WorkflowRepository workflowRepository,
                                 JdbcTemplate jdbcTemplate,
                                 GroupLabelService groupLabelService) {
         this.aggregationQueryService = aggregationQueryService;
+        this.inFlightRepository = inFlightRepository;
+        this.backlogAgingService = backlogAgingService;
         this.workflowVersionRepository = workflowVersionRepository;
         this.workflowRepository = workflowRepository;
         this.jdbcTemplate = jdbcTemplate;
@@ -49,15 +56,15 @@ public class WallboardViewService {
 
     @Transactional(readOnly = true)
     public WallboardView buildWallboard(int limit, DateRange dateRange) {
-        List<StageAggregate> aggregates = aggregationQueryService.wallboard(limit, dateRange).stream()
-                .sorted(Comparator.comparing(StageAggregate::getBucketStart).reversed())
+        List<StageAggregateView> aggregates = aggregationQueryService.wallboard(limit, dateRange).stream()
+                .sorted(Comparator.comparing(StageAggregateView::bucketStart).reversed())
                 .toList();
         if (aggregates.isEmpty()) {
             return WallboardView.empty();
         }
 
         Set<Long> versionIds = aggregates.stream()
-                .map(StageAggregate::getWorkflowVersionId)
+                .map(StageAggregateView::workflowVersionId)
                 .filter(Objects::nonNull)
                 .collect(Collectors.toSet());
         Map<Long, WorkflowVersion> versions = workflowVersionRepository.findAllById(versionIds).stream()
@@ -68,13 +75,15 @@ public class WallboardViewService {
         Map<Long, Workflow> workflows = workflowRepository.findAllById(workflowIds).stream()
                 .collect(Collectors.toMap(Workflow::getId, wf -> wf));
         Map<Long, Map<String, String>> labelsByVersion = loadGroupLabels(versionIds, dateRange);
+        Map<Long, Map<String, Long>> inFlightByVersion = inFlightRepository.totalsByGroup(versionIds);
+        Map<Long, Map<String, Map<String, Long>>> backlogByVersion = backlogAgingService.agesByGroup(versionIds);
 
         Map<Long, Map<String, GroupAccumulator>> grouped = new LinkedHashMap<>();
-        Instant latestBucket = aggregates.get(0).getBucketStart();
-        for (StageAggregate agg : aggregates) {
-            latestBucket = agg.getBucketStart().isAfter(latestBucket) ? agg.getBucketStart() : latestBucket;
-            Map<String, GroupAccumulator> groups = grouped.computeIfAbsent(agg.getWorkflowVersionId(), id -> new LinkedHashMap<>());
-            String hash = agg.getGroupDimHash() != null ? agg.getGroupDimHash() : "default";
+        Instant latestBucket = aggregates.get(0).bucketStart();
+        for (StageAggregateView agg : aggregates) {
+            latestBucket = agg.bucketStart().isAfter(latestBucket) ? agg.bucketStart() : latestBucket;
+            Map<String, GroupAccumulator> groups = grouped.computeIfAbsent(agg.workflowVersionId(), id -> new LinkedHashMap<>());
+            String hash = agg.groupHash() != null ? agg.groupHash() : "default";
             groups.computeIfAbsent(hash, GroupAccumulator::new).accept(agg);
         }
 
@@ -90,8 +99,14 @@ public class WallboardViewService {
             String workflowName = workflow != null ? workflow.getName() : workflowKey;
 
             Map<String, String> labels = labelsByVersion.getOrDefault(entry.getKey(), Map.of());
+            Map<String, Long> inFlight = inFlightByVersion.getOrDefault(entry.getKey(), Map.of());
+            Map<String, Map<String, Long>> backlog = backlogByVersion.getOrDefault(entry.getKey(), Map.of());
             List<WallboardGroupTile> groupTiles = entry.getValue().values().stream()
-                    .map(acc -> acc.toTile(labels.getOrDefault(acc.groupHash, acc.groupHash)))
+                    .map(acc -> {
+                        String gaugeKey = "default".equals(acc.groupHash) ? "" : acc.groupHash;
+                        return acc.toTile(labels.getOrDefault(acc.groupHash, acc.groupHash),
+                                inFlight.getOrDefault(gaugeKey, 0L), backlog.getOrDefault(gaugeKey, Map.of()));
+                    })
                     .toList();
             String workflowStatus = groupTiles.stream()
                     .map(WallboardGroupTile::status)
@@ -148,22 +163,27 @@ public class WallboardViewService {
 
     private static final class GroupAccumulator {
         private final String groupHash;
-        private final Map<String, StageAggregate> latestByNode = new HashMap<>();
+        private final Map<String, StageAggregateView> latestByNode = new HashMap<>();
 
         private GroupAccumulator(String groupHash) {
             this.groupHash = groupHash;
         }
 
-        void accept(StageAggregate aggregate) {
-            latestByNode.putIfAbsent(aggregate.getNodeKey(), aggregate);
+        void accept(StageAggregateView aggregate) {
+            latestByNode.putIfAbsent(aggregate.nodeKey(), aggregate);
         }
 
-        WallboardGroupTile toTile(String label) {
-            int inFlight = latestByNode.values().stream().mapToInt(StageAggregate::getInFlight).sum();
-            int late = latestByNode.values().stream().mapToInt(StageAggregate::getLate).sum();
-            int failed = latestByNode.values().stream().mapToInt(StageAggregate::getFailed).sum();
+        /**
+         * Late and failed come from each node's latest bucket; {@code inFlight} is the group's current
+         * backlog from the in-flight gauges, since a bucket only holds that minute's net change;
+         * {@code backlogAge} splits that backlog by how long it is overdue.
+         */
+        WallboardGroupTile toTile(String label, long inFlight, Map<String, Long> backlogAge) {
+            int late = (int) latestByNode.values().stream().mapToLong(StageAggregateView::late).sum();
+            int failed = (int) latestByNode.values().stream().mapToLong(StageAggregateView::failed).sum();
             String status = failed > 0 ? "red" : (late > 0 ? "amber" : "green");
-            return new WallboardGroupTile(label, groupHash, status, inFlight, late, failed, List.of());
+            return new WallboardGroupTile(label, groupHash, status, (int) Math.min(inFlight, Integer.MAX_VALUE), late, failed, List.of(),
+                    backlogAge);
         }
     }
 }
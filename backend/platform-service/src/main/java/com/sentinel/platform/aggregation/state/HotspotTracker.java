@@ -0,0 +1,316 @@
+package com.sentinel.platform.aggregation.state;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import com.sentinel.platform.aggregation.config.AggregationProperties;
+import com.sentinel.platform.aggregation.web.dto.LatencyHotspot;
+import com.sentinel.platform.aggregation.web.dto.OverdueHotspot;
+import com.sentinel.platform.ruleengine.model.RuleEvaluatedEvent;
+import com.sentinel.platform.ruleengine.state.PartitionOwnership;
+
+@Component
+public class HotspotTracker {
+    /**
+     * Bounded lists of the worst items this node has evaluated, per workflow version and group hash: the
+     * expectations overdue longest and the largest stage latencies of the last
+     * {@code aggregation.hotspot-window-minutes}. An overdue item is added when its miss is evaluated and
+     * shrinks with the negative in-flight deltas of its run at that node (late arrivals clear the fired
+     * expectation first; run completion cancels it); past {@code hotspot-capacity} items the most recently
+     * due one is dropped. Overdue items of runs whose partitions this node no longer owns are dropped on
+     * revocation, as this node will not see them clear. Latencies go into one min-heap per slice of the window, each capped at the
+     * capacity, so recording is O(log capacity) and expired slices fall off whole. Groups whose lists
+     * changed are handed to {@code HotspotService} to persist.
+     */
+    private static final int SLICES = 12;
+    public static final Comparator<OverdueHotspot> OLDEST_DUE = Comparator.comparing(OverdueHotspot::dueAt)
+            .thenComparingLong(OverdueHotspot::workflowRunId)
+            .thenComparing(OverdueHotspot::nodeKey);
+    public static final Comparator<LatencyHotspot> SLOWEST = Comparator.comparingLong(LatencyHotspot::latencyMs).reversed()
+            .thenComparing(LatencyHotspot::observedAt);
+
+    private final boolean enabled;
+    private final int capacity;
+    private final Duration window;
+    private final long sliceSeconds;
+    private final Map<GroupKey, GroupHotspots> groups = new HashMap<>();
+    private final Set<GroupKey> changed = new HashSet<>();
+
+    public HotspotTracker(AggregationProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isHotspotEnabled();
+        this.capacity = properties.getHotspotCapacity();
+        this.window = Duration.ofMinutes(properties.getHotspotWindowMinutes());
+        this.sliceSeconds = Math.max(1, window.toSeconds() / SLICES);
+        Gauge.builder("aggregation.hotspot.groups", this, HotspotTracker::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public Duration window() {
+        return window;
+    }
+
+    public synchronized int size() {
+        return groups.size();
+    }
+
+    public synchronized void record(RuleEvaluatedEvent event) {
+        if (!enabled || event.getNode() == null) {
+            return;
+        }
+        GroupKey key = new GroupKey(event.getWorkflowVersionId(), event.getGroupHash());
+        GroupHotspots hotspots = groups.get(key);
+        boolean modified = false;
+        if (event.isLate() && event.getCompletedDelta() == 0) {
+            // A synthetic miss: the expectation into the node is overdue since the event time (its due time).
+            hotspots = hotspots != null ? hotspots : groups.computeIfAbsent(key, k -> new GroupHotspots());
+            Instant dueAt = event.getEventTime() != null ? event.getEventTime() : receivedAt(event);
+            modified = hotspots.addOverdue(new OverdueHotspot(event.getWorkflowRunId(), event.getCorrelationKey(),
+                    event.getGroupHash(), event.getNode(), dueAt, Math.max(1, event.getLateDelta())));
+        }
+        if (hotspots != null && event.getInFlightDeltas() != null) {
+            for (Map.Entry<String, Integer> delta : event.getInFlightDeltas().entrySet()) {
+                if (delta.getValue() < 0) {
+                    modified |= hotspots.clearOverdue(event.getWorkflowRunId(), delta.getKey(), -delta.getValue());
+                }
+            }
+        }
+        if (event.getStageLatencyMs() != null) {
+            hotspots = hotspots != null ? hotspots : groups.computeIfAbsent(key, k -> new GroupHotspots());
+            modified |= hotspots.addLatency(new LatencyHotspot(event.getWorkflowRunId(), event.getCorrelationKey(),
+                    event.getGroupHash(), event.getNode(), event.getStageLatencyMs(), receivedAt(event)));
+        }
+        if (modified) {
+            changed.add(key);
+        }
+    }
+
+    /**
+     * Drops the overdue items of runs whose correlation key falls in {@code partitions} of the normalized
+     * topic; returns how many were dropped.
+     */
+    public synchronized int revoked(Collection<Integer> partitions, int partitionCount) {
+        if (partitions.isEmpty() || partitionCount <= 0) {
+            return 0;
+        }
+        int dropped = 0;
+        for (Map.Entry<GroupKey, GroupHotspots> entry : groups.entrySet()) {
+            int removed = entry.getValue().dropOverdue(item -> item.correlationKey() != null
+                    && partitions.contains(PartitionOwnership.partitionFor(item.correlationKey(), partitionCount)));
+            if (removed > 0) {
+                changed.add(entry.getKey());
+                dropped += removed;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Current lists of every group changed since the last drain, keyed by group; a null value means the
+     * group has nothing left and was dropped. Expired latency slices are trimmed first.
+     */
+    public synchronized Map<GroupKey, Lists> drainChanged(Instant now) {
+        long oldestSlice = slice(now.minus(window));
+        Iterator<Map.Entry<GroupKey, GroupHotspots>> iterator = groups.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<GroupKey, GroupHotspots> entry = iterator.next();
+            entry.getValue().trim(oldestSlice);
+            if (entry.getValue().isEmpty()) {
+                iterator.remove();
+                changed.add(entry.getKey());
+            }
+        }
+        Map<GroupKey, Lists> drained = new LinkedHashMap<>();
+        for (GroupKey key : changed) {
+            GroupHotspots hotspots = groups.get(key);
+            drained.put(key, hotspots != null ? hotspots.lists(now.minus(window)) : null);
+        }
+        changed.clear();
+        return drained;
+    }
+
+    /**
+     * Current lists of one workflow version, of one group or (null group hash) of all groups merged,
+     * each sorted worst first and cut at the capacity.
+     */
+    public synchronized Lists current(long workflowVersionId, String groupHash, Instant now) {
+        List<OverdueHotspot> overdue = new ArrayList<>();
+        List<LatencyHotspot> slowest = new ArrayList<>();
+        groups.forEach((key, hotspots) -> {
+            if (key.workflowVersionId() == workflowVersionId && (groupHash == null || groupHash.equals(key.groupHash()))) {
+                Lists lists = hotspots.lists(now.minus(window));
+                overdue.addAll(lists.overdue());
+                slowest.addAll(lists.slowest());
+            }
+        });
+        overdue.sort(OLDEST_DUE);
+        slowest.sort(SLOWEST);
+        return new Lists(overdue.subList(0, Math.min(capacity, overdue.size())),
+                slowest.subList(0, Math.min(capacity, slowest.size())));
+    }
+
+    private long slice(Instant instant) {
+        return instant.getEpochSecond() / sliceSeconds;
+    }
+
+    private static Instant receivedAt(RuleEvaluatedEvent event) {
+        return event.getReceivedAt() != null ? event.getReceivedAt() : Instant.now();
+    }
+
+    public record GroupKey(long workflowVersionId, String groupHash) {
+    }
+
+    public record Lists(List<OverdueHotspot> overdue, List<LatencyHotspot> slowest) {
+    }
+
+    private record OverdueKey(long workflowRunId, String nodeKey) {
+    }
+
+    private record Slice(long index, PriorityQueue<LatencyHotspot> heap) {
+    }
+
+    private final class GroupHotspots {
+        private final Map<OverdueKey, OverdueHotspot> overdueByKey = new HashMap<>();
+        private final TreeSet<OverdueHotspot> overdue = new TreeSet<>(OLDEST_DUE);
+        private final ArrayDeque<Slice> slices = new ArrayDeque<>();
+
+        boolean addOverdue(OverdueHotspot item) {
+            OverdueKey key = new OverdueKey(item.workflowRunId(), item.nodeKey());
+            OverdueHotspot existing = overdueByKey.get(key);
+            if (existing != null) {
+                // A later miss of the same run and node: keep the older due time, count what is missing now.
+                overdue.remove(existing);
+                item = new OverdueHotspot(existing.workflowRunId(), existing.correlationKey(), existing.groupHash(),
+                        existing.nodeKey(), existing.dueAt(), item.missing());
+            } else if (overdue.size() >= capacity) {
+                OverdueHotspot youngest = overdue.last();
+                if (OLDEST_DUE.compare(item, youngest) >= 0) {
+                    return false;
+                }
+                overdue.pollLast();
+                overdueByKey.remove(new OverdueKey(youngest.workflowRunId(), youngest.nodeKey()));
+            }
+            overdue.add(item);
+            overdueByKey.put(key, item);
+            return true;
+        }
+
+        boolean clearOverdue(long workflowRunId, String nodeKey, int cleared) {
+            OverdueKey key = new OverdueKey(workflowRunId, nodeKey);
+            OverdueHotspot existing = overdueByKey.get(key);
+            if (existing == null) {
+                return false;
+            }
+            overdue.remove(existing);
+            if (existing.missing() <= cleared) {
+                overdueByKey.remove(key);
+                return true;
+            }
+            OverdueHotspot remaining = new OverdueHotspot(existing.workflowRunId(), existing.correlationKey(),
+                    existing.groupHash(), existing.nodeKey(), existing.dueAt(), existing.missing() - cleared);
+            overdue.add(remaining);
+            overdueByKey.put(key, remaining);
+            return true;
+        }
+
+        int dropOverdue(Predicate<OverdueHotspot> matches) {
+            int dropped = 0;
+            Iterator<OverdueHotspot> iterator = overdue.iterator();
+            while (iterator.hasNext()) {
+                OverdueHotspot item = iterator.next();
+                if (matches.test(item)) {
+                    iterator.remove();
+                    overdueByKey.remove(new OverdueKey(item.workflowRunId(), item.nodeKey()));
+                    dropped++;
+                }
+            }
+            return dropped;
+        }
+
+        boolean addLatency(LatencyHotspot item) {
+            long index = slice(item.observedAt());
+            Slice target = null;
+            for (Slice slice : slices) {
+                if (slice.index() == index) {
+                    target = slice;
+                    break;
+                }
+            }
+            if (target == null) {
+                target = new Slice(index, new PriorityQueue<>(Comparator.comparingLong(LatencyHotspot::latencyMs)));
+                if (slices.isEmpty() || index > slices.peekLast().index()) {
+                    slices.addLast(target);
+                } else {
+                    List<Slice> ordered = new ArrayList<>(slices);
+                    ordered.add(target);
+                    ordered.sort(Comparator.comparingLong(Slice::index));
+                    slices.clear();
+                    slices.addAll(ordered);
+                }
+                while (slices.size() > SLICES + 1) {
+                    slices.pollFirst();
+                }
+                if (slices.peekFirst().index() > index) {
+                    // Older than every slice still in the window.
+                    return false;
+                }
+            }
+            PriorityQueue<LatencyHotspot> heap = target.heap();
+            if (heap.size() >= capacity) {
+                if (heap.peek().latencyMs() >= item.latencyMs()) {
+                    return false;
+                }
+                heap.poll();
+            }
+            heap.add(item);
+            return true;
+        }
+
+        void trim(long oldestSlice) {
+            while (!slices.isEmpty() && slices.peekFirst().index() < oldestSlice) {
+                slices.pollFirst();
+            }
+        }
+
+        boolean isEmpty() {
+            return overdue.isEmpty() && slices.isEmpty();
+        }
+
+        Lists lists(Instant observedSince) {
+            List<LatencyHotspot> slowest = new ArrayList<>();
+            for (Slice slice : slices) {
+                for (LatencyHotspot item : slice.heap()) {
+                    if (!item.observedAt().isBefore(observedSince)) {
+                        slowest.add(item);
+                    }
+                }
+            }
+            slowest.sort(SLOWEST);
+            return new Lists(List.copyOf(overdue), List.copyOf(slowest.subList(0, Math.min(capacity, slowest.size()))));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.sentinel.platform.aggregation.state;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.sentinel.platform.aggregation.config.AggregationProperties;
+import com.sentinel.platform.aggregation.state.RecentAggregateStore.MinuteRow;
+
+@Service
+public class RecentAggregateLoader {
+    /**
+     * Fills {@link RecentAggregateStore} from {@code stage_aggregate}: the whole window once the application
+     * is ready (an hour per query, so the load never holds more than an hour of rows) and again whenever
+     * the store asks for it (a failed load, or recovery from the series limit), then every
+     * {@code aggregation.recent-store-refresh-seconds} the last {@code recent-store-refresh-minutes}
+     * minutes, which brings in what other nodes wrote and repairs any local delta lost to a race with a
+     * reload. Live replays reload the span they rewrote.
+     */
+    private static final Logger log = LoggerFactory.getLogger(RecentAggregateLoader.class);
+
+    private final RecentAggregateStore store;
+    private final JdbcTemplate jdbcTemplate;
+    private final AggregationProperties properties;
+    private final Clock clock;
+    private volatile boolean started;
+
+    public RecentAggregateLoader(RecentAggregateStore store,
+                                 JdbcTemplate jdbcTemplate,
+                                 AggregationProperties properties,
+                                 Clock clock) {
+        this.store = store;
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.clock = clock;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (store.isEnabled()) {
+            loadWindow();
+        }
+        started = true;
+    }
+
+    @Scheduled(fixedDelayString = "${aggregation.recent-store-refresh-seconds:15}000")
+    public void scheduledRefresh() {
+        if (started && store.needsLoad()) {
+            loadWindow();
+            return;
+        }
+        if (!store.isEnabled() || store.coveredFrom() == null) {
+            return;
+        }
+        try {
+            Instant now = clock.instant();
+            store.advance(now);
+            reload(now.minus(Duration.ofMinutes(properties.getRecentStoreRefreshMinutes())), now);
+        } catch (RuntimeException ex) {
+            log.warn("Recent aggregate store refresh failed", ex);
+        }
+    }
+
+    private void loadWindow() {
+        try {
+            long started = System.nanoTime();
+            Instant now = clock.instant();
+            store.advance(now);
+            int rows = reload(store.windowStart(), now);
+            store.markLoaded();
+            log.info("Recent aggregate store loaded from={} rows={} series={} tookMs={}",
+                    store.windowStart(), rows, store.size(), (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException ex) {
+            log.warn("Recent aggregate store load failed; recent queries stay on SQL until the next refresh", ex);
+        }
+    }
+
+    /**
+     * Replaces the store's minutes from {@code from} (clamped to the window) up to and including the
+     * minute of {@code until} with the database rows, one hour at a time; returns the rows read.
+     */
+    public int reload(Instant from, Instant until) {
+        if (!store.isEnabled()) {
+            return 0;
+        }
+        Instant windowStart = store.windowStart();
+        Instant cursor = (from.isBefore(windowStart) ? windowStart : from).truncatedTo(ChronoUnit.MINUTES);
+        Instant end = until.truncatedTo(ChronoUnit.MINUTES).plus(1, ChronoUnit.MINUTES);
+        int total = 0;
+        while (cursor.isBefore(end)) {
+            Instant next = cursor.truncatedTo(ChronoUnit.HOURS).plus(1, ChronoUnit.HOURS);
+            Instant chunkEnd = next.isBefore(end) ? next : end;
+            List<MinuteRow> rows = new ArrayList<>();
+            jdbcTemplate.query("""
+                            select workflow_version_id, group_dim_hash, node_key, bucket_start, in_flight, completed, late, failed
+                            from stage_aggregate
+                            where bucket_start >= ? and bucket_start < ?
+                            """,
+                    rs -> {
+                        rows.add(new MinuteRow(
+                                rs.getLong("workflow_version_id"),
+                                rs.getString("group_dim_hash"),
+                                rs.getString("node_key"),
+                                rs.getTimestamp("bucket_start").toInstant(),
+                                rs.getLong("in_flight"),
+                                rs.getLong("completed"),
+                                rs.getLong("late"),
+                                rs.getLong("failed")));
+                    }, Timestamp.from(cursor), Timestamp.from(chunkEnd));
+            store.replace(cursor, chunkEnd, rows);
+            total += rows.size();
+            cursor = chunkEnd;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,395 @@
+package com.sentinel.platform.aggregation.state;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.sentinel.platform.aggregation.config.AggregationProperties;
+import com.sentinel.platform.aggregation.model.AggregateResolution;
+import com.sentinel.platform.aggregation.repository.StageAggregateRollupRepository.SeriesRow;
+import com.sentinel.platform.aggregation.repository.VolumeBaselineRepository;
+import com.sentinel.platform.aggregation.web.dto.StageAggregateView;
+
+@Component
+public class RecentAggregateStore {
+    /**
+     * Columnar copy of the trailing {@code aggregation.recent-store-window-minutes} of {@code stage_aggregate}
+     * so recent dashboard ranges are answered without a query. Each series (workflow version, group hash,
+     * node) holds a ring of hour blocks, each block one primitive int array per counter indexed by minute;
+     * a block is allocated on the first write into its hour and dropped when the ring wraps past it, so a
+     * quiet series costs next to nothing. Writes come from this node's aggregation stream and from
+     * {@link RecentAggregateLoader}, which loads the window at startup and periodically replaces the last
+     * few minutes with what the database holds (other nodes' writes included). Until loaded, or after
+     * tracking more than {@code recent-store-max-series} series, the store covers nothing and queries
+     * stay on SQL; once expired series bring it back under the limit it is reloaded.
+     */
+    private static final Logger log = LoggerFactory.getLogger(RecentAggregateStore.class);
+    private static final int MINUTES_PER_BLOCK = 60;
+    private static final int COUNTERS = 4;
+
+    private final boolean enabled;
+    private final int blocks;
+    private final int maxSeries;
+    private final Map<SeriesKey, Series> series = new HashMap<>();
+    private final Map<Long, List<Series>> byVersion = new HashMap<>();
+    private long headHour = Long.MIN_VALUE;
+    private boolean loaded;
+    private boolean overflowed;
+
+    public RecentAggregateStore(AggregationProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isRecentStoreEnabled();
+        // One extra block so the ring spans the whole window while the newest hour is still filling.
+        this.blocks = (properties.getRecentStoreWindowMinutes() + MINUTES_PER_BLOCK - 1) / MINUTES_PER_BLOCK + 1;
+        this.maxSeries = properties.getRecentStoreMaxSeries();
+        Gauge.builder("aggregation.recent.series", this, RecentAggregateStore::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized int size() {
+        return series.size();
+    }
+
+    /**
+     * Start of the span this store can answer for, or null while it cannot answer at all.
+     */
+    public synchronized Instant coveredFrom() {
+        if (!enabled || !loaded || overflowed || headHour == Long.MIN_VALUE) {
+            return null;
+        }
+        return windowStart();
+    }
+
+    /**
+     * First minute of the ring as of the last write or {@link #advance}: what a full load has to cover.
+     */
+    public synchronized Instant windowStart() {
+        return Instant.ofEpochSecond(oldestMinute() * 60);
+    }
+
+    public synchronized void markLoaded() {
+        loaded = true;
+    }
+
+    /**
+     * Whether the window has to be loaded (again) before the store can answer: it never was, or it
+     * dropped writes for series past {@code recent-store-max-series} and has room for them again.
+     */
+    public synchronized boolean needsLoad() {
+        return enabled && !loaded;
+    }
+
+    /**
+     * Adds counter deltas to the minute of {@code bucket}; minutes older than the ring are ignored.
+     */
+    public synchronized void add(long workflowVersionId, String groupHash, String nodeKey, Instant bucket,
+                                 int inFlight, int completed, int late, int failed) {
+        if (!enabled) {
+            return;
+        }
+        long minute = Math.floorDiv(bucket.getEpochSecond(), 60);
+        advanceTo(Math.floorDiv(minute, MINUTES_PER_BLOCK));
+        int[] block = block(workflowVersionId, groupHash, nodeKey, minute);
+        if (block == null) {
+            return;
+        }
+        int offset = (int) Math.floorMod(minute, MINUTES_PER_BLOCK) * COUNTERS;
+        // Clamped like the upsert into stage_aggregate, so the minute matches what the table holds.
+        block[offset] = Math.max(0, block[offset] + inFlight);
+        block[offset + 1] += completed;
+        block[offset + 2] += late;
+        block[offset + 3] += failed;
+    }
+
+    /**
+     * Moves the ring forward to the hour of {@code now} even without writes, so the covered span keeps up.
+     */
+    public synchronized void advance(Instant now) {
+        if (enabled) {
+            advanceTo(Math.floorDiv(now.getEpochSecond(), 60 * MINUTES_PER_BLOCK));
+        }
+    }
+
+    /**
+     * Replaces everything held for minutes in {@code [from, to)} with {@code rows} (minute rows as stored
+     * in {@code stage_aggregate}) in one step, so readers never see the span half loaded.
+     */
+    public synchronized void replace(Instant from, Instant to, List<MinuteRow> rows) {
+        if (!enabled) {
+            return;
+        }
+        long fromMinute = Math.floorDiv(from.getEpochSecond(), 60);
+        long toMinute = Math.floorDiv(to.getEpochSecond(), 60);
+        advanceTo(Math.floorDiv(toMinute - 1, MINUTES_PER_BLOCK));
+        for (Series s : series.values()) {
+            for (long minute = Math.max(fromMinute, oldestMinute()); minute < toMinute; minute++) {
+                int[] block = s.blocks[blockSlot(minute)];
+                if (block != null) {
+                    int offset = (int) Math.floorMod(minute, MINUTES_PER_BLOCK) * COUNTERS;
+                    block[offset] = 0;
+                    block[offset + 1] = 0;
+                    block[offset + 2] = 0;
+                    block[offset + 3] = 0;
+                }
+            }
+        }
+        for (MinuteRow row : rows) {
+            long minute = Math.floorDiv(row.bucket().getEpochSecond(), 60);
+            if (minute < fromMinute || minute >= toMinute) {
+                continue;
+            }
+            int[] block = block(row.workflowVersionId(), row.groupHash(), row.nodeKey(), minute);
+            if (block == null) {
+                continue;
+            }
+            int offset = (int) Math.floorMod(minute, MINUTES_PER_BLOCK) * COUNTERS;
+            block[offset] += row.inFlight();
+            block[offset + 1] += row.completed();
+            block[offset + 2] += row.late();
+            block[offset + 3] += row.failed();
+        }
+    }
+
+    /**
+     * In-memory counterpart of {@code StageAggregateRollupRepository.findSeries} over minutes in
+     * {@code [from, to)}.
+     */
+    public synchronized List<StageAggregateView> findSeries(AggregateResolution step,
+                                                            long workflowVersionId,
+                                                            String groupHash,
+                                                            Instant from,
+                                                            Instant to,
+                                                            int limit) {
+        List<StageAggregateView> views = new ArrayList<>();
+        for (SeriesRow row : fold(step, workflowVersionId, groupHash, null, from, to, true, true)) {
+            views.add(new StageAggregateView(workflowVersionId, row.groupHash(), row.nodeKey(), row.bucket(),
+                    row.inFlight(), row.completed(), row.late(), row.failed()));
+        }
+        views.sort((left, right) -> right.bucketStart().compareTo(left.bucketStart()));
+        return views.size() > limit ? new ArrayList<>(views.subList(0, limit)) : views;
+    }
+
+    /**
+     * In-memory counterpart of {@code StageAggregateRollupRepository.findGroupedSeries} over minutes in
+     * {@code [from, to)}.
+     */
+    public synchronized List<SeriesRow> findGroupedSeries(AggregateResolution step,
+                                                          long workflowVersionId,
+                                                          String groupHash,
+                                                          String nodeKey,
+                                                          Instant from,
+                                                          Instant to,
+                                                          boolean byGroup,
+                                                          boolean byNode) {
+        return fold(step, workflowVersionId, groupHash, nodeKey, from, to, byGroup, byNode);
+    }
+
+    /**
+     * Up to {@code limit} non-empty minute rows of any series in {@code [from, to)}, latest first, like
+     * the wallboard's query on {@code stage_aggregate}.
+     */
+    public synchronized List<StageAggregateView> latest(Instant from, Instant to, int limit) {
+        long fromMinute = Math.max(Math.floorDiv(from.getEpochSecond(), 60), oldestMinute());
+        long toMinute = Math.min(Math.floorDiv(to.getEpochSecond(), 60), (headHour + 1) * MINUTES_PER_BLOCK);
+        List<StageAggregateView> views = new ArrayList<>();
+        for (long minute = toMinute - 1; minute >= fromMinute && views.size() < limit; minute--) {
+            int slot = blockSlot(minute);
+            int offset = (int) Math.floorMod(minute, MINUTES_PER_BLOCK) * COUNTERS;
+            Instant bucket = Instant.ofEpochSecond(minute * 60);
+            for (Series s : series.values()) {
+                int[] block = s.blocks[slot];
+                if (block == null || (block[offset] == 0 && block[offset + 1] == 0 && block[offset + 2] == 0 && block[offset + 3] == 0)) {
+                    continue;
+                }
+                views.add(new StageAggregateView(s.key.workflowVersionId(), s.key.groupHash(), s.key.nodeKey(), bucket,
+                        block[offset], block[offset + 1], block[offset + 2], block[offset + 3]));
+                if (views.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return views;
+    }
+
+    /**
+     * Completions of every series over minutes in {@code [from, to)}, the in-memory counterpart of
+     * {@code VolumeBaselineRepository.windowCompletions}; a null group hash is keyed {@code ''}.
+     */
+    public synchronized Map<VolumeBaselineRepository.SeriesKey, Long> completions(Instant from, Instant to) {
+        long fromMinute = Math.max(Math.floorDiv(from.getEpochSecond(), 60), oldestMinute());
+        long toMinute = Math.min(Math.floorDiv(to.getEpochSecond(), 60), (headHour + 1) * MINUTES_PER_BLOCK);
+        Map<VolumeBaselineRepository.SeriesKey, Long> completions = new HashMap<>();
+        for (Series s : series.values()) {
+            long completed = 0;
+            for (long minute = fromMinute; minute < toMinute; minute++) {
+                int[] block = s.blocks[blockSlot(minute)];
+                if (block == null) {
+                    minute = (Math.floorDiv(minute, MINUTES_PER_BLOCK) + 1) * MINUTES_PER_BLOCK - 1;
+                    continue;
+                }
+                completed += block[(int) Math.floorMod(minute, MINUTES_PER_BLOCK) * COUNTERS + 1];
+            }
+            completions.merge(new VolumeBaselineRepository.SeriesKey(s.key.workflowVersionId(),
+                    Objects.requireNonNullElse(s.key.groupHash(), ""), s.key.nodeKey()), completed, Long::sum);
+        }
+        return completions;
+    }
+
+    private List<SeriesRow> fold(AggregateResolution step,
+                                 long workflowVersionId,
+                                 String groupHash,
+                                 String nodeKey,
+                                 Instant from,
+                                 Instant to,
+                                 boolean byGroup,
+                                 boolean byNode) {
+        long fromMinute = from != null ? Math.max(Math.floorDiv(from.getEpochSecond(), 60), oldestMinute()) : oldestMinute();
+        long toMinute = to != null
+                ? Math.floorDiv(to.getEpochSecond(), 60)
+                : (headHour + 1) * MINUTES_PER_BLOCK;
+        Map<List<Object>, long[]> sums = new HashMap<>();
+        for (Series s : byVersion.getOrDefault(workflowVersionId, List.of())) {
+            if ((groupHash != null && !groupHash.equals(s.key.groupHash())) || (nodeKey != null && !nodeKey.equals(s.key.nodeKey()))) {
+                continue;
+            }
+            String rowGroup = byGroup ? s.key.groupHash() : null;
+            String rowNode = byNode ? s.key.nodeKey() : null;
+            for (long minute = fromMinute; minute < toMinute; minute++) {
+                int[] block = s.blocks[blockSlot(minute)];
+                if (block == null) {
+                    // Skip to the next hour block.
+                    minute = (Math.floorDiv(minute, MINUTES_PER_BLOCK) + 1) * MINUTES_PER_BLOCK - 1;
+                    continue;
+                }
+                int offset = (int) Math.floorMod(minute, MINUTES_PER_BLOCK) * COUNTERS;
+                if (block[offset] == 0 && block[offset + 1] == 0 && block[offset + 2] == 0 && block[offset + 3] == 0) {
+                    continue;
+                }
+                Instant bucket = step.truncate(Instant.ofEpochSecond(minute * 60));
+                long[] sum = sums.computeIfAbsent(Arrays.asList(rowGroup, rowNode, bucket), k -> new long[COUNTERS]);
+                for (int c = 0; c < COUNTERS; c++) {
+                    sum[c] += block[offset + c];
+                }
+            }
+        }
+        List<SeriesRow> rows = new ArrayList<>(sums.size());
+        sums.forEach((key, sum) -> rows.add(new SeriesRow((String) key.get(0), (String) key.get(1), (Instant) key.get(2),
+                sum[0], sum[1], sum[2], sum[3])));
+        return rows;
+    }
+
+    /**
+     * The block holding {@code minute} for the series, allocating the series and block if needed; null
+     * when the minute is outside the ring or the series limit is reached.
+     */
+    private int[] block(long workflowVersionId, String groupHash, String nodeKey, long minute) {
+        if (minute < oldestMinute() || Math.floorDiv(minute, MINUTES_PER_BLOCK) > headHour) {
+            return null;
+        }
+        SeriesKey key = new SeriesKey(workflowVersionId, groupHash, nodeKey);
+        Series s = series.get(key);
+        if (s == null) {
+            if (series.size() >= maxSeries) {
+                if (!overflowed) {
+                    overflowed = true;
+                    log.warn("Recent aggregate store full; recent queries fall back to SQL maxSeries={}", maxSeries);
+                }
+                return null;
+            }
+            s = new Series(key, blocks);
+            series.put(key, s);
+            byVersion.computeIfAbsent(workflowVersionId, id -> new ArrayList<>()).add(s);
+        }
+        int slot = blockSlot(minute);
+        if (s.blocks[slot] == null) {
+            s.blocks[slot] = new int[MINUTES_PER_BLOCK * COUNTERS];
+        }
+        return s.blocks[slot];
+    }
+
+    private void advanceTo(long hour) {
+        if (headHour == Long.MIN_VALUE) {
+            headHour = hour;
+            return;
+        }
+        if (hour <= headHour) {
+            return;
+        }
+        long steps = Math.min(hour - headHour, blocks);
+        for (long h = hour - steps + 1; h <= hour; h++) {
+            int slot = (int) Math.floorMod(h, blocks);
+            for (Series s : series.values()) {
+                s.blocks[slot] = null;
+            }
+        }
+        headHour = hour;
+        Iterator<Series> iterator = series.values().iterator();
+        while (iterator.hasNext()) {
+            Series s = iterator.next();
+            if (s.isEmpty()) {
+                iterator.remove();
+                List<Series> versionSeries = byVersion.get(s.key.workflowVersionId());
+                versionSeries.remove(s);
+                if (versionSeries.isEmpty()) {
+                    byVersion.remove(s.key.workflowVersionId());
+                }
+            }
+        }
+        if (overflowed && series.size() < maxSeries) {
+            // Writes to the series turned away are missing, so the window is reloaded before it is used.
+            overflowed = false;
+            loaded = false;
+            log.info("Recent aggregate store has room again; reloading window series={} maxSeries={}", series.size(), maxSeries);
+        }
+    }
+
+    private long oldestMinute() {
+        return (headHour - blocks + 1) * MINUTES_PER_BLOCK;
+    }
+
+    private int blockSlot(long minute) {
+        return (int) Math.floorMod(Math.floorDiv(minute, MINUTES_PER_BLOCK), blocks);
+    }
+
+    public record MinuteRow(long workflowVersionId, String groupHash, String nodeKey, Instant bucket,
+                            long inFlight, long completed, long late, long failed) {
+    }
+
+    private record SeriesKey(long workflowVersionId, String groupHash, String nodeKey) {
+        SeriesKey {
+            Objects.requireNonNull(nodeKey);
+        }
+    }
+
+    private static final class Series {
+        private final SeriesKey key;
+        private final int[][] blocks;
+
+        private Series(SeriesKey key, int blocks) {
+            this.key = key;
+            this.blocks = new int[blocks][];
+        }
+
+        boolean isEmpty() {
+            for (int[] block : blocks) {
+                if (block != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
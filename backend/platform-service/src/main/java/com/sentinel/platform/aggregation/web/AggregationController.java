@@ -2,15 +2,27 @@ package com.sentinel.platform.aggregation.web;
 
 import java.util.List;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.sentinel.platform.aggregation.model.AggregateResolution;
+import com.sentinel.platform.aggregation.model.SeriesGroupBy;
+import com.sentinel.platform.aggregation.model.SeriesMetric;
 import com.sentinel.platform.aggregation.service.AggregationQueryService;
+import com.sentinel.platform.aggregation.service.BacklogAgingService;
+import com.sentinel.platform.aggregation.service.HotspotService;
 import com.sentinel.platform.aggregation.service.WallboardViewService;
+import com.sentinel.platform.aggregation.web.dto.HotspotView;
 import com.sentinel.platform.aggregation.web.dto.StageAggregateView;
+import com.sentinel.platform.aggregation.web.dto.StageBacklogView;
+import com.sentinel.platform.aggregation.web.dto.StageDistinctView;
+import com.sentinel.platform.aggregation.web.dto.StageLatencyView;
+import com.sentinel.platform.aggregation.web.dto.StageSeriesView;
 import com.sentinel.platform.aggregation.web.dto.WallboardView;
 import com.sentinel.platform.shared.time.DateRange;
 import com.sentinel.platform.shared.time.DateRangeParser;
@@ -20,13 +32,19 @@ public class AggregationController {
 
     private final AggregationQueryService aggregationQueryService;
     private final WallboardViewService wallboardViewService;
+    private final HotspotService hotspotService;
+    private final BacklogAgingService backlogAgingService;
     private final DateRangeParser dateRangeParser;
 
     public AggregationController(AggregationQueryService aggregationQueryService,
                                  WallboardViewService wallboardViewService,
+                                 HotspotService hotspotService,
+                                 BacklogAgingService backlogAgingService,
                                  DateRangeParser dateRangeParser) {
         this.aggregationQueryService = aggregationQueryService;
         this.wallboardViewService = wallboardViewService;
+        this.hotspotService = hotspotService;
+        this.backlogAgingService = backlogAgingService;
         this.dateRangeParser = dateRangeParser;
     }
 
@@ -36,12 +54,97 @@ public class AggregationController {
                                            @RequestParam(value = "limit", defaultValue = "50") int limit,
                                            @RequestParam(value = "groupHash", required = false) String groupHash,
                                            @RequestParam(value = "date", required = false) String date,
+                                           @RequestParam(value = "from", required = false) String from,
+                                           @RequestParam(value = "to", required = false) String to,
+                                           @RequestParam(value = "step", required = false) String step,
                                            @RequestParam(value = "allDays", defaultValue = "false") boolean allDays) {
-        DateRange range = dateRangeParser.resolve(date, allDays);
-        return aggregationQueryService.findAggregates(id, limit, groupHash, range)
-                .stream()
-                .map(StageAggregateView::from)
-                .toList();
+        try {
+            DateRange range = dateRangeParser.resolve(date, from, to, allDays);
+            return aggregationQueryService.findAggregates(id, limit, groupHash, range, AggregateResolution.parse(step));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
+    @GetMapping("/workflows/{id}/series")
+    @PreAuthorize("hasRole('viewer') or hasRole('operator') or hasRole('config-admin')")
+    public StageSeriesView series(@PathVariable Long id,
+                                  @RequestParam(value = "date", required = false) String date,
+                                  @RequestParam(value = "from", required = false) String from,
+                                  @RequestParam(value = "to", required = false) String to,
+                                  @RequestParam(value = "allDays", defaultValue = "false") boolean allDays,
+                                  @RequestParam(value = "step", required = false) String step,
+                                  @RequestParam(value = "groupBy", required = false) String groupBy,
+                                  @RequestParam(value = "metrics", required = false) String metrics,
+                                  @RequestParam(value = "groupHash", required = false) String groupHash,
+                                  @RequestParam(value = "node", required = false) String node) {
+        try {
+            DateRange range = dateRangeParser.resolve(date, from, to, allDays);
+            return aggregationQueryService.series(id, range, AggregateResolution.parse(step), SeriesGroupBy.parse(groupBy),
+                    SeriesMetric.parseList(metrics), groupHash, node);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
+    @GetMapping("/workflows/{id}/distinct")
+    @PreAuthorize("hasRole('viewer') or hasRole('operator') or hasRole('config-admin')")
+    public List<StageDistinctView> distinct(@PathVariable Long id,
+                                            @RequestParam(value = "limit", defaultValue = "200") int limit,
+                                            @RequestParam(value = "node", required = false) String node,
+                                            @RequestParam(value = "groupHash", required = false) String groupHash,
+                                            @RequestParam(value = "byGroup", defaultValue = "false") boolean byGroup,
+                                            @RequestParam(value = "step", required = false) String step,
+                                            @RequestParam(value = "lastMinutes", required = false) Integer lastMinutes,
+                                            @RequestParam(value = "date", required = false) String date,
+                                            @RequestParam(value = "from", required = false) String from,
+                                            @RequestParam(value = "to", required = false) String to,
+                                            @RequestParam(value = "allDays", defaultValue = "false") boolean allDays) {
+        try {
+            DateRange range = lastMinutes != null
+                    ? dateRangeParser.lastMinutes(lastMinutes)
+                    : dateRangeParser.resolve(date, from, to, allDays);
+            return aggregationQueryService.distinctCounts(id, range, AggregateResolution.parse(step), byGroup, groupHash, node, limit);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
+    @GetMapping("/workflows/{id}/latency")
+    @PreAuthorize("hasRole('viewer') or hasRole('operator') or hasRole('config-admin')")
+    public List<StageLatencyView> latency(@PathVariable Long id,
+                                          @RequestParam(value = "node", required = false) String node,
+                                          @RequestParam(value = "groupHash", required = false) String groupHash,
+                                          @RequestParam(value = "date", required = false) String date,
+                                          @RequestParam(value = "from", required = false) String from,
+                                          @RequestParam(value = "to", required = false) String to,
+                                          @RequestParam(value = "allDays", defaultValue = "false") boolean allDays) {
+        try {
+            DateRange range = dateRangeParser.resolve(date, from, to, allDays);
+            return aggregationQueryService.stageLatencies(id, groupHash, node, range);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
+    @GetMapping("/workflows/{id}/hotspots")
+    @PreAuthorize("hasRole('viewer') or hasRole('operator') or hasRole('config-admin')")
+    public HotspotView hotspots(@PathVariable Long id,
+                                @RequestParam(value = "groupHash", required = false) String groupHash,
+                                @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        try {
+            return hotspotService.hotspots(id, groupHash, limit);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
+    @GetMapping("/workflows/{id}/backlog")
+    @PreAuthorize("hasRole('viewer') or hasRole('operator') or hasRole('config-admin')")
+    public List<StageBacklogView> backlog(@PathVariable Long id,
+                                          @RequestParam(value = "groupHash", required = false) String groupHash,
+                                          @RequestParam(value = "byGroup", defaultValue = "false") boolean byGroup) {
+        return backlogAgingService.backlog(id, groupHash, byGroup);
     }
 
     @GetMapping("/wallboard")
@@ -0,0 +1,14 @@
+package com.sentinel.platform.aggregation.web.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+public record HotspotView(
+        Long workflowVersionId,
+        String groupHash,
+        Instant asOf,
+        int windowMinutes,
+        List<OverdueHotspot> overdue,
+        List<LatencyHotspot> slowest
+) {
+}
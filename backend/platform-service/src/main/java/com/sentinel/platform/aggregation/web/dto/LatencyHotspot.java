@@ -0,0 +1,13 @@
+package com.sentinel.platform.aggregation.web.dto;
+
+import java.time.Instant;
+
+public record LatencyHotspot(
+        long workflowRunId,
+        String correlationKey,
+        String groupHash,
+        String nodeKey,
+        long latencyMs,
+        Instant observedAt
+) {
+}
@@ -9,10 +9,10 @@ public record StageAggregateView(
         String groupHash,
         String nodeKey,
         Instant bucketStart,
-        int inFlight,
-        int completed,
-        int late,
-        int failed
+        long inFlight,
+        long completed,
+        long late,
+        long failed
 ) {
     public static StageAggregateView from(StageAggregate aggregate) {
         return new StageAggregateView(
@@ -0,0 +1,11 @@
+package com.sentinel.platform.aggregation.web.dto;
+
+import java.util.Map;
+
+public record StageBacklogView(
+        String groupHash,
+        String nodeKey,
+        long outstanding,
+        Map<String, Long> ages
+) {
+}
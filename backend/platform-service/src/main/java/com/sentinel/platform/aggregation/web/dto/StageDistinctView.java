@@ -0,0 +1,11 @@
+package com.sentinel.platform.aggregation.web.dto;
+
+import java.time.Instant;
+
+public record StageDistinctView(
+        String groupHash,
+        String nodeKey,
+        Instant bucketStart,
+        long distinctCorrelations
+) {
+}
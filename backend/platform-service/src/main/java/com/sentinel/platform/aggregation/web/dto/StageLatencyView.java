@@ -0,0 +1,21 @@
+package com.sentinel.platform.aggregation.web.dto;
+
+import com.sentinel.platform.aggregation.model.LatencyHistogram;
+
+public record StageLatencyView(
+        String nodeKey,
+        long samples,
+        long p50Ms,
+        long p95Ms,
+        long p99Ms
+) {
+    public static StageLatencyView from(String nodeKey, LatencyHistogram histogram) {
+        return new StageLatencyView(
+                nodeKey,
+                histogram.count(),
+                histogram.percentile(0.50),
+                histogram.percentile(0.95),
+                histogram.percentile(0.99)
+        );
+    }
+}
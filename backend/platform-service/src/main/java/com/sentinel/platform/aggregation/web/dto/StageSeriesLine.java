@@ -0,0 +1,14 @@
+package com.sentinel.platform.aggregation.web.dto;
+
+import java.util.Map;
+
+/**
+ * One line of a {@link StageSeriesView}: per requested metric, one value for each of the view's buckets
+ * (0 where nothing happened).
+ */
+public record StageSeriesLine(
+        String key,
+        String label,
+        Map<String, long[]> values
+) {
+}
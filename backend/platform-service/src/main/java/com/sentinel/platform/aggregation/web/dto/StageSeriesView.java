@@ -0,0 +1,15 @@
+package com.sentinel.platform.aggregation.web.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+public record StageSeriesView(
+        Long workflowVersionId,
+        String step,
+        String groupBy,
+        Instant start,
+        Instant end,
+        List<Instant> buckets,
+        List<StageSeriesLine> series
+) {
+}
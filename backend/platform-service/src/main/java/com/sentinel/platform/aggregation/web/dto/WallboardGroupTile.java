@@ -1,6 +1,7 @@
 package com.sentinel.platform.aggregation.web.dto;
 
 import java.util.List;
+import java.util.Map;
 
 public record WallboardGroupTile(
         String label,
@@ -9,6 +10,7 @@ public record WallboardGroupTile(
         int inFlight,
         int late,
         int failed,
-        List<WallboardCountdown> countdowns
+        List<WallboardCountdown> countdowns,
+        Map<String, Long> backlogAge
 ) {
 }
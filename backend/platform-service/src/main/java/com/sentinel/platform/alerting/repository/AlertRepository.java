@@ -1,5 +1,6 @@
 package com.sentinel.platform.alerting.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,6 +12,8 @@ import com.sentinel.platform.alerting.model.Alert;
 public interface AlertRepository extends JpaRepository<Alert, Long> {
     Optional<Alert> findFirstByDedupeKey(String dedupeKey);
 
+    List<Alert> findByDedupeKeyIn(Collection<String> dedupeKeys);
+
     List<Alert> findByStateOrderByLastTriggeredAtDesc(String state, Pageable pageable);
 
     List<Alert> findAllByOrderByLastTriggeredAtDesc(Pageable pageable);
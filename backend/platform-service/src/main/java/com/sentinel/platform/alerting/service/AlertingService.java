@@ -2,15 +2,19 @@ package com.sentinel.platform.alerting.service;
 
 import java.time.Clock;
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.sentinel.platform.alerting.model.Alert;
 import com.sentinel.platform.alerting.model.AlertTriggerEvent;
@@ -37,25 +41,54 @@ public class AlertingService {
     public void handleAlertTriggered(String payload) {
         try {
             AlertTriggerEvent trigger = objectMapper.readValue(payload, AlertTriggerEvent.class);
-            String dedupeKey = Optional.ofNullable(trigger.getDedupeKey())
-                    .orElse(trigger.getWorkflowVersionId() + ":" + trigger.getNode() + ":" + trigger.getCorrelationKey());
+            String dedupeKey = dedupeKey(trigger);
             Alert alert = alertRepository.findFirstByDedupeKey(dedupeKey).orElseGet(Alert::new);
-            alert.setCorrelationKey(trigger.getCorrelationKey());
-            alert.setWorkflowVersionId(trigger.getWorkflowVersionId());
-            alert.setNodeKey(Optional.ofNullable(trigger.getNode()).orElse("unknown"));
-            alert.setSeverity(Optional.ofNullable(trigger.getSeverity()).orElse("amber"));
-            alert.setDedupeKey(dedupeKey);
-            Instant triggeredAt = Optional.ofNullable(trigger.getTriggeredAt()).orElse(clock.instant());
-            alert.setFirstTriggeredAt(alert.getFirstTriggeredAt() == null ? triggeredAt : alert.getFirstTriggeredAt());
-            alert.setLastTriggeredAt(triggeredAt);
-            String existingState = Optional.ofNullable(alert.getState()).orElse("open");
-            alert.setState("resolved".equalsIgnoreCase(existingState) ? "open" : existingState);
-            alertRepository.save(alert);
+            alertRepository.save(apply(alert, trigger, dedupeKey));
         } catch (Exception ex) {
             log.error("Failed to handle alerts.triggered payload", ex);
         }
     }
 
+    /**
+     * Upserts a batch of triggers with one lookup by dedupe key and one {@code saveAll}; triggers sharing a
+     * dedupe key fold into the same alert in order.
+     */
+    @Transactional
+    public void handleAlertsTriggered(List<AlertTriggerEvent> triggers) {
+        if (triggers.isEmpty()) {
+            return;
+        }
+        Set<String> dedupeKeys = triggers.stream().map(this::dedupeKey).collect(Collectors.toSet());
+        Map<String, Alert> alerts = new LinkedHashMap<>();
+        for (Alert existing : alertRepository.findByDedupeKeyIn(dedupeKeys)) {
+            alerts.putIfAbsent(existing.getDedupeKey(), existing);
+        }
+        for (AlertTriggerEvent trigger : triggers) {
+            String dedupeKey = dedupeKey(trigger);
+            apply(alerts.computeIfAbsent(dedupeKey, key -> new Alert()), trigger, dedupeKey);
+        }
+        alertRepository.saveAll(alerts.values());
+    }
+
+    private String dedupeKey(AlertTriggerEvent trigger) {
+        return Optional.ofNullable(trigger.getDedupeKey())
+                .orElse(trigger.getWorkflowVersionId() + ":" + trigger.getNode() + ":" + trigger.getCorrelationKey());
+    }
+
+    private Alert apply(Alert alert, AlertTriggerEvent trigger, String dedupeKey) {
+        alert.setCorrelationKey(trigger.getCorrelationKey());
+        alert.setWorkflowVersionId(trigger.getWorkflowVersionId());
+        alert.setNodeKey(Optional.ofNullable(trigger.getNode()).orElse("unknown"));
+        alert.setSeverity(Optional.ofNullable(trigger.getSeverity()).orElse("amber"));
+        alert.setDedupeKey(dedupeKey);
+        Instant triggeredAt = Optional.ofNullable(trigger.getTriggeredAt()).orElse(clock.instant());
+        alert.setFirstTriggeredAt(alert.getFirstTriggeredAt() == null ? triggeredAt : alert.getFirstTriggeredAt());
+        alert.setLastTriggeredAt(triggeredAt);
+        String existingState = Optional.ofNullable(alert.getState()).orElse("open");
+        alert.setState("resolved".equalsIgnoreCase(existingState) ? "open" : existingState);
+        return alert;
+    }
+
     public List<Alert> list(String state, int limit) {
         PageRequest page = PageRequest.of(0, limit);
         if (state == null) {
@@ -0,0 +1,123 @@
+package com.sentinel.platform.archive.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Validated
+@ConfigurationProperties(prefix = "archive")
+public class ArchiveProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Directory holding the compressed segments and their sparse indexes. Every node serving
+     * {@code /archive/raw-events} must see the same directory, so point it at a shared volume.
+     */
+    @NotBlank
+    private String directory = "data/archive";
+
+    /**
+     * Set once {@link #directory} is on storage shared by (and surviving) every node. Until then archived
+     * partitions are kept in {@code event_raw}, since segments on one node's disk are not a durable copy.
+     */
+    private boolean sharedDirectory = false;
+
+    /**
+     * Daily {@code event_raw} partitions older than this many days are copied into segments. The partition
+     * itself stays in the hot table, so replays still see it, until partition rotation expires it under
+     * {@code retention.tables.event_raw}; keep this below that retention so the copy exists by then.
+     */
+    @Min(1)
+    private int archiveAfterDays = 7;
+
+    /**
+     * Uncompressed bytes per compressed block; also the granularity of the sparse index.
+     */
+    @Min(4096)
+    private int blockSizeBytes = 64 * 1024;
+
+    @Min(1)
+    @Max(9)
+    private int compressionLevel = 6;
+
+    /**
+     * Segment parts roll over at this size so each part can be memory-mapped in one piece; a part can
+     * overshoot by one block, so the limit stays well below the 2 GiB a single mapping can address.
+     */
+    @Min(1024 * 1024)
+    @Max(1024L * 1024 * 1024)
+    private long maxSegmentBytes = 1024L * 1024 * 1024;
+
+    /**
+     * JDBC fetch size used while streaming a partition; rows are never materialised as a whole.
+     */
+    @Min(1)
+    private int fetchSize = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public boolean isSharedDirectory() {
+        return sharedDirectory;
+    }
+
+    public void setSharedDirectory(boolean sharedDirectory) {
+        this.sharedDirectory = sharedDirectory;
+    }
+
+    public int getArchiveAfterDays() {
+        return archiveAfterDays;
+    }
+
+    public void setArchiveAfterDays(int archiveAfterDays) {
+        this.archiveAfterDays = archiveAfterDays;
+    }
+
+    public int getBlockSizeBytes() {
+        return blockSizeBytes;
+    }
+
+    public void setBlockSizeBytes(int blockSizeBytes) {
+        this.blockSizeBytes = blockSizeBytes;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public long getMaxSegmentBytes() {
+        return maxSegmentBytes;
+    }
+
+    public void setMaxSegmentBytes(long maxSegmentBytes) {
+        this.maxSegmentBytes = maxSegmentBytes;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+}
@@ -0,0 +1,17 @@
+package com.sentinel.platform.archive.model;
+
+import java.time.Instant;
+import java.util.Map;
+
+public record ArchivedRawEvent(long id,
+                               String sourceEventId,
+                               String sourceSystem,
+                               String eventType,
+                               String workflowKey,
+                               String correlationKey,
+                               Map<String, Object> group,
+                               Map<String, Object> payload,
+                               Instant eventTimeUtc,
+                               Instant receivedAt,
+                               String ingestStatus) {
+}
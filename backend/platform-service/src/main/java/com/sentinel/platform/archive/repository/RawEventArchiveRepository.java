@@ -0,0 +1,92 @@
+package com.sentinel.platform.archive.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.sentinel.platform.archive.model.ArchivedRawEvent;
+import com.sentinel.platform.shared.group.GroupLabelService;
+
+@Repository
+public class RawEventArchiveRepository {
+    private static final Pattern PARTITION_NAME = Pattern.compile("p\\d{8}");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GroupLabelService groupLabelService;
+
+    public RawEventArchiveRepository(JdbcTemplate jdbcTemplate, GroupLabelService groupLabelService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.groupLabelService = groupLabelService;
+    }
+
+    /**
+     * Streams every row of one {@code event_raw} partition ordered by correlation key (binary collation,
+     * to match the segment key order). With a positive fetch size the MariaDB driver streams the result
+     * instead of buffering it, so memory stays flat regardless of partition size.
+     */
+    public void streamPartition(String partition, int fetchSize, Consumer<ArchivedRawEvent> consumer) {
+        if (!PARTITION_NAME.matcher(partition).matches()) {
+            throw new IllegalArgumentException("Invalid partition name: " + partition);
+        }
+        String sql = "select id, source_event_id, source_system, event_type, workflow_key, correlation_key, group_dims, "
+                + "event_time_utc, received_at, payload, ingest_status from event_raw partition (" + partition + ") "
+                + "order by correlation_key collate utf8mb4_bin, received_at, id";
+        jdbcTemplate.query(connection -> {
+            var ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, rs -> {
+            consumer.accept(map(rs));
+        });
+    }
+
+    /**
+     * The catalog row of an archived source, if its parts were all committed.
+     */
+    public Optional<ArchivedSource> findArchived(String source) {
+        List<ArchivedSource> rows = jdbcTemplate.query(
+                "select source, parts, record_count from raw_event_archive where source = ?",
+                (rs, rowNum) -> new ArchivedSource(rs.getString("source"), rs.getInt("parts"), rs.getLong("record_count")),
+                source);
+        return rows.stream().findFirst();
+    }
+
+    public void recordArchived(String source, LocalDate partitionDay, int parts, long records, long bytes) {
+        jdbcTemplate.update("""
+                insert into raw_event_archive (source, partition_day, parts, record_count, segment_bytes)
+                values (?, ?, ?, ?, ?)
+                on duplicate key update parts = values(parts), record_count = values(record_count),
+                    segment_bytes = values(segment_bytes), archived_at = current_timestamp(3)
+                """, source, partitionDay, parts, records, bytes);
+    }
+
+    private ArchivedRawEvent map(ResultSet rs) throws SQLException {
+        return new ArchivedRawEvent(
+                rs.getLong("id"),
+                rs.getString("source_event_id"),
+                rs.getString("source_system"),
+                rs.getString("event_type"),
+                rs.getString("workflow_key"),
+                rs.getString("correlation_key"),
+                groupLabelService.parseGroupJson(rs.getString("group_dims")),
+                groupLabelService.parseGroupJson(rs.getString("payload")),
+                toInstant(rs.getTimestamp("event_time_utc")),
+                toInstant(rs.getTimestamp("received_at")),
+                rs.getString("ingest_status"));
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    public record ArchivedSource(String source, int parts, long records) {}
+}
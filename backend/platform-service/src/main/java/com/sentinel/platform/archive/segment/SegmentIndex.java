@@ -0,0 +1,133 @@
+package com.sentinel.platform.archive.segment;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sparse index of a segment: one entry per compressed block holding the first correlation key of the
+ * block and its byte range. Also records the UTC day range of the rows in the segment so readers can
+ * skip segments that cannot contain the requested day.
+ */
+public final class SegmentIndex {
+    static final int MAGIC = 0x53474958; // "SGIX"
+    static final int VERSION = 1;
+
+    /**
+     * Keys are ordered by Unicode code point, which matches {@code ORDER BY ... COLLATE utf8mb4_bin} on
+     * the database side (plain {@link String#compareTo} orders by UTF-16 unit and differs for
+     * supplementary characters).
+     */
+    public static final Comparator<String> KEY_ORDER = (a, b) -> {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Boolean.compare(i < a.length(), j < b.length());
+    };
+
+    private final long recordCount;
+    private final long minEpochDay;
+    private final long maxEpochDay;
+    private final List<BlockEntry> blocks;
+
+    SegmentIndex(long recordCount, long minEpochDay, long maxEpochDay, List<BlockEntry> blocks) {
+        this.recordCount = recordCount;
+        this.minEpochDay = minEpochDay;
+        this.maxEpochDay = maxEpochDay;
+        this.blocks = Collections.unmodifiableList(blocks);
+    }
+
+    public long recordCount() {
+        return recordCount;
+    }
+
+    public long minEpochDay() {
+        return minEpochDay;
+    }
+
+    public long maxEpochDay() {
+        return maxEpochDay;
+    }
+
+    public List<BlockEntry> blocks() {
+        return blocks;
+    }
+
+    public boolean coversDay(long epochDay) {
+        return recordCount > 0 && epochDay >= minEpochDay && epochDay <= maxEpochDay;
+    }
+
+    /**
+     * Blocks that may contain the key: the block before the first block starting after the key (rows for
+     * a key can straddle a block boundary) through the last block starting at or before the key.
+     */
+    public List<BlockEntry> candidateBlocks(String correlationKey) {
+        if (blocks.isEmpty()) {
+            return List.of();
+        }
+        int low = 0;
+        int high = blocks.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (KEY_ORDER.compare(blocks.get(mid).firstKey(), correlationKey) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int end = low;
+        while (end < blocks.size() && blocks.get(end).firstKey().equals(correlationKey)) {
+            end++;
+        }
+        int start = Math.max(0, low - 1);
+        return blocks.subList(start, Math.max(start + 1, end));
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(recordCount);
+        out.writeLong(minEpochDay);
+        out.writeLong(maxEpochDay);
+        out.writeInt(blocks.size());
+        for (BlockEntry block : blocks) {
+            out.writeUTF(block.firstKey());
+            out.writeLong(block.offset());
+            out.writeInt(block.length());
+            out.writeInt(block.records());
+        }
+    }
+
+    static SegmentIndex readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a segment index");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported segment index version " + version);
+        }
+        long recordCount = in.readLong();
+        long minDay = in.readLong();
+        long maxDay = in.readLong();
+        int count = in.readInt();
+        List<BlockEntry> blocks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            blocks.add(new BlockEntry(in.readUTF(), in.readLong(), in.readInt(), in.readInt()));
+        }
+        return new SegmentIndex(recordCount, minDay, maxDay, blocks);
+    }
+
+    public record BlockEntry(String firstKey, long offset, int length, int records) {}
+}
@@ -0,0 +1,109 @@
+package com.sentinel.platform.archive.segment;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read side of a committed segment. The segment file is memory-mapped once; a lookup binary-searches
+ * the sparse index and inflates only the candidate blocks. One mapping addresses at most 2 GiB, which
+ * {@code archive.max-segment-bytes} keeps every part under.
+ */
+public final class SegmentReader {
+    private final String name;
+    private final SegmentIndex index;
+    private final MappedByteBuffer mapped;
+
+    SegmentReader(String name, Path segmentPath, SegmentIndex index) {
+        this.name = name;
+        this.index = index;
+        try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("segment of " + channel.size() + " bytes exceeds the mappable size");
+            }
+            this.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to map segment " + segmentPath, e);
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public SegmentIndex index() {
+        return index;
+    }
+
+    public List<byte[]> find(String correlationKey, long epochDay) {
+        if (!index.coversDay(epochDay)) {
+            return List.of();
+        }
+        List<byte[]> matches = new ArrayList<>();
+        for (SegmentIndex.BlockEntry block : index.candidateBlocks(correlationKey)) {
+            if (!scanBlock(block, correlationKey, epochDay, matches)) {
+                break;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns false once a key past the requested one was seen, so later candidate blocks can be skipped.
+     */
+    private boolean scanBlock(SegmentIndex.BlockEntry block, String correlationKey, long epochDay, List<byte[]> matches) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(inflate(block)))) {
+            for (int i = 0; i < block.records(); i++) {
+                String key = in.readUTF();
+                long day = in.readLong();
+                byte[] record = new byte[in.readInt()];
+                in.readFully(record);
+                int cmp = SegmentIndex.KEY_ORDER.compare(key, correlationKey);
+                if (cmp > 0) {
+                    return false;
+                }
+                if (cmp == 0 && day == epochDay) {
+                    matches.add(record);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt block in segment " + name + " at offset " + block.offset(), e);
+        }
+    }
+
+    private byte[] inflate(SegmentIndex.BlockEntry block) throws IOException {
+        ByteBuffer slice = mapped.slice(Math.toIntExact(block.offset()), block.length());
+        int rawLength = slice.getInt();
+        int compressedLength = slice.getInt();
+        byte[] compressed = new byte[compressedLength];
+        slice.get(compressed);
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                read += inflater.inflate(raw, read, rawLength - read);
+            }
+            if (read != rawLength) {
+                throw new IOException("short block: expected " + rawLength + " bytes, got " + read);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.sentinel.platform.archive.segment;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Directory of immutable segments. A source (for example {@code event_raw-p20261001}) is written as one
+ * or more parts, each a {@code .seg} data file plus a {@code .idx} sparse index; a part is committed once
+ * its index exists and a source is complete once its {@code .done} marker exists. Readers are opened
+ * lazily and cached. The directory is expected to be shared by every node that serves archive reads.
+ */
+public final class SegmentStore {
+    private static final String DATA_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String DONE_SUFFIX = ".done";
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_\\-]+");
+
+    private final Path directory;
+    private final int blockSize;
+    private final int compressionLevel;
+    private final Map<String, SegmentReader> readers = new ConcurrentHashMap<>();
+
+    public SegmentStore(Path directory, int blockSize, int compressionLevel) {
+        this.directory = directory;
+        this.blockSize = blockSize;
+        this.compressionLevel = compressionLevel;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create archive directory " + directory, e);
+        }
+    }
+
+    public boolean isComplete(String source) {
+        return Files.exists(directory.resolve(validate(source) + DONE_SUFFIX));
+    }
+
+    public SegmentWriter create(String source, int part) {
+        String name = partName(source, part);
+        return new SegmentWriter(directory.resolve(name + DATA_SUFFIX), directory.resolve(name + INDEX_SUFFIX),
+                blockSize, compressionLevel);
+    }
+
+    public void markComplete(String source) {
+        Path marker = directory.resolve(validate(source) + DONE_SUFFIX);
+        try (FileChannel channel = FileChannel.open(marker, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to mark segment source complete " + source, e);
+        }
+    }
+
+    /**
+     * Removes every part of an incomplete source so an interrupted archive run can start over.
+     */
+    public void discard(String source) {
+        String prefix = validate(source) + "-";
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : stream) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to discard segment source " + source, e);
+        }
+        readers.keySet().removeIf(name -> name.startsWith(prefix));
+    }
+
+    public List<SegmentReader> readers() {
+        List<SegmentReader> result = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + INDEX_SUFFIX)) {
+            for (Path indexFile : stream) {
+                String fileName = indexFile.getFileName().toString();
+                String name = fileName.substring(0, fileName.length() - INDEX_SUFFIX.length());
+                result.add(readers.computeIfAbsent(name, this::open));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to list archive directory " + directory, e);
+        }
+        result.sort(Comparator.comparing(SegmentReader::name));
+        return result;
+    }
+
+    /**
+     * Readers for parts {@code 0..parts-1} of a source. A missing part means this node cannot see the
+     * segments another node committed, which is an error rather than an empty result.
+     */
+    public List<SegmentReader> readers(String source, int parts) {
+        List<SegmentReader> result = new ArrayList<>(parts);
+        for (int part = 0; part < parts; part++) {
+            String name = partName(source, part);
+            if (!Files.exists(directory.resolve(name + INDEX_SUFFIX))) {
+                throw new IllegalStateException("Archived segment " + name + " is missing from " + directory);
+            }
+            result.add(readers.computeIfAbsent(name, this::open));
+        }
+        return result;
+    }
+
+    private SegmentReader open(String name) {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(directory.resolve(name + INDEX_SUFFIX)))) {
+            return new SegmentReader(name, directory.resolve(name + DATA_SUFFIX), SegmentIndex.readFrom(in));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open segment " + name, e);
+        }
+    }
+
+    private static String partName(String source, int part) {
+        return validate(source) + "-" + String.format("%03d", part);
+    }
+
+    private static String validate(String name) {
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid segment name: " + name);
+        }
+        return name;
+    }
+}
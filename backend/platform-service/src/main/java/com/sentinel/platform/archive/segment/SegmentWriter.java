@@ -0,0 +1,178 @@
+package com.sentinel.platform.archive.segment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Writes one immutable segment. Records must be appended in correlation key order; they are packed
+ * into Deflate-compressed blocks of roughly {@code blockSize} uncompressed bytes and a sparse index
+ * entry is kept per block. Nothing is visible to readers until {@link #commit()} has fsynced both files
+ * and renamed them into place (index last, so an index file always means a complete segment).
+ */
+public final class SegmentWriter implements Closeable {
+    static final int BLOCK_HEADER_BYTES = 8;
+
+    private final Path segmentPath;
+    private final Path indexPath;
+    private final Path tmpSegmentPath;
+    private final Path tmpIndexPath;
+    private final FileChannel channel;
+    private final int blockSize;
+    private final Deflater deflater;
+    private final ByteArrayOutputStream blockBytes;
+    private final DataOutputStream blockOut;
+    private final List<SegmentIndex.BlockEntry> blocks = new ArrayList<>();
+    private byte[] compressBuffer;
+    private String blockFirstKey;
+    private String lastKey;
+    private int blockRecords;
+    private long offset;
+    private long recordCount;
+    private long minEpochDay = Long.MAX_VALUE;
+    private long maxEpochDay = Long.MIN_VALUE;
+    private boolean finished;
+
+    SegmentWriter(Path segmentPath, Path indexPath, int blockSize, int compressionLevel) {
+        this.segmentPath = segmentPath;
+        this.indexPath = indexPath;
+        this.tmpSegmentPath = segmentPath.resolveSibling(segmentPath.getFileName() + ".tmp");
+        this.tmpIndexPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        this.blockSize = blockSize;
+        this.deflater = new Deflater(compressionLevel);
+        this.blockBytes = new ByteArrayOutputStream(blockSize + 1024);
+        this.blockOut = new DataOutputStream(blockBytes);
+        this.compressBuffer = new byte[blockSize + 1024];
+        try {
+            this.channel = FileChannel.open(tmpSegmentPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open segment " + tmpSegmentPath, e);
+        }
+    }
+
+    public void append(String correlationKey, long epochDay, byte[] record) {
+        if (finished) {
+            throw new IllegalStateException("segment already finished");
+        }
+        if (lastKey != null && SegmentIndex.KEY_ORDER.compare(correlationKey, lastKey) < 0) {
+            throw new IllegalStateException("records must be appended in correlation key order");
+        }
+        try {
+            if (blockRecords == 0) {
+                blockFirstKey = correlationKey;
+            }
+            blockOut.writeUTF(correlationKey);
+            blockOut.writeLong(epochDay);
+            blockOut.writeInt(record.length);
+            blockOut.write(record);
+            blockRecords++;
+            recordCount++;
+            lastKey = correlationKey;
+            minEpochDay = Math.min(minEpochDay, epochDay);
+            maxEpochDay = Math.max(maxEpochDay, epochDay);
+            if (blockBytes.size() >= blockSize) {
+                flushBlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to append to segment " + tmpSegmentPath, e);
+        }
+    }
+
+    public long recordCount() {
+        return recordCount;
+    }
+
+    public long bytesWritten() {
+        return offset + blockBytes.size();
+    }
+
+    public SegmentIndex commit() {
+        try {
+            if (blockRecords > 0) {
+                flushBlock();
+            }
+            channel.force(true);
+            channel.close();
+            SegmentIndex index = recordCount == 0
+                    ? new SegmentIndex(0, 0, 0, List.of())
+                    : new SegmentIndex(recordCount, minEpochDay, maxEpochDay, new ArrayList<>(blocks));
+            try (FileChannel indexChannel = FileChannel.open(tmpIndexPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                DataOutputStream out = new DataOutputStream(Channels.newOutputStream(indexChannel));
+                index.writeTo(out);
+                out.flush();
+                indexChannel.force(true);
+            }
+            Files.move(tmpSegmentPath, segmentPath, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(tmpIndexPath, indexPath, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+            return index;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to commit segment " + segmentPath, e);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Discards a segment that was not committed; safe to call after a successful commit.
+     */
+    @Override
+    public void close() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        deflater.end();
+        try {
+            channel.close();
+            Files.deleteIfExists(tmpSegmentPath);
+            Files.deleteIfExists(tmpIndexPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to discard segment " + tmpSegmentPath, e);
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        blockOut.flush();
+        byte[] raw = blockBytes.toByteArray();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        int compressed = 0;
+        while (!deflater.finished()) {
+            if (compressed == compressBuffer.length) {
+                byte[] grown = new byte[compressBuffer.length * 2];
+                System.arraycopy(compressBuffer, 0, grown, 0, compressed);
+                compressBuffer = grown;
+            }
+            compressed += deflater.deflate(compressBuffer, compressed, compressBuffer.length - compressed);
+        }
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+        header.putInt(raw.length).putInt(compressed).flip();
+        ByteBuffer body = ByteBuffer.wrap(compressBuffer, 0, compressed);
+        ByteBuffer[] parts = {header, body};
+        while (header.hasRemaining() || body.hasRemaining()) {
+            channel.write(parts);
+        }
+        int length = BLOCK_HEADER_BYTES + compressed;
+        blocks.add(new SegmentIndex.BlockEntry(blockFirstKey, offset, length, blockRecords));
+        offset += length;
+        blockBytes.reset();
+        blockRecords = 0;
+        blockFirstKey = null;
+    }
+}
@@ -0,0 +1,184 @@
+package com.sentinel.platform.archive.service;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.sentinel.platform.archive.config.ArchiveProperties;
+import com.sentinel.platform.archive.model.ArchivedRawEvent;
+import com.sentinel.platform.archive.repository.RawEventArchiveRepository;
+import com.sentinel.platform.archive.repository.RawEventArchiveRepository.ArchivedSource;
+import com.sentinel.platform.archive.segment.SegmentReader;
+import com.sentinel.platform.archive.segment.SegmentStore;
+import com.sentinel.platform.archive.segment.SegmentWriter;
+import com.sentinel.platform.retention.repository.PartitionRepository;
+import com.sentinel.platform.retention.repository.PartitionRepository.PartitionInfo;
+import com.sentinel.platform.retention.service.PartitionExpiryVeto;
+import com.sentinel.platform.retention.service.PartitionMaintenanceService;
+
+@Service
+public class RawEventArchiveService implements PartitionExpiryVeto {
+    /**
+     * Copies daily {@code event_raw} partitions older than {@code archiveAfterDays} into compressed
+     * segments under the shared archive directory. Each partition is streamed in correlation key order
+     * into one or more segment parts; once every part is fsynced the source is marked complete and
+     * recorded in {@code raw_event_archive}, so a crash at any point leaves no catalog row and the next
+     * run starts that partition over. Dropping the partition is left to partition rotation, which this
+     * service vetoes until the catalog row exists and the directory is declared shared.
+     */
+    private static final Logger log = LoggerFactory.getLogger(RawEventArchiveService.class);
+    static final String TABLE = "event_raw";
+
+    private final RawEventArchiveRepository archiveRepository;
+    private final PartitionRepository partitionRepository;
+    private final ArchiveProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final SegmentStore segmentStore;
+
+    public RawEventArchiveService(RawEventArchiveRepository archiveRepository,
+                                  PartitionRepository partitionRepository,
+                                  ArchiveProperties properties,
+                                  ObjectMapper objectMapper,
+                                  Clock clock) {
+        this.archiveRepository = archiveRepository;
+        this.partitionRepository = partitionRepository;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.segmentStore = new SegmentStore(Path.of(properties.getDirectory()),
+                properties.getBlockSizeBytes(), properties.getCompressionLevel());
+    }
+
+    @Scheduled(cron = "${archive.cron:0 45 0 * * *}", zone = "UTC")
+    public void scheduledArchive() {
+        if (properties.isEnabled()) {
+            archiveExpiredPartitions();
+        }
+    }
+
+    public void archiveExpiredPartitions() {
+        boolean ran = partitionRepository.withMaintenanceLock(PartitionMaintenanceService.LOCK_NAME, () -> {
+            LocalDate cutoff = LocalDate.now(clock.withZone(ZoneOffset.UTC)).minusDays(properties.getArchiveAfterDays());
+            for (PartitionInfo partition : partitionRepository.listPartitions(TABLE)) {
+                if (partition.day() == null || !partition.day().isBefore(cutoff)) {
+                    continue;
+                }
+                try {
+                    archivePartition(partition);
+                } catch (Exception ex) {
+                    log.warn("Raw event archive failed partition={}", partition.name(), ex);
+                    return;
+                }
+            }
+        });
+        if (!ran) {
+            log.debug("Raw event archive skipped; another node holds {}", PartitionMaintenanceService.LOCK_NAME);
+        }
+    }
+
+    /**
+     * Archived events for one correlation key on one UTC day, oldest first; empty if that day's partition
+     * has not been archived.
+     */
+    public List<ArchivedRawEvent> find(LocalDate day, String correlationKey) {
+        String source = TABLE + "-" + PartitionRepository.partitionName(day);
+        Optional<ArchivedSource> archived = archiveRepository.findArchived(source);
+        if (archived.isEmpty()) {
+            return List.of();
+        }
+        long epochDay = day.toEpochDay();
+        List<ArchivedRawEvent> events = new ArrayList<>();
+        for (SegmentReader reader : segmentStore.readers(source, archived.get().parts())) {
+            for (byte[] record : reader.find(correlationKey, epochDay)) {
+                events.add(decode(record));
+            }
+        }
+        events.sort(Comparator.comparing(ArchivedRawEvent::receivedAt).thenComparingLong(ArchivedRawEvent::id));
+        return events;
+    }
+
+    @Override
+    public String vetoExpiry(String table, PartitionInfo partition) {
+        if (!properties.isEnabled() || !TABLE.equals(table)) {
+            return null;
+        }
+        if (archiveRepository.findArchived(sourceName(partition)).isEmpty()) {
+            return "not yet archived";
+        }
+        if (!properties.isSharedDirectory()) {
+            return "archive directory is not shared (archive.shared-directory=false)";
+        }
+        return null;
+    }
+
+    private void archivePartition(PartitionInfo partition) {
+        String source = sourceName(partition);
+        if (archiveRepository.findArchived(source).isPresent()) {
+            return;
+        }
+        segmentStore.discard(source);
+        long started = System.nanoTime();
+        long[] rows = {0};
+        long[] bytes = {0};
+        int[] part = {0};
+        SegmentWriter[] writer = {segmentStore.create(source, part[0])};
+        try {
+            archiveRepository.streamPartition(partition.name(), properties.getFetchSize(), event -> {
+                if (writer[0].bytesWritten() >= properties.getMaxSegmentBytes()) {
+                    bytes[0] += writer[0].bytesWritten();
+                    writer[0].commit();
+                    writer[0] = segmentStore.create(source, ++part[0]);
+                }
+                writer[0].append(event.correlationKey(), dayOf(event), encode(event));
+                rows[0]++;
+            });
+            bytes[0] += writer[0].bytesWritten();
+            writer[0].commit();
+        } catch (RuntimeException ex) {
+            writer[0].close();
+            segmentStore.discard(source);
+            throw ex;
+        }
+        segmentStore.markComplete(source);
+        archiveRepository.recordArchived(source, partition.day(), part[0] + 1, rows[0], bytes[0]);
+        log.info("Archived partition table={} partition={} rows={} parts={} bytes={} tookMs={}", TABLE, partition.name(),
+                rows[0], part[0] + 1, bytes[0], (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static String sourceName(PartitionInfo partition) {
+        return TABLE + "-" + partition.name();
+    }
+
+    private static long dayOf(ArchivedRawEvent event) {
+        return LocalDate.ofInstant(event.receivedAt(), ZoneOffset.UTC).toEpochDay();
+    }
+
+    private byte[] encode(ArchivedRawEvent event) {
+        try {
+            return objectMapper.writeValueAsBytes(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize archived event id=" + event.id(), e);
+        }
+    }
+
+    private ArchivedRawEvent decode(byte[] record) {
+        try {
+            return objectMapper.readValue(record, ArchivedRawEvent.class);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to read archived event", e);
+        }
+    }
+}
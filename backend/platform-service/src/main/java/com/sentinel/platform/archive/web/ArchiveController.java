@@ -0,0 +1,35 @@
+package com.sentinel.platform.archive.web;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.sentinel.platform.archive.model.ArchivedRawEvent;
+import com.sentinel.platform.archive.service.RawEventArchiveService;
+
+@RestController
+public class ArchiveController {
+    private final RawEventArchiveService archiveService;
+
+    public ArchiveController(RawEventArchiveService archiveService) {
+        this.archiveService = archiveService;
+    }
+
+    @GetMapping("/archive/raw-events")
+    @PreAuthorize("hasRole('viewer') or hasRole('operator') or hasRole('config-admin')")
+    public List<ArchivedRawEvent> rawEvents(@RequestParam("day") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate day,
+                                            @RequestParam("correlationKey") String correlationKey) {
+        try {
+            return archiveService.find(day, correlationKey);
+        } catch (IllegalStateException ex) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, ex.getMessage());
+        }
+    }
+}
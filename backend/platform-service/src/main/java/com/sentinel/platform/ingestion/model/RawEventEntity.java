@@ -13,9 +13,13 @@ import jakarta.persistence.UniqueConstraint;
 
 @Entity
 @Table(name = "event_raw", uniqueConstraints = {
-        @UniqueConstraint(name = "uq_event_source", columnNames = {"source_system", "source_event_id"})
+        @UniqueConstraint(name = "uq_event_source", columnNames = {"source_system", "source_event_id", "received_at"})
 })
 public class RawEventEntity {
+    /**
+     * A row of the partitioned {@code event_raw}. Its unique key has to include {@code received_at}; the
+     * {@code (source_system, source_event_id)} natural key itself is held in {@code event_raw_key}.
+     */
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -1,10 +1,13 @@
 package com.sentinel.platform.ingestion.repository;
 
+import java.sql.Timestamp;
+
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,19 +17,28 @@ import com.sentinel.platform.ingestion.model.SaveResult;
 
 @Repository
 public class EventRawRepository {
+    /**
+     * Stores raw events once per {@code (source_system, source_event_id)}. The partitioned {@code event_raw}
+     * can only enforce that pair together with {@code received_at}, so the key is claimed in the unpartitioned
+     * {@code event_raw_key} within the same transaction as the insert; a claim that inserts nothing is a duplicate.
+     */
     private static final Logger log = LoggerFactory.getLogger(EventRawRepository.class);
 
     private final RawEventJpaRepository rawEventJpaRepository;
     private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
 
-    public EventRawRepository(RawEventJpaRepository rawEventJpaRepository, ObjectMapper objectMapper) {
+    public EventRawRepository(RawEventJpaRepository rawEventJpaRepository, ObjectMapper objectMapper, JdbcTemplate jdbcTemplate) {
         this.rawEventJpaRepository = rawEventJpaRepository;
         this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     @Transactional
     public SaveResult save(RawEventRecord record) {
-        if (rawEventJpaRepository.findBySourceSystemAndSourceEventId(record.getSourceSystem(), record.getEventId()).isPresent()) {
+        int claimed = jdbcTemplate.update("insert ignore into event_raw_key (source_system, source_event_id, received_at) values (?, ?, ?)",
+                record.getSourceSystem(), record.getEventId(), Timestamp.from(record.getReceivedAt()));
+        if (claimed == 0) {
             log.debug("Duplicate raw event ignored sourceSystem={} eventId={}", record.getSourceSystem(), record.getEventId());
             return SaveResult.DUPLICATE;
         }
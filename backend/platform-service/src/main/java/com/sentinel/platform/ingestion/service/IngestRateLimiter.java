@@ -7,6 +7,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.sentinel.platform.ingestion.config.IngestionProperties;
+import com.sentinel.platform.shared.logging.HotPathCategory;
+import com.sentinel.platform.shared.logging.HotPathLogSampler;
 
 @Component
 public class IngestRateLimiter {
@@ -19,17 +21,22 @@ public class IngestRateLimiter {
      */
     private final Semaphore semaphore;
     private final int maxConcurrentRequests;
+    private final HotPathLogSampler logSampler;
 
-    public IngestRateLimiter(IngestionProperties properties) {
+    public IngestRateLimiter(IngestionProperties properties, HotPathLogSampler logSampler) {
         this.maxConcurrentRequests = properties.getMaxConcurrentRequests();
         this.semaphore = new Semaphore(maxConcurrentRequests);
+        this.logSampler = logSampler;
     }
 
     public <T> T execute(CheckedSupplier<T> supplier) {
         if (!semaphore.tryAcquire()) {
-            // Prefer visibility when the REST endpoint is throttling so operators can scale.
-            log.info("REST ingest throttled maxConcurrentRequests={} permitsAvailable={}",
-                    maxConcurrentRequests, semaphore.availablePermits());
+            // Prefer visibility when the REST endpoint is throttling so operators can scale, but sampled:
+            // throttling happens exactly when the node is busiest.
+            if (logSampler.sample(HotPathCategory.INGEST)) {
+                log.info("REST ingest throttled maxConcurrentRequests={} permitsAvailable={}",
+                        maxConcurrentRequests, semaphore.availablePermits());
+            }
             throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "ingest overloaded");
         }
         try {
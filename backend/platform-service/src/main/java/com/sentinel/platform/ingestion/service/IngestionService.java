@@ -21,6 +21,8 @@ import com.sentinel.platform.ingestion.model.RawEventRecord;
 import com.sentinel.platform.ingestion.model.RawEventRequest;
 import com.sentinel.platform.ingestion.model.SaveResult;
 import com.sentinel.platform.ingestion.repository.EventRawRepository;
+import com.sentinel.platform.shared.logging.HotPathCategory;
+import com.sentinel.platform.shared.logging.HotPathLogSampler;
 
 @Service
 public class IngestionService {
@@ -39,6 +41,7 @@ public class IngestionService {
     private final Clock clock;
     private final ObjectMapper objectMapper;
     private final RawEventValidator rawEventValidator;
+    private final HotPathLogSampler logSampler;
 
     public IngestionService(EventRawRepository repository,
                             NormalizedEventPublisher normalizedEventPublisher,
@@ -47,7 +50,8 @@ public class IngestionService {
                             IngestionProperties properties,
                             Clock clock,
                             ObjectMapper objectMapper,
-                            RawEventValidator rawEventValidator) {
+                            RawEventValidator rawEventValidator,
+                            HotPathLogSampler logSampler) {
         this.repository = repository;
         this.normalizedEventPublisher = normalizedEventPublisher;
         this.dlqPublisher = dlqPublisher;
@@ -56,13 +60,14 @@ public class IngestionService {
         this.clock = clock;
         this.objectMapper = objectMapper;
         this.rawEventValidator = rawEventValidator;
+        this.logSampler = logSampler;
     }
 
     /**
      * REST entrypoint that validates, normalizes, and publishes a single raw event.
      */
     public NormalizedEvent ingestFromRest(RawEventRequest request) {
-        log.info("REST ingest requested eventType={} correlationKey={} eventId={}", request != null ? request.getEventType() : null,
+        log.debug("REST ingest requested eventType={} correlationKey={} eventId={}", request != null ? request.getEventType() : null,
                 request != null ? request.getCorrelationKey() : null, request != null ? request.getEventId() : null);
         NormalizedEvent normalized = normalize(request);
         persistAndPublish(normalized);
@@ -73,7 +78,7 @@ public class IngestionService {
      * Kafka entrypoint. Normalizes incoming events and applies DLQ routing on validation/processing failures.
      */
     public void ingestFromKafka(RawEventRequest request, Instant receivedAtOverride, Map<String, Object> originalPayloadForDlq) {
-        log.info("Kafka ingest received eventType={} correlationKey={} eventId={} receivedAtOverride={}",
+        log.debug("Kafka ingest received eventType={} correlationKey={} eventId={} receivedAtOverride={}",
                 request != null ? request.getEventType() : null,
                 request != null ? request.getCorrelationKey() : null,
                 request != null ? request.getEventId() : null,
@@ -107,14 +112,19 @@ public class IngestionService {
             SaveResult result = repository.save(record);
             if (result == SaveResult.DUPLICATE) {
                 meterRegistry.counter("ingest.events.duplicate").increment();
-                log.info("Duplicate ingest ignored eventId={} source={} workflowKey={}", normalized.getEventId(), normalized.getSourceSystem(), normalized.getWorkflowKey());
+                if (logSampler.sample(HotPathCategory.INGEST)) {
+                    log.info("Duplicate ingest ignored eventId={} source={} workflowKey={}", normalized.getEventId(), normalized.getSourceSystem(), normalized.getWorkflowKey());
+                }
                 return;
             }
             meterRegistry.counter("ingest.events.stored").increment();
             normalizedEventPublisher.publish(normalized);
             meterRegistry.counter("ingest.events.normalized.sent").increment();
-            log.info("Ingest stored and published correlationKey={} eventType={} eventId={} receivedAt={}",
-                    normalized.getCorrelationKey(), normalized.getEventType(), normalized.getEventId(), normalized.getReceivedAt());
+            if (logSampler.sample(HotPathCategory.INGEST)) {
+                log.info("Ingest stored and published correlationKey={} eventType={} eventId={} receivedAt={} seen={}",
+                        normalized.getCorrelationKey(), normalized.getEventType(), normalized.getEventId(), normalized.getReceivedAt(),
+                        logSampler.seen(HotPathCategory.INGEST));
+            }
         } finally {
             MDC.remove("correlationKey");
         }
@@ -46,7 +46,7 @@ public class NormalizedEventPublisher {
                     .setHeader(KafkaHeaders.KEY, correlationKey != null ? correlationKey.getBytes(StandardCharsets.UTF_8) : null)
                     .build();
             kafkaTemplate.send(message);
-            log.info("Normalized event published topic={} correlationKey={} eventType={} eventId={}",
+            log.debug("Normalized event published topic={} correlationKey={} eventType={} eventId={}",
                     properties.getNormalizedTopic(), correlationKey, event.getEventType(), event.getEventId());
         } catch (Exception ex) {
             throw new IllegalStateException("Failed to serialize normalized event", ex);
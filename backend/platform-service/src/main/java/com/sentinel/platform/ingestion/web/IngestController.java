@@ -17,6 +17,8 @@ import com.sentinel.platform.ingestion.model.NormalizedEvent;
 import com.sentinel.platform.ingestion.model.RawEventRequest;
 import com.sentinel.platform.ingestion.service.IngestRateLimiter;
 import com.sentinel.platform.ingestion.service.IngestionService;
+import com.sentinel.platform.shared.logging.HotPathCategory;
+import com.sentinel.platform.shared.logging.HotPathLogSampler;
 
 @Validated
 @RestController
@@ -30,10 +32,12 @@ public class IngestController {
 
     private final IngestionService ingestionService;
     private final IngestRateLimiter rateLimiter;
+    private final HotPathLogSampler logSampler;
 
-    public IngestController(IngestionService ingestionService, IngestRateLimiter rateLimiter) {
+    public IngestController(IngestionService ingestionService, IngestRateLimiter rateLimiter, HotPathLogSampler logSampler) {
         this.ingestionService = ingestionService;
         this.rateLimiter = rateLimiter;
+        this.logSampler = logSampler;
     }
 
     @PostMapping
@@ -44,7 +48,9 @@ public class IngestController {
             request.setEventId(idempotencyKey);
         }
         NormalizedEvent normalized = rateLimiter.execute(() -> ingestionService.ingestFromRest(request));
-        log.info("REST ingest accepted correlationKey={} eventType={} eventId={}", normalized.getCorrelationKey(), normalized.getEventType(), normalized.getEventId());
+        if (logSampler.sample(HotPathCategory.INGEST)) {
+            log.info("REST ingest accepted correlationKey={} eventType={} eventId={}", normalized.getCorrelationKey(), normalized.getEventType(), normalized.getEventId());
+        }
         return ResponseEntity.ok(normalized);
     }
 }
@@ -0,0 +1,155 @@
+package com.sentinel.platform.pipeline.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Validated
+@ConfigurationProperties(prefix = "pipeline")
+public class PipelineProperties {
+
+    /**
+     * When disabled, rule outcomes are delivered synchronously on the evaluating thread.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Local directory holding overflow journals of stages with the {@code spill} policy.
+     */
+    @NotBlank
+    private String spillDirectory = "data/pipeline-spill";
+
+    /**
+     * How long shutdown waits for stage workers to drain their queues.
+     */
+    @Min(1)
+    private int shutdownTimeoutSeconds = 30;
+
+    private Map<String, StageSettings> stages = defaultStages();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    public void setSpillDirectory(String spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    public int getShutdownTimeoutSeconds() {
+        return shutdownTimeoutSeconds;
+    }
+
+    public void setShutdownTimeoutSeconds(int shutdownTimeoutSeconds) {
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+    }
+
+    public Map<String, StageSettings> getStages() {
+        return stages;
+    }
+
+    public void setStages(Map<String, StageSettings> stages) {
+        this.stages = stages;
+    }
+
+    public StageSettings stage(String name) {
+        return stages.getOrDefault(name, new StageSettings());
+    }
+
+    private static Map<String, StageSettings> defaultStages() {
+        Map<String, StageSettings> defaults = new LinkedHashMap<>();
+        defaults.put("aggregation", new StageSettings(4, 10_000, 200, OverflowPolicy.BLOCK));
+        defaults.put("alerting", new StageSettings(2, 5_000, 100, OverflowPolicy.SPILL));
+        return defaults;
+    }
+
+    public enum OverflowPolicy {
+        /**
+         * Block the submitting thread until the queue has room; backpressure reaches the Kafka consumer.
+         */
+        BLOCK,
+        /**
+         * Append overflow to a local journal that the stage drains once its queues have room again.
+         */
+        SPILL,
+        /**
+         * Drop overflow and count it.
+         */
+        SHED
+    }
+
+    public static class StageSettings {
+        /**
+         * Worker threads, each owning one queue; items are routed by key so one key stays in order.
+         */
+        @Min(1)
+        private int workers = 2;
+
+        /**
+         * Capacity of each worker's queue.
+         */
+        @Min(1)
+        private int queueCapacity = 10_000;
+
+        /**
+         * Most items a worker hands to the stage handler at once.
+         */
+        @Min(1)
+        private int maxBatch = 100;
+
+        private OverflowPolicy overflow = OverflowPolicy.BLOCK;
+
+        public StageSettings() {
+        }
+
+        public StageSettings(int workers, int queueCapacity, int maxBatch, OverflowPolicy overflow) {
+            this.workers = workers;
+            this.queueCapacity = queueCapacity;
+            this.maxBatch = maxBatch;
+            this.overflow = overflow;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getMaxBatch() {
+            return maxBatch;
+        }
+
+        public void setMaxBatch(int maxBatch) {
+            this.maxBatch = maxBatch;
+        }
+
+        public OverflowPolicy getOverflow() {
+            return overflow;
+        }
+
+        public void setOverflow(OverflowPolicy overflow) {
+            this.overflow = overflow;
+        }
+    }
+}
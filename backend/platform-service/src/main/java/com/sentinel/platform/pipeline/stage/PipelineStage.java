@@ -0,0 +1,324 @@
+package com.sentinel.platform.pipeline.stage;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sentinel.platform.pipeline.config.PipelineProperties.OverflowPolicy;
+import com.sentinel.platform.pipeline.config.PipelineProperties.StageSettings;
+
+public final class PipelineStage<T> {
+    /**
+     * One stage of the in-process outcome pipeline: a fixed set of worker threads, each draining its
+     * own bounded {@link ArrayBlockingQueue} in batches of up to {@code maxBatch} into the stage handler.
+     * Items are routed to a worker by key, so items sharing a key are handled in submission order. When
+     * a queue is full the stage's overflow policy applies: block the submitter, spill to the worker's own
+     * local journal, or shed and count. While a worker's journal holds items every new item of that worker
+     * is spilled behind them, and the worker reads the journal only once its queue is empty, so spilling
+     * keeps the per-key order. A batch whose handler throws is retried with backoff: a {@code BLOCK} stage
+     * retries until it is delivered (or the stage stops), a {@code SPILL} stage moves it to the journal
+     * after {@link #RETRY_ATTEMPTS} retries and a {@code SHED} stage then drops it. An item may carry a
+     * callback, run once the stage is done with it: delivered, spilled, shed or dropped, but not while it
+     * is queued or retried. Queue depth, spill backlog, queue-to-handler latency and
+     * processed/shed/spilled/retried/failed counts are published as {@code pipeline.stage.*} meters tagged
+     * with the stage name.
+     */
+    private static final Logger log = LoggerFactory.getLogger(PipelineStage.class);
+    private static final long IDLE_POLL_MILLIS = 200;
+    static final int RETRY_ATTEMPTS = 3;
+    static final long RETRY_BACKOFF_MILLIS = 500;
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 30_000;
+
+    private final String name;
+    private final Consumer<List<T>> handler;
+    private final OverflowPolicy overflow;
+    private final int maxBatch;
+    private final int capacity;
+    private final List<ArrayBlockingQueue<Envelope<T>>> queues = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final List<SpillJournal<T>> spills;
+    private final Timer latency;
+    private final Counter processed;
+    private final Counter shed;
+    private final Counter spilled;
+    private final Counter retried;
+    private final Counter failed;
+    private volatile boolean running;
+
+    private PipelineStage(String name, Consumer<List<T>> handler, StageSettings settings, List<SpillJournal<T>> spills,
+                          MeterRegistry meterRegistry) {
+        this.name = name;
+        this.handler = handler;
+        this.overflow = settings.getOverflow();
+        this.maxBatch = settings.getMaxBatch();
+        this.capacity = settings.getQueueCapacity();
+        this.spills = spills;
+        this.latency = Timer.builder("pipeline.stage.latency").tag("stage", name).register(meterRegistry);
+        this.processed = Counter.builder("pipeline.stage.processed").tag("stage", name).register(meterRegistry);
+        this.shed = Counter.builder("pipeline.stage.shed").tag("stage", name).register(meterRegistry);
+        this.spilled = Counter.builder("pipeline.stage.spilled").tag("stage", name).register(meterRegistry);
+        this.retried = Counter.builder("pipeline.stage.retried").tag("stage", name).register(meterRegistry);
+        this.failed = Counter.builder("pipeline.stage.failed").tag("stage", name).register(meterRegistry);
+        Gauge.builder("pipeline.stage.queue.depth", queues, qs -> qs.stream().mapToInt(ArrayBlockingQueue::size).sum())
+                .tag("stage", name).register(meterRegistry);
+        if (spills != null) {
+            Gauge.builder("pipeline.stage.spill.pending", spills, js -> js.stream().mapToLong(SpillJournal::pending).sum())
+                    .tag("stage", name).register(meterRegistry);
+        }
+    }
+
+    /**
+     * Starts a queued stage with {@code settings.workers} worker threads.
+     */
+    public static <T> PipelineStage<T> start(String name,
+                                             Class<T> type,
+                                             Consumer<List<T>> handler,
+                                             StageSettings settings,
+                                             Path spillDirectory,
+                                             ObjectMapper objectMapper,
+                                             MeterRegistry meterRegistry) {
+        int workerCount = settings.getWorkers();
+        List<SpillJournal<T>> spills = null;
+        List<List<SpillJournal<T>>> leftovers = new ArrayList<>();
+        if (settings.getOverflow() == OverflowPolicy.SPILL) {
+            spills = new ArrayList<>();
+            for (int i = 0; i < workerCount; i++) {
+                spills.add(new SpillJournal<>(spillDirectory, name + "-" + i, type, objectMapper));
+                leftovers.add(new ArrayList<>());
+            }
+            // Journals of workers that no longer exist (the stage was restarted with fewer workers) are
+            // drained by a surviving worker before its own journal.
+            for (int i : SpillJournal.workersWithSegments(spillDirectory, name)) {
+                if (i >= workerCount) {
+                    leftovers.get(i % workerCount).add(new SpillJournal<>(spillDirectory, name + "-" + i, type, objectMapper));
+                }
+            }
+        } else {
+            for (int i = 0; i < workerCount; i++) {
+                leftovers.add(List.of());
+            }
+        }
+        PipelineStage<T> stage = new PipelineStage<>(name, handler, settings, spills, meterRegistry);
+        stage.running = true;
+        for (int i = 0; i < workerCount; i++) {
+            ArrayBlockingQueue<Envelope<T>> queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+            stage.queues.add(queue);
+            List<SpillJournal<T>> journals = new ArrayList<>(leftovers.get(i));
+            if (spills != null) {
+                journals.add(spills.get(i));
+            }
+            SpillJournal<T> own = spills != null ? spills.get(i) : null;
+            Thread worker = new Thread(() -> stage.work(queue, journals, own), "pipeline-" + name + "-" + i);
+            worker.setDaemon(true);
+            stage.workers.add(worker);
+        }
+        long spillPending = leftovers.stream().flatMap(List::stream).mapToLong(SpillJournal::pending).sum()
+                + (spills != null ? spills.stream().mapToLong(SpillJournal::pending).sum() : 0);
+        stage.workers.forEach(Thread::start);
+        log.info("Pipeline stage started stage={} workers={} queueCapacity={} maxBatch={} overflow={} spillPending={}",
+                name, workerCount, settings.getQueueCapacity(), settings.getMaxBatch(), settings.getOverflow(), spillPending);
+        return stage;
+    }
+
+    /**
+     * Stage without queues or workers: every submit runs the handler on the calling thread.
+     */
+    public static <T> PipelineStage<T> inline(String name, Consumer<List<T>> handler, MeterRegistry meterRegistry) {
+        return new PipelineStage<>(name, handler, new StageSettings(1, 1, 1, OverflowPolicy.BLOCK), null, meterRegistry);
+    }
+
+    public void submit(String key, T item) {
+        submit(key, item, null);
+    }
+
+    /**
+     * As {@link #submit(String, Object)}; {@code onDone} (may be null) runs once the stage is done with the
+     * item, on whichever thread finished it. It also runs if the submit throws.
+     */
+    public void submit(String key, T item, Runnable onDone) {
+        try {
+            if (!running) {
+                deliverOrDrop(List.of(item));
+                done(onDone);
+                return;
+            }
+            int index = Math.floorMod(key != null ? key.hashCode() : 0, queues.size());
+            ArrayBlockingQueue<Envelope<T>> queue = queues.get(index);
+            if (spills != null && spills.get(index).pending() > 0) {
+                spills.get(index).append(item);
+                spilled.increment();
+                done(onDone);
+                return;
+            }
+            Envelope<T> envelope = new Envelope<>(item, System.nanoTime(), onDone);
+            if (queue.offer(envelope)) {
+                return;
+            }
+            switch (overflow) {
+                case BLOCK -> {
+                    try {
+                        queue.put(envelope);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        deliverOrDrop(List.of(item));
+                        done(onDone);
+                    }
+                }
+                case SPILL -> {
+                    spills.get(index).append(item);
+                    spilled.increment();
+                    done(onDone);
+                }
+                case SHED -> {
+                    shed.increment();
+                    if ((long) shed.count() % 1000 == 1) {
+                        log.warn("Pipeline stage shedding overflow stage={} shedTotal={} queueCapacity={}", name, (long) shed.count(), capacity);
+                    }
+                    done(onDone);
+                }
+            }
+        } catch (RuntimeException ex) {
+            done(onDone);
+            throw ex;
+        }
+    }
+
+    /**
+     * Stops accepting queued work (later submits run inline), lets the workers drain what is queued and
+     * waits up to {@code timeoutMillis} for them. A spill backlog stays on disk for the next start.
+     */
+    public void stop(long timeoutMillis) {
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (Thread worker : workers) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            try {
+                worker.join(Math.max(1, remaining));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        int abandoned = queues.stream().mapToInt(ArrayBlockingQueue::size).sum();
+        if (abandoned > 0) {
+            log.warn("Pipeline stage stopped with queued items stage={} abandoned={}", name, abandoned);
+        }
+        if (spills != null) {
+            spills.forEach(SpillJournal::close);
+        }
+    }
+
+    private void work(ArrayBlockingQueue<Envelope<T>> queue, List<SpillJournal<T>> journals, SpillJournal<T> own) {
+        List<Envelope<T>> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                SpillJournal<T> backlog = firstWithPending(journals);
+                Envelope<T> first = backlog != null ? queue.poll() : queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatch - 1);
+                    handle(batch, own);
+                    batch.clear();
+                } else if (backlog != null && running) {
+                    // The queue only holds items older than the journal's, so the journal is read once it is empty.
+                    deliverOrDrop(backlog.poll(maxBatch));
+                    backlog.commit();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                log.error("Pipeline stage worker error stage={}", name, ex);
+                batch.clear();
+            }
+        }
+        journals.forEach(SpillJournal::close);
+    }
+
+    private static <T> SpillJournal<T> firstWithPending(List<SpillJournal<T>> journals) {
+        for (SpillJournal<T> journal : journals) {
+            if (journal.pending() > 0) {
+                return journal;
+            }
+        }
+        return null;
+    }
+
+    private void handle(List<Envelope<T>> batch, SpillJournal<T> own) {
+        long now = System.nanoTime();
+        List<T> items = new ArrayList<>(batch.size());
+        for (Envelope<T> envelope : batch) {
+            latency.record(now - envelope.enqueuedNanos(), TimeUnit.NANOSECONDS);
+            items.add(envelope.item());
+        }
+        try {
+            if (own == null) {
+                deliverOrDrop(items);
+            } else if (!deliver(items)) {
+                // Behind the queue rather than in front of it, so the per-key order is not kept for these.
+                items.forEach(own::append);
+                spilled.increment(items.size());
+                log.warn("Pipeline stage spilled a batch its handler kept failing stage={} items={}", name, items.size());
+            }
+        } finally {
+            batch.forEach(envelope -> done(envelope.onDone()));
+        }
+    }
+
+    /**
+     * Hands {@code items} to the handler, retrying with backoff while it throws; returns false once the
+     * stage's overflow policy gives up on them.
+     */
+    private boolean deliver(List<T> items) {
+        if (items.isEmpty()) {
+            return true;
+        }
+        long backoff = RETRY_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                handler.accept(items);
+                processed.increment(items.size());
+                return true;
+            } catch (Exception ex) {
+                boolean retry = running && (overflow == OverflowPolicy.BLOCK || attempt <= RETRY_ATTEMPTS);
+                log.error("Pipeline stage handler failed stage={} items={} attempt={} retrying={}", name, items.size(), attempt, retry, ex);
+                if (!retry) {
+                    return false;
+                }
+            }
+            retried.increment(items.size());
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MILLIS);
+        }
+    }
+
+    private void deliverOrDrop(List<T> items) {
+        if (!deliver(items)) {
+            failed.increment(items.size());
+        }
+    }
+
+    private static void done(Runnable onDone) {
+        if (onDone != null) {
+            onDone.run();
+        }
+    }
+
+    private record Envelope<T>(T item, long enqueuedNanos, Runnable onDone) {}
+}
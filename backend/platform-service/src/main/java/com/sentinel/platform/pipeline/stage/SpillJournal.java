@@ -0,0 +1,258 @@
+package com.sentinel.platform.pipeline.stage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Overflow journal for one worker of a pipeline stage: items that do not fit the worker's queue are
+ * appended as {@code <sequence>\t<json>} lines to numbered segment files and read back oldest first.
+ * After the items read by {@link #poll} have been delivered, {@link #commit} records the last delivered
+ * sequence in a checkpoint file and only then deletes the segments read to the end. Segments left over
+ * from a previous process are drained after a restart, skipping items at or below the checkpoint, so an
+ * item is replayed only if the process died between delivering it and committing.
+ */
+final class SpillJournal<T> {
+    private static final long SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final String SEGMENT_SUFFIX = ".spill";
+    private static final String CHECKPOINT_SUFFIX = ".delivered";
+
+    private final Path directory;
+    private final String journalName;
+    private final Class<T> type;
+    private final ObjectMapper objectMapper;
+    private final Path checkpoint;
+    private final Deque<Path> readable = new ArrayDeque<>();
+    private final List<Path> consumed = new ArrayList<>();
+    private final AtomicLong pending = new AtomicLong();
+    private long nextSegment;
+    private long nextSequence;
+    private long deliveredSequence;
+    private long readSequence;
+    private Path writeSegment;
+    private BufferedWriter writer;
+    private long writtenBytes;
+    private BufferedReader reader;
+
+    SpillJournal(Path directory, String journalName, Class<T> type, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.journalName = journalName;
+        this.type = type;
+        this.objectMapper = objectMapper;
+        this.checkpoint = directory.resolve(journalName + CHECKPOINT_SUFFIX);
+        try {
+            Files.createDirectories(directory);
+            deliveredSequence = Files.exists(checkpoint) ? Long.parseLong(Files.readString(checkpoint).trim()) : 0;
+            readSequence = deliveredSequence;
+            long lastSequence = deliveredSequence;
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path path : files.filter(path -> segmentNumber(path) >= 0)
+                        .sorted((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)))
+                        .toList()) {
+                    readable.add(path);
+                    nextSegment = Math.max(nextSegment, segmentNumber(path) + 1);
+                    lastSequence = Math.max(lastSequence, scan(path));
+                }
+            }
+            nextSequence = lastSequence + 1;
+        } catch (IOException | NumberFormatException ex) {
+            throw new IllegalStateException("Cannot open spill journal " + journalName + " in " + directory, ex);
+        }
+    }
+
+    synchronized void append(T item) {
+        try {
+            if (writer == null || writtenBytes >= SEGMENT_BYTES) {
+                rollWriter();
+            }
+            String line = nextSequence++ + "\t" + objectMapper.writeValueAsString(item);
+            writer.write(line);
+            writer.newLine();
+            writer.flush();
+            writtenBytes += line.length() + 1;
+            pending.incrementAndGet();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot spill " + journalName + " item", ex);
+        }
+    }
+
+    /**
+     * Reads up to {@code max} spilled items, oldest first. They stay on disk until {@link #commit}.
+     */
+    synchronized List<T> poll(int max) {
+        List<T> items = new ArrayList<>();
+        try {
+            while (items.size() < max) {
+                if (reader == null) {
+                    if (readable.isEmpty()) {
+                        if (writer == null || writtenBytes == 0) {
+                            break;
+                        }
+                        closeWriter();
+                    }
+                    reader = Files.newBufferedReader(readable.peekFirst(), StandardCharsets.UTF_8);
+                }
+                String line = reader.readLine();
+                if (line == null) {
+                    reader.close();
+                    reader = null;
+                    consumed.add(readable.pollFirst());
+                    continue;
+                }
+                long sequence = sequenceOf(line);
+                if (sequence <= deliveredSequence) {
+                    continue;
+                }
+                readSequence = sequence;
+                pending.decrementAndGet();
+                try {
+                    items.add(objectMapper.readValue(line.substring(line.indexOf('\t') + 1), type));
+                } catch (JsonProcessingException ex) {
+                    // Only the last line of a segment cut short by a crash can be torn; there is nothing to deliver.
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read " + journalName + " spill", ex);
+        }
+        return items;
+    }
+
+    /**
+     * Marks everything returned by {@link #poll} so far as delivered and deletes the segments read to the end.
+     */
+    synchronized void commit() {
+        try {
+            if (readSequence > deliveredSequence) {
+                Path tmp = directory.resolve(journalName + CHECKPOINT_SUFFIX + ".tmp");
+                Files.writeString(tmp, Long.toString(readSequence));
+                Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                deliveredSequence = readSequence;
+            }
+            for (Path segment : consumed) {
+                Files.deleteIfExists(segment);
+            }
+            consumed.clear();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot commit " + journalName + " spill", ex);
+        }
+    }
+
+    long pending() {
+        return pending.get();
+    }
+
+    synchronized void close() {
+        try {
+            if (reader != null) {
+                reader.close();
+                reader = null;
+            }
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot close " + journalName + " spill", ex);
+        }
+    }
+
+    /**
+     * Indexes of the workers of {@code stageName} that left segments in {@code directory}.
+     */
+    static List<Integer> workersWithSegments(Path directory, String stageName) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        String prefix = stageName + "-";
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> name.substring(prefix.length(), name.length() - SEGMENT_SUFFIX.length()))
+                    .filter(rest -> rest.matches("\\d+-\\d+"))
+                    .map(rest -> Integer.parseInt(rest.substring(0, rest.indexOf('-'))))
+                    .distinct()
+                    .sorted()
+                    .toList();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot list spill directory " + directory, ex);
+        }
+    }
+
+    private void rollWriter() throws IOException {
+        if (writer != null) {
+            closeWriter();
+        }
+        writeSegment = directory.resolve("%s-%08d%s".formatted(journalName, nextSegment++, SEGMENT_SUFFIX));
+        writer = Files.newBufferedWriter(writeSegment, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW);
+        writtenBytes = 0;
+    }
+
+    private void closeWriter() throws IOException {
+        writer.close();
+        writer = null;
+        readable.addLast(writeSegment);
+        writeSegment = null;
+    }
+
+    private long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        String prefix = journalName + "-";
+        if (!name.startsWith(prefix) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * Sequence number of a journal line, or -1 for a blank or torn line.
+     */
+    private static long sequenceOf(String line) {
+        int tab = line.indexOf('\t');
+        if (tab <= 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(line.substring(0, tab));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * Counts the undelivered items of a leftover segment into {@code pending}; returns its last sequence.
+     */
+    private long scan(Path path) {
+        long last = 0;
+        try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
+            for (String line : (Iterable<String>) lines::iterator) {
+                long sequence = sequenceOf(line);
+                last = Math.max(last, sequence);
+                if (sequence > deliveredSequence) {
+                    pending.incrementAndGet();
+                }
+            }
+            return last;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read spill segment " + path, ex);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.sentinel.platform.replay.config;
+
+import jakarta.validation.constraints.Min;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Validated
+@ConfigurationProperties(prefix = "replay")
+public class ReplayProperties {
+
+    /**
+     * Jobs executing concurrently on this node; further jobs wait in the queue.
+     */
+    @Min(1)
+    private int maxConcurrentJobs = 1;
+
+    @Min(1)
+    private int defaultWorkers = 4;
+
+    /**
+     * Upper bound for per-job workers. Each worker holds a database connection while evaluating, so keep
+     * this well below the connection pool size.
+     */
+    @Min(1)
+    private int maxWorkers = 8;
+
+    /**
+     * Rows read per keyset chunk. Expectations are swept on the virtual clock at chunk boundaries, so
+     * smaller chunks track live miss timing more closely at the cost of more round trips.
+     */
+    @Min(1)
+    private int chunkSize = 2000;
+
+    @Min(1)
+    private int defaultMaxEventsPerSec = 2000;
+
+    @Min(1)
+    private int sweepBatchSize = 500;
+
+    /**
+     * A RUNNING job whose heartbeat is older than this is considered orphaned and may be resumed.
+     */
+    @Min(1)
+    private int staleAfterSeconds = 120;
+
+    /**
+     * Time slices an aggregate rebuild works on concurrently; each holds a database connection while it
+     * reads, so keep this well below the connection pool size.
+     */
+    @Min(1)
+    private int rebuildParallelism = 4;
+
+    /**
+     * Width of a rebuild's time slices. A slice's buckets are swapped into {@code stage_aggregate} in one
+     * transaction, so this also bounds how many rows a swap locks.
+     */
+    @Min(1)
+    private int rebuildSliceHours = 6;
+
+    @Min(1)
+    private int rebuildDefaultMaxRowsPerSec = 20000;
+
+    /**
+     * How long before a slice a run may have started and still be read for it. Runs open longer than this
+     * when the slice starts are left out.
+     */
+    @Min(1)
+    private int rebuildRunLookbackHours = 24;
+
+    /**
+     * Minutes a rebuild's range must end before the current minute, so that live aggregation has applied
+     * the arrivals in it before they are read. An arrival applied only after its slice is swapped in is
+     * counted twice.
+     */
+    @Min(0)
+    private int rebuildSettleMinutes = 5;
+
+    public int getMaxConcurrentJobs() {
+        return maxConcurrentJobs;
+    }
+
+    public void setMaxConcurrentJobs(int maxConcurrentJobs) {
+        this.maxConcurrentJobs = maxConcurrentJobs;
+    }
+
+    public int getDefaultWorkers() {
+        return defaultWorkers;
+    }
+
+    public void setDefaultWorkers(int defaultWorkers) {
+        this.defaultWorkers = defaultWorkers;
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    public void setMaxWorkers(int maxWorkers) {
+        this.maxWorkers = maxWorkers;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getDefaultMaxEventsPerSec() {
+        return defaultMaxEventsPerSec;
+    }
+
+    public void setDefaultMaxEventsPerSec(int defaultMaxEventsPerSec) {
+        this.defaultMaxEventsPerSec = defaultMaxEventsPerSec;
+    }
+
+    public int getSweepBatchSize() {
+        return sweepBatchSize;
+    }
+
+    public void setSweepBatchSize(int sweepBatchSize) {
+        this.sweepBatchSize = sweepBatchSize;
+    }
+
+    public int getStaleAfterSeconds() {
+        return staleAfterSeconds;
+    }
+
+    public void setStaleAfterSeconds(int staleAfterSeconds) {
+        this.staleAfterSeconds = staleAfterSeconds;
+    }
+
+    public int getRebuildParallelism() {
+        return rebuildParallelism;
+    }
+
+    public void setRebuildParallelism(int rebuildParallelism) {
+        this.rebuildParallelism = rebuildParallelism;
+    }
+
+    public int getRebuildSliceHours() {
+        return rebuildSliceHours;
+    }
+
+    public void setRebuildSliceHours(int rebuildSliceHours) {
+        this.rebuildSliceHours = rebuildSliceHours;
+    }
+
+    public int getRebuildDefaultMaxRowsPerSec() {
+        return rebuildDefaultMaxRowsPerSec;
+    }
+
+    public void setRebuildDefaultMaxRowsPerSec(int rebuildDefaultMaxRowsPerSec) {
+        this.rebuildDefaultMaxRowsPerSec = rebuildDefaultMaxRowsPerSec;
+    }
+
+    public int getRebuildRunLookbackHours() {
+        return rebuildRunLookbackHours;
+    }
+
+    public void setRebuildRunLookbackHours(int rebuildRunLookbackHours) {
+        this.rebuildRunLookbackHours = rebuildRunLookbackHours;
+    }
+
+    public int getRebuildSettleMinutes() {
+        return rebuildSettleMinutes;
+    }
+
+    public void setRebuildSettleMinutes(int rebuildSettleMinutes) {
+        this.rebuildSettleMinutes = rebuildSettleMinutes;
+    }
+}
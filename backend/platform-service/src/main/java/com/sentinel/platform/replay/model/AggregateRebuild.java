@@ -0,0 +1,160 @@
+package com.sentinel.platform.replay.model;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class AggregateRebuild {
+    /**
+     * Progress of one aggregate rebuild, held in memory by the node running it; the slice workers update
+     * the counters as they go.
+     */
+    private final long id;
+    private final long workflowVersionId;
+    private final Instant fromTime;
+    private final Instant toTime;
+    private final int parallelism;
+    private final int maxRowsPerSec;
+    private final String requestedBy;
+    private final Instant createdAt;
+    private final AtomicInteger slicesDone = new AtomicInteger();
+    private final AtomicInteger slicesRestaged = new AtomicInteger();
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong bucketsStaged = new AtomicLong();
+    private volatile ReplayStatus status = ReplayStatus.PENDING;
+    private volatile int slices;
+    private volatile long bucketsSwapped;
+    private volatile String errorMessage;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    public AggregateRebuild(long id,
+                            long workflowVersionId,
+                            Instant fromTime,
+                            Instant toTime,
+                            int parallelism,
+                            int maxRowsPerSec,
+                            String requestedBy,
+                            Instant createdAt) {
+        this.id = id;
+        this.workflowVersionId = workflowVersionId;
+        this.fromTime = fromTime;
+        this.toTime = toTime;
+        this.parallelism = parallelism;
+        this.maxRowsPerSec = maxRowsPerSec;
+        this.requestedBy = requestedBy;
+        this.createdAt = createdAt;
+    }
+
+    public void started(int slices, Instant at) {
+        this.slices = slices;
+        this.startedAt = at;
+        this.status = ReplayStatus.RUNNING;
+    }
+
+    public void finished(ReplayStatus outcome, String errorMessage, Instant at) {
+        this.errorMessage = errorMessage;
+        this.finishedAt = at;
+        this.status = outcome;
+    }
+
+    public void sliceDone(long buckets) {
+        bucketsStaged.addAndGet(buckets);
+        slicesDone.incrementAndGet();
+    }
+
+    /**
+     * Counts a slice read again because arrivals were recorded in it after it was staged.
+     */
+    public void sliceRestaged() {
+        slicesRestaged.incrementAndGet();
+    }
+
+    /**
+     * Adds {@code rows} to the rows read and returns the new total.
+     */
+    public long addRowsRead(long rows) {
+        return rowsRead.addAndGet(rows);
+    }
+
+    public void setBucketsSwapped(long bucketsSwapped) {
+        this.bucketsSwapped = bucketsSwapped;
+    }
+
+    public boolean active() {
+        ReplayStatus current = status;
+        return current == ReplayStatus.PENDING || current == ReplayStatus.RUNNING;
+    }
+
+    public long id() {
+        return id;
+    }
+
+    public long workflowVersionId() {
+        return workflowVersionId;
+    }
+
+    public Instant fromTime() {
+        return fromTime;
+    }
+
+    public Instant toTime() {
+        return toTime;
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    public int maxRowsPerSec() {
+        return maxRowsPerSec;
+    }
+
+    public String requestedBy() {
+        return requestedBy;
+    }
+
+    public Instant createdAt() {
+        return createdAt;
+    }
+
+    public ReplayStatus status() {
+        return status;
+    }
+
+    public int slices() {
+        return slices;
+    }
+
+    public int slicesDone() {
+        return slicesDone.get();
+    }
+
+    public int slicesRestaged() {
+        return slicesRestaged.get();
+    }
+
+    public long rowsRead() {
+        return rowsRead.get();
+    }
+
+    public long bucketsStaged() {
+        return bucketsStaged.get();
+    }
+
+    public long bucketsSwapped() {
+        return bucketsSwapped;
+    }
+
+    public String errorMessage() {
+        return errorMessage;
+    }
+
+    public Instant startedAt() {
+        return startedAt;
+    }
+
+    public Instant finishedAt() {
+        return finishedAt;
+    }
+}
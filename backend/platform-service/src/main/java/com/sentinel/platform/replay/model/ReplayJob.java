@@ -0,0 +1,33 @@
+package com.sentinel.platform.replay.model;
+
+import java.time.Instant;
+
+public record ReplayJob(long id,
+                        String workflowKey,
+                        long workflowVersionId,
+                        ReplayMode mode,
+                        ReplayStatus status,
+                        Instant fromTime,
+                        Instant toTime,
+                        int workers,
+                        int maxEventsPerSec,
+                        boolean emitAlerts,
+                        Instant cursorReceivedAt,
+                        Long cursorEventId,
+                        long eventsProcessed,
+                        long missesEmitted,
+                        long alertsSuppressed,
+                        String errorMessage,
+                        String requestedBy,
+                        Instant createdAt,
+                        Instant startedAt,
+                        Instant heartbeatAt,
+                        Instant finishedAt) {
+
+    /**
+     * Expectation {@code lock_owner} stamped on expectations created by this job.
+     */
+    public String expectationOwner() {
+        return "replay-" + id;
+    }
+}
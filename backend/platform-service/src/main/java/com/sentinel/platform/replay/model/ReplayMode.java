@@ -0,0 +1,12 @@
+package com.sentinel.platform.replay.model;
+
+public enum ReplayMode {
+    /**
+     * Write into the live runtime tables and aggregates; alerts only when the job asks for them.
+     */
+    LIVE,
+    /**
+     * Write into the isolated {@code shadow_*} tables; alerts are counted but never raised.
+     */
+    SHADOW
+}
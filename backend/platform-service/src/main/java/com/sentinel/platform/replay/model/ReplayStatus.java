@@ -0,0 +1,13 @@
+package com.sentinel.platform.replay.model;
+
+public enum ReplayStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    CANCELLED,
+    FAILED;
+
+    public boolean resumable() {
+        return this == CANCELLED || this == FAILED;
+    }
+}
@@ -0,0 +1,224 @@
+package com.sentinel.platform.replay.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import com.sentinel.platform.aggregation.model.DistinctSketch;
+import com.sentinel.platform.aggregation.model.LatencyHistogram;
+import com.sentinel.platform.shared.group.GroupLabelService;
+
+@Repository
+public class AggregateRebuildRepository {
+    /**
+     * Reads the rule engine's recorded history for aggregate rebuilds and stages the recomputed buckets.
+     * A slice's runs are those of the workflow version started within the run lookback before the slice
+     * and still open at its start; their expectations (live and compacted into {@code expectation_history})
+     * are loaded whole and their occurrences streamed in run and receipt order. Recomputed buckets go to
+     * {@code stage_aggregate_rebuild} and are swapped into {@code stage_aggregate} a slice at a time, unless
+     * the occurrences received in the slice changed after it was read.
+     */
+    private static final String RUNS_OF_SLICE = """
+            r.workflow_version_id = ? and r.started_at >= ? and r.started_at < ?
+              and (r.completed_at is null or r.completed_at >= ?)""";
+    private static final String STAGE = """
+            insert into stage_aggregate_rebuild (workflow_version_id, group_dim_hash, node_key, bucket_start,
+                in_flight, completed, late, failed, latency_histogram, distinct_sketch)
+            values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final int STAGE_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GroupLabelService groupLabelService;
+
+    public AggregateRebuildRepository(JdbcTemplate jdbcTemplate, GroupLabelService groupLabelService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.groupLabelService = groupLabelService;
+    }
+
+    /**
+     * Runs of the slice starting at {@code sliceStart}, by id; group hashes are {@code ''} for no group.
+     */
+    public Map<Long, RebuildRun> findRuns(long workflowVersionId, Instant startedFrom, Instant sliceStart, Instant sliceEnd) {
+        Map<Long, RebuildRun> runs = new HashMap<>();
+        jdbcTemplate.query("select r.id, r.correlation_key, r.group_dims, r.completed_at from workflow_run r where " + RUNS_OF_SLICE,
+                rs -> {
+                    Map<String, Object> group = groupLabelService.parseGroupJson(rs.getString("group_dims"));
+                    runs.put(rs.getLong("id"), new RebuildRun(rs.getString("correlation_key"),
+                            group.isEmpty() ? "" : groupLabelService.hashGroup(group), toInstant(rs.getTimestamp("completed_at"))));
+                }, sliceParams(workflowVersionId, startedFrom, sliceStart, sliceEnd));
+        return runs;
+    }
+
+    /**
+     * Expectations of the slice's runs by run id, in creation order.
+     */
+    public Map<Long, List<RebuildExpectation>> findExpectations(long workflowVersionId, Instant startedFrom, Instant sliceStart, Instant sliceEnd) {
+        Map<Long, List<RebuildExpectation>> expectations = new HashMap<>();
+        Object[] slice = sliceParams(workflowVersionId, startedFrom, sliceStart, sliceEnd);
+        Object[] params = new Object[slice.length * 2];
+        System.arraycopy(slice, 0, params, 0, slice.length);
+        System.arraycopy(slice, 0, params, slice.length, slice.length);
+        jdbcTemplate.query("""
+                select e.id, e.workflow_run_id, e.from_node_key, e.to_node_key, e.origin_at, e.due_at, e.expected_count,
+                       e.created_at, e.fired_at
+                from expectation e join workflow_run r on r.id = e.workflow_run_id
+                where %s
+                union all
+                select e.id, e.workflow_run_id, e.from_node_key, e.to_node_key, e.origin_at, e.due_at, e.expected_count,
+                       e.created_at, e.fired_at
+                from expectation_history e join workflow_run r on r.id = e.workflow_run_id
+                where %s
+                order by workflow_run_id, id
+                """.formatted(RUNS_OF_SLICE, RUNS_OF_SLICE), rs -> {
+            expectations.computeIfAbsent(rs.getLong("workflow_run_id"), id -> new ArrayList<>()).add(new RebuildExpectation(
+                    rs.getString("from_node_key"),
+                    rs.getString("to_node_key"),
+                    toInstant(rs.getTimestamp("origin_at")),
+                    rs.getTimestamp("due_at").toInstant(),
+                    rs.getInt("expected_count"),
+                    rs.getTimestamp("created_at").toInstant(),
+                    toInstant(rs.getTimestamp("fired_at"))));
+        }, params);
+        return expectations;
+    }
+
+    /**
+     * Streams the occurrences of the slice's runs to {@code consumer} ordered by run, then receipt;
+     * duplicates are left out, as the rule engine never counted them.
+     */
+    public void streamOccurrences(long workflowVersionId, Instant startedFrom, Instant sliceStart, Instant sliceEnd,
+                                  OccurrenceConsumer consumer) {
+        jdbcTemplate.query("""
+                select o.workflow_run_id, o.node_key, o.event_time_utc, o.received_at, o.is_late, o.order_violation
+                from event_occurrence o join workflow_run r on r.id = o.workflow_run_id
+                where %s and o.is_duplicate = false
+                order by o.workflow_run_id, o.received_at, o.id
+                """.formatted(RUNS_OF_SLICE), rs -> {
+            consumer.accept(rs.getLong("workflow_run_id"), new RebuildOccurrence(
+                    rs.getString("node_key"),
+                    rs.getTimestamp("event_time_utc").toInstant(),
+                    rs.getTimestamp("received_at").toInstant(),
+                    rs.getBoolean("is_late"),
+                    rs.getBoolean("order_violation")));
+        }, sliceParams(workflowVersionId, startedFrom, sliceStart, sliceEnd));
+    }
+
+    /**
+     * Count and highest id of the version's counted occurrences received in {@code [from, to)}. Everything
+     * live aggregation writes into those minutes follows from an arrival received in them, so a mark that
+     * has not moved means no such arrival was recorded in between.
+     */
+    public SourceMark sourceMark(long workflowVersionId, Instant from, Instant to) {
+        return jdbcTemplate.queryForObject("""
+                select count(*) as occurrences, coalesce(max(o.id), 0) as max_id
+                from event_occurrence o join workflow_run r on r.id = o.workflow_run_id
+                where r.workflow_version_id = ? and o.received_at >= ? and o.received_at < ? and o.is_duplicate = false
+                """, (rs, rowNum) -> new SourceMark(rs.getLong("occurrences"), rs.getLong("max_id")),
+                workflowVersionId, Timestamp.from(from), Timestamp.from(to));
+    }
+
+    public void stage(long workflowVersionId, List<StagedBucket> buckets) {
+        for (int start = 0; start < buckets.size(); start += STAGE_BATCH_SIZE) {
+            List<Object[]> rows = new ArrayList<>();
+            for (StagedBucket bucket : buckets.subList(start, Math.min(buckets.size(), start + STAGE_BATCH_SIZE))) {
+                rows.add(new Object[]{workflowVersionId, bucket.groupHash(), bucket.nodeKey(), Timestamp.from(bucket.bucketStart()),
+                        bucket.inFlight(), bucket.completed(), bucket.late(), bucket.failed(),
+                        bucket.histogram() != null ? bucket.histogram().toBytes() : null,
+                        bucket.distinct() != null ? bucket.distinct().toBytes() : null});
+            }
+            jdbcTemplate.batchUpdate(STAGE, rows);
+        }
+    }
+
+    /**
+     * Replaces the version's {@code stage_aggregate} rows in {@code [from, to)} with its staged rows in one
+     * transaction and drops them from staging; returns the number of rows swapped in. The live rows are
+     * deleted first, which holds off live upserts into the range, and the source mark is then read again:
+     * if it moved from {@code staged}, live aggregation may already have written arrivals the staged rows
+     * lack, so the transaction is rolled back and the result is empty.
+     */
+    @Transactional
+    public OptionalInt swap(long workflowVersionId, Instant from, Instant to, SourceMark staged) {
+        Timestamp start = Timestamp.from(from);
+        Timestamp end = Timestamp.from(to);
+        jdbcTemplate.update("delete from stage_aggregate where workflow_version_id = ? and bucket_start >= ? and bucket_start < ?",
+                workflowVersionId, start, end);
+        if (!sourceMark(workflowVersionId, from, to).equals(staged)) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return OptionalInt.empty();
+        }
+        int swapped = jdbcTemplate.update("""
+                insert into stage_aggregate (workflow_version_id, group_dim_hash, node_key, bucket_start,
+                    in_flight, completed, late, failed, latency_histogram, distinct_sketch)
+                select workflow_version_id, nullif(group_dim_hash, ''), node_key, bucket_start,
+                    in_flight, completed, late, failed, latency_histogram, distinct_sketch
+                from stage_aggregate_rebuild
+                where workflow_version_id = ? and bucket_start >= ? and bucket_start < ?
+                """, workflowVersionId, start, end);
+        clearStaging(workflowVersionId, from, to);
+        return OptionalInt.of(swapped);
+    }
+
+    public int clearStaging(long workflowVersionId) {
+        return jdbcTemplate.update("delete from stage_aggregate_rebuild where workflow_version_id = ?", workflowVersionId);
+    }
+
+    public int clearStaging(long workflowVersionId, Instant from, Instant to) {
+        return jdbcTemplate.update("delete from stage_aggregate_rebuild where workflow_version_id = ? and bucket_start >= ? and bucket_start < ?",
+                workflowVersionId, Timestamp.from(from), Timestamp.from(to));
+    }
+
+    private static Object[] sliceParams(long workflowVersionId, Instant startedFrom, Instant sliceStart, Instant sliceEnd) {
+        return new Object[]{workflowVersionId, Timestamp.from(startedFrom), Timestamp.from(sliceEnd), Timestamp.from(sliceStart)};
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    @FunctionalInterface
+    public interface OccurrenceConsumer {
+        void accept(long workflowRunId, RebuildOccurrence occurrence);
+    }
+
+    /**
+     * Where the occurrences received in a slice stood when it was read; see {@link #sourceMark}.
+     */
+    public record SourceMark(long occurrences, long maxOccurrenceId) {}
+
+    public record RebuildRun(String correlationKey, String groupHash, Instant completedAt) {}
+
+    /**
+     * An expectation as created; {@code firedAt} is set once the scheduler reported it missed and is kept
+     * after a late clear.
+     */
+    public record RebuildExpectation(String fromNodeKey,
+                                     String toNodeKey,
+                                     Instant originAt,
+                                     Instant dueAt,
+                                     int expectedCount,
+                                     Instant createdAt,
+                                     Instant firedAt) {}
+
+    public record RebuildOccurrence(String nodeKey, Instant eventTime, Instant receivedAt, boolean late, boolean orderViolation) {}
+
+    public record StagedBucket(String groupHash,
+                               String nodeKey,
+                               Instant bucketStart,
+                               int inFlight,
+                               int completed,
+                               int late,
+                               int failed,
+                               LatencyHistogram histogram,
+                               DistinctSketch distinct) {}
+}
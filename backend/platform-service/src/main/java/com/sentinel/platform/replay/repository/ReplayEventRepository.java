@@ -0,0 +1,138 @@
+package com.sentinel.platform.replay.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.sentinel.platform.ingestion.model.NormalizedEvent;
+import com.sentinel.platform.ruleengine.repository.ExpectationRepository.ExpectationRow;
+import com.sentinel.platform.shared.group.GroupLabelService;
+
+@Repository
+public class ReplayEventRepository {
+    /**
+     * Reads history for replays: keyset chunks of {@code event_raw} in (received_at, id) order, which the
+     * {@code idx_received} index serves without offsets, and replay-owned expectations that have come due
+     * on the replay's virtual clock.
+     */
+    private final JdbcTemplate jdbcTemplate;
+    private final GroupLabelService groupLabelService;
+
+    public ReplayEventRepository(JdbcTemplate jdbcTemplate, GroupLabelService groupLabelService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.groupLabelService = groupLabelService;
+    }
+
+    public List<String> findEventTypes(long workflowVersionId) {
+        return jdbcTemplate.queryForList(
+                "select distinct event_type from workflow_node where workflow_version_id = ?", String.class, workflowVersionId);
+    }
+
+    /**
+     * Next chunk after the (cursorReceivedAt, cursorId) position, restricted to the workflow's event types
+     * and to events either addressed to the workflow or left for event-type routing.
+     */
+    public List<ReplayEvent> nextChunk(Instant from, Instant to, Instant cursorReceivedAt, long cursorId,
+                                       String workflowKey, List<String> eventTypes, int limit) {
+        if (eventTypes.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = eventTypes.stream().map(t -> "?").collect(Collectors.joining(","));
+        List<Object> params = new ArrayList<>();
+        params.add(Timestamp.from(from));
+        params.add(Timestamp.from(to));
+        params.add(Timestamp.from(cursorReceivedAt));
+        params.add(Timestamp.from(cursorReceivedAt));
+        params.add(cursorId);
+        params.addAll(eventTypes);
+        params.add(workflowKey);
+        params.add(limit);
+        return jdbcTemplate.query("""
+                select id, source_event_id, source_system, event_type, workflow_key, correlation_key, group_dims,
+                       event_time_utc, received_at, payload
+                from event_raw
+                where received_at >= ? and received_at < ?
+                  and (received_at > ? or (received_at = ? and id > ?))
+                  and event_type in (%s)
+                  and (workflow_key is null or workflow_key = ?)
+                order by received_at, id
+                limit ?
+                """.formatted(placeholders), (rs, rowNum) -> {
+            NormalizedEvent event = new NormalizedEvent();
+            event.setEventId(rs.getString("source_event_id"));
+            event.setSourceSystem(rs.getString("source_system"));
+            event.setEventType(rs.getString("event_type"));
+            event.setWorkflowKey(rs.getString("workflow_key"));
+            event.setCorrelationKey(rs.getString("correlation_key"));
+            event.setGroup(groupLabelService.parseGroupJson(rs.getString("group_dims")));
+            event.setPayload(groupLabelService.parseGroupJson(rs.getString("payload")));
+            event.setEventTime(rs.getTimestamp("event_time_utc").toInstant());
+            event.setReceivedAt(rs.getTimestamp("received_at").toInstant());
+            return new ReplayEvent(rs.getLong("id"), event);
+        }, params.toArray());
+    }
+
+    /**
+     * Claims pending expectations stamped with {@code owner} that are due at or before the virtual
+     * watermark, marking them fired exactly like the live scheduler does.
+     */
+    public List<ExpectationRow> claimDue(String expectationTable, String owner, Instant watermark, int limit) {
+        List<ExpectationRow> rows = jdbcTemplate.query("""
+                select id, workflow_run_id, from_node_key, to_node_key, due_at, severity, expected_count, remaining_count
+                from %s
+                where status = 'pending' and due_at <= ? and lock_owner = ?
+                order by due_at
+                limit ?
+                """.formatted(expectationTable), (rs, rowNum) -> new ExpectationRow(
+                rs.getLong("id"),
+                rs.getLong("workflow_run_id"),
+                rs.getString("from_node_key"),
+                rs.getString("to_node_key"),
+                rs.getTimestamp("due_at").toInstant(),
+                rs.getString("severity"),
+                rs.getInt("expected_count"),
+                rs.getInt("remaining_count")
+        ), Timestamp.from(watermark), owner, limit);
+        if (!rows.isEmpty()) {
+            String ids = rows.stream().map(row -> "?").collect(Collectors.joining(","));
+            List<Object> params = new ArrayList<>();
+            params.add(Timestamp.from(watermark));
+            rows.forEach(row -> params.add(row.id()));
+            jdbcTemplate.update("update " + expectationTable + " set status = 'fired', fired_at = ? where id in (" + ids + ")",
+                    params.toArray());
+        }
+        return rows;
+    }
+
+    /**
+     * Hands expectations still pending at the end of a LIVE replay over to the live scheduler.
+     */
+    public int releaseExpectations(String expectationTable, String owner) {
+        return jdbcTemplate.update("update " + expectationTable + " set lock_owner = null where lock_owner = ? and status = 'pending'", owner);
+    }
+
+    /**
+     * Clears a workflow version's shadow state before a fresh SHADOW replay.
+     */
+    public void resetShadowState(long workflowVersionId) {
+        jdbcTemplate.update("""
+                delete e from shadow_expectation e
+                join shadow_workflow_run r on r.id = e.workflow_run_id
+                where r.workflow_version_id = ?
+                """, workflowVersionId);
+        jdbcTemplate.update("""
+                delete o from shadow_event_occurrence o
+                join shadow_workflow_run r on r.id = o.workflow_run_id
+                where r.workflow_version_id = ?
+                """, workflowVersionId);
+        jdbcTemplate.update("delete from shadow_workflow_run where workflow_version_id = ?", workflowVersionId);
+        jdbcTemplate.update("delete from shadow_stage_aggregate where workflow_version_id = ?", workflowVersionId);
+    }
+
+    public record ReplayEvent(long rawEventId, NormalizedEvent event) {}
+}
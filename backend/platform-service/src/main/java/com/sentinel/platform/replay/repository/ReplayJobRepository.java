@@ -0,0 +1,164 @@
+package com.sentinel.platform.replay.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import com.sentinel.platform.replay.model.ReplayJob;
+import com.sentinel.platform.replay.model.ReplayMode;
+import com.sentinel.platform.replay.model.ReplayStatus;
+
+@Repository
+public class ReplayJobRepository {
+    private static final String COLUMNS = """
+            id, workflow_key, workflow_version_id, mode, status, from_time, to_time, workers, max_events_per_sec,
+            emit_alerts, cursor_received_at, cursor_event_id, events_processed, misses_emitted, alerts_suppressed,
+            error_message, requested_by, created_at, started_at, heartbeat_at, finished_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReplayJobRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long insert(String workflowKey, long workflowVersionId, ReplayMode mode, Instant from, Instant to,
+                       int workers, int maxEventsPerSec, boolean emitAlerts, String requestedBy, Instant now) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement("""
+                    insert into replay_job (workflow_key, workflow_version_id, mode, status, from_time, to_time, workers,
+                                            max_events_per_sec, emit_alerts, requested_by, created_at)
+                    values (?,?,?,?,?,?,?,?,?,?,?)
+                    """, new String[]{"id"});
+            ps.setString(1, workflowKey);
+            ps.setLong(2, workflowVersionId);
+            ps.setString(3, mode.name());
+            ps.setString(4, ReplayStatus.PENDING.name());
+            ps.setTimestamp(5, Timestamp.from(from));
+            ps.setTimestamp(6, Timestamp.from(to));
+            ps.setInt(7, workers);
+            ps.setInt(8, maxEventsPerSec);
+            ps.setBoolean(9, emitAlerts);
+            ps.setString(10, requestedBy);
+            ps.setTimestamp(11, Timestamp.from(now));
+            return ps;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    public Optional<ReplayJob> findById(long id) {
+        return jdbcTemplate.query("select " + COLUMNS + " from replay_job where id = ?", this::map, id)
+                .stream().findFirst();
+    }
+
+    public List<ReplayJob> findRecent(int limit) {
+        return jdbcTemplate.query("select " + COLUMNS + " from replay_job order by id desc limit ?", this::map, limit);
+    }
+
+    public Optional<ReplayStatus> findStatus(long id) {
+        return jdbcTemplate.query("select status from replay_job where id = ?",
+                (rs, rowNum) -> ReplayStatus.valueOf(rs.getString("status")), id).stream().findFirst();
+    }
+
+    public boolean hasActiveJob(long workflowVersionId, ReplayMode mode) {
+        Integer count = jdbcTemplate.queryForObject("""
+                select count(*) from replay_job
+                where workflow_version_id = ? and mode = ? and status in ('PENDING','RUNNING')
+                """, Integer.class, workflowVersionId, mode.name());
+        return count != null && count > 0;
+    }
+
+    public void markRunning(long id, Instant now) {
+        jdbcTemplate.update("""
+                update replay_job
+                set status = 'RUNNING', started_at = coalesce(started_at, ?), heartbeat_at = ?, error_message = null, finished_at = null
+                where id = ?
+                """, Timestamp.from(now), Timestamp.from(now), id);
+    }
+
+    /**
+     * Moves a cancelled/failed job, or a RUNNING job whose heartbeat went stale (its node died), back to
+     * PENDING. Returns false if another node already claimed it.
+     */
+    public boolean claimForResume(long id, Instant staleBefore) {
+        return jdbcTemplate.update("""
+                update replay_job
+                set status = 'PENDING', heartbeat_at = null
+                where id = ? and (status in ('CANCELLED','FAILED') or (status = 'RUNNING' and heartbeat_at < ?))
+                """, id, Timestamp.from(staleBefore)) == 1;
+    }
+
+    public void checkpoint(long id, Instant cursorReceivedAt, long cursorEventId, long processedDelta,
+                           long missesDelta, long suppressedDelta, Instant now) {
+        jdbcTemplate.update("""
+                update replay_job
+                set cursor_received_at = ?, cursor_event_id = ?, events_processed = events_processed + ?,
+                    misses_emitted = misses_emitted + ?, alerts_suppressed = alerts_suppressed + ?, heartbeat_at = ?
+                where id = ?
+                """, Timestamp.from(cursorReceivedAt), cursorEventId, processedDelta, missesDelta, suppressedDelta,
+                Timestamp.from(now), id);
+    }
+
+    public void addCounters(long id, long missesDelta, long suppressedDelta, Instant now) {
+        jdbcTemplate.update("""
+                update replay_job
+                set misses_emitted = misses_emitted + ?, alerts_suppressed = alerts_suppressed + ?, heartbeat_at = ?
+                where id = ?
+                """, missesDelta, suppressedDelta, Timestamp.from(now), id);
+    }
+
+    /**
+     * Cancels a pending or running job; the running coordinator notices at its next chunk boundary.
+     */
+    public boolean cancel(long id) {
+        return jdbcTemplate.update("update replay_job set status = 'CANCELLED' where id = ? and status in ('PENDING','RUNNING')", id) == 1;
+    }
+
+    public void finish(long id, ReplayStatus status, String errorMessage, Instant now) {
+        jdbcTemplate.update("""
+                update replay_job
+                set status = case when status = 'CANCELLED' then status else ? end,
+                    error_message = ?, heartbeat_at = ?, finished_at = ?
+                where id = ?
+                """, status.name(), errorMessage, Timestamp.from(now), Timestamp.from(now), id);
+    }
+
+    private ReplayJob map(ResultSet rs, int rowNum) throws SQLException {
+        return new ReplayJob(
+                rs.getLong("id"),
+                rs.getString("workflow_key"),
+                rs.getLong("workflow_version_id"),
+                ReplayMode.valueOf(rs.getString("mode")),
+                ReplayStatus.valueOf(rs.getString("status")),
+                toInstant(rs.getTimestamp("from_time")),
+                toInstant(rs.getTimestamp("to_time")),
+                rs.getInt("workers"),
+                rs.getInt("max_events_per_sec"),
+                rs.getBoolean("emit_alerts"),
+                toInstant(rs.getTimestamp("cursor_received_at")),
+                rs.getObject("cursor_event_id", Long.class),
+                rs.getLong("events_processed"),
+                rs.getLong("misses_emitted"),
+                rs.getLong("alerts_suppressed"),
+                rs.getString("error_message"),
+                rs.getString("requested_by"),
+                toInstant(rs.getTimestamp("created_at")),
+                toInstant(rs.getTimestamp("started_at")),
+                toInstant(rs.getTimestamp("heartbeat_at")),
+                toInstant(rs.getTimestamp("finished_at")));
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+}
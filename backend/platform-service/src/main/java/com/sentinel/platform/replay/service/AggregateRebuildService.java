@@ -0,0 +1,458 @@
+package com.sentinel.platform.replay.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.sentinel.platform.aggregation.model.DistinctSketch;
+import com.sentinel.platform.aggregation.model.LatencyHistogram;
+import com.sentinel.platform.aggregation.service.AggregateRollupService;
+import com.sentinel.platform.aggregation.state.RecentAggregateLoader;
+import com.sentinel.platform.replay.config.ReplayProperties;
+import com.sentinel.platform.replay.model.AggregateRebuild;
+import com.sentinel.platform.replay.model.ReplayStatus;
+import com.sentinel.platform.replay.repository.AggregateRebuildRepository;
+import com.sentinel.platform.replay.repository.AggregateRebuildRepository.RebuildExpectation;
+import com.sentinel.platform.replay.repository.AggregateRebuildRepository.RebuildOccurrence;
+import com.sentinel.platform.replay.repository.AggregateRebuildRepository.RebuildRun;
+import com.sentinel.platform.replay.repository.AggregateRebuildRepository.SourceMark;
+import com.sentinel.platform.replay.repository.AggregateRebuildRepository.StagedBucket;
+import com.sentinel.platform.replay.web.dto.AggregateRebuildRequest;
+import com.sentinel.platform.retention.repository.PartitionRepository;
+import com.sentinel.platform.ruleconfig.repository.WorkflowVersionRepository;
+
+@Service
+public class AggregateRebuildService {
+    /**
+     * Recomputes a workflow version's {@code stage_aggregate} minute buckets over a closed time range from
+     * what the rule engine recorded, without re-running the rules: the occurrences each run received and
+     * the expectations it created, cleared, fired and cancelled. The range is cut into slices of
+     * {@code replay.rebuild-slice-hours} worked on a fork-join pool. A slice owns the buckets of its own
+     * minutes and replays every run that may touch them in memory (clearing the earliest-due expectation
+     * per arrival, as the engine does), so slices never write the same bucket and stage their rows
+     * without merging. Once every slice is staged, each is swapped into {@code stage_aggregate} in its
+     * own transaction; a slice that received arrivals after it was read is read again first, since live
+     * aggregation has written them into the rows the swap replaces. The rollups and recent store are then
+     * rewound over the range. Reads are throttled to a rows-per-second budget shared by the slices, and
+     * one rebuild runs in the cluster at a time, under a MariaDB named lock.
+     */
+    private static final Logger log = LoggerFactory.getLogger(AggregateRebuildService.class);
+    public static final String LOCK_NAME = "sentinel.aggregate-rebuild";
+    private static final int THROTTLE_BATCH = 1000;
+    private static final int RETAINED_REBUILDS = 50;
+    private static final int MAX_RESTAGES = 3;
+
+    private final AggregateRebuildRepository repository;
+    private final WorkflowVersionRepository workflowVersionRepository;
+    private final PartitionRepository partitionRepository;
+    private final AggregateRollupService rollupService;
+    private final RecentAggregateLoader recentAggregateLoader;
+    private final ReplayProperties properties;
+    private final Clock clock;
+    private final Counter rowsRead;
+    private final ExecutorService coordinator;
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, AggregateRebuild> rebuilds = new LinkedHashMap<>();
+
+    public AggregateRebuildService(AggregateRebuildRepository repository,
+                                   WorkflowVersionRepository workflowVersionRepository,
+                                   PartitionRepository partitionRepository,
+                                   AggregateRollupService rollupService,
+                                   RecentAggregateLoader recentAggregateLoader,
+                                   ReplayProperties properties,
+                                   Clock clock,
+                                   MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.workflowVersionRepository = workflowVersionRepository;
+        this.partitionRepository = partitionRepository;
+        this.rollupService = rollupService;
+        this.recentAggregateLoader = recentAggregateLoader;
+        this.properties = properties;
+        this.clock = clock;
+        this.rowsRead = Counter.builder("replay.rebuild.rows.read")
+                .description("Occurrence, expectation and run rows read by aggregate rebuilds")
+                .register(meterRegistry);
+        this.coordinator = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "aggregate-rebuild-coordinator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+    }
+
+    public synchronized AggregateRebuild start(AggregateRebuildRequest request, String requestedBy) {
+        Instant from = request.getFrom().truncatedTo(ChronoUnit.MINUTES);
+        Instant to = request.getTo().truncatedTo(ChronoUnit.MINUTES);
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be at least a minute before to");
+        }
+        Instant settled = clock.instant().truncatedTo(ChronoUnit.MINUTES).minus(properties.getRebuildSettleMinutes(), ChronoUnit.MINUTES);
+        if (to.isAfter(settled)) {
+            // Live aggregation may still be applying these minutes' arrivals; the swap would count them twice.
+            throw new IllegalArgumentException("to must be at least " + properties.getRebuildSettleMinutes()
+                    + " minutes before the current minute");
+        }
+        long workflowVersionId = request.getWorkflowVersionId();
+        if (workflowVersionRepository.findById(workflowVersionId).isEmpty()) {
+            throw new IllegalArgumentException("unknown workflow version " + workflowVersionId);
+        }
+        if (rebuilds.values().stream().anyMatch(AggregateRebuild::active)) {
+            throw new IllegalStateException("an aggregate rebuild is already active on this node");
+        }
+        int parallelism = Math.min(properties.getMaxWorkers(),
+                request.getParallelism() != null ? request.getParallelism() : properties.getRebuildParallelism());
+        int maxRowsPerSec = request.getMaxRowsPerSec() != null ? request.getMaxRowsPerSec() : properties.getRebuildDefaultMaxRowsPerSec();
+        AggregateRebuild rebuild = new AggregateRebuild(ids.incrementAndGet(), workflowVersionId, from, to, parallelism,
+                maxRowsPerSec, requestedBy, clock.instant());
+        rebuilds.put(rebuild.id(), rebuild);
+        while (rebuilds.size() > RETAINED_REBUILDS) {
+            rebuilds.remove(rebuilds.keySet().iterator().next());
+        }
+        log.info("Aggregate rebuild queued rebuildId={} version={} from={} to={} parallelism={} maxRowsPerSec={}",
+                rebuild.id(), workflowVersionId, from, to, parallelism, maxRowsPerSec);
+        coordinator.submit(() -> run(rebuild));
+        return rebuild;
+    }
+
+    public synchronized Optional<AggregateRebuild> find(long id) {
+        return Optional.ofNullable(rebuilds.get(id));
+    }
+
+    /**
+     * Rebuilds started on this node, newest first.
+     */
+    public synchronized List<AggregateRebuild> recent() {
+        List<AggregateRebuild> recent = new ArrayList<>(rebuilds.values());
+        recent.sort(Comparator.comparingLong(AggregateRebuild::id).reversed());
+        return recent;
+    }
+
+    private void run(AggregateRebuild rebuild) {
+        boolean ran = partitionRepository.withMaintenanceLock(LOCK_NAME, () -> {
+            try {
+                execute(rebuild);
+                rebuild.finished(ReplayStatus.COMPLETED, null, clock.instant());
+                log.info("Aggregate rebuild finished rebuildId={} version={} rowsRead={} bucketsSwapped={}",
+                        rebuild.id(), rebuild.workflowVersionId(), rebuild.rowsRead(), rebuild.bucketsSwapped());
+            } catch (Exception ex) {
+                if (ex instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                log.error("Aggregate rebuild failed rebuildId={} version={}", rebuild.id(), rebuild.workflowVersionId(), ex);
+                String message = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+                rebuild.finished(ReplayStatus.FAILED, message.length() > 1000 ? message.substring(0, 1000) : message, clock.instant());
+            } finally {
+                repository.clearStaging(rebuild.workflowVersionId());
+            }
+        });
+        if (!ran) {
+            log.warn("Aggregate rebuild not started; lock held elsewhere rebuildId={} lock={}", rebuild.id(), LOCK_NAME);
+            rebuild.finished(ReplayStatus.FAILED, "another aggregate rebuild is running in the cluster", clock.instant());
+        }
+    }
+
+    private void execute(AggregateRebuild rebuild) throws InterruptedException, ExecutionException {
+        List<Instant> sliceStarts = new ArrayList<>();
+        Duration sliceWidth = Duration.ofHours(properties.getRebuildSliceHours());
+        for (Instant start = rebuild.fromTime(); start.isBefore(rebuild.toTime()); start = start.plus(sliceWidth)) {
+            sliceStarts.add(start);
+        }
+        rebuild.started(sliceStarts.size(), clock.instant());
+        repository.clearStaging(rebuild.workflowVersionId());
+
+        long startedNanos = System.nanoTime();
+        Map<Instant, SourceMark> marks = new ConcurrentHashMap<>();
+        ForkJoinPool pool = new ForkJoinPool(rebuild.parallelism(), forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("aggregate-rebuild-" + rebuild.id() + "-worker-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        try {
+            List<Callable<Void>> slices = new ArrayList<>(sliceStarts.size());
+            for (Instant start : sliceStarts) {
+                Instant end = min(start.plus(sliceWidth), rebuild.toTime());
+                slices.add(() -> {
+                    marks.put(start, rebuildSlice(rebuild, start, end, startedNanos, false));
+                    return null;
+                });
+            }
+            for (Future<Void> slice : pool.invokeAll(slices)) {
+                slice.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Every slice is staged; swap them in a transaction each so no swap locks the whole range.
+        long swapped = 0;
+        for (Instant start : sliceStarts) {
+            Instant end = min(start.plus(sliceWidth), rebuild.toTime());
+            OptionalInt sliceSwapped = repository.swap(rebuild.workflowVersionId(), start, end, marks.get(start));
+            for (int restages = 0; sliceSwapped.isEmpty(); restages++) {
+                if (restages == MAX_RESTAGES) {
+                    throw new IllegalStateException("arrivals kept being recorded in the slice starting " + start
+                            + "; retry once live aggregation has caught up");
+                }
+                log.info("Aggregate rebuild slice received arrivals after it was read; restaging rebuildId={} sliceStart={} attempt={}",
+                        rebuild.id(), start, restages + 1);
+                rebuild.sliceRestaged();
+                repository.clearStaging(rebuild.workflowVersionId(), start, end);
+                SourceMark mark = rebuildSlice(rebuild, start, end, startedNanos, true);
+                sliceSwapped = repository.swap(rebuild.workflowVersionId(), start, end, mark);
+            }
+            swapped += sliceSwapped.getAsInt();
+        }
+        rebuild.setBucketsSwapped(swapped);
+        rollupService.rewind(rebuild.fromTime());
+        recentAggregateLoader.reload(rebuild.fromTime(), clock.instant());
+    }
+
+    /**
+     * Stages the slice's recomputed buckets and returns the source mark taken before anything was read; a
+     * restaged slice does not count again towards the slices done.
+     */
+    private SourceMark rebuildSlice(AggregateRebuild rebuild, Instant sliceStart, Instant sliceEnd, long startedNanos,
+                                    boolean restage) throws InterruptedException {
+        long versionId = rebuild.workflowVersionId();
+        SourceMark mark = repository.sourceMark(versionId, sliceStart, sliceEnd);
+        Instant startedFrom = sliceStart.minus(properties.getRebuildRunLookbackHours(), ChronoUnit.HOURS);
+        Map<Long, RebuildRun> runs = repository.findRuns(versionId, startedFrom, sliceStart, sliceEnd);
+        if (runs.isEmpty()) {
+            if (!restage) {
+                rebuild.sliceDone(0);
+            }
+            return mark;
+        }
+        Map<Long, List<RebuildExpectation>> expectations = repository.findExpectations(versionId, startedFrom, sliceStart, sliceEnd);
+        read(rebuild, runs.size() + expectations.values().stream().mapToLong(List::size).sum(), startedNanos);
+
+        SliceBuckets buckets = new SliceBuckets(sliceStart, sliceEnd);
+        List<RebuildOccurrence> occurrences = new ArrayList<>();
+        long[] current = {-1L, 0L};
+        repository.streamOccurrences(versionId, startedFrom, sliceStart, sliceEnd, (runId, occurrence) -> {
+            if (runId != current[0]) {
+                replayRun(runs.get(current[0]), occurrences, expectations.get(current[0]), buckets);
+                occurrences.clear();
+                current[0] = runId;
+            }
+            occurrences.add(occurrence);
+            if (++current[1] % THROTTLE_BATCH == 0) {
+                try {
+                    read(rebuild, THROTTLE_BATCH, startedNanos);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("aggregate rebuild interrupted", ex);
+                }
+            }
+        });
+        replayRun(runs.get(current[0]), occurrences, expectations.get(current[0]), buckets);
+        read(rebuild, current[1] % THROTTLE_BATCH, startedNanos);
+
+        List<StagedBucket> staged = buckets.staged();
+        repository.stage(versionId, staged);
+        if (!restage) {
+            rebuild.sliceDone(staged.size());
+        }
+        log.debug("Aggregate rebuild slice staged rebuildId={} sliceStart={} runs={} occurrences={} buckets={}",
+                rebuild.id(), sliceStart, runs.size(), current[1], staged.size());
+        return mark;
+    }
+
+    /**
+     * Replays one run's recorded history into the slice's buckets: each arrival counts at its node and
+     * clears the earliest-due expectation into that node created before it; each expectation adds its
+     * count in flight when raised, counts as late where the scheduler fired it with what was still
+     * missing then, and gives back what remains when the run completes.
+     */
+    private static void replayRun(RebuildRun run,
+                                  List<RebuildOccurrence> occurrences,
+                                  List<RebuildExpectation> expectations,
+                                  SliceBuckets buckets) {
+        if (run == null || occurrences.isEmpty()) {
+            return;
+        }
+        Map<String, Instant> receivedByOrigin = new HashMap<>();
+        for (RebuildOccurrence occurrence : occurrences) {
+            receivedByOrigin.putIfAbsent(occurrence.nodeKey() + '@' + occurrence.eventTime(), occurrence.receivedAt());
+        }
+        List<OpenExpectation> open = new ArrayList<>();
+        for (RebuildExpectation expectation : expectations != null ? expectations : List.<RebuildExpectation>of()) {
+            Instant raisedAt = expectation.originAt() != null
+                    ? receivedByOrigin.getOrDefault(expectation.fromNodeKey() + '@' + expectation.originAt(), expectation.createdAt())
+                    : expectation.createdAt();
+            open.add(new OpenExpectation(expectation, raisedAt));
+            buckets.add(run.groupHash(), expectation.toNodeKey(), raisedAt).inFlight += expectation.expectedCount();
+        }
+
+        for (RebuildOccurrence occurrence : occurrences) {
+            OpenExpectation cleared = null;
+            for (OpenExpectation candidate : open) {
+                if (candidate.remaining > 0 && candidate.expectation.toNodeKey().equals(occurrence.nodeKey())
+                        && candidate.raisedAt.isBefore(occurrence.receivedAt())
+                        && (cleared == null || candidate.expectation.dueAt().isBefore(cleared.expectation.dueAt()))) {
+                    cleared = candidate;
+                }
+            }
+            Bucket bucket = buckets.add(run.groupHash(), occurrence.nodeKey(), occurrence.receivedAt());
+            bucket.completed++;
+            bucket.late += occurrence.late() ? 1 : 0;
+            bucket.failed += occurrence.orderViolation() ? 1 : 0;
+            if (run.correlationKey() != null) {
+                bucket.distinct().offer(run.correlationKey());
+            }
+            if (cleared != null) {
+                cleared.remaining--;
+                if (cleared.firedAt() != null && !occurrence.receivedAt().isAfter(cleared.firedAt())) {
+                    cleared.clearedBeforeFire++;
+                }
+                bucket.inFlight--;
+                if (cleared.expectation.originAt() != null) {
+                    bucket.histogram().record(Math.max(0, Duration.between(cleared.expectation.originAt(), occurrence.eventTime()).toMillis()));
+                }
+            }
+        }
+
+        for (OpenExpectation expectation : open) {
+            if (expectation.firedAt() != null) {
+                int missing = expectation.expectation.expectedCount() - expectation.clearedBeforeFire;
+                buckets.add(run.groupHash(), expectation.expectation.toNodeKey(), expectation.firedAt()).late += Math.max(1, missing);
+            }
+            if (run.completedAt() != null && expectation.remaining > 0) {
+                buckets.add(run.groupHash(), expectation.expectation.toNodeKey(), run.completedAt()).inFlight -= expectation.remaining;
+            }
+        }
+    }
+
+    /**
+     * Counts {@code rows} read against the rebuild's budget, sleeping while the rebuild is ahead of it.
+     */
+    private void read(AggregateRebuild rebuild, long rows, long startedNanos) throws InterruptedException {
+        if (rows <= 0) {
+            return;
+        }
+        rowsRead.increment(rows);
+        long total = rebuild.addRowsRead(rows);
+        long targetNanos = total * 1_000_000_000L / rebuild.maxRowsPerSec();
+        long aheadNanos = targetNanos - (System.nanoTime() - startedNanos);
+        if (aheadNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        }
+    }
+
+    private static Instant min(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    /**
+     * Minute buckets of one slice; changes outside the slice are dropped, since another slice owns them.
+     */
+    private static final class SliceBuckets {
+        private final Instant start;
+        private final Instant end;
+        private final Map<BucketKey, Bucket> buckets = new HashMap<>();
+        private final Bucket discarded = new Bucket();
+
+        SliceBuckets(Instant start, Instant end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        Bucket add(String groupHash, String nodeKey, Instant at) {
+            Instant minute = at.truncatedTo(ChronoUnit.MINUTES);
+            if (minute.isBefore(start) || !minute.isBefore(end)) {
+                return discarded.reset();
+            }
+            return buckets.computeIfAbsent(new BucketKey(groupHash, nodeKey, minute), key -> new Bucket());
+        }
+
+        List<StagedBucket> staged() {
+            List<StagedBucket> staged = new ArrayList<>(buckets.size());
+            buckets.forEach((key, bucket) -> staged.add(new StagedBucket(key.groupHash(), key.nodeKey(), key.minute(),
+                    bucket.inFlight, bucket.completed, bucket.late, bucket.failed, bucket.histogram, bucket.distinct)));
+            return staged;
+        }
+    }
+
+    private record BucketKey(String groupHash, String nodeKey, Instant minute) {}
+
+    private static final class Bucket {
+        private int inFlight;
+        private int completed;
+        private int late;
+        private int failed;
+        private LatencyHistogram histogram;
+        private DistinctSketch distinct;
+
+        LatencyHistogram histogram() {
+            if (histogram == null) {
+                histogram = new LatencyHistogram();
+            }
+            return histogram;
+        }
+
+        DistinctSketch distinct() {
+            if (distinct == null) {
+                distinct = new DistinctSketch();
+            }
+            return distinct;
+        }
+
+        Bucket reset() {
+            inFlight = 0;
+            completed = 0;
+            late = 0;
+            failed = 0;
+            histogram = null;
+            distinct = null;
+            return this;
+        }
+    }
+
+    private static final class OpenExpectation {
+        private final RebuildExpectation expectation;
+        private final Instant raisedAt;
+        private int remaining;
+        private int clearedBeforeFire;
+
+        OpenExpectation(RebuildExpectation expectation, Instant raisedAt) {
+            this.expectation = expectation;
+            this.raisedAt = raisedAt;
+            this.remaining = expectation.expectedCount();
+        }
+
+        Instant firedAt() {
+            return expectation.firedAt();
+        }
+    }
+}
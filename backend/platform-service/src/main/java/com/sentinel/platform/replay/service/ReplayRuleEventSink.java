@@ -0,0 +1,90 @@
+package com.sentinel.platform.replay.service;
+
+import java.sql.Timestamp;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.sentinel.platform.aggregation.model.DistinctSketch;
+import com.sentinel.platform.aggregation.model.LatencyHistogram;
+import com.sentinel.platform.aggregation.repository.StageLatencyRepository;
+import com.sentinel.platform.alerting.model.AlertTriggerEvent;
+import com.sentinel.platform.ruleengine.model.RuleEvaluatedEvent;
+import com.sentinel.platform.ruleengine.service.RuleEventSink;
+
+/**
+ * Outcome sink for one replay job. LIVE jobs aggregate through the live publisher; SHADOW jobs upsert
+ * the same minute buckets, stage latency histograms included, into {@code shadow_stage_aggregate}.
+ * Alerts reach the live publisher only for LIVE jobs that opted in and are otherwise counted and dropped.
+ */
+final class ReplayRuleEventSink implements RuleEventSink {
+    private static final String SHADOW_UPSERT = """
+            INSERT INTO shadow_stage_aggregate (workflow_version_id, group_dim_hash, node_key, bucket_start, in_flight, completed, late, failed)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                in_flight = GREATEST(0, in_flight + VALUES(in_flight)),
+                completed = completed + VALUES(completed),
+                late = late + VALUES(late),
+                failed = failed + VALUES(failed)
+            """;
+
+    private final RuleEventSink live;
+    private final JdbcTemplate jdbcTemplate;
+    private final StageLatencyRepository latencyRepository;
+    private final boolean shadow;
+    private final boolean emitAlerts;
+    private final AtomicLong suppressedAlerts = new AtomicLong();
+
+    ReplayRuleEventSink(RuleEventSink live,
+                        JdbcTemplate jdbcTemplate,
+                        StageLatencyRepository latencyRepository,
+                        boolean shadow,
+                        boolean emitAlerts) {
+        this.live = live;
+        this.jdbcTemplate = jdbcTemplate;
+        this.latencyRepository = latencyRepository;
+        this.shadow = shadow;
+        this.emitAlerts = emitAlerts && !shadow;
+    }
+
+    @Override
+    public void publishRuleEvaluated(RuleEvaluatedEvent event) {
+        if (!shadow) {
+            live.publishRuleEvaluated(event);
+            return;
+        }
+        Timestamp bucket = Timestamp.from(event.getReceivedAt().truncatedTo(ChronoUnit.MINUTES));
+        jdbcTemplate.update(SHADOW_UPSERT, event.getWorkflowVersionId(), event.getGroupHash(), event.getNode(), bucket,
+                0, event.getCompletedDelta(), event.getLateDelta(), event.getFailedDelta());
+        event.forEachInFlightDelta((node, delta) -> jdbcTemplate.update(SHADOW_UPSERT, event.getWorkflowVersionId(),
+                event.getGroupHash(), node, bucket, delta, 0, 0, 0));
+        LatencyHistogram latency = null;
+        if (event.getStageLatencyMs() != null) {
+            latency = new LatencyHistogram();
+            latency.record(event.getStageLatencyMs());
+        }
+        DistinctSketch distinct = null;
+        if (event.getCompletedDelta() > 0 && event.getCorrelationKey() != null) {
+            distinct = new DistinctSketch();
+            distinct.offer(event.getCorrelationKey());
+        }
+        if (latency != null || distinct != null) {
+            latencyRepository.merge("shadow_", event.getWorkflowVersionId(), event.getGroupHash(), event.getNode(),
+                    bucket.toInstant(), latency, distinct);
+        }
+    }
+
+    @Override
+    public void publishAlertTriggered(AlertTriggerEvent alert) {
+        if (emitAlerts) {
+            live.publishAlertTriggered(alert);
+        } else {
+            suppressedAlerts.incrementAndGet();
+        }
+    }
+
+    long drainSuppressedAlerts() {
+        return suppressedAlerts.getAndSet(0);
+    }
+}
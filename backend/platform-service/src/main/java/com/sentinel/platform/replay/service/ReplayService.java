@@ -0,0 +1,328 @@
+package com.sentinel.platform.replay.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.sentinel.platform.aggregation.repository.StageLatencyRepository;
+import com.sentinel.platform.aggregation.service.AggregateRollupService;
+import com.sentinel.platform.aggregation.state.RecentAggregateLoader;
+import com.sentinel.platform.replay.config.ReplayProperties;
+import com.sentinel.platform.replay.model.ReplayJob;
+import com.sentinel.platform.replay.model.ReplayMode;
+import com.sentinel.platform.replay.model.ReplayStatus;
+import com.sentinel.platform.replay.repository.ReplayEventRepository;
+import com.sentinel.platform.replay.repository.ReplayEventRepository.ReplayEvent;
+import com.sentinel.platform.replay.repository.ReplayJobRepository;
+import com.sentinel.platform.replay.web.dto.ReplayRequest;
+import com.sentinel.platform.ruleconfig.model.Workflow;
+import com.sentinel.platform.ruleconfig.model.WorkflowVersion;
+import com.sentinel.platform.ruleconfig.repository.WorkflowRepository;
+import com.sentinel.platform.ruleconfig.repository.WorkflowVersionRepository;
+import com.sentinel.platform.ruleengine.model.SyntheticMissedEvent;
+import com.sentinel.platform.ruleengine.repository.ExpectationRepository.ExpectationRow;
+import com.sentinel.platform.ruleengine.repository.RuleEngineStateRepository;
+import com.sentinel.platform.ruleengine.service.RuleEngineService;
+import com.sentinel.platform.ruleengine.service.RuleEventPublisher;
+import com.sentinel.platform.shared.time.VirtualClock;
+
+@Service
+public class ReplayService {
+    /**
+     * Re-evaluates historical {@code event_raw} rows for one workflow version. A coordinator walks the
+     * (received_at, id) keyset in chunks; each chunk is split by correlation key across the job's workers
+     * so a key is always evaluated by the same worker in received order, and every worker drives its own
+     * fork of the rule engine on a virtual clock. Between chunks the coordinator fires the job's own
+     * expectations that came due on the virtual clock, checkpoints the cursor and throttles to the job's
+     * rate. A resumed job restarts from the last checkpoint; rows re-read after a crash are skipped by the
+     * engine's per-run event id dedupe.
+     */
+    private static final Logger log = LoggerFactory.getLogger(ReplayService.class);
+    private static final String SHADOW_PREFIX = "shadow_";
+
+    private final ReplayJobRepository jobRepository;
+    private final ReplayEventRepository eventRepository;
+    private final RuleEngineService ruleEngineService;
+    private final RuleEngineStateRepository stateRepository;
+    private final RuleEventPublisher eventPublisher;
+    private final WorkflowRepository workflowRepository;
+    private final WorkflowVersionRepository workflowVersionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final StageLatencyRepository latencyRepository;
+    private final AggregateRollupService rollupService;
+    private final RecentAggregateLoader recentAggregateLoader;
+    private final ReplayProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final ExecutorService coordinators;
+
+    public ReplayService(ReplayJobRepository jobRepository,
+                         ReplayEventRepository eventRepository,
+                         RuleEngineService ruleEngineService,
+                         RuleEngineStateRepository stateRepository,
+                         RuleEventPublisher eventPublisher,
+                         WorkflowRepository workflowRepository,
+                         WorkflowVersionRepository workflowVersionRepository,
+                         JdbcTemplate jdbcTemplate,
+                         StageLatencyRepository latencyRepository,
+                         AggregateRollupService rollupService,
+                         RecentAggregateLoader recentAggregateLoader,
+                         ReplayProperties properties,
+                         MeterRegistry meterRegistry,
+                         Clock clock) {
+        this.jobRepository = jobRepository;
+        this.eventRepository = eventRepository;
+        this.ruleEngineService = ruleEngineService;
+        this.stateRepository = stateRepository;
+        this.eventPublisher = eventPublisher;
+        this.workflowRepository = workflowRepository;
+        this.workflowVersionRepository = workflowVersionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.latencyRepository = latencyRepository;
+        this.rollupService = rollupService;
+        this.recentAggregateLoader = recentAggregateLoader;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.coordinators = Executors.newFixedThreadPool(properties.getMaxConcurrentJobs(), namedThreads("replay-coordinator"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinators.shutdownNow();
+    }
+
+    public ReplayJob start(ReplayRequest request, String requestedBy) {
+        if (!request.getFrom().isBefore(request.getTo())) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        Workflow workflow = workflowRepository.findByKey(request.getWorkflowKey())
+                .orElseThrow(() -> new IllegalArgumentException("unknown workflow " + request.getWorkflowKey()));
+        WorkflowVersion version = resolveVersion(workflow, request.getWorkflowVersionId());
+        ReplayMode mode = request.getMode() != null ? request.getMode() : ReplayMode.SHADOW;
+        if (jobRepository.hasActiveJob(version.getId(), mode)) {
+            throw new IllegalStateException("a " + mode + " replay is already active for workflow version " + version.getId());
+        }
+        int workers = Math.min(properties.getMaxWorkers(),
+                request.getWorkers() != null ? request.getWorkers() : properties.getDefaultWorkers());
+        int maxEventsPerSec = request.getMaxEventsPerSec() != null ? request.getMaxEventsPerSec() : properties.getDefaultMaxEventsPerSec();
+        if (mode == ReplayMode.SHADOW && request.isResetShadow()) {
+            eventRepository.resetShadowState(version.getId());
+        }
+        long id = jobRepository.insert(workflow.getKey(), version.getId(), mode, request.getFrom(), request.getTo(),
+                workers, maxEventsPerSec, request.isEmitAlerts(), requestedBy, clock.instant());
+        log.info("Replay queued jobId={} workflow={} version={} mode={} from={} to={} workers={} maxEventsPerSec={}",
+                id, workflow.getKey(), version.getId(), mode, request.getFrom(), request.getTo(), workers, maxEventsPerSec);
+        coordinators.submit(() -> run(id));
+        return jobRepository.findById(id).orElseThrow();
+    }
+
+    public Optional<ReplayJob> find(long id) {
+        return jobRepository.findById(id);
+    }
+
+    public List<ReplayJob> recent(int limit) {
+        return jobRepository.findRecent(Math.max(1, Math.min(limit, 200)));
+    }
+
+    public boolean cancel(long id) {
+        boolean cancelled = jobRepository.cancel(id);
+        if (cancelled) {
+            log.info("Replay cancel requested jobId={}", id);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Resumes a cancelled or failed job, or one orphaned by a node that stopped heart-beating, from its
+     * last checkpoint.
+     */
+    public Optional<ReplayJob> resume(long id) {
+        Instant staleBefore = clock.instant().minusSeconds(properties.getStaleAfterSeconds());
+        if (!jobRepository.claimForResume(id, staleBefore)) {
+            return Optional.empty();
+        }
+        log.info("Replay resumed jobId={}", id);
+        coordinators.submit(() -> run(id));
+        return jobRepository.findById(id);
+    }
+
+    private WorkflowVersion resolveVersion(Workflow workflow, Long requestedVersionId) {
+        Optional<WorkflowVersion> version;
+        if (requestedVersionId != null) {
+            version = workflowVersionRepository.findById(requestedVersionId)
+                    .filter(v -> v.getWorkflow().getId().equals(workflow.getId()));
+        } else if (workflow.getActiveVersionId() != null) {
+            version = workflowVersionRepository.findById(workflow.getActiveVersionId());
+        } else {
+            version = workflowVersionRepository.findFirstByWorkflowIdOrderByVersionNumDesc(workflow.getId());
+        }
+        return version.orElseThrow(() -> new IllegalArgumentException("no matching version for workflow " + workflow.getKey()));
+    }
+
+    private void run(long jobId) {
+        ReplayJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null || job.status() != ReplayStatus.PENDING) {
+            return;
+        }
+        jobRepository.markRunning(jobId, clock.instant());
+        boolean shadow = job.mode() == ReplayMode.SHADOW;
+        RuleEngineStateRepository state = stateRepository.forStateSet(shadow ? SHADOW_PREFIX : "", job.expectationOwner());
+        ReplayRuleEventSink sink = new ReplayRuleEventSink(eventPublisher, jdbcTemplate, latencyRepository, shadow, job.emitAlerts());
+        ExecutorService workers = Executors.newFixedThreadPool(job.workers(), namedThreads("replay-" + jobId + "-worker"));
+        try {
+            WorkflowVersion version = workflowVersionRepository.findById(job.workflowVersionId())
+                    .orElseThrow(() -> new IllegalStateException("workflow version " + job.workflowVersionId() + " no longer exists"));
+            ReplayStatus outcome = execute(job, version, state, sink, workers);
+            jobRepository.finish(jobId, outcome, null, clock.instant());
+            log.info("Replay finished jobId={} status={}", jobId, outcome);
+        } catch (Exception ex) {
+            log.error("Replay failed jobId={}", jobId, ex);
+            String message = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+            jobRepository.finish(jobId, ReplayStatus.FAILED, message.length() > 1000 ? message.substring(0, 1000) : message, clock.instant());
+        } finally {
+            workers.shutdownNow();
+            if (!shadow) {
+                int released = eventRepository.releaseExpectations(state.expectationTable(), job.expectationOwner());
+                log.debug("Released replay expectations to live scheduler jobId={} count={}", jobId, released);
+                // The replay rewrote minute buckets that may already be rolled up or held in memory.
+                rollupService.rewind(job.fromTime());
+                recentAggregateLoader.reload(job.fromTime(), clock.instant());
+            }
+        }
+    }
+
+    private ReplayStatus execute(ReplayJob job,
+                                 WorkflowVersion version,
+                                 RuleEngineStateRepository state,
+                                 ReplayRuleEventSink sink,
+                                 ExecutorService workers) throws InterruptedException, ExecutionException {
+        List<String> eventTypes = eventRepository.findEventTypes(version.getId());
+        int laneCount = job.workers();
+        VirtualClock[] clocks = new VirtualClock[laneCount];
+        RuleEngineService[] engines = new RuleEngineService[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            clocks[i] = new VirtualClock(job.fromTime());
+            engines[i] = ruleEngineService.fork(state, sink, clocks[i]);
+        }
+        VirtualClock sweepClock = new VirtualClock(job.fromTime());
+        RuleEngineService sweepEngine = ruleEngineService.fork(state, sink, sweepClock);
+
+        Instant cursor = job.cursorReceivedAt() != null ? job.cursorReceivedAt() : job.fromTime();
+        long cursorId = job.cursorEventId() != null ? job.cursorEventId() : 0L;
+        long processed = 0;
+        long started = System.nanoTime();
+        while (true) {
+            if (jobRepository.findStatus(job.id()).orElse(ReplayStatus.CANCELLED) == ReplayStatus.CANCELLED) {
+                return ReplayStatus.CANCELLED;
+            }
+            List<ReplayEvent> chunk = eventRepository.nextChunk(job.fromTime(), job.toTime(), cursor, cursorId,
+                    job.workflowKey(), eventTypes, properties.getChunkSize());
+            if (chunk.isEmpty()) {
+                long misses = sweep(job, state, sweepEngine, sweepClock, job.toTime());
+                jobRepository.addCounters(job.id(), misses, sink.drainSuppressedAlerts(), clock.instant());
+                return ReplayStatus.COMPLETED;
+            }
+
+            List<List<ReplayEvent>> lanes = new ArrayList<>(laneCount);
+            for (int i = 0; i < laneCount; i++) {
+                lanes.add(new ArrayList<>());
+            }
+            for (ReplayEvent event : chunk) {
+                lanes.get(Math.floorMod(event.event().getCorrelationKey().hashCode(), laneCount)).add(event);
+            }
+            List<Future<?>> pending = new ArrayList<>(laneCount);
+            for (int i = 0; i < laneCount; i++) {
+                List<ReplayEvent> lane = lanes.get(i);
+                if (lane.isEmpty()) {
+                    continue;
+                }
+                VirtualClock laneClock = clocks[i];
+                RuleEngineService laneEngine = engines[i];
+                pending.add(workers.submit(() -> {
+                    for (ReplayEvent event : lane) {
+                        laneClock.set(event.event().getReceivedAt());
+                        laneEngine.handleEventForVersion(event.event(), version);
+                    }
+                }));
+            }
+            for (Future<?> future : pending) {
+                future.get();
+            }
+
+            ReplayEvent last = chunk.get(chunk.size() - 1);
+            long misses = sweep(job, state, sweepEngine, sweepClock, last.event().getReceivedAt());
+            jobRepository.checkpoint(job.id(), last.event().getReceivedAt(), last.rawEventId(), chunk.size(), misses,
+                    sink.drainSuppressedAlerts(), clock.instant());
+            meterRegistry.counter("replay.events.processed", "mode", job.mode().name()).increment(chunk.size());
+            cursor = last.event().getReceivedAt();
+            cursorId = last.rawEventId();
+            processed += chunk.size();
+            log.debug("Replay chunk done jobId={} rows={} cursor={} misses={}", job.id(), chunk.size(), cursor, misses);
+            throttle(job.maxEventsPerSec(), processed, started);
+        }
+    }
+
+    /**
+     * Fires this job's pending expectations due at or before the virtual watermark, mirroring what the
+     * live scheduler would have emitted by then.
+     */
+    private long sweep(ReplayJob job, RuleEngineStateRepository state, RuleEngineService engine, VirtualClock sweepClock, Instant watermark) {
+        long emitted = 0;
+        while (true) {
+            List<ExpectationRow> due = eventRepository.claimDue(state.expectationTable(), job.expectationOwner(),
+                    watermark, properties.getSweepBatchSize());
+            for (ExpectationRow row : due) {
+                SyntheticMissedEvent event = new SyntheticMissedEvent();
+                event.setExpectationId(row.id());
+                event.setWorkflowRunId(row.workflowRunId());
+                event.setFromNode(row.fromNodeKey());
+                event.setToNode(row.toNodeKey());
+                event.setDueAt(row.dueAt());
+                event.setSeverity(row.severity());
+                event.setExpectedCount(row.expectedCount());
+                event.setMissingCount(row.remainingCount());
+                event.setDedupeKey("exp-" + row.id() + "-" + row.dueAt().toEpochMilli());
+                sweepClock.set(row.dueAt());
+                engine.handleSyntheticMissed(event);
+                emitted++;
+            }
+            if (due.size() < properties.getSweepBatchSize()) {
+                return emitted;
+            }
+        }
+    }
+
+    private void throttle(int maxEventsPerSec, long processed, long startedNanos) throws InterruptedException {
+        long targetNanos = processed * 1_000_000_000L / maxEventsPerSec;
+        long aheadNanos = targetNanos - (System.nanoTime() - startedNanos);
+        if (aheadNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
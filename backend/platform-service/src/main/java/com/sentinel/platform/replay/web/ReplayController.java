@@ -0,0 +1,109 @@
+package com.sentinel.platform.replay.web;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.sentinel.platform.replay.service.AggregateRebuildService;
+import com.sentinel.platform.replay.service.ReplayService;
+import com.sentinel.platform.replay.web.dto.AggregateRebuildRequest;
+import com.sentinel.platform.replay.web.dto.AggregateRebuildView;
+import com.sentinel.platform.replay.web.dto.ReplayJobView;
+import com.sentinel.platform.replay.web.dto.ReplayRequest;
+
+@RestController
+@RequestMapping("/replay")
+public class ReplayController {
+
+    private final ReplayService replayService;
+    private final AggregateRebuildService rebuildService;
+
+    public ReplayController(ReplayService replayService, AggregateRebuildService rebuildService) {
+        this.replayService = replayService;
+        this.rebuildService = rebuildService;
+    }
+
+    @PostMapping
+    @PreAuthorize("hasRole('operator') or hasRole('config-admin')")
+    public ResponseEntity<ReplayJobView> start(@Valid @RequestBody ReplayRequest request, Authentication authentication) {
+        String actor = authentication != null ? authentication.getName() : "system";
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ReplayJobView.from(replayService.start(request, actor)));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        } catch (IllegalStateException ex) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, ex.getMessage());
+        }
+    }
+
+    @GetMapping
+    @PreAuthorize("hasRole('viewer') or hasRole('operator') or hasRole('config-admin')")
+    public List<ReplayJobView> list(@RequestParam(value = "limit", defaultValue = "50") int limit) {
+        return replayService.recent(limit).stream().map(ReplayJobView::from).toList();
+    }
+
+    @GetMapping("/{id}")
+    @PreAuthorize("hasRole('viewer') or hasRole('operator') or hasRole('config-admin')")
+    public ResponseEntity<ReplayJobView> get(@PathVariable long id) {
+        return replayService.find(id)
+                .map(ReplayJobView::from)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{id}/cancel")
+    @PreAuthorize("hasRole('operator') or hasRole('config-admin')")
+    public void cancel(@PathVariable long id) {
+        if (!replayService.cancel(id)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Replay job not found or not active");
+        }
+    }
+
+    @PostMapping("/{id}/resume")
+    @PreAuthorize("hasRole('operator') or hasRole('config-admin')")
+    public ReplayJobView resume(@PathVariable long id) {
+        return replayService.resume(id)
+                .map(ReplayJobView::from)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT, "Replay job not found or not resumable"));
+    }
+
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasRole('operator') or hasRole('config-admin')")
+    public ResponseEntity<AggregateRebuildView> rebuild(@Valid @RequestBody AggregateRebuildRequest request, Authentication authentication) {
+        String actor = authentication != null ? authentication.getName() : "system";
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(AggregateRebuildView.from(rebuildService.start(request, actor)));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        } catch (IllegalStateException ex) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, ex.getMessage());
+        }
+    }
+
+    @GetMapping("/rebuild")
+    @PreAuthorize("hasRole('viewer') or hasRole('operator') or hasRole('config-admin')")
+    public List<AggregateRebuildView> rebuilds() {
+        return rebuildService.recent().stream().map(AggregateRebuildView::from).toList();
+    }
+
+    @GetMapping("/rebuild/{id}")
+    @PreAuthorize("hasRole('viewer') or hasRole('operator') or hasRole('config-admin')")
+    public ResponseEntity<AggregateRebuildView> getRebuild(@PathVariable long id) {
+        return rebuildService.find(id)
+                .map(AggregateRebuildView::from)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,66 @@
+package com.sentinel.platform.replay.web.dto;
+
+import java.time.Instant;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+public class AggregateRebuildRequest {
+    @NotNull
+    private Long workflowVersionId;
+
+    @NotNull
+    private Instant from;
+
+    /**
+     * End of the range, exclusive; must not be after the current minute.
+     */
+    @NotNull
+    private Instant to;
+
+    @Min(1)
+    private Integer parallelism;
+
+    @Min(1)
+    private Integer maxRowsPerSec;
+
+    public Long getWorkflowVersionId() {
+        return workflowVersionId;
+    }
+
+    public void setWorkflowVersionId(Long workflowVersionId) {
+        this.workflowVersionId = workflowVersionId;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public void setFrom(Instant from) {
+        this.from = from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    public void setTo(Instant to) {
+        this.to = to;
+    }
+
+    public Integer getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(Integer parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public Integer getMaxRowsPerSec() {
+        return maxRowsPerSec;
+    }
+
+    public void setMaxRowsPerSec(Integer maxRowsPerSec) {
+        this.maxRowsPerSec = maxRowsPerSec;
+    }
+}
@@ -0,0 +1,33 @@
+package com.sentinel.platform.replay.web.dto;
+
+import java.time.Instant;
+
+import com.sentinel.platform.replay.model.AggregateRebuild;
+import com.sentinel.platform.replay.model.ReplayStatus;
+
+public record AggregateRebuildView(long id,
+                                   long workflowVersionId,
+                                   ReplayStatus status,
+                                   Instant from,
+                                   Instant to,
+                                   int parallelism,
+                                   int maxRowsPerSec,
+                                   int slices,
+                                   int slicesDone,
+                                   int slicesRestaged,
+                                   long rowsRead,
+                                   long bucketsStaged,
+                                   long bucketsSwapped,
+                                   String errorMessage,
+                                   String requestedBy,
+                                   Instant createdAt,
+                                   Instant startedAt,
+                                   Instant finishedAt) {
+
+    public static AggregateRebuildView from(AggregateRebuild rebuild) {
+        return new AggregateRebuildView(rebuild.id(), rebuild.workflowVersionId(), rebuild.status(), rebuild.fromTime(),
+                rebuild.toTime(), rebuild.parallelism(), rebuild.maxRowsPerSec(), rebuild.slices(), rebuild.slicesDone(),
+                rebuild.slicesRestaged(), rebuild.rowsRead(), rebuild.bucketsStaged(), rebuild.bucketsSwapped(), rebuild.errorMessage(),
+                rebuild.requestedBy(), rebuild.createdAt(), rebuild.startedAt(), rebuild.finishedAt());
+    }
+}
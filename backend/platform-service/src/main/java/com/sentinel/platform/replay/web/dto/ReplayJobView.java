@@ -0,0 +1,58 @@
+package com.sentinel.platform.replay.web.dto;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import com.sentinel.platform.replay.model.ReplayJob;
+import com.sentinel.platform.replay.model.ReplayMode;
+import com.sentinel.platform.replay.model.ReplayStatus;
+
+public record ReplayJobView(long id,
+                            String workflowKey,
+                            long workflowVersionId,
+                            ReplayMode mode,
+                            ReplayStatus status,
+                            Instant from,
+                            Instant to,
+                            int workers,
+                            int maxEventsPerSec,
+                            boolean emitAlerts,
+                            Instant cursor,
+                            long eventsProcessed,
+                            long missesEmitted,
+                            long alertsSuppressed,
+                            double progressPercent,
+                            double eventsPerSecond,
+                            String errorMessage,
+                            String requestedBy,
+                            Instant createdAt,
+                            Instant startedAt,
+                            Instant heartbeatAt,
+                            Instant finishedAt) {
+
+    /**
+     * Progress is measured on the replayed time axis (cursor position within [from, to)), which needs no
+     * up-front count over the range.
+     */
+    public static ReplayJobView from(ReplayJob job) {
+        double progress;
+        if (job.status() == ReplayStatus.COMPLETED) {
+            progress = 100.0;
+        } else if (job.cursorReceivedAt() == null) {
+            progress = 0.0;
+        } else {
+            long span = Math.max(1, Duration.between(job.fromTime(), job.toTime()).toMillis());
+            long done = Duration.between(job.fromTime(), job.cursorReceivedAt()).toMillis();
+            progress = Math.min(100.0, Math.round(done * 10000.0 / span) / 100.0);
+        }
+        double rate = 0.0;
+        Instant end = job.finishedAt() != null ? job.finishedAt() : job.heartbeatAt();
+        if (job.startedAt() != null && end != null && end.isAfter(job.startedAt())) {
+            rate = Math.round(job.eventsProcessed() * 10000.0 / Duration.between(job.startedAt(), end).toMillis()) / 10.0;
+        }
+        return new ReplayJobView(job.id(), job.workflowKey(), job.workflowVersionId(), job.mode(), job.status(),
+                job.fromTime(), job.toTime(), job.workers(), job.maxEventsPerSec(), job.emitAlerts(), job.cursorReceivedAt(),
+                job.eventsProcessed(), job.missesEmitted(), job.alertsSuppressed(), progress, rate, job.errorMessage(),
+                job.requestedBy(), job.createdAt(), job.startedAt(), job.heartbeatAt(), job.finishedAt());
+    }
+}
@@ -0,0 +1,112 @@
+package com.sentinel.platform.replay.web.dto;
+
+import java.time.Instant;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import com.sentinel.platform.replay.model.ReplayMode;
+
+public class ReplayRequest {
+    @NotBlank
+    private String workflowKey;
+
+    /**
+     * Version to evaluate; defaults to the workflow's active (or latest) version.
+     */
+    private Long workflowVersionId;
+
+    @NotNull
+    private Instant from;
+
+    @NotNull
+    private Instant to;
+
+    private ReplayMode mode = ReplayMode.SHADOW;
+
+    @Min(1)
+    private Integer workers;
+
+    @Min(1)
+    private Integer maxEventsPerSec;
+
+    private boolean emitAlerts;
+
+    /**
+     * SHADOW only: clear the version's shadow state before starting.
+     */
+    private boolean resetShadow = true;
+
+    public String getWorkflowKey() {
+        return workflowKey;
+    }
+
+    public void setWorkflowKey(String workflowKey) {
+        this.workflowKey = workflowKey;
+    }
+
+    public Long getWorkflowVersionId() {
+        return workflowVersionId;
+    }
+
+    public void setWorkflowVersionId(Long workflowVersionId) {
+        this.workflowVersionId = workflowVersionId;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public void setFrom(Instant from) {
+        this.from = from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    public void setTo(Instant to) {
+        this.to = to;
+    }
+
+    public ReplayMode getMode() {
+        return mode;
+    }
+
+    public void setMode(ReplayMode mode) {
+        this.mode = mode;
+    }
+
+    public Integer getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(Integer workers) {
+        this.workers = workers;
+    }
+
+    public Integer getMaxEventsPerSec() {
+        return maxEventsPerSec;
+    }
+
+    public void setMaxEventsPerSec(Integer maxEventsPerSec) {
+        this.maxEventsPerSec = maxEventsPerSec;
+    }
+
+    public boolean isEmitAlerts() {
+        return emitAlerts;
+    }
+
+    public void setEmitAlerts(boolean emitAlerts) {
+        this.emitAlerts = emitAlerts;
+    }
+
+    public boolean isResetShadow() {
+        return resetShadow;
+    }
+
+    public void setResetShadow(boolean resetShadow) {
+        this.resetShadow = resetShadow;
+    }
+}
@@ -0,0 +1,105 @@
+package com.sentinel.platform.retention.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.validation.constraints.Min;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Validated
+@ConfigurationProperties(prefix = "retention")
+public class RetentionProperties {
+
+    private boolean partitionMaintenanceEnabled = true;
+
+    /**
+     * Number of future daily partitions kept ahead of the current UTC day.
+     */
+    @Min(1)
+    private int precreateDays = 7;
+
+    private Map<String, TablePolicy> tables = defaultTables();
+
+    public boolean isPartitionMaintenanceEnabled() {
+        return partitionMaintenanceEnabled;
+    }
+
+    public void setPartitionMaintenanceEnabled(boolean partitionMaintenanceEnabled) {
+        this.partitionMaintenanceEnabled = partitionMaintenanceEnabled;
+    }
+
+    public int getPrecreateDays() {
+        return precreateDays;
+    }
+
+    public void setPrecreateDays(int precreateDays) {
+        this.precreateDays = precreateDays;
+    }
+
+    public Map<String, TablePolicy> getTables() {
+        return tables;
+    }
+
+    public void setTables(Map<String, TablePolicy> tables) {
+        this.tables = tables;
+    }
+
+    private static Map<String, TablePolicy> defaultTables() {
+        Map<String, TablePolicy> defaults = new LinkedHashMap<>();
+        defaults.put("event_raw", new TablePolicy(30, ExpiryMode.DROP));
+        defaults.put("event_occurrence", new TablePolicy(30, ExpiryMode.DROP));
+        defaults.put("expectation", new TablePolicy(30, ExpiryMode.DROP));
+        defaults.put("expectation_history", new TablePolicy(30, ExpiryMode.DROP));
+        defaults.put("stage_aggregate", new TablePolicy(90, ExpiryMode.DROP));
+        defaults.put("stage_aggregate_hour", new TablePolicy(400, ExpiryMode.DROP));
+        return defaults;
+    }
+
+    public enum ExpiryMode {
+        /**
+         * Drop the expired partition and its rows.
+         */
+        DROP,
+        /**
+         * Exchange the expired partition into a standalone {@code <table>_<partition>} table, then drop it
+         * from the hot table. The detached table can be dumped or archived out of band.
+         */
+        DETACH,
+        /**
+         * Keep expired partitions; only pre-create future ones.
+         */
+        KEEP
+    }
+
+    public static class TablePolicy {
+        @Min(1)
+        private int retentionDays = 30;
+
+        private ExpiryMode mode = ExpiryMode.DROP;
+
+        public TablePolicy() {
+        }
+
+        public TablePolicy(int retentionDays, ExpiryMode mode) {
+            this.retentionDays = retentionDays;
+            this.mode = mode;
+        }
+
+        public int getRetentionDays() {
+            return retentionDays;
+        }
+
+        public void setRetentionDays(int retentionDays) {
+            this.retentionDays = retentionDays;
+        }
+
+        public ExpiryMode getMode() {
+            return mode;
+        }
+
+        public void setMode(ExpiryMode mode) {
+            this.mode = mode;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.sentinel.platform.retention.repository;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class PartitionRepository {
+    /**
+     * DDL helper for the daily RANGE partitions created by V0008. Partition names follow
+     * {@code pYYYYMMDD} (rows of that UTC day) plus the {@code p_future} MAXVALUE catch-all, so
+     * expiry decisions can be made from names alone without decoding TO_DAYS boundaries.
+     */
+    public static final String FUTURE_PARTITION = "p_future";
+    private static final int KEY_PURGE_BATCH = 5000;
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final Pattern DAILY_NAME = Pattern.compile("p\\d{8}");
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<PartitionInfo> listPartitions(String table) {
+        return jdbcTemplate.query("""
+                        select partition_name, table_rows
+                        from information_schema.partitions
+                        where table_schema = database() and table_name = ? and partition_name is not null
+                        order by partition_ordinal_position
+                        """,
+                (ResultSet rs, int rowNum) -> {
+                    String name = rs.getString("partition_name");
+                    return new PartitionInfo(name, dayOf(name), rs.getLong("table_rows"));
+                },
+                checkIdentifier(table));
+    }
+
+    /**
+     * Splits the MAXVALUE catch-all into one partition per day. Rows already sitting in the catch-all
+     * land in the first new partition (they are all older than its upper bound).
+     */
+    public void addDailyPartitions(String table, List<LocalDate> days) {
+        if (days.isEmpty()) {
+            return;
+        }
+        String definitions = days.stream()
+                .map(day -> "PARTITION " + partitionName(day) + " VALUES LESS THAN (TO_DAYS('" + day.plusDays(1) + "'))")
+                .collect(Collectors.joining(", "));
+        jdbcTemplate.execute("ALTER TABLE " + checkIdentifier(table) + " REORGANIZE PARTITION " + FUTURE_PARTITION
+                + " INTO (" + definitions + ", PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN MAXVALUE)");
+    }
+
+    public void dropPartition(String table, String partition) {
+        jdbcTemplate.execute("ALTER TABLE " + checkIdentifier(table) + " DROP PARTITION " + checkIdentifier(partition));
+    }
+
+    /**
+     * Moves the partition's rows into a standalone table named {@code <table>_<partition>} and removes the
+     * partition. EXCHANGE PARTITION is a metadata swap, so this is cheap regardless of partition size.
+     */
+    public String detachPartition(String table, String partition) {
+        String target = checkIdentifier(table + "_" + partition);
+        checkIdentifier(table);
+        checkIdentifier(partition);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + target + " LIKE " + table);
+        jdbcTemplate.execute("ALTER TABLE " + target + " REMOVE PARTITIONING");
+        jdbcTemplate.execute("ALTER TABLE " + table + " EXCHANGE PARTITION " + partition + " WITH TABLE " + target);
+        jdbcTemplate.execute("ALTER TABLE " + table + " DROP PARTITION " + partition);
+        return target;
+    }
+
+    public long countInPartition(String table, String partition, String whereClause) {
+        Long count = jdbcTemplate.queryForObject("select count(*) from " + checkIdentifier(table)
+                + " partition (" + checkIdentifier(partition) + ") where " + whereClause, Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Deletes rows of a natural-key table received before {@code day} (UTC) in batches, so the purge never
+     * holds a long lock on a table the ingest path writes to; returns the number of rows deleted.
+     */
+    public int deleteKeysReceivedBefore(String table, LocalDate day) {
+        String sql = "delete from " + checkIdentifier(table) + " where received_at < ? limit " + KEY_PURGE_BATCH;
+        Timestamp before = Timestamp.from(day.atStartOfDay(ZoneOffset.UTC).toInstant());
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(sql, before);
+            total += deleted;
+        } while (deleted == KEY_PURGE_BATCH);
+        return total;
+    }
+
+    /**
+     * Runs the callback while holding a MariaDB named lock so only one node rotates partitions at a time.
+     * Returns false without running the callback if another node holds the lock.
+     */
+    public boolean withMaintenanceLock(String lockName, Runnable callback) {
+        Boolean ran = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            try (var acquire = connection.prepareStatement("select get_lock(?, 0)")) {
+                acquire.setString(1, lockName);
+                try (ResultSet rs = acquire.executeQuery()) {
+                    if (!rs.next() || rs.getInt(1) != 1) {
+                        return false;
+                    }
+                }
+            }
+            try {
+                callback.run();
+                return true;
+            } finally {
+                try (var release = connection.prepareStatement("select release_lock(?)")) {
+                    release.setString(1, lockName);
+                    release.execute();
+                }
+            }
+        });
+        return Boolean.TRUE.equals(ran);
+    }
+
+    public static String partitionName(LocalDate day) {
+        return "p" + DAY_FORMAT.format(day);
+    }
+
+    private static LocalDate dayOf(String partitionName) {
+        if (partitionName == null || !DAILY_NAME.matcher(partitionName).matches()) {
+            return null;
+        }
+        return LocalDate.parse(partitionName.substring(1), DAY_FORMAT);
+    }
+
+    private static String checkIdentifier(String identifier) {
+        if (identifier == null || !IDENTIFIER.matcher(identifier).matches()) {
+            throw new IllegalArgumentException("invalid identifier " + identifier);
+        }
+        return identifier;
+    }
+
+    /**
+     * @param day UTC day held by the partition, or null for the catch-all / non-daily partitions
+     */
+    public record PartitionInfo(String name, LocalDate day, long approximateRows) {}
+}
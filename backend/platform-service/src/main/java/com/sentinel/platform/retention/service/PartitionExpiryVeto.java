@@ -0,0 +1,14 @@
+package com.sentinel.platform.retention.service;
+
+import com.sentinel.platform.retention.repository.PartitionRepository.PartitionInfo;
+
+/**
+ * Lets other modules keep an expired partition alive, for example until its rows have been archived.
+ */
+public interface PartitionExpiryVeto {
+
+    /**
+     * @return a short reason when the partition must be kept, or {@code null} to allow expiry
+     */
+    String vetoExpiry(String table, PartitionInfo partition);
+}
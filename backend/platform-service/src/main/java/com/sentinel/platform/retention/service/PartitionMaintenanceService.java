@@ -0,0 +1,177 @@
+package com.sentinel.platform.retention.service;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.sentinel.platform.retention.config.RetentionProperties;
+import com.sentinel.platform.retention.config.RetentionProperties.ExpiryMode;
+import com.sentinel.platform.retention.config.RetentionProperties.TablePolicy;
+import com.sentinel.platform.retention.repository.PartitionRepository;
+import com.sentinel.platform.retention.repository.PartitionRepository.PartitionInfo;
+
+@Service
+public class PartitionMaintenanceService {
+    /**
+     * Keeps the daily partitions of the high-volume tables rotating: pre-creates the next
+     * {@code precreateDays} partitions and drops (or detaches) partitions older than each table's
+     * retention. Dropping a partition is a metadata operation, so purge cost no longer scales with the
+     * number of expired rows and the hot indexes only cover the retained days.
+     */
+    private static final Logger log = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+    public static final String LOCK_NAME = "sentinel.partition-maintenance";
+
+    /**
+     * Rows matching these predicates keep an expired partition alive; a pending timer must still fire
+     * even if it was created longer ago than the table's retention.
+     */
+    private static final Map<String, String> EXPIRY_GUARDS = Map.of("expectation", "status = 'pending'");
+
+    /**
+     * Unpartitioned tables holding a partitioned table's natural keys. Keys are pruned once the partitions
+     * holding their rows are gone, so a duplicate is rejected for as long as its original is kept.
+     */
+    private static final Map<String, String> NATURAL_KEY_TABLES = Map.of(
+            "event_raw", "event_raw_key",
+            "event_occurrence", "event_occurrence_key");
+
+    private final PartitionRepository partitionRepository;
+    private final RetentionProperties properties;
+    private final List<PartitionExpiryVeto> vetoes;
+    private final Clock clock;
+
+    public PartitionMaintenanceService(PartitionRepository partitionRepository,
+                                       RetentionProperties properties,
+                                       List<PartitionExpiryVeto> vetoes,
+                                       Clock clock) {
+        this.partitionRepository = partitionRepository;
+        this.properties = properties;
+        this.vetoes = vetoes;
+        this.clock = clock;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rotateOnStartup() {
+        if (properties.isPartitionMaintenanceEnabled()) {
+            rotate();
+        }
+    }
+
+    @Scheduled(cron = "${retention.partition-cron:0 15 0 * * *}", zone = "UTC")
+    public void scheduledRotate() {
+        if (properties.isPartitionMaintenanceEnabled()) {
+            rotate();
+        }
+    }
+
+    public void rotate() {
+        boolean ran = partitionRepository.withMaintenanceLock(LOCK_NAME, () -> {
+            LocalDate today = LocalDate.now(clock.withZone(ZoneOffset.UTC));
+            properties.getTables().forEach((table, policy) -> {
+                try {
+                    rotateTable(table, policy, today);
+                } catch (Exception ex) {
+                    log.warn("Partition maintenance failed table={}", table, ex);
+                }
+            });
+        });
+        if (!ran) {
+            log.debug("Partition maintenance skipped; another node holds {}", LOCK_NAME);
+        }
+    }
+
+    private void rotateTable(String table, TablePolicy policy, LocalDate today) {
+        List<PartitionInfo> partitions = partitionRepository.listPartitions(table);
+        boolean hasFuture = partitions.stream().anyMatch(p -> PartitionRepository.FUTURE_PARTITION.equals(p.name()));
+        if (!hasFuture) {
+            log.debug("Table {} is not day-partitioned; skipping rotation", table);
+            return;
+        }
+
+        LocalDate lastDay = partitions.stream()
+                .map(PartitionInfo::day)
+                .filter(Objects::nonNull)
+                .max(LocalDate::compareTo)
+                .orElse(null);
+        LocalDate horizon = today.plusDays(properties.getPrecreateDays());
+        List<LocalDate> missing = new ArrayList<>();
+        for (LocalDate day = lastDay != null ? lastDay.plusDays(1) : today; !day.isAfter(horizon); day = day.plusDays(1)) {
+            missing.add(day);
+        }
+        if (!missing.isEmpty()) {
+            partitionRepository.addDailyPartitions(table, missing);
+            log.info("Pre-created partitions table={} from={} to={}", table, missing.get(0), missing.get(missing.size() - 1));
+        }
+
+        if (policy.getMode() == ExpiryMode.KEEP) {
+            return;
+        }
+        LocalDate cutoff = today.minusDays(policy.getRetentionDays());
+        // Partitions are listed oldest first and the oldest one also holds anything older than its day, so
+        // only keys below a contiguous run of removed partitions at the start are known to be gone.
+        LocalDate keysGoneBefore = null;
+        boolean removedPrefix = true;
+        for (PartitionInfo partition : partitions) {
+            if (partition.day() == null) {
+                continue;
+            }
+            boolean removed = partition.day().isBefore(cutoff) && expire(table, policy, partition);
+            if (removed && removedPrefix) {
+                keysGoneBefore = partition.day().plusDays(1);
+            } else {
+                removedPrefix = false;
+            }
+        }
+        String keyTable = NATURAL_KEY_TABLES.get(table);
+        if (keyTable != null && keysGoneBefore != null) {
+            int pruned = partitionRepository.deleteKeysReceivedBefore(keyTable, keysGoneBefore);
+            log.info("Pruned natural keys table={} before={} rows={}", keyTable, keysGoneBefore, pruned);
+        }
+    }
+
+    /**
+     * Drops or detaches an expired partition unless a guard or veto keeps it; returns whether it was removed.
+     */
+    private boolean expire(String table, TablePolicy policy, PartitionInfo partition) {
+        String guard = EXPIRY_GUARDS.get(table);
+        if (guard != null && partitionRepository.countInPartition(table, partition.name(), guard) > 0) {
+            log.info("Keeping expired partition table={} partition={} because rows still match [{}]", table, partition.name(), guard);
+            return false;
+        }
+        String veto = vetoFor(table, partition);
+        if (veto != null) {
+            log.info("Keeping expired partition table={} partition={} reason={}", table, partition.name(), veto);
+            return false;
+        }
+        if (policy.getMode() == ExpiryMode.DETACH) {
+            String detached = partitionRepository.detachPartition(table, partition.name());
+            log.info("Detached expired partition table={} partition={} into={} approxRows={}",
+                    table, partition.name(), detached, partition.approximateRows());
+        } else {
+            partitionRepository.dropPartition(table, partition.name());
+            log.info("Dropped expired partition table={} partition={} approxRows={}", table, partition.name(), partition.approximateRows());
+        }
+        return true;
+    }
+
+    private String vetoFor(String table, PartitionInfo partition) {
+        for (PartitionExpiryVeto veto : vetoes) {
+            String reason = veto.vetoExpiry(table, partition);
+            if (reason != null) {
+                return reason;
+            }
+        }
+        return null;
+    }
+}
@@ -19,6 +19,9 @@ public class Workflow {
 
     private String owner;
 
+    @Column(length = 64)
+    private String bulkhead;
+
     @Column(name = "active_version_id")
     private Long activeVersionId;
 
@@ -60,6 +63,14 @@ public class Workflow {
         this.owner = owner;
     }
 
+    public String getBulkhead() {
+        return bulkhead;
+    }
+
+    public void setBulkhead(String bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
     public Long getActiveVersionId() {
         return activeVersionId;
     }
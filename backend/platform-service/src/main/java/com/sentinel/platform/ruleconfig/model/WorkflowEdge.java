@@ -23,6 +23,12 @@ public class WorkflowEdge {
     @Column(name = "absolute_deadline")
     private String absoluteDeadline;
 
+    @Column(name = "deadline_zone", length = 64)
+    private String deadlineZone;
+
+    @Column(name = "deadline_calendar", length = 64)
+    private String deadlineCalendar;
+
     @Column(name = "optional")
     private boolean optional;
 
@@ -67,6 +73,22 @@ public class WorkflowEdge {
         this.absoluteDeadline = absoluteDeadline;
     }
 
+    public String getDeadlineZone() {
+        return deadlineZone;
+    }
+
+    public void setDeadlineZone(String deadlineZone) {
+        this.deadlineZone = deadlineZone;
+    }
+
+    public String getDeadlineCalendar() {
+        return deadlineCalendar;
+    }
+
+    public void setDeadlineCalendar(String deadlineCalendar) {
+        this.deadlineCalendar = deadlineCalendar;
+    }
+
     public boolean isOptional() {
         return optional;
     }
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.sentinel.platform.ruleconfig.model.WorkflowVersion;
 
@@ -11,4 +12,7 @@ public interface WorkflowVersionRepository extends JpaRepository<WorkflowVersion
     List<WorkflowVersion> findByWorkflowIdOrderByVersionNumDesc(Long workflowId);
 
     Optional<WorkflowVersion> findFirstByWorkflowIdOrderByVersionNumDesc(Long workflowId);
+
+    @Query("select v.workflow.bulkhead from WorkflowVersion v where v.id = :versionId")
+    Optional<String> findBulkheadByVersionId(Long versionId);
 }
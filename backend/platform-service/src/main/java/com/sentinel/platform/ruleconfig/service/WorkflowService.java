@@ -19,6 +19,7 @@ import com.sentinel.platform.ruleconfig.repository.WorkflowRepository;
 import com.sentinel.platform.ruleconfig.repository.WorkflowVersionRepository;
 import com.sentinel.platform.ruleconfig.web.dto.WorkflowRequest;
 import com.sentinel.platform.ruleconfig.web.dto.WorkflowView;
+import com.sentinel.platform.ruleengine.deadline.DeadlineCompiler;
 
 @Service
 public class WorkflowService {
@@ -28,17 +29,20 @@ public class WorkflowService {
     private final WorkflowNodeRepository workflowNodeRepository;
     private final WorkflowEdgeRepository workflowEdgeRepository;
     private final ObjectMapper objectMapper;
+    private final DeadlineCompiler deadlineCompiler;
 
     public WorkflowService(WorkflowRepository workflowRepository,
                            WorkflowVersionRepository workflowVersionRepository,
                            WorkflowNodeRepository workflowNodeRepository,
                            WorkflowEdgeRepository workflowEdgeRepository,
-                           ObjectMapper objectMapper) {
+                           ObjectMapper objectMapper,
+                           DeadlineCompiler deadlineCompiler) {
         this.workflowRepository = workflowRepository;
         this.workflowVersionRepository = workflowVersionRepository;
         this.workflowNodeRepository = workflowNodeRepository;
         this.workflowEdgeRepository = workflowEdgeRepository;
         this.objectMapper = objectMapper;
+        this.deadlineCompiler = deadlineCompiler;
     }
 
     public List<Workflow> list() {
@@ -69,6 +73,7 @@ public class WorkflowService {
         workflow.setName(request.getName());
         workflow.setKey(request.getKey());
         workflow.setOwner(request.getCreatedBy());
+        workflow.setBulkhead(request.getBulkhead());
         Workflow saved = workflowRepository.save(workflow);
 
         WorkflowVersion version = new WorkflowVersion();
@@ -104,7 +109,8 @@ public class WorkflowService {
                 "green",
                 activeVersionLabel,
                 graph,
-                groupDimensions
+                groupDimensions,
+                workflow.getBulkhead()
         );
     }
 
@@ -136,6 +142,14 @@ public class WorkflowService {
                 if (e.get("absoluteDeadline") != null) {
                     edge.setAbsoluteDeadline(e.get("absoluteDeadline").toString());
                 }
+                if (e.get("deadlineZone") != null) {
+                    edge.setDeadlineZone(e.get("deadlineZone").toString());
+                }
+                if (e.get("deadlineCalendar") != null) {
+                    edge.setDeadlineCalendar(e.get("deadlineCalendar").toString());
+                }
+                // Rejects unparseable deadlines, unknown zones and calendars at definition time.
+                deadlineCompiler.compile(edge.getMaxLatencySec(), edge.getAbsoluteDeadline(), edge.getDeadlineZone(), edge.getDeadlineCalendar());
                 edge.setOptional(Boolean.TRUE.equals(e.get("optional")));
                 if (e.get("expectedCount") != null) {
                     edge.setExpectedCount(((Number) e.get("expectedCount")).intValue());
@@ -143,6 +157,8 @@ public class WorkflowService {
                 edge.setSeverity(e.get("severity") != null ? e.get("severity").toString() : null);
                 workflowEdgeRepository.save(edge);
             }
+        } catch (IllegalArgumentException ex) {
+            throw ex;
         } catch (Exception ex) {
             throw new IllegalArgumentException("invalid graph payload", ex);
         }
@@ -3,6 +3,7 @@ package com.sentinel.platform.ruleconfig.web;
 import java.util.List;
 
 import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,6 +12,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.sentinel.platform.ruleconfig.service.WorkflowService;
 import com.sentinel.platform.ruleconfig.web.dto.WorkflowRequest;
@@ -43,7 +45,11 @@ public class WorkflowController {
     @PostMapping
     @PreAuthorize("hasRole('config-admin')")
     public ResponseEntity<WorkflowView> create(@Valid @RequestBody WorkflowRequest request) {
-        var created = workflowService.createWorkflow(request);
-        return ResponseEntity.ok(workflowService.toView(created));
+        try {
+            var created = workflowService.createWorkflow(request);
+            return ResponseEntity.ok(workflowService.toView(created));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
     }
 }
@@ -5,6 +5,7 @@ import java.util.Map;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
 
 public class WorkflowRequest {
     @NotBlank
@@ -21,6 +22,9 @@ public class WorkflowRequest {
 
     private List<String> groupDimensions;
 
+    @Pattern(regexp = "[a-z0-9-]{1,64}")
+    private String bulkhead;
+
     public String getName() {
         return name;
     }
@@ -60,4 +64,12 @@ public class WorkflowRequest {
     public void setGroupDimensions(List<String> groupDimensions) {
         this.groupDimensions = groupDimensions;
     }
+
+    public String getBulkhead() {
+        return bulkhead;
+    }
+
+    public void setBulkhead(String bulkhead) {
+        this.bulkhead = bulkhead;
+    }
 }
@@ -10,6 +10,7 @@ public record WorkflowView(
         String status,
         String activeVersion,
         Map<String, Object> graph,
-        List<String> groupDimensions
+        List<String> groupDimensions,
+        String bulkhead
 ) {
 }
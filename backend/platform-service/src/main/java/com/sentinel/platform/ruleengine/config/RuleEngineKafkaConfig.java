@@ -0,0 +1,32 @@
+package com.sentinel.platform.ruleengine.config;
+
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties.AckMode;
+
+@Configuration
+public class RuleEngineKafkaConfig {
+    /**
+     * Container factory of the normalized-event listener. Records are evaluated on the bulkhead workers
+     * after the listener returns, so the container must not commit on its own; the listener commits the
+     * {@link com.sentinel.platform.ruleengine.state.AppliedOffsets} watermark instead. Idle events let it
+     * keep committing while evaluations finish after the topic goes quiet. Everything else (and the
+     * rebalance listener) comes from the Boot-configured defaults.
+     */
+    public static final String ENGINE_CONTAINER_FACTORY = "engineListenerContainerFactory";
+
+    @Bean(ENGINE_CONTAINER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> engineListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            RuleEngineProperties properties) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.getContainerProperties().setAckMode(AckMode.MANUAL);
+        factory.getContainerProperties().setIdleEventInterval(properties.getOffsetCommitIntervalMillis());
+        return factory;
+    }
+}
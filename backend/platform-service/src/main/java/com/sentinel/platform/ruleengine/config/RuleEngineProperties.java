@@ -1,5 +1,9 @@
 package com.sentinel.platform.ruleengine.config;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.validation.constraints.Min;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
@@ -13,6 +17,80 @@ public class RuleEngineProperties {
     private boolean schedulerEnabled = true;
     private int schedulerIntervalSeconds = 15;
     private int schedulerPollLimit = 100;
+    /**
+     * Upper bound on how long one scheduler tick keeps draining full batches back to back.
+     */
+    @Min(1)
+    private int schedulerMaxDrainSeconds = 60;
+    private int simulationMaxEvents = 1_000_000;
+    private int simulationMaxAlerts = 1000;
+    private boolean compactionEnabled = true;
+    private int compactionIntervalSeconds = 300;
+    /**
+     * Resolved expectations stay in the live table until their due time is this far in the past, so a
+     * late arrival can still be counted against a fired expectation.
+     */
+    @Min(1)
+    private int compactionHorizonMinutes = 360;
+    @Min(1)
+    private int compactionBatchSize = 1000;
+    private int compactionPauseMillis = 50;
+    @Min(1)
+    private int compactionMaxBatches = 200;
+    /**
+     * When disabled, normalized events are evaluated on the Kafka listener thread as before.
+     */
+    private boolean bulkheadsEnabled = true;
+    /**
+     * Shared evaluation threads. Keep this below the JDBC pool size; each evaluation holds at most one
+     * connection at a time.
+     */
+    @Min(1)
+    private int evaluationWorkers = 6;
+    private Map<String, BulkheadSettings> bulkheads = defaultBulkheads();
+    /**
+     * How often the engine consumer commits the applied watermark of its partitions.
+     */
+    @Min(1)
+    private long offsetCommitIntervalMillis = 1_000;
+    /**
+     * How long a rebalance waits for queued evaluations of the revoked partitions before committing.
+     */
+    @Min(1)
+    private int revokeDrainSeconds = 30;
+    /**
+     * Directory of business-day calendars ({@code <name>.json}) that edge deadlines can reference.
+     */
+    private String calendarDirectory = "config/calendars";
+    /**
+     * Keeps run ids and seen event ids of recently active runs in memory for the partitions this node
+     * consumes, so the per-event run lookup and duplicate check skip the database.
+     */
+    private boolean stateCacheEnabled = true;
+    @Min(1)
+    private int stateCacheMaxRuns = 200_000;
+    /**
+     * Local directory for the state cache snapshot restored on restart.
+     */
+    private String stateSnapshotDirectory = "data/ruleengine-state";
+    @Min(1)
+    private int stateSnapshotIntervalSeconds = 30;
+    /**
+     * A restored partition whose offset gap is larger than this starts cold instead of reading the gap.
+     */
+    @Min(0)
+    private long stateSnapshotMaxGapRecords = 2_000_000;
+    /**
+     * Recent unfinished runs preloaded into the state cache for each partition assigned without usable
+     * snapshot state; 0 disables warming.
+     */
+    @Min(0)
+    private int stateCacheWarmRunsPerPartition = 2_000;
+    /**
+     * Fire timers only for runs in the normalized-topic partitions this node consumes, so several
+     * engine nodes split the due expectations instead of all polling the same rows.
+     */
+    private boolean partitionOwnershipEnabled = true;
 
     public String getNormalizedTopic() {
         return normalizedTopic;
@@ -69,4 +147,240 @@ public class RuleEngineProperties {
     public void setSchedulerPollLimit(int schedulerPollLimit) {
         this.schedulerPollLimit = schedulerPollLimit;
     }
+
+    public int getSchedulerMaxDrainSeconds() {
+        return schedulerMaxDrainSeconds;
+    }
+
+    public void setSchedulerMaxDrainSeconds(int schedulerMaxDrainSeconds) {
+        this.schedulerMaxDrainSeconds = schedulerMaxDrainSeconds;
+    }
+
+    public int getSimulationMaxEvents() {
+        return simulationMaxEvents;
+    }
+
+    public void setSimulationMaxEvents(int simulationMaxEvents) {
+        this.simulationMaxEvents = simulationMaxEvents;
+    }
+
+    public int getSimulationMaxAlerts() {
+        return simulationMaxAlerts;
+    }
+
+    public void setSimulationMaxAlerts(int simulationMaxAlerts) {
+        this.simulationMaxAlerts = simulationMaxAlerts;
+    }
+
+    public boolean isCompactionEnabled() {
+        return compactionEnabled;
+    }
+
+    public void setCompactionEnabled(boolean compactionEnabled) {
+        this.compactionEnabled = compactionEnabled;
+    }
+
+    public int getCompactionIntervalSeconds() {
+        return compactionIntervalSeconds;
+    }
+
+    public void setCompactionIntervalSeconds(int compactionIntervalSeconds) {
+        this.compactionIntervalSeconds = compactionIntervalSeconds;
+    }
+
+    public int getCompactionHorizonMinutes() {
+        return compactionHorizonMinutes;
+    }
+
+    public void setCompactionHorizonMinutes(int compactionHorizonMinutes) {
+        this.compactionHorizonMinutes = compactionHorizonMinutes;
+    }
+
+    public int getCompactionBatchSize() {
+        return compactionBatchSize;
+    }
+
+    public void setCompactionBatchSize(int compactionBatchSize) {
+        this.compactionBatchSize = compactionBatchSize;
+    }
+
+    public int getCompactionPauseMillis() {
+        return compactionPauseMillis;
+    }
+
+    public void setCompactionPauseMillis(int compactionPauseMillis) {
+        this.compactionPauseMillis = compactionPauseMillis;
+    }
+
+    public int getCompactionMaxBatches() {
+        return compactionMaxBatches;
+    }
+
+    public void setCompactionMaxBatches(int compactionMaxBatches) {
+        this.compactionMaxBatches = compactionMaxBatches;
+    }
+
+    public boolean isBulkheadsEnabled() {
+        return bulkheadsEnabled;
+    }
+
+    public void setBulkheadsEnabled(boolean bulkheadsEnabled) {
+        this.bulkheadsEnabled = bulkheadsEnabled;
+    }
+
+    public int getEvaluationWorkers() {
+        return evaluationWorkers;
+    }
+
+    public void setEvaluationWorkers(int evaluationWorkers) {
+        this.evaluationWorkers = evaluationWorkers;
+    }
+
+    public Map<String, BulkheadSettings> getBulkheads() {
+        return bulkheads;
+    }
+
+    public void setBulkheads(Map<String, BulkheadSettings> bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    public long getOffsetCommitIntervalMillis() {
+        return offsetCommitIntervalMillis;
+    }
+
+    public void setOffsetCommitIntervalMillis(long offsetCommitIntervalMillis) {
+        this.offsetCommitIntervalMillis = offsetCommitIntervalMillis;
+    }
+
+    public int getRevokeDrainSeconds() {
+        return revokeDrainSeconds;
+    }
+
+    public void setRevokeDrainSeconds(int revokeDrainSeconds) {
+        this.revokeDrainSeconds = revokeDrainSeconds;
+    }
+
+    public String getCalendarDirectory() {
+        return calendarDirectory;
+    }
+
+    public void setCalendarDirectory(String calendarDirectory) {
+        this.calendarDirectory = calendarDirectory;
+    }
+
+    public boolean isStateCacheEnabled() {
+        return stateCacheEnabled;
+    }
+
+    public void setStateCacheEnabled(boolean stateCacheEnabled) {
+        this.stateCacheEnabled = stateCacheEnabled;
+    }
+
+    public int getStateCacheMaxRuns() {
+        return stateCacheMaxRuns;
+    }
+
+    public void setStateCacheMaxRuns(int stateCacheMaxRuns) {
+        this.stateCacheMaxRuns = stateCacheMaxRuns;
+    }
+
+    public String getStateSnapshotDirectory() {
+        return stateSnapshotDirectory;
+    }
+
+    public void setStateSnapshotDirectory(String stateSnapshotDirectory) {
+        this.stateSnapshotDirectory = stateSnapshotDirectory;
+    }
+
+    public int getStateSnapshotIntervalSeconds() {
+        return stateSnapshotIntervalSeconds;
+    }
+
+    public void setStateSnapshotIntervalSeconds(int stateSnapshotIntervalSeconds) {
+        this.stateSnapshotIntervalSeconds = stateSnapshotIntervalSeconds;
+    }
+
+    public long getStateSnapshotMaxGapRecords() {
+        return stateSnapshotMaxGapRecords;
+    }
+
+    public void setStateSnapshotMaxGapRecords(long stateSnapshotMaxGapRecords) {
+        this.stateSnapshotMaxGapRecords = stateSnapshotMaxGapRecords;
+    }
+
+    public int getStateCacheWarmRunsPerPartition() {
+        return stateCacheWarmRunsPerPartition;
+    }
+
+    public void setStateCacheWarmRunsPerPartition(int stateCacheWarmRunsPerPartition) {
+        this.stateCacheWarmRunsPerPartition = stateCacheWarmRunsPerPartition;
+    }
+
+    public boolean isPartitionOwnershipEnabled() {
+        return partitionOwnershipEnabled;
+    }
+
+    public void setPartitionOwnershipEnabled(boolean partitionOwnershipEnabled) {
+        this.partitionOwnershipEnabled = partitionOwnershipEnabled;
+    }
+
+    private static Map<String, BulkheadSettings> defaultBulkheads() {
+        Map<String, BulkheadSettings> defaults = new LinkedHashMap<>();
+        defaults.put("default", new BulkheadSettings(1, 4, 10_000));
+        defaults.put("critical", new BulkheadSettings(4, 2, 2_000));
+        return defaults;
+    }
+
+    public static class BulkheadSettings {
+        /**
+         * Share of the evaluation workers this bulkhead gets while others are backlogged too.
+         */
+        @Min(1)
+        private int weight = 1;
+
+        /**
+         * Most evaluations of this bulkhead running at once, and so most JDBC connections it holds.
+         */
+        @Min(1)
+        private int maxConcurrency = 2;
+
+        /**
+         * Evaluations queued before the listener thread waits for this bulkhead.
+         */
+        @Min(1)
+        private int queueCapacity = 10_000;
+
+        public BulkheadSettings() {
+        }
+
+        public BulkheadSettings(int weight, int maxConcurrency, int queueCapacity) {
+            this.weight = weight;
+            this.maxConcurrency = maxConcurrency;
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public void setWeight(int weight) {
+            this.weight = weight;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
 }
@@ -0,0 +1,21 @@
+package com.sentinel.platform.ruleengine.deadline;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Named business-day calendar: weekend days plus an explicit holiday list, loaded from
+ * {@code <ruleengine.calendar-directory>/<name>.json}.
+ */
+public record BusinessCalendar(String name, Set<DayOfWeek> weekend, Set<LocalDate> holidays) {
+
+    public BusinessCalendar {
+        weekend = Set.copyOf(weekend);
+        holidays = Set.copyOf(holidays);
+    }
+
+    public boolean isBusinessDay(LocalDate date) {
+        return !weekend.contains(date.getDayOfWeek()) && !holidays.contains(date);
+    }
+}
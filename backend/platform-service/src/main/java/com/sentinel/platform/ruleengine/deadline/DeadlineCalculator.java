@@ -0,0 +1,80 @@
+package com.sentinel.platform.ruleengine.deadline;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * Precompiled due-time rule of one workflow edge. Either a relative latency from the event time or a
+ * daily cut-off at a local time in a zone, optionally restricted to the business days of a calendar:
+ * the due time is the first cut-off at or after the event on a business day. Cut-offs falling into a
+ * DST gap move forward by the gap; in an overlap the earlier instant applies. Fixed-offset cut-offs
+ * without a calendar are computed with plain epoch arithmetic.
+ */
+public final class DeadlineCalculator {
+    /**
+     * Due at the event time itself (edge without latency or cut-off).
+     */
+    public static final DeadlineCalculator NONE = new DeadlineCalculator(0, null, ZoneOffset.UTC, null);
+
+    private static final long SECONDS_PER_DAY = 86_400;
+    /**
+     * Furthest a cut-off is rolled forward looking for a business day before giving up on the calendar.
+     */
+    private static final int MAX_ROLL_DAYS = 366;
+
+    private final long latencySeconds;
+    private final LocalTime cutoff;
+    private final ZoneId zone;
+    private final BusinessCalendar calendar;
+    private final boolean fixedOffset;
+    private final long cutoffSecondOfDay;
+    private final long offsetSeconds;
+
+    DeadlineCalculator(long latencySeconds, LocalTime cutoff, ZoneId zone, BusinessCalendar calendar) {
+        this.latencySeconds = latencySeconds;
+        this.cutoff = cutoff;
+        this.zone = zone;
+        this.calendar = calendar;
+        this.fixedOffset = zone instanceof ZoneOffset && calendar == null;
+        this.cutoffSecondOfDay = cutoff != null ? cutoff.toSecondOfDay() : 0;
+        this.offsetSeconds = zone instanceof ZoneOffset offset ? offset.getTotalSeconds() : 0;
+    }
+
+    public static DeadlineCalculator latency(long seconds) {
+        return seconds > 0 ? new DeadlineCalculator(seconds, null, ZoneOffset.UTC, null) : NONE;
+    }
+
+    public Instant dueAt(Instant eventTime) {
+        if (cutoff == null) {
+            return latencySeconds > 0 ? eventTime.plusSeconds(latencySeconds) : eventTime;
+        }
+        if (fixedOffset) {
+            long localDayStart = Math.floorDiv(eventTime.getEpochSecond() + offsetSeconds, SECONDS_PER_DAY) * SECONDS_PER_DAY;
+            Instant candidate = Instant.ofEpochSecond(localDayStart + cutoffSecondOfDay - offsetSeconds);
+            return candidate.isBefore(eventTime) ? candidate.plusSeconds(SECONDS_PER_DAY) : candidate;
+        }
+        LocalDate date = LocalDate.ofInstant(eventTime, zone);
+        for (int i = 0; i <= MAX_ROLL_DAYS; i++, date = date.plusDays(1)) {
+            if (calendar != null && !calendar.isBusinessDay(date)) {
+                continue;
+            }
+            Instant candidate = ZonedDateTime.of(date, cutoff, zone).toInstant();
+            if (!candidate.isBefore(eventTime)) {
+                return candidate;
+            }
+        }
+        return eventTime;
+    }
+
+    @Override
+    public String toString() {
+        if (cutoff == null) {
+            return latencySeconds > 0 ? "latency " + latencySeconds + "s" : "none";
+        }
+        return "cutoff " + cutoff + " " + zone + (calendar != null ? " calendar " + calendar.name() : "");
+    }
+}
@@ -0,0 +1,161 @@
+package com.sentinel.platform.ruleengine.deadline;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.OffsetTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.sentinel.platform.ruleengine.config.RuleEngineProperties;
+
+@Component
+public class DeadlineCompiler {
+    /**
+     * Compiles edge deadline settings ({@code maxLatencySec}, {@code absoluteDeadline},
+     * {@code deadlineZone}, {@code deadlineCalendar}) into {@link DeadlineCalculator}s and memoises them
+     * by setting, so each distinct deadline is parsed once. {@code absoluteDeadline} is a local time
+     * ({@code HH:mm} or {@code HH:mm:ss}), optionally with a fixed offset ({@code 17:30+01:00},
+     * {@code 17:30Z}); without an offset it is read in {@code deadlineZone} (an IANA zone id, UTC when
+     * unset). Calendars are read once at startup from {@code ruleengine.calendar-directory}.
+     */
+    private static final Logger log = LoggerFactory.getLogger(DeadlineCompiler.class);
+
+    private final Map<String, BusinessCalendar> calendars;
+    private final Map<DeadlineSpec, DeadlineCalculator> compiled = new ConcurrentHashMap<>();
+    private final Set<DeadlineSpec> invalid = ConcurrentHashMap.newKeySet();
+
+    public DeadlineCompiler(RuleEngineProperties properties, ObjectMapper objectMapper) {
+        this.calendars = loadCalendars(Path.of(properties.getCalendarDirectory()), objectMapper);
+    }
+
+    /**
+     * Calculator for one edge; throws {@link IllegalArgumentException} for an unparseable time, an
+     * unknown zone or calendar, or an offset combined with a zone.
+     */
+    public DeadlineCalculator compile(Integer maxLatencySec, String absoluteDeadline, String deadlineZone, String deadlineCalendar) {
+        DeadlineSpec spec = spec(maxLatencySec, absoluteDeadline, deadlineZone, deadlineCalendar);
+        DeadlineCalculator calculator = compiled.get(spec);
+        if (calculator == null) {
+            calculator = build(spec);
+            compiled.putIfAbsent(spec, calculator);
+        }
+        return calculator;
+    }
+
+    /**
+     * As {@link #compile}, but an invalid setting already stored on an edge degrades to a deadline at the
+     * event time (logged once) instead of failing evaluation.
+     */
+    public DeadlineCalculator compileOrNone(Integer maxLatencySec, String absoluteDeadline, String deadlineZone, String deadlineCalendar) {
+        DeadlineSpec spec = spec(maxLatencySec, absoluteDeadline, deadlineZone, deadlineCalendar);
+        DeadlineCalculator calculator = compiled.get(spec);
+        if (calculator != null || invalid.contains(spec)) {
+            return calculator != null ? calculator : DeadlineCalculator.NONE;
+        }
+        try {
+            return compile(maxLatencySec, absoluteDeadline, deadlineZone, deadlineCalendar);
+        } catch (IllegalArgumentException ex) {
+            if (invalid.add(spec)) {
+                log.warn("Invalid edge deadline; falling back to event time absoluteDeadline={} zone={} calendar={} reason={}",
+                        absoluteDeadline, deadlineZone, deadlineCalendar, ex.getMessage());
+            }
+            return DeadlineCalculator.NONE;
+        }
+    }
+
+    public Set<String> calendarNames() {
+        return calendars.keySet();
+    }
+
+    private DeadlineCalculator build(DeadlineSpec spec) {
+        if (spec.calendar() != null && !calendars.containsKey(spec.calendar())) {
+            throw new IllegalArgumentException("unknown deadline calendar " + spec.calendar());
+        }
+        if (spec.absoluteDeadline() == null) {
+            if (spec.zone() != null || spec.calendar() != null) {
+                throw new IllegalArgumentException("deadlineZone/deadlineCalendar require absoluteDeadline");
+            }
+            return DeadlineCalculator.latency(spec.maxLatencySec() != null ? spec.maxLatencySec() : 0);
+        }
+        LocalTime cutoff;
+        ZoneId zone;
+        try {
+            if (hasOffset(spec.absoluteDeadline())) {
+                if (spec.zone() != null) {
+                    throw new IllegalArgumentException("absoluteDeadline with an offset cannot also set deadlineZone");
+                }
+                OffsetTime offsetTime = OffsetTime.parse(spec.absoluteDeadline(), DateTimeFormatter.ISO_OFFSET_TIME);
+                cutoff = offsetTime.toLocalTime();
+                zone = offsetTime.getOffset();
+            } else {
+                cutoff = LocalTime.parse(spec.absoluteDeadline(), DateTimeFormatter.ISO_LOCAL_TIME);
+                zone = spec.zone() != null ? ZoneId.of(spec.zone()) : ZoneOffset.UTC;
+            }
+        } catch (DateTimeException ex) {
+            throw new IllegalArgumentException("invalid absoluteDeadline " + spec.absoluteDeadline()
+                    + (spec.zone() != null ? " in zone " + spec.zone() : ""), ex);
+        }
+        return new DeadlineCalculator(0, cutoff, zone, spec.calendar() != null ? calendars.get(spec.calendar()) : null);
+    }
+
+    private static DeadlineSpec spec(Integer maxLatencySec, String absoluteDeadline, String deadlineZone, String deadlineCalendar) {
+        String deadline = trimToNull(absoluteDeadline);
+        return new DeadlineSpec(deadline != null ? null : maxLatencySec, deadline, trimToNull(deadlineZone), trimToNull(deadlineCalendar));
+    }
+
+    private static boolean hasOffset(String time) {
+        return time.endsWith("Z") || time.indexOf('+') > 0 || time.indexOf('-') > 0;
+    }
+
+    private static String trimToNull(String value) {
+        return StringUtils.hasText(value) ? value.trim() : null;
+    }
+
+    private static Map<String, BusinessCalendar> loadCalendars(Path directory, ObjectMapper objectMapper) {
+        Map<String, BusinessCalendar> calendars = new HashMap<>();
+        if (!Files.isDirectory(directory)) {
+            log.info("No deadline calendar directory; business-day calendars unavailable directory={}", directory.toAbsolutePath());
+            return calendars;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().endsWith(".json")).toList()) {
+                String name = file.getFileName().toString().replaceFirst("\\.json$", "");
+                CalendarFile content = objectMapper.readValue(file.toFile(), CalendarFile.class);
+                Set<DayOfWeek> weekend = content.weekend() != null
+                        ? content.weekend().stream().map(day -> DayOfWeek.valueOf(day.toUpperCase())).collect(Collectors.toSet())
+                        : Set.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+                Set<LocalDate> holidays = content.holidays() != null
+                        ? content.holidays().stream().map(LocalDate::parse).collect(Collectors.toSet())
+                        : Set.of();
+                calendars.put(name, new BusinessCalendar(name, weekend, holidays));
+            }
+        } catch (IOException | RuntimeException ex) {
+            throw new IllegalStateException("Cannot load deadline calendars from " + directory, ex);
+        }
+        log.info("Loaded deadline calendars directory={} calendars={}", directory, calendars.keySet());
+        return Map.copyOf(calendars);
+    }
+
+    private record DeadlineSpec(Integer maxLatencySec, String absoluteDeadline, String zone, String calendar) {}
+
+    private record CalendarFile(List<String> weekend, List<String> holidays) {}
+}
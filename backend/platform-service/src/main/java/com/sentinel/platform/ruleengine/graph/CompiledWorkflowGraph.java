@@ -0,0 +1,150 @@
+package com.sentinel.platform.ruleengine.graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.sentinel.platform.ruleengine.deadline.DeadlineCalculator;
+import com.sentinel.platform.ruleengine.deadline.DeadlineCompiler;
+import com.sentinel.platform.ruleengine.model.NodeCounts;
+import com.sentinel.platform.ruleengine.model.Severity;
+import com.sentinel.platform.ruleengine.repository.RuleEngineStateStore.NodeDescriptor;
+import com.sentinel.platform.ruleengine.repository.RuleEngineStateStore.OutgoingEdge;
+
+/**
+ * Immutable, pre-indexed view of one workflow graph, which doubles as the version's symbol table: node
+ * keys are numbered densely in definition order, and outgoing edges and optional-inbound flags are held
+ * in arrays indexed by node id, with each edge's deadline and severity compiled. Event types resolve to
+ * a node with one map read; past that the rule engine works with node ids and only turns them back into
+ * keys where it writes state or publishes outcomes.
+ */
+public final class CompiledWorkflowGraph {
+    private final Map<String, NodeDescriptor> nodesByKey;
+    private final Map<String, NodeDescriptor> nodesByEventType;
+    private final NodeDescriptor[] nodes;
+    private final String[] nodeKeyTable;
+    private final List<OutgoingEdge>[] outgoingById;
+    private final boolean[] optionalInbound;
+
+    private CompiledWorkflowGraph(Map<String, NodeDescriptor> nodesByKey,
+                                  Map<String, NodeDescriptor> nodesByEventType,
+                                  List<OutgoingEdge>[] outgoingById,
+                                  boolean[] optionalInbound) {
+        this.nodesByKey = nodesByKey;
+        this.nodesByEventType = nodesByEventType;
+        this.nodes = nodesByKey.values().toArray(new NodeDescriptor[0]);
+        this.nodeKeyTable = nodesByKey.keySet().toArray(new String[0]);
+        this.outgoingById = outgoingById;
+        this.optionalInbound = optionalInbound;
+    }
+
+    /**
+     * Compiles the graph definition stored on a workflow version (same {@code nodes}/{@code edges} shape
+     * accepted by {@code POST /workflows}). With {@code lenientDeadlines} an invalid edge deadline falls
+     * back to the event time instead of rejecting the graph, for versions stored before deadlines were
+     * validated.
+     */
+    @SuppressWarnings("unchecked")
+    public static CompiledWorkflowGraph fromDefinition(Map<String, Object> graph, DeadlineCompiler deadlineCompiler, boolean lenientDeadlines) {
+        try {
+            Map<String, NodeDescriptor> nodesByKey = new LinkedHashMap<>();
+            Map<String, NodeDescriptor> nodesByEventType = new HashMap<>();
+            var nodes = (List<Map<String, Object>>) graph.getOrDefault("nodes", List.of());
+            for (Map<String, Object> n : nodes) {
+                String key = String.valueOf(n.get("key"));
+                if (nodesByKey.containsKey(key)) {
+                    continue;
+                }
+                NodeDescriptor node = new NodeDescriptor(nodesByKey.size(), key,
+                        Boolean.TRUE.equals(n.get("start")), Boolean.TRUE.equals(n.get("terminal")));
+                nodesByKey.put(key, node);
+                nodesByEventType.putIfAbsent(String.valueOf(n.get("eventType")), node);
+            }
+            List<OutgoingEdge>[] outgoing = new List[nodesByKey.size()];
+            boolean[] optionalInbound = new boolean[nodesByKey.size()];
+            var edges = (List<Map<String, Object>>) graph.getOrDefault("edges", List.of());
+            for (Map<String, Object> e : edges) {
+                NodeDescriptor from = nodesByKey.get(String.valueOf(e.get("from")));
+                NodeDescriptor to = nodesByKey.get(String.valueOf(e.get("to")));
+                if (from == null || to == null) {
+                    throw new IllegalArgumentException("edge references unknown node " + e.get("from") + " -> " + e.get("to"));
+                }
+                boolean optional = Boolean.TRUE.equals(e.get("optional"));
+                int expectedCount = e.get("expectedCount") != null ? ((Number) e.get("expectedCount")).intValue() : 1;
+                OutgoingEdge edge = new OutgoingEdge(to.id(), to.nodeKey(),
+                        deadline(e, deadlineCompiler, lenientDeadlines),
+                        Severity.parse(e.get("severity") != null ? e.get("severity").toString() : null),
+                        optional,
+                        Math.max(1, expectedCount));
+                if (outgoing[from.id()] == null) {
+                    outgoing[from.id()] = new ArrayList<>();
+                }
+                outgoing[from.id()].add(edge);
+                if (optional) {
+                    optionalInbound[to.id()] = true;
+                }
+            }
+            for (int i = 0; i < outgoing.length; i++) {
+                outgoing[i] = outgoing[i] != null ? List.copyOf(outgoing[i]) : List.of();
+            }
+            return new CompiledWorkflowGraph(nodesByKey, Map.copyOf(nodesByEventType), outgoing, optionalInbound);
+        } catch (IllegalArgumentException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("invalid graph payload", ex);
+        }
+    }
+
+    private static DeadlineCalculator deadline(Map<String, Object> e, DeadlineCompiler deadlineCompiler, boolean lenient) {
+        Integer maxLatencySec = e.get("maxLatencySec") != null ? ((Number) e.get("maxLatencySec")).intValue() : null;
+        String absoluteDeadline = e.get("absoluteDeadline") != null ? e.get("absoluteDeadline").toString() : null;
+        String zone = e.get("deadlineZone") != null ? e.get("deadlineZone").toString() : null;
+        String calendar = e.get("deadlineCalendar") != null ? e.get("deadlineCalendar").toString() : null;
+        return lenient
+                ? deadlineCompiler.compileOrNone(maxLatencySec, absoluteDeadline, zone, calendar)
+                : deadlineCompiler.compile(maxLatencySec, absoluteDeadline, zone, calendar);
+    }
+
+    public Optional<NodeDescriptor> nodeForEvent(String eventType) {
+        return Optional.ofNullable(nodesByEventType.get(eventType));
+    }
+
+    public List<OutgoingEdge> outgoingEdges(int nodeId) {
+        return outgoingById[nodeId];
+    }
+
+    public boolean hasOptionalInbound(int nodeId) {
+        return optionalInbound[nodeId];
+    }
+
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    /**
+     * Dense id of a node key, or -1 if the version has no such node.
+     */
+    public int nodeId(String nodeKey) {
+        NodeDescriptor node = nodesByKey.get(nodeKey);
+        return node != null ? node.id() : -1;
+    }
+
+    public String nodeKey(int nodeId) {
+        return nodes[nodeId].nodeKey();
+    }
+
+    public Set<String> nodeKeys() {
+        return nodesByKey.keySet();
+    }
+
+    /**
+     * Per-node counts indexed by node id, labelled with this graph's node keys; the array is not copied.
+     */
+    public NodeCounts nodeCounts(int[] countsByNodeId) {
+        return new NodeCounts(nodeKeyTable, countsByNodeId);
+    }
+}
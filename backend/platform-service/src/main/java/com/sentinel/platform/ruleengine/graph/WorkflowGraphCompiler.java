@@ -0,0 +1,58 @@
+package com.sentinel.platform.ruleengine.graph;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import com.sentinel.platform.ruleconfig.model.WorkflowVersion;
+import com.sentinel.platform.ruleconfig.repository.WorkflowVersionRepository;
+import com.sentinel.platform.ruleengine.deadline.DeadlineCompiler;
+
+@Component
+public class WorkflowGraphCompiler {
+    /**
+     * Compiles workflow version definitions into {@link CompiledWorkflowGraph}s and caches them by
+     * version id; published versions are immutable, so entries never go stale. Stored versions are
+     * compiled with lenient deadlines, inline graphs (simulations) strictly.
+     */
+    private final WorkflowVersionRepository workflowVersionRepository;
+    private final ObjectMapper objectMapper;
+    private final DeadlineCompiler deadlineCompiler;
+    private final Map<Long, CompiledWorkflowGraph> cache = new ConcurrentHashMap<>();
+
+    public WorkflowGraphCompiler(WorkflowVersionRepository workflowVersionRepository,
+                                 ObjectMapper objectMapper,
+                                 DeadlineCompiler deadlineCompiler) {
+        this.workflowVersionRepository = workflowVersionRepository;
+        this.objectMapper = objectMapper;
+        this.deadlineCompiler = deadlineCompiler;
+    }
+
+    public CompiledWorkflowGraph forVersion(long workflowVersionId) {
+        return cache.computeIfAbsent(workflowVersionId, id -> {
+            WorkflowVersion version = workflowVersionRepository.findById(id)
+                    .orElseThrow(() -> new IllegalArgumentException("unknown workflow version " + id));
+            return compile(version.getDefinitionJson());
+        });
+    }
+
+    public CompiledWorkflowGraph compile(Map<String, Object> graph) {
+        return CompiledWorkflowGraph.fromDefinition(graph, deadlineCompiler, false);
+    }
+
+    private CompiledWorkflowGraph compile(String definitionJson) {
+        if (definitionJson == null) {
+            return CompiledWorkflowGraph.fromDefinition(Map.of(), deadlineCompiler, true);
+        }
+        try {
+            return CompiledWorkflowGraph.fromDefinition(objectMapper.readValue(definitionJson, new TypeReference<Map<String, Object>>() {}), deadlineCompiler, true);
+        } catch (IllegalArgumentException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("invalid graph definition", ex);
+        }
+    }
+}
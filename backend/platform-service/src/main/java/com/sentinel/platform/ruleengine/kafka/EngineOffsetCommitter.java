@@ -0,0 +1,86 @@
+package com.sentinel.platform.ruleengine.kafka;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.sentinel.platform.ruleengine.config.RuleEngineProperties;
+import com.sentinel.platform.ruleengine.state.AppliedOffsets;
+
+@Component
+public class EngineOffsetCommitter {
+    /**
+     * Commits the normalized topic's offsets at the {@link AppliedOffsets} watermark rather than at the
+     * last record handed to the bulkheads, so a record is only committed once it and every record before
+     * it in its partition have been evaluated; anything queued or running when the node dies is
+     * redelivered. All methods run on the consumer thread that owns {@code consumer}.
+     */
+    private static final Logger log = LoggerFactory.getLogger(EngineOffsetCommitter.class);
+
+    private final RuleEngineProperties properties;
+    private final AppliedOffsets appliedOffsets;
+    private final Map<TopicPartition, Commit> lastCommits = new ConcurrentHashMap<>();
+
+    public EngineOffsetCommitter(RuleEngineProperties properties, AppliedOffsets appliedOffsets) {
+        this.properties = properties;
+        this.appliedOffsets = appliedOffsets;
+    }
+
+    /**
+     * Commits asynchronously the partitions whose watermark moved and were last committed longer than
+     * {@code ruleengine.offset-commit-interval-millis} ago.
+     */
+    public void commitIfDue(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        long now = System.currentTimeMillis();
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            long watermark = appliedOffsets.watermark(partition.partition());
+            Commit last = lastCommits.get(partition);
+            if (watermark >= 0 && (last == null || (watermark > last.offset()
+                    && now - last.at() >= properties.getOffsetCommitIntervalMillis()))) {
+                offsets.put(partition, new OffsetAndMetadata(watermark));
+                lastCommits.put(partition, new Commit(watermark, now));
+            }
+        }
+        if (!offsets.isEmpty()) {
+            consumer.commitAsync(offsets, (committed, ex) -> {
+                if (ex != null) {
+                    // The next commit covers these partitions again once their watermark moves.
+                    log.warn("Engine offset commit failed offsets={}", committed, ex);
+                }
+            });
+        }
+    }
+
+    /**
+     * Commits the current watermark of {@code partitions} synchronously, e.g. before they are revoked.
+     */
+    public void commitNow(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            long watermark = appliedOffsets.watermark(partition.partition());
+            if (watermark >= 0) {
+                offsets.put(partition, new OffsetAndMetadata(watermark));
+            }
+        }
+        if (!offsets.isEmpty()) {
+            consumer.commitSync(offsets);
+            log.info("Engine offsets committed offsets={}", offsets);
+        }
+    }
+
+    public void forget(Collection<TopicPartition> partitions) {
+        partitions.forEach(lastCommits::remove);
+    }
+
+    private record Commit(long offset, long at) {
+    }
+}
@@ -0,0 +1,94 @@
+package com.sentinel.platform.ruleengine.kafka;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.sentinel.platform.ruleengine.service.EvaluationScheduler;
+import com.sentinel.platform.ruleengine.state.AppliedOffsets;
+
+@Component
+public class PartitionBackpressure {
+    /**
+     * Holds back normalized-topic partitions whose next event was refused by a full bulkhead. The
+     * partition is paused and rewound to the refused record, so the consumer keeps polling (and the
+     * other partitions, whose events may go to other bulkheads, keep flowing) while the refused record
+     * and everything after it wait in Kafka rather than on the listener thread. Records of the rewound
+     * partition that were already fetched are skipped and read again after the resume. All methods run
+     * on the consumer thread that owns {@code consumer}.
+     */
+    private static final Logger log = LoggerFactory.getLogger(PartitionBackpressure.class);
+
+    private final EvaluationScheduler evaluationScheduler;
+    private final AppliedOffsets appliedOffsets;
+    private final Map<TopicPartition, String> paused = new ConcurrentHashMap<>();
+    private final Set<TopicPartition> rewound = ConcurrentHashMap.newKeySet();
+
+    public PartitionBackpressure(EvaluationScheduler evaluationScheduler, AppliedOffsets appliedOffsets) {
+        this.evaluationScheduler = evaluationScheduler;
+        this.appliedOffsets = appliedOffsets;
+    }
+
+    /**
+     * Pauses {@code partition} and rewinds it to {@code offset}, the record {@code bulkhead} refused.
+     */
+    public void hold(Consumer<?, ?> consumer, TopicPartition partition, long offset, String bulkhead) {
+        appliedOffsets.withdrawn(partition.partition(), offset);
+        consumer.pause(List.of(partition));
+        consumer.seek(partition, offset);
+        paused.put(partition, bulkhead);
+        rewound.add(partition);
+        log.debug("Engine partition paused for full bulkhead partition={} offset={} bulkhead={}", partition, offset, bulkhead);
+    }
+
+    /**
+     * Whether {@code offset} was fetched before its partition was rewound and must be skipped: the
+     * partition is still paused, or the record lies at or past the rewound position, which only moves
+     * once the consumer fetches the partition again.
+     */
+    public boolean skip(Consumer<?, ?> consumer, TopicPartition partition, long offset) {
+        if (!rewound.contains(partition)) {
+            return false;
+        }
+        if (paused.containsKey(partition) || offset >= consumer.position(partition)) {
+            return true;
+        }
+        rewound.remove(partition);
+        return false;
+    }
+
+    /**
+     * Resumes the partitions of {@code consumer} whose bulkhead has room again.
+     */
+    public void resumeReady(Consumer<?, ?> consumer) {
+        if (paused.isEmpty()) {
+            return;
+        }
+        Set<TopicPartition> assignment = consumer.assignment();
+        List<TopicPartition> ready = new ArrayList<>();
+        paused.forEach((partition, bulkhead) -> {
+            if (assignment.contains(partition) && evaluationScheduler.hasRoom(bulkhead)) {
+                ready.add(partition);
+            }
+        });
+        if (!ready.isEmpty()) {
+            consumer.resume(ready);
+            ready.forEach(paused::remove);
+            log.debug("Engine partitions resumed partitions={}", ready);
+        }
+    }
+
+    public void forget(Collection<TopicPartition> partitions) {
+        partitions.forEach(paused::remove);
+        rewound.removeAll(partitions);
+    }
+}
@@ -1,41 +1,98 @@
 package com.sentinel.platform.ruleengine.kafka;
 
+import java.util.Optional;
+
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
 import com.sentinel.platform.ingestion.model.NormalizedEvent;
+import com.sentinel.platform.ruleengine.config.RuleEngineKafkaConfig;
+import com.sentinel.platform.ruleengine.service.EvaluationScheduler;
 import com.sentinel.platform.ruleengine.service.RuleEngineService;
+import com.sentinel.platform.ruleengine.state.AppliedOffsets;
 
 @Component
 public class RuleEngineListeners {
     private static final Logger log = LoggerFactory.getLogger(RuleEngineListeners.class);
+    static final String NORMALIZED_LISTENER_ID = "rule-engine-normalized";
 
     private final RuleEngineService ruleEngineService;
+    private final EvaluationScheduler evaluationScheduler;
+    private final AppliedOffsets appliedOffsets;
+    private final EngineOffsetCommitter offsetCommitter;
+    private final PartitionBackpressure backpressure;
     private final ObjectMapper objectMapper;
 
-    public RuleEngineListeners(RuleEngineService ruleEngineService, ObjectMapper objectMapper) {
+    public RuleEngineListeners(RuleEngineService ruleEngineService,
+                               EvaluationScheduler evaluationScheduler,
+                               AppliedOffsets appliedOffsets,
+                               EngineOffsetCommitter offsetCommitter,
+                               PartitionBackpressure backpressure,
+                               ObjectMapper objectMapper) {
         this.ruleEngineService = ruleEngineService;
+        this.evaluationScheduler = evaluationScheduler;
+        this.appliedOffsets = appliedOffsets;
+        this.offsetCommitter = offsetCommitter;
+        this.backpressure = backpressure;
         this.objectMapper = objectMapper;
     }
 
-    @KafkaListener(topics = "${ruleengine.normalized-topic}", groupId = "${RAW_CONSUMER_GROUP:platform-service}-engine")
-    public void onNormalized(ConsumerRecord<String, String> record, @Header(KafkaHeaders.RECEIVED_TIMESTAMP) Long ts) {
+    /**
+     * Hands the event to the bulkheads and commits offsets only up to the applied watermark; the container
+     * itself never commits (see {@link RuleEngineKafkaConfig}). An event refused by a full bulkhead pauses
+     * its partition (see {@link PartitionBackpressure}) rather than blocking this thread.
+     */
+    @KafkaListener(id = NORMALIZED_LISTENER_ID, idIsGroup = false, containerFactory = RuleEngineKafkaConfig.ENGINE_CONTAINER_FACTORY,
+            topics = "${ruleengine.normalized-topic}", groupId = "${RAW_CONSUMER_GROUP:platform-service}-engine")
+    public void onNormalized(ConsumerRecord<String, String> record, @Header(KafkaHeaders.RECEIVED_TIMESTAMP) Long ts,
+                             Consumer<?, ?> consumer) {
+        int partition = record.partition();
+        long offset = record.offset();
+        TopicPartition topicPartition = new TopicPartition(record.topic(), partition);
+        backpressure.resumeReady(consumer);
+        if (backpressure.skip(consumer, topicPartition, offset)) {
+            return;
+        }
+        appliedOffsets.dispatched(partition, offset);
+        boolean dispatched = false;
         try {
             NormalizedEvent event = objectMapper.readValue(record.value(), NormalizedEvent.class);
             if (event.getReceivedAt() == null && ts != null) {
                 event.setReceivedAt(java.time.Instant.ofEpochMilli(ts));
             }
-            log.info("Rule engine received normalized event correlationKey={} eventType={}", event.getCorrelationKey(), event.getEventType());
-            ruleEngineService.handleNormalizedEvent(event);
+            log.debug("Rule engine received normalized event correlationKey={} eventType={}", event.getCorrelationKey(), event.getEventType());
+            Optional<String> fullBulkhead = ruleEngineService.dispatchNormalizedEvent(event, evaluationScheduler,
+                    () -> appliedOffsets.applied(partition, offset));
+            dispatched = true;
+            fullBulkhead.ifPresent(bulkhead -> backpressure.hold(consumer, topicPartition, offset, bulkhead));
         } catch (Exception ex) {
             log.error("Failed to handle normalized event", ex);
+        } finally {
+            if (!dispatched) {
+                appliedOffsets.applied(partition, offset);
+            }
         }
+        offsetCommitter.commitIfDue(consumer, consumer.assignment());
+    }
+
+    /**
+     * Keeps committing while the topic is quiet, as the evaluations queued before it went quiet finish,
+     * and resumes paused partitions when every partition of the consumer is paused.
+     */
+    @EventListener(condition = "event.listenerId.startsWith('" + NORMALIZED_LISTENER_ID + "')")
+    public void onNormalizedIdle(ListenerContainerIdleEvent event) {
+        backpressure.resumeReady(event.getConsumer());
+        offsetCommitter.commitIfDue(event.getConsumer(), event.getTopicPartitions());
     }
 
     @KafkaListener(topics = "${ruleengine.synthetic-topic}", groupId = "${RAW_CONSUMER_GROUP:platform-service}-engine")
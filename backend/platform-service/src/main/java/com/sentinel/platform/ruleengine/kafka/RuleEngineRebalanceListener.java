@@ -0,0 +1,123 @@
+package com.sentinel.platform.ruleengine.kafka;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import com.sentinel.platform.aggregation.state.HotspotTracker;
+import com.sentinel.platform.ruleengine.config.RuleEngineProperties;
+import com.sentinel.platform.ruleengine.state.AppliedOffsets;
+import com.sentinel.platform.ruleengine.state.PartitionOwnership;
+import com.sentinel.platform.ruleengine.state.RunStateSnapshotService;
+
+@Component
+public class RuleEngineRebalanceListener implements ConsumerAwareRebalanceListener {
+    /**
+     * Picked up by the default listener container factory, so it sees every container's rebalances;
+     * only partitions of the normalized topic are passed on, to keep partition ownership (and with it the
+     * timers this node fires) and the run state cache in step with the partitions this node consumes.
+     * Before revoked partitions are handed over (including when the container stops), their queued and
+     * running evaluations are drained and the applied watermark committed, so the next owner neither
+     * skips records that were never evaluated nor re-evaluates them while this node still is.
+     */
+    private static final Logger log = LoggerFactory.getLogger(RuleEngineRebalanceListener.class);
+
+    private final RuleEngineProperties properties;
+    private final PartitionOwnership partitionOwnership;
+    private final RunStateSnapshotService runStateSnapshots;
+    private final AppliedOffsets appliedOffsets;
+    private final EngineOffsetCommitter offsetCommitter;
+    private final HotspotTracker hotspotTracker;
+    private final PartitionBackpressure backpressure;
+
+    public RuleEngineRebalanceListener(RuleEngineProperties properties,
+                                       PartitionOwnership partitionOwnership,
+                                       RunStateSnapshotService runStateSnapshots,
+                                       AppliedOffsets appliedOffsets,
+                                       EngineOffsetCommitter offsetCommitter,
+                                       HotspotTracker hotspotTracker,
+                                       PartitionBackpressure backpressure) {
+        this.properties = properties;
+        this.partitionOwnership = partitionOwnership;
+        this.runStateSnapshots = runStateSnapshots;
+        this.appliedOffsets = appliedOffsets;
+        this.offsetCommitter = offsetCommitter;
+        this.hotspotTracker = hotspotTracker;
+        this.backpressure = backpressure;
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        List<TopicPartition> assigned = normalized(partitions);
+        if (assigned.isEmpty()) {
+            return;
+        }
+        partitionOwnership.assigned(consumer.partitionsFor(properties.getNormalizedTopic()).size(), ids(assigned));
+        log.info("Engine partitions assigned partitions={} partitionCount={}", ids(assigned), partitionOwnership.partitionCount());
+        for (TopicPartition partition : assigned) {
+            appliedOffsets.reset(partition.partition(), consumer.position(partition));
+        }
+        runStateSnapshots.partitionsAssigned(consumer, assigned);
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        List<TopicPartition> revoked = normalized(partitions);
+        if (revoked.isEmpty()) {
+            return;
+        }
+        // The listener thread is in this callback, so nothing new is dispatched to these partitions.
+        try {
+            if (!appliedOffsets.awaitApplied(ids(revoked), TimeUnit.SECONDS.toMillis(properties.getRevokeDrainSeconds()))) {
+                log.warn("Engine partitions revoked with evaluations still running; committing their applied watermark partitions={}",
+                        ids(revoked));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            offsetCommitter.commitNow(consumer, revoked);
+        } catch (RuntimeException ex) {
+            log.warn("Engine offset commit on revocation failed partitions={}", ids(revoked), ex);
+        }
+    }
+
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        revoked(normalized(partitions));
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        revoked(normalized(partitions));
+    }
+
+    private void revoked(List<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        // Stop firing the partitions' timers before anything else; the next owner takes them over.
+        partitionOwnership.revoked(ids(partitions));
+        int hotspotsDropped = hotspotTracker.revoked(ids(partitions), partitionOwnership.partitionCount());
+        log.info("Engine partitions revoked partitions={} overdueHotspotsDropped={}", ids(partitions), hotspotsDropped);
+        runStateSnapshots.partitionsRevoked(partitions);
+        partitions.forEach(partition -> appliedOffsets.remove(partition.partition()));
+        offsetCommitter.forget(partitions);
+        backpressure.forget(partitions);
+    }
+
+    private static List<Integer> ids(List<TopicPartition> partitions) {
+        return partitions.stream().map(TopicPartition::partition).toList();
+    }
+
+    private List<TopicPartition> normalized(Collection<TopicPartition> partitions) {
+        return partitions.stream().filter(partition -> partition.topic().equals(properties.getNormalizedTopic())).toList();
+    }
+}
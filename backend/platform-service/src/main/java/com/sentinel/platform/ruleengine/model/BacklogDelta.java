@@ -0,0 +1,10 @@
+package com.sentinel.platform.ruleengine.model;
+
+import java.time.Instant;
+
+/**
+ * Change in the outstanding occurrences a node waits for, by the due time of the expectations concerned:
+ * positive when expectations are created, negative when arrivals clear them or run completion cancels them.
+ */
+public record BacklogDelta(String nodeKey, Instant dueAt, int delta) {
+}
@@ -0,0 +1,61 @@
+package com.sentinel.platform.ruleengine.model;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * Per-node counts as the rule engine computes them: indexed by the dense node ids of one compiled graph,
+ * next to that graph's node key table (shared, not copied). Only non-zero entries count; they are
+ * written to JSON as an object by node key without building a map first.
+ */
+@JsonSerialize(using = NodeCounts.Serializer.class)
+public final class NodeCounts {
+    private final String[] nodeKeys;
+    private final int[] counts;
+
+    public NodeCounts(String[] nodeKeys, int[] counts) {
+        this.nodeKeys = nodeKeys;
+        this.counts = counts;
+    }
+
+    public void forEach(ObjIntConsumer<String> action) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                action.accept(nodeKeys[i], counts[i]);
+            }
+        }
+    }
+
+    public Map<String, Integer> toMap() {
+        Map<String, Integer> byKey = new LinkedHashMap<>();
+        forEach(byKey::put);
+        return byKey;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("{");
+        forEach((nodeKey, count) -> text.append(text.length() > 1 ? ", " : "").append(nodeKey).append('=').append(count));
+        return text.append('}').toString();
+    }
+
+    static final class Serializer extends JsonSerializer<NodeCounts> {
+        @Override
+        public void serialize(NodeCounts value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < value.counts.length; i++) {
+                if (value.counts[i] != 0) {
+                    generator.writeNumberField(value.nodeKeys[i], value.counts[i]);
+                }
+            }
+            generator.writeEndObject();
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package com.sentinel.platform.ruleengine.model;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class RuleEvaluatedEvent {
     private long workflowVersionId;
@@ -16,10 +22,13 @@ public class RuleEvaluatedEvent {
     private int lateDelta;
     private int failedDelta;
     private Map<String, Integer> inFlightDeltas = new HashMap<>();
+    private NodeCounts inFlightCounts;
+    private List<BacklogDelta> backlogDeltas = new ArrayList<>();
     private String groupHash;
     private Map<String, Object> group;
     private Instant eventTime;
     private Instant receivedAt;
+    private Long stageLatencyMs;
 
     public long getWorkflowVersionId() {
         return workflowVersionId;
@@ -101,12 +110,49 @@ public class RuleEvaluatedEvent {
         this.failedDelta = failedDelta;
     }
 
+    /**
+     * In-flight deltas by node key. Events from the rule engine carry them as {@link NodeCounts}, which
+     * are turned into this map only on the first call; {@link #forEachInFlightDelta} reads either form.
+     */
+    @JsonIgnore
     public Map<String, Integer> getInFlightDeltas() {
+        if (inFlightCounts != null) {
+            inFlightDeltas = inFlightCounts.toMap();
+            inFlightCounts = null;
+        }
         return inFlightDeltas;
     }
 
+    @JsonProperty("inFlightDeltas")
+    private Object inFlightDeltasForJson() {
+        return inFlightCounts != null ? inFlightCounts : inFlightDeltas;
+    }
+
+    @JsonProperty("inFlightDeltas")
     public void setInFlightDeltas(Map<String, Integer> inFlightDeltas) {
         this.inFlightDeltas = inFlightDeltas;
+        this.inFlightCounts = null;
+    }
+
+    @JsonIgnore
+    public void setInFlightCounts(NodeCounts inFlightCounts) {
+        this.inFlightCounts = inFlightCounts;
+    }
+
+    public void forEachInFlightDelta(ObjIntConsumer<String> action) {
+        if (inFlightCounts != null) {
+            inFlightCounts.forEach(action);
+        } else if (inFlightDeltas != null) {
+            inFlightDeltas.forEach(action::accept);
+        }
+    }
+
+    public List<BacklogDelta> getBacklogDeltas() {
+        return backlogDeltas;
+    }
+
+    public void setBacklogDeltas(List<BacklogDelta> backlogDeltas) {
+        this.backlogDeltas = backlogDeltas;
     }
 
     public String getGroupHash() {
@@ -140,4 +186,12 @@ public class RuleEvaluatedEvent {
     public void setReceivedAt(Instant receivedAt) {
         this.receivedAt = receivedAt;
     }
+
+    public Long getStageLatencyMs() {
+        return stageLatencyMs;
+    }
+
+    public void setStageLatencyMs(Long stageLatencyMs) {
+        this.stageLatencyMs = stageLatencyMs;
+    }
 }
@@ -0,0 +1,41 @@
+package com.sentinel.platform.ruleengine.model;
+
+/**
+ * Run, expectation and alert severity, ordered from least to most severe. The lowercase
+ * {@link #wire()} form is what is stored and sent over the API.
+ */
+public enum Severity {
+    GREEN("green"),
+    AMBER("amber"),
+    RED("red");
+
+    private static final Severity[] VALUES = values();
+
+    private final String wire;
+
+    Severity(String wire) {
+        this.wire = wire;
+    }
+
+    public String wire() {
+        return wire;
+    }
+
+    /**
+     * Parses a stored or configured severity without allocating; blank and unknown values are amber.
+     */
+    public static Severity parse(String value) {
+        if (value != null) {
+            for (Severity severity : VALUES) {
+                if (severity.wire.equalsIgnoreCase(value)) {
+                    return severity;
+                }
+            }
+        }
+        return AMBER;
+    }
+
+    public static Severity max(Severity a, Severity b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+}
@@ -10,6 +10,8 @@ public class SyntheticMissedEvent {
     private Instant dueAt;
     private String severity;
     private String dedupeKey;
+    private int expectedCount = 1;
+    private int missingCount = 1;
 
     public long getExpectationId() {
         return expectationId;
@@ -66,4 +68,20 @@ public class SyntheticMissedEvent {
     public void setDedupeKey(String dedupeKey) {
         this.dedupeKey = dedupeKey;
     }
+
+    public int getExpectedCount() {
+        return expectedCount;
+    }
+
+    public void setExpectedCount(int expectedCount) {
+        this.expectedCount = expectedCount;
+    }
+
+    public int getMissingCount() {
+        return missingCount;
+    }
+
+    public void setMissingCount(int missingCount) {
+        this.missingCount = missingCount;
+    }
 }
@@ -3,12 +3,15 @@ package com.sentinel.platform.ruleengine.repository;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public class ExpectationRepository {
@@ -16,31 +19,57 @@ public class ExpectationRepository {
      * Scheduler-focused repository that uses JdbcTemplate for lightweight polling and updates.
      * Kept as JDBC because the SQL needs tight control over locking/ordering for due expectations.
      */
+    private static final String HISTORY_COLUMNS = "id, workflow_run_id, kafka_partition, from_node_key, to_node_key, origin_at, due_at, status, severity, "
+            + "expected_count, remaining_count, lock_owner, created_at, fired_at";
+
     private final JdbcTemplate jdbcTemplate;
 
     public ExpectationRepository(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
 
-    public List<ExpectationRow> claimDuePending(int limit, String owner) {
+    /**
+     * Claims due pending expectations that are not owned by a running replay (replays stamp their own
+     * expectations with a {@code lock_owner} and fire them on their virtual clock). Each row carries the
+     * occurrences still outstanding when it was claimed, which the miss reports as its shortfall. With
+     * {@code partitions} set, only expectations of runs in those normalized-topic partitions are claimed,
+     * plus any written before their partition was known; null claims across all partitions. The rows are
+     * locked until they are marked fired, and rows another node has locked are skipped, so two schedulers
+     * never fire the same expectation.
+     */
+    @Transactional
+    public List<ExpectationRow> claimDuePending(int limit, String owner, Collection<Integer> partitions) {
         Instant now = Instant.now();
+        List<Object> params = new ArrayList<>();
+        params.add(Timestamp.from(now.atZone(ZoneOffset.UTC).toInstant()));
+        String partitionFilter = "";
+        if (partitions != null && partitions.isEmpty()) {
+            partitionFilter = " and kafka_partition is null";
+        } else if (partitions != null) {
+            partitionFilter = " and (kafka_partition in (" + partitions.stream().map(p -> "?").collect(Collectors.joining(","))
+                    + ") or kafka_partition is null)";
+            params.addAll(partitions);
+        }
+        params.add(limit);
         List<ExpectationRow> rows = jdbcTemplate.query("""
-                        select id, workflow_run_id, from_node_key, to_node_key, due_at, severity
+                        select id, workflow_run_id, from_node_key, to_node_key, due_at, severity, expected_count, remaining_count
                         from expectation
-                        where status = 'pending' and due_at <= ?
+                        where status = 'pending' and due_at <= ? and lock_owner is null%s
                         order by due_at
                         limit ?
-                        """,
+                        for update skip locked
+                        """.formatted(partitionFilter),
                 (rs, rowNum) -> new ExpectationRow(
                         rs.getLong("id"),
                         rs.getLong("workflow_run_id"),
                         rs.getString("from_node_key"),
                         rs.getString("to_node_key"),
                         rs.getTimestamp("due_at").toInstant(),
-                        rs.getString("severity")
+                        rs.getString("severity"),
+                        rs.getInt("expected_count"),
+                        rs.getInt("remaining_count")
                 ),
-                Timestamp.from(now.atZone(ZoneOffset.UTC).toInstant()),
-                limit);
+                params.toArray());
         markFired(rows.stream().map(ExpectationRow::id).toList(), owner, now);
         return rows;
     }
@@ -52,10 +81,37 @@ public class ExpectationRepository {
         String placeholders = ids.stream().map(i -> "?").collect(Collectors.joining(","));
         List<Object> params = ids.stream().map(Long::valueOf).collect(Collectors.toList());
         jdbcTemplate.update(
-                "update expectation set status = 'fired', lock_owner = ?, fired_at = ? where id in (" + placeholders + ")",
+                "update expectation set status = 'fired', lock_owner = ?, fired_at = ? where status = 'pending' and id in (" + placeholders + ")",
                 concat(lockOwner, Timestamp.from(firedAt.atZone(ZoneOffset.UTC).toInstant()), params).toArray());
     }
 
+    /**
+     * Moves up to {@code limit} resolved expectations due before {@code horizon} into
+     * {@code expectation_history}, earliest first, and returns how many were moved. Only cleared and
+     * cancelled rows are final: a fired row still has occurrences to count, and late arrivals must find
+     * it to be recorded as late and to drain the in-flight and backlog counts; it becomes cleared when the
+     * last one arrives and cancelled when its run completes, and is compacted then.
+     */
+    @Transactional
+    public int moveResolvedToHistory(Instant horizon, int limit) {
+        List<Long> ids = jdbcTemplate.queryForList("""
+                        select id from expectation
+                        where status in ('cleared','cancelled') and due_at < ?
+                        order by due_at
+                        limit ?
+                        for update
+                        """,
+                Long.class, Timestamp.from(horizon.atZone(ZoneOffset.UTC).toInstant()), limit);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = ids.stream().map(i -> "?").collect(Collectors.joining(","));
+        jdbcTemplate.update("insert into expectation_history (" + HISTORY_COLUMNS + ") select " + HISTORY_COLUMNS
+                + " from expectation where status in ('cleared','cancelled') and id in (" + placeholders + ")", ids.toArray());
+        return jdbcTemplate.update("delete from expectation where status in ('cleared','cancelled') and id in (" + placeholders + ")",
+                ids.toArray());
+    }
+
     private List<Object> concat(Object first, Object second, List<?> rest) {
         List<Object> params = new java.util.ArrayList<>();
         params.add(first);
@@ -64,5 +120,6 @@ public class ExpectationRepository {
         return params;
     }
 
-    public record ExpectationRow(long id, long workflowRunId, String fromNodeKey, String toNodeKey, Instant dueAt, String severity) {}
+    public record ExpectationRow(long id, long workflowRunId, String fromNodeKey, String toNodeKey, Instant dueAt, String severity,
+                                 int expectedCount, int remainingCount) {}
 }
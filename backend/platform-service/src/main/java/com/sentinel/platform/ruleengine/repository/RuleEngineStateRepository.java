@@ -2,66 +2,181 @@ package com.sentinel.platform.ruleengine.repository;
 
 import java.sql.PreparedStatement;
 import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.stream.Collectors;
 
-import org.springframework.dao.EmptyResultDataAccessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
+import com.sentinel.platform.ruleengine.graph.CompiledWorkflowGraph;
+import com.sentinel.platform.ruleengine.graph.WorkflowGraphCompiler;
+import com.sentinel.platform.ruleengine.model.Severity;
+import com.sentinel.platform.ruleengine.state.PartitionOwnership;
+import com.sentinel.platform.ruleengine.state.RunStateCache;
+
 @Repository
-public class RuleEngineStateRepository {
+public class RuleEngineStateRepository implements RuleEngineStateStore {
     /**
      * JDBC-backed repository for rule engine runtime state. We keep JdbcTemplate here because the
      * flow performs multi-statement upserts/reads with database-side ordering that are awkward and
-     * performance-sensitive in JPA.
+     * performance-sensitive in JPA. Graph lookups (node for event type, outgoing edges) are served from
+     * the version's cached compiled graph rather than queried per event, and on the live tables run ids
+     * and duplicate checks are answered from {@link RunStateCache} once a run is warm.
+     */
+    private static final Logger log = LoggerFactory.getLogger(RuleEngineStateRepository.class);
+    private static final int CLEAR_ATTEMPTS = 5;
+    private static final int RUN_FLOOR_CACHE_SIZE = 100_000;
+    /**
+     * Slack below a run's start for its rows' partition columns: expectation {@code created_at} is the
+     * engine's clock and occurrence {@code received_at} the ingest clock, while {@code started_at} is the
+     * first event's own time. Partitions are daily, so the slack costs at most one more partition.
      */
+    private static final Duration ROW_FLOOR_SLACK = Duration.ofDays(1);
 
     private final JdbcTemplate jdbcTemplate;
+    private final WorkflowGraphCompiler graphCompiler;
+    private final RunStateCache runCache;
+    private final PartitionOwnership partitionOwnership;
+    private final String runTable;
+    private final String occurrenceTable;
+    private final String expectationTable;
+    private final String occurrenceKeyTable;
+    private final String expectationOwner;
+    private final Counter clearConflicts;
+    private final Map<Long, Instant> runFloors = Collections.synchronizedMap(new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Instant> eldest) {
+            return size() > RUN_FLOOR_CACHE_SIZE;
+        }
+    });
 
-    public RuleEngineStateRepository(JdbcTemplate jdbcTemplate) {
+    public RuleEngineStateRepository(JdbcTemplate jdbcTemplate,
+                                     WorkflowGraphCompiler graphCompiler,
+                                     RunStateCache runCache,
+                                     PartitionOwnership partitionOwnership,
+                                     MeterRegistry meterRegistry) {
+        this(jdbcTemplate, graphCompiler, runCache, partitionOwnership, "", null,
+                Counter.builder("ruleengine.expectation.clear.conflicts").register(meterRegistry));
+    }
+
+    private RuleEngineStateRepository(JdbcTemplate jdbcTemplate,
+                                      WorkflowGraphCompiler graphCompiler,
+                                      RunStateCache runCache,
+                                      PartitionOwnership partitionOwnership,
+                                      String tablePrefix,
+                                      String expectationOwner,
+                                      Counter clearConflicts) {
         this.jdbcTemplate = jdbcTemplate;
+        this.graphCompiler = graphCompiler;
+        this.runCache = runCache;
+        this.partitionOwnership = partitionOwnership;
+        this.runTable = tablePrefix + "workflow_run";
+        this.occurrenceTable = tablePrefix + "event_occurrence";
+        this.expectationTable = tablePrefix + "expectation";
+        // Only the partitioned live table needs the separate key table; the shadow copy keeps its unique key.
+        this.occurrenceKeyTable = "".equals(tablePrefix) ? "event_occurrence_key" : null;
+        this.expectationOwner = expectationOwner;
+        this.clearConflicts = clearConflicts;
+    }
+
+    /**
+     * Repository over the same SQL bound to another state set. {@code tablePrefix} selects the tables
+     * ({@code ""} for live, {@code "shadow_"} for the shadow set) and {@code expectationOwner}, when set,
+     * is stamped on new expectations as {@code lock_owner} so the live scheduler leaves them to the
+     * replay that created them. The live set shares the run state cache; the shadow set has none.
+     */
+    public RuleEngineStateRepository forStateSet(String tablePrefix, String expectationOwner) {
+        if (!"".equals(tablePrefix) && !"shadow_".equals(tablePrefix)) {
+            throw new IllegalArgumentException("Unknown state set prefix: " + tablePrefix);
+        }
+        return new RuleEngineStateRepository(jdbcTemplate, graphCompiler, "".equals(tablePrefix) ? runCache : null,
+                partitionOwnership, tablePrefix, expectationOwner, clearConflicts);
+    }
+
+    public String expectationTable() {
+        return expectationTable;
+    }
+
+    @Override
+    public CompiledWorkflowGraph graph(Long workflowVersionId) {
+        return graphCompiler.forVersion(workflowVersionId);
     }
 
+    @Override
     public Long findRunId(Long workflowVersionId, String correlationKey) {
+        Long cached = runCache != null ? runCache.runId(workflowVersionId, correlationKey) : null;
+        if (cached != null) {
+            return cached;
+        }
         try {
-            return jdbcTemplate.queryForObject(
-                    "select id from workflow_run where workflow_version_id = ? and correlation_key = ?",
-                    Long.class, workflowVersionId, correlationKey);
+            Long runId = jdbcTemplate.queryForObject(
+                    "select id, started_at from " + runTable + " where workflow_version_id = ? and correlation_key = ? and completed_at is null",
+                    (rs, rowNum) -> {
+                        long id = rs.getLong("id");
+                        runFloors.put(id, rowFloor(rs.getTimestamp("started_at").toInstant()));
+                        return id;
+                    }, workflowVersionId, correlationKey);
+            if (runId != null && runCache != null) {
+                runCache.putRun(workflowVersionId, correlationKey, runId, false);
+            }
+            return runId;
         } catch (Exception ex) {
             return null;
         }
     }
 
+    @Override
     public Long createRun(Long workflowVersionId, String correlationKey, String status, Instant startedAt, String groupJson) {
+        int partition = partitionOwnership.partitionOf(correlationKey);
         KeyHolder keyHolder = new GeneratedKeyHolder();
         jdbcTemplate.update(connection -> {
             PreparedStatement ps = connection.prepareStatement(
-                    "insert into workflow_run (workflow_version_id, correlation_key, group_dims, status, started_at, updated_at) values (?,?,?,?,?,?)",
+                    "insert into " + runTable + " (workflow_version_id, correlation_key, kafka_partition, group_dims, status, started_at, updated_at) values (?,?,?,?,?,?,?)",
                     new String[]{"id"});
             ps.setLong(1, workflowVersionId);
             ps.setString(2, correlationKey);
-            ps.setString(3, groupJson);
-            ps.setString(4, status);
-            ps.setTimestamp(5, Timestamp.from(startedAt.atZone(ZoneOffset.UTC).toInstant()));
+            ps.setObject(3, partition >= 0 ? partition : null, Types.INTEGER);
+            ps.setString(4, groupJson);
+            ps.setString(5, status);
             ps.setTimestamp(6, Timestamp.from(startedAt.atZone(ZoneOffset.UTC).toInstant()));
+            ps.setTimestamp(7, Timestamp.from(startedAt.atZone(ZoneOffset.UTC).toInstant()));
             return ps;
         }, keyHolder);
-        return keyHolder.getKey().longValue();
+        long runId = keyHolder.getKey().longValue();
+        runFloors.put(runId, rowFloor(startedAt));
+        if (runCache != null) {
+            runCache.putRun(workflowVersionId, correlationKey, runId, true);
+        }
+        return runId;
     }
 
+    @Override
     public void updateRun(Long runId, String status, Instant updatedAt, String lastNodeKey) {
-        jdbcTemplate.update("update workflow_run set status = ?, updated_at = ?, last_node_key = ? where id = ?",
+        jdbcTemplate.update("update " + runTable + " set status = ?, updated_at = ?, last_node_key = ? where id = ?",
                 status,
                 Timestamp.from(updatedAt.atZone(ZoneOffset.UTC).toInstant()),
                 lastNodeKey,
                 runId);
     }
 
+    @Override
     public void saveOccurrence(Long runId,
                                String nodeKey,
                                String eventId,
@@ -72,125 +187,268 @@ public class RuleEngineStateRepository {
                                boolean isDuplicate,
                                boolean orderViolation,
                                Long rawEventId) {
-        jdbcTemplate.update(
-                "insert into event_occurrence (workflow_run_id, node_key, event_id, event_time_utc, received_at, payload_excerpt, is_late, is_duplicate, order_violation, raw_event_id) values (?,?,?,?,?,?,?,?,?,?)",
-                runId,
-                nodeKey,
-                eventId,
-                Timestamp.from(eventTimeUtc.atZone(ZoneOffset.UTC).toInstant()),
-                Timestamp.from(receivedAt.atZone(ZoneOffset.UTC).toInstant()),
-                payloadExcerpt,
-                isLate,
-                isDuplicate,
-                orderViolation,
-                rawEventId
-        );
-    }
-
-    public java.util.List<OutgoingEdge> fetchOutgoingEdges(Long workflowVersionId, String fromNodeKey) {
-        return jdbcTemplate.query("""
-                select wn_to.node_key as to_node_key, we.max_latency_sec, we.severity, we.absolute_deadline, we.optional, we.expected_count
-                from workflow_node wn_from
-                join workflow_edge we on we.from_node_id = wn_from.id
-                join workflow_node wn_to on we.to_node_id = wn_to.id
-                where wn_from.workflow_version_id = ? and wn_from.node_key = ?
-                """, (rs, rowNum) -> new OutgoingEdge(
-                rs.getString("to_node_key"),
-                rs.getInt("max_latency_sec"),
-                rs.getString("severity"),
-                rs.getString("absolute_deadline"),
-                rs.getBoolean("optional"),
-                (Integer) rs.getObject("expected_count")
-        ), workflowVersionId, fromNodeKey);
+        boolean claimKey = occurrenceKeyTable != null && eventId != null;
+        if (claimKey && jdbcTemplate.update("insert ignore into " + occurrenceKeyTable + " (workflow_run_id, event_id, received_at) values (?,?,?)",
+                runId, eventId, Timestamp.from(receivedAt)) == 0) {
+            throw new DuplicateKeyException("Occurrence already recorded runId=" + runId + " eventId=" + eventId);
+        }
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update(
+                    "insert into " + occurrenceTable + " (workflow_run_id, node_key, event_id, event_time_utc, received_at, payload_excerpt, is_late, is_duplicate, order_violation, raw_event_id) "
+                            + "select id, ?, ?, ?, ?, ?, ?, ?, ?, ? from " + runTable + " where id = ?",
+                    nodeKey,
+                    eventId,
+                    Timestamp.from(eventTimeUtc.atZone(ZoneOffset.UTC).toInstant()),
+                    Timestamp.from(receivedAt.atZone(ZoneOffset.UTC).toInstant()),
+                    payloadExcerpt,
+                    isLate,
+                    isDuplicate,
+                    orderViolation,
+                    rawEventId,
+                    runId
+            );
+        } catch (RuntimeException ex) {
+            releaseOccurrenceKey(claimKey, runId, eventId);
+            throw ex;
+        }
+        if (inserted == 0) {
+            releaseOccurrenceKey(claimKey, runId, eventId);
+            throw new DataIntegrityViolationException("Occurrence references missing workflow run runId=" + runId);
+        }
+        if (runCache != null && eventId != null) {
+            runCache.markSeen(runId, eventId);
+        }
+    }
+
+    private void releaseOccurrenceKey(boolean claimed, Long runId, String eventId) {
+        if (claimed) {
+            jdbcTemplate.update("delete from " + occurrenceKeyTable + " where workflow_run_id = ? and event_id = ?", runId, eventId);
+        }
     }
 
+    /**
+     * Clears one arrival against the earliest open expectation of {@code toNodeKey}. The decrement is a
+     * compare-and-set on the count that was read, so the returned remaining count is the row's new value;
+     * a concurrent clear of the same row makes the update miss and the row is read again.
+     */
+    @Override
     public List<ExpectationRecord> clearExpectations(Long runId, String toNodeKey, Instant receivedAtUtc) {
-        var due = jdbcTemplate.query("""
-                select id, due_at, severity, status
-                from expectation
-                where workflow_run_id = ? and to_node_key = ? and status in ('pending','fired')
-                order by due_at
-                limit 1
-                """, (rs, rowNum) -> new ExpectationRecord(
-                rs.getLong("id"),
-                rs.getTimestamp("due_at").toInstant(),
-                rs.getString("severity"),
-                rs.getString("status")
-        ), runId, toNodeKey);
-        if (due.isEmpty()) {
-            return java.util.List.of();
-        }
-        jdbcTemplate.update("""
-                update expectation
-                set status = 'cleared', lock_owner = null
-                where id = ?
-                """, due.get(0).id());
-        return due;
+        Timestamp rowsFrom = rowsFrom(runId);
+        Timestamp[] createdAt = new Timestamp[1];
+        for (int attempt = 0; attempt < CLEAR_ATTEMPTS; attempt++) {
+            var due = jdbcTemplate.query("""
+                    select id, origin_at, due_at, severity, status, remaining_count, created_at
+                    from %s
+                    where workflow_run_id = ? and to_node_key = ? and status in ('pending','fired') and created_at >= ?
+                    order by due_at
+                    limit 1
+                    """.formatted(expectationTable), (rs, rowNum) -> {
+                createdAt[0] = rs.getTimestamp("created_at");
+                return new ExpectationRecord(
+                        rs.getLong("id"),
+                        rs.getTimestamp("origin_at") != null ? rs.getTimestamp("origin_at").toInstant() : null,
+                        rs.getTimestamp("due_at").toInstant(),
+                        Severity.parse(rs.getString("severity")),
+                        rs.getString("status"),
+                        rs.getInt("remaining_count") - 1);
+            }, runId, toNodeKey, rowsFrom);
+            if (due.isEmpty()) {
+                return List.of();
+            }
+            ExpectationRecord record = due.get(0);
+            // Assignments apply left to right, so status and lock_owner see the count before the decrement.
+            int updated = jdbcTemplate.update("""
+                    update %s
+                    set status = if(remaining_count <= 1, 'cleared', status),
+                        lock_owner = if(remaining_count <= 1, null, lock_owner),
+                        remaining_count = remaining_count - 1
+                    where id = ? and created_at = ? and remaining_count = ? and status = ?
+                    """.formatted(expectationTable), record.id(), createdAt[0], record.remaining() + 1, record.status());
+            if (updated == 1) {
+                return due;
+            }
+        }
+        clearConflicts.increment();
+        log.warn("Expectation clear kept conflicting; arrival not counted runId={} toNodeKey={} attempts={}",
+                runId, toNodeKey, CLEAR_ATTEMPTS);
+        return List.of();
     }
 
-    public void createExpectation(Long runId, String fromNodeKey, String toNodeKey, Instant dueAt, String severity) {
-        jdbcTemplate.update("insert into expectation (workflow_run_id, from_node_key, to_node_key, due_at, status, severity, created_at) values (?,?,?,?,?,?,?)",
-                runId,
+    @Override
+    public void createExpectation(Long runId, String fromNodeKey, String toNodeKey, Instant originAt, Instant dueAt, Severity severity, int expectedCount) {
+        // The run's partition is copied so the scheduler can pick a node's timers without a join.
+        jdbcTemplate.update("insert into " + expectationTable + " (workflow_run_id, kafka_partition, from_node_key, to_node_key, origin_at, due_at, status, severity, expected_count, remaining_count, lock_owner, created_at) "
+                        + "select id, kafka_partition, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? from " + runTable + " where id = ?",
                 fromNodeKey,
                 toNodeKey,
+                Timestamp.from(originAt.atZone(ZoneOffset.UTC).toInstant()),
                 Timestamp.from(dueAt.atZone(ZoneOffset.UTC).toInstant()),
                 "pending",
-                severity,
-                Timestamp.from(Instant.now().atZone(ZoneOffset.UTC).toInstant()));
+                severity.wire(),
+                expectedCount,
+                expectedCount,
+                expectationOwner,
+                Timestamp.from(Instant.now().atZone(ZoneOffset.UTC).toInstant()),
+                runId);
     }
 
-    public Optional<NodeDescriptor> findNodeForEvent(Long workflowVersionId, String eventType) {
-        try {
-            return Optional.ofNullable(jdbcTemplate.queryForObject("""
-                    select node_key, is_start, is_terminal
-                    from workflow_node
-                    where workflow_version_id = ? and event_type = ?
-                    """, (rs, rowNum) -> new NodeDescriptor(
-                    rs.getString("node_key"),
-                    rs.getBoolean("is_start"),
-                    rs.getBoolean("is_terminal")
-            ), workflowVersionId, eventType));
-        } catch (EmptyResultDataAccessException ex) {
-            return Optional.empty();
+    @Override
+    public List<CancelledExpectation> completeRun(Long runId, Instant completedAt) {
+        int completed = jdbcTemplate.update("update " + runTable + " set completed_at = ? where id = ? and completed_at is null",
+                Timestamp.from(completedAt.atZone(ZoneOffset.UTC).toInstant()),
+                runId);
+        if (completed == 0) {
+            return List.of();
+        }
+        if (runCache != null) {
+            runCache.evictRun(runId);
+        }
+        Timestamp rowsFrom = rowsFrom(runId);
+        List<CancelledExpectation> outstanding = jdbcTemplate.query("""
+                select to_node_key, due_at, remaining_count
+                from %s
+                where workflow_run_id = ? and status in ('pending','fired') and remaining_count > 0 and created_at >= ?
+                """.formatted(expectationTable),
+                (rs, rowNum) -> new CancelledExpectation(rs.getString("to_node_key"), rs.getTimestamp("due_at").toInstant(),
+                        rs.getInt("remaining_count")), runId, rowsFrom);
+        if (!outstanding.isEmpty()) {
+            jdbcTemplate.update("""
+                    update %s
+                    set status = 'cancelled', lock_owner = null
+                    where workflow_run_id = ? and status in ('pending','fired') and created_at >= ?
+                    """.formatted(expectationTable), runId, rowsFrom);
+        }
+        runFloors.remove(runId);
+        return outstanding;
+    }
+
+    /**
+     * Preloads the run state cache with up to {@code limit} of the most recently updated unfinished runs
+     * of {@code partition}, which must be active in the cache, and returns how many were loaded.
+     */
+    public int warmRunCache(int partition, int limit) {
+        if (runCache == null || limit <= 0) {
+            return 0;
+        }
+        List<WarmRun> runs = jdbcTemplate.query("""
+                select id, workflow_version_id, correlation_key, started_at
+                from %s
+                where kafka_partition = ? and completed_at is null
+                order by updated_at desc
+                limit ?
+                """.formatted(runTable), (rs, rowNum) -> new WarmRun(
+                rs.getLong("id"),
+                rs.getLong("workflow_version_id"),
+                rs.getString("correlation_key"),
+                rs.getTimestamp("started_at").toInstant()
+        ), partition, limit);
+        runs.forEach(run -> runFloors.put(run.runId(), rowFloor(run.startedAt())));
+        // Oldest first, so the most recently updated runs end up the most recently used.
+        for (int i = runs.size() - 1; i >= 0; i--) {
+            WarmRun run = runs.get(i);
+            runCache.putRun(run.workflowVersionId(), run.correlationKey(), run.runId(), false);
         }
+        return runs.size();
     }
 
+    @Override
     public boolean hasSeenEvent(Long runId, String eventId) {
         if (eventId == null) {
             return false;
         }
+        if (runCache != null) {
+            Boolean seen = runCache.hasSeen(runId, eventId);
+            if (seen != null) {
+                return seen;
+            }
+            if (runCache.isCached(runId)) {
+                List<String> eventIds = jdbcTemplate.queryForList(
+                        "select event_id from " + occurrenceTable + " where workflow_run_id = ? and event_id is not null and received_at >= ?",
+                        String.class, runId, rowsFrom(runId));
+                runCache.loadSeen(runId, eventIds);
+                return eventIds.contains(eventId);
+            }
+        }
         Integer count = jdbcTemplate.queryForObject(
-                "select count(*) from event_occurrence where workflow_run_id = ? and event_id = ?",
-                Integer.class, runId, eventId);
+                "select count(*) from " + occurrenceTable + " where workflow_run_id = ? and event_id = ? and received_at >= ?",
+                Integer.class, runId, eventId, rowsFrom(runId));
         return count != null && count > 0;
     }
 
+    @Override
     public RunContext loadRunContext(long runId) {
         return jdbcTemplate.queryForObject("""
                 select workflow_version_id, correlation_key, group_dims
-                from workflow_run
+                from %s
                 where id = ?
-                """, (rs, rowNum) -> new RunContext(
+                """.formatted(runTable), (rs, rowNum) -> new RunContext(
                 rs.getLong("workflow_version_id"),
                 rs.getString("correlation_key"),
                 rs.getString("group_dims")
         ), runId);
     }
 
-    public boolean hasOptionalInbound(Long workflowVersionId, String nodeKey) {
-        Integer count = jdbcTemplate.queryForObject("""
-                select count(*) from workflow_edge we
-                join workflow_node wn_to on we.to_node_id = wn_to.id
-                where wn_to.workflow_version_id = ? and wn_to.node_key = ? and we.optional = true
-                """, Integer.class, workflowVersionId, nodeKey);
-        return count != null && count > 0;
+    @Override
+    public Map<Long, RunContext> loadRunContexts(Collection<Long> runIds) {
+        if (runIds.isEmpty()) {
+            return Map.of();
+        }
+        String placeholders = runIds.stream().map(id -> "?").collect(Collectors.joining(","));
+        Map<Long, RunContext> contexts = new HashMap<>();
+        jdbcTemplate.query("""
+                select id, workflow_version_id, correlation_key, group_dims
+                from %s
+                where id in (%s)
+                """.formatted(runTable, placeholders),
+                rs -> {
+                    contexts.put(rs.getLong("id"), new RunContext(
+                            rs.getLong("workflow_version_id"),
+                            rs.getString("correlation_key"),
+                            rs.getString("group_dims")));
+                }, runIds.toArray());
+        return contexts;
     }
 
-    public record OutgoingEdge(String toNodeKey, Integer maxLatencySec, String severity, String absoluteDeadline, boolean optional, Integer expectedCount) {}
+    @Override
+    public void updateRuns(List<RunUpdate> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("update " + runTable + " set status = ?, updated_at = ?, last_node_key = ? where id = ?",
+                updates.stream().map(update -> new Object[]{
+                        update.status(),
+                        Timestamp.from(update.updatedAt().atZone(ZoneOffset.UTC).toInstant()),
+                        update.lastNodeKey(),
+                        update.runId()
+                }).toList());
+    }
 
-    public record ExpectationRecord(long id, Instant dueAt, String severity, String status) {}
+    /**
+     * Lower bound on the partition column ({@code created_at}, {@code received_at}) of the run's
+     * expectation and occurrence rows, so lookups by run prune the daily partitions before the run began
+     * instead of probing every one.
+     */
+    private Timestamp rowsFrom(long runId) {
+        Instant floor = runFloors.get(runId);
+        if (floor == null) {
+            List<Instant> startedAt = jdbcTemplate.queryForList("select started_at from " + runTable + " where id = ?",
+                    Timestamp.class, runId).stream().map(Timestamp::toInstant).toList();
+            // An unknown run has no rows to find; the epoch keeps the lookup correct anyway.
+            floor = startedAt.isEmpty() ? Instant.EPOCH : rowFloor(startedAt.get(0));
+            runFloors.put(runId, floor);
+        }
+        return Timestamp.from(floor);
+    }
 
-    public record NodeDescriptor(String nodeKey, boolean start, boolean terminal) {}
+    /**
+     * The run's start less {@link #ROW_FLOOR_SLACK}; a start ahead of this node's clock (a skewed source
+     * event time) counts from the clock instead.
+     */
+    private static Instant rowFloor(Instant startedAt) {
+        Instant now = Instant.now();
+        return (startedAt.isAfter(now) ? now : startedAt).minus(ROW_FLOOR_SLACK);
+    }
 
-    public record RunContext(long workflowVersionId, String correlationKey, String groupJson) {}
+    private record WarmRun(long runId, long workflowVersionId, String correlationKey, Instant startedAt) {}
 }
@@ -0,0 +1,99 @@
+package com.sentinel.platform.ruleengine.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.sentinel.platform.ruleengine.deadline.DeadlineCalculator;
+import com.sentinel.platform.ruleengine.graph.CompiledWorkflowGraph;
+import com.sentinel.platform.ruleengine.model.Severity;
+
+/**
+ * Runtime state the rule engine reads and writes while evaluating events: the compiled graph of a
+ * workflow version plus runs, occurrences and expectations. {@link RuleEngineStateRepository} is the MariaDB
+ * implementation; simulations evaluate against an in-memory one.
+ */
+public interface RuleEngineStateStore {
+
+    /**
+     * Compiled graph of a workflow version; also its symbol table, numbering node keys densely so the
+     * engine can index per-node state by int.
+     */
+    CompiledWorkflowGraph graph(Long workflowVersionId);
+
+    Long findRunId(Long workflowVersionId, String correlationKey);
+
+    Long createRun(Long workflowVersionId, String correlationKey, String status, Instant startedAt, String groupJson);
+
+    void updateRun(Long runId, String status, Instant updatedAt, String lastNodeKey);
+
+    void saveOccurrence(Long runId,
+                        String nodeKey,
+                        String eventId,
+                        Instant eventTimeUtc,
+                        Instant receivedAt,
+                        String payloadExcerpt,
+                        boolean isLate,
+                        boolean isDuplicate,
+                        boolean orderViolation,
+                        Long rawEventId);
+
+    /**
+     * Counts one arrival against the earliest-due pending or fired expectation for the node, returning
+     * it (or nothing). A counted expectation is cleared once its remaining count reaches zero.
+     */
+    List<ExpectationRecord> clearExpectations(Long runId, String toNodeKey, Instant receivedAtUtc);
+
+    /**
+     * Creates a single expectation for {@code expectedCount} occurrences of {@code toNodeKey}, raised by
+     * the {@code fromNodeKey} event at {@code originAt}.
+     */
+    void createExpectation(Long runId, String fromNodeKey, String toNodeKey, Instant originAt, Instant dueAt, Severity severity, int expectedCount);
+
+    /**
+     * Marks the run completed and cancels every expectation still pending or fired for it in one
+     * statement. Returns those expectations with the occurrences they were still waiting for, so the
+     * caller can release them from in-flight and backlog counts; empty if the run was already completed.
+     */
+    List<CancelledExpectation> completeRun(Long runId, Instant completedAt);
+
+    boolean hasSeenEvent(Long runId, String eventId);
+
+    RunContext loadRunContext(long runId);
+
+    /**
+     * Loads the contexts of several runs at once, keyed by run id; unknown ids are left out.
+     */
+    Map<Long, RunContext> loadRunContexts(Collection<Long> runIds);
+
+    /**
+     * Applies several {@link #updateRun} calls as one batch.
+     */
+    void updateRuns(List<RunUpdate> updates);
+
+    /**
+     * Edge of a compiled graph; {@code expectedCount} is at least 1.
+     */
+    record OutgoingEdge(int toNodeId, String toNodeKey, DeadlineCalculator deadline, Severity severity, boolean optional, int expectedCount) {}
+
+    /**
+     * An expectation an arrival was counted against; {@code remaining} is what it still waits for afterwards.
+     * {@code originAt} is the event time of the event that raised it, null for rows written before it was kept.
+     */
+    record ExpectationRecord(long id, Instant originAt, Instant dueAt, Severity severity, String status, int remaining) {}
+
+    /**
+     * An expectation cancelled by run completion while still waiting for {@code remaining} occurrences.
+     */
+    record CancelledExpectation(String toNodeKey, Instant dueAt, int remaining) {}
+
+    /**
+     * Node of a compiled graph; {@code id} is its dense index within the workflow version.
+     */
+    record NodeDescriptor(int id, String nodeKey, boolean start, boolean terminal) {}
+
+    record RunContext(long workflowVersionId, String correlationKey, String groupJson) {}
+
+    record RunUpdate(long runId, String status, Instant updatedAt, String lastNodeKey) {}
+}
@@ -0,0 +1,313 @@
+package com.sentinel.platform.ruleengine.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.sentinel.platform.ruleconfig.repository.WorkflowVersionRepository;
+import com.sentinel.platform.ruleengine.config.RuleEngineProperties;
+import com.sentinel.platform.ruleengine.config.RuleEngineProperties.BulkheadSettings;
+
+@Component
+public class EvaluationScheduler {
+    /**
+     * Runs rule evaluations off the Kafka listener thread in per-workflow bulkheads. Each workflow names a
+     * bulkhead ({@code workflow.bulkhead}, default {@code default}); each bulkhead has its own bounded
+     * queue, a concurrency cap and a weight. A shared pool of evaluation workers picks the next task by
+     * start-time fair queuing over the backlogged bulkheads, so a noisy bulkhead gets at most its weighted
+     * share of the workers while others have work, and never more than its concurrency cap (which is also
+     * its JDBC connection cap, since an evaluation holds one connection at a time). Within a bulkhead tasks
+     * are split into one lane per concurrency slot by key, and a lane runs one task at a time, so events of
+     * one run are still evaluated in arrival order. A full bulkhead never blocks the caller: the event is
+     * refused and the listener pauses its partition until the bulkhead has room. Queued tasks are not acknowledged to Kafka: offsets
+     * are committed only up to the applied watermark, so tasks lost with the process are redelivered.
+     */
+    private static final Logger log = LoggerFactory.getLogger(EvaluationScheduler.class);
+    public static final String DEFAULT_BULKHEAD = "default";
+    private static final long BULKHEAD_CACHE_MILLIS = 60_000;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 30_000;
+
+    private final WorkflowVersionRepository workflowVersionRepository;
+    private final Map<String, Bulkhead> bulkheads = new LinkedHashMap<>();
+    private final Map<Long, Bulkhead> versionBulkheads = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile long versionBulkheadsLoadedAt = System.currentTimeMillis();
+    private volatile boolean running;
+    private double virtualTime;
+    private int queued;
+
+    public EvaluationScheduler(RuleEngineProperties properties,
+                               WorkflowVersionRepository workflowVersionRepository,
+                               MeterRegistry meterRegistry) {
+        this.workflowVersionRepository = workflowVersionRepository;
+        properties.getBulkheads().forEach((name, settings) -> bulkheads.put(name, new Bulkhead(name, settings, meterRegistry)));
+        bulkheads.computeIfAbsent(DEFAULT_BULKHEAD, name -> new Bulkhead(name, new BulkheadSettings(), meterRegistry));
+        if (properties.isBulkheadsEnabled()) {
+            running = true;
+            for (int i = 0; i < properties.getEvaluationWorkers(); i++) {
+                Thread worker = new Thread(this::work, "rule-eval-" + i);
+                worker.setDaemon(true);
+                workers.add(worker);
+            }
+            workers.forEach(Thread::start);
+            log.info("Rule evaluation bulkheads started workers={} bulkheads={}", workers.size(), bulkheads.keySet());
+        }
+    }
+
+    /**
+     * Queues an evaluation in the bulkhead of {@code workflowVersionId}'s workflow; tasks with the same
+     * key run in submission order. Returns false, without running the task, when that bulkhead's queue
+     * is full; see {@link #submitAll(List)}.
+     */
+    public boolean submit(Long workflowVersionId, String key, Runnable task) {
+        return submitAll(List.of(new Submission(workflowVersionId, key, task))).isEmpty();
+    }
+
+    /**
+     * Queues all of {@code submissions} (the evaluations of one event) or none of them. When the queue of
+     * any of their bulkheads is full nothing is queued and that bulkhead's name is returned, so the caller
+     * can hold the event back instead of blocking here: the listener thread serves every bulkhead, and
+     * waiting for one would stall the others and the consumer's polls. Runs the tasks on the calling
+     * thread when bulkheads are disabled or shutting down.
+     */
+    public Optional<String> submitAll(List<Submission> submissions) {
+        if (running) {
+            List<Bulkhead> targets = submissions.stream().map(submission -> bulkheadFor(submission.workflowVersionId())).toList();
+            lock.lock();
+            try {
+                if (running) {
+                    Map<Bulkhead, Integer> needed = new HashMap<>();
+                    targets.forEach(bulkhead -> needed.merge(bulkhead, 1, Integer::sum));
+                    for (Map.Entry<Bulkhead, Integer> entry : needed.entrySet()) {
+                        Bulkhead bulkhead = entry.getKey();
+                        if (bulkhead.queued > 0 && bulkhead.queued + entry.getValue() > bulkhead.queueCapacity) {
+                            bulkhead.rejected.increment();
+                            return Optional.of(bulkhead.name);
+                        }
+                    }
+                    for (int i = 0; i < submissions.size(); i++) {
+                        enqueue(targets.get(i), submissions.get(i));
+                    }
+                    return Optional.empty();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        submissions.forEach(submission -> submission.task().run());
+        return Optional.empty();
+    }
+
+    /**
+     * Whether the named bulkhead's queue has room again, so a partition held back for it can resume.
+     */
+    public boolean hasRoom(String bulkheadName) {
+        Bulkhead bulkhead = bulkheads.get(bulkheadName);
+        if (bulkhead == null) {
+            return true;
+        }
+        lock.lock();
+        try {
+            return !running || bulkhead.queued < bulkhead.queueCapacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(Bulkhead bulkhead, Submission submission) {
+        if (bulkhead.queued == 0) {
+            // A bulkhead coming back from idle starts at the current virtual time instead of
+            // spending credit saved up while it had nothing to run.
+            bulkhead.finishTag = Math.max(bulkhead.finishTag, virtualTime);
+        }
+        String key = submission.key();
+        bulkhead.lanes[Math.floorMod(key != null ? key.hashCode() : 0, bulkhead.lanes.length)]
+                .add(new Task(submission.task(), System.nanoTime()));
+        bulkhead.queued++;
+        queued++;
+        workAvailable.signal();
+    }
+
+    /**
+     * Stops taking work and waits for the queued and running evaluations to finish. The engine listener
+     * containers stop first and drain their revoked partitions, so normally nothing is left by then.
+     */
+    @PreDestroy
+    public void shutdown() {
+        lock.lock();
+        try {
+            running = false;
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_TIMEOUT_MILLIS);
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (queued > 0) {
+            log.warn("Rule evaluation bulkheads stopped with queued evaluations abandoned={}; their offsets were not committed and will be redelivered",
+                    queued);
+        }
+    }
+
+    private Bulkhead bulkheadFor(Long workflowVersionId) {
+        long now = System.currentTimeMillis();
+        if (now - versionBulkheadsLoadedAt > BULKHEAD_CACHE_MILLIS) {
+            versionBulkheads.clear();
+            versionBulkheadsLoadedAt = now;
+        }
+        return versionBulkheads.computeIfAbsent(workflowVersionId, id -> {
+            String name = workflowVersionRepository.findBulkheadByVersionId(id).orElse(DEFAULT_BULKHEAD);
+            Bulkhead bulkhead = bulkheads.get(name);
+            if (bulkhead == null) {
+                log.warn("Unknown bulkhead for workflow version; using default workflowVersionId={} bulkhead={}", id, name);
+                bulkhead = bulkheads.get(DEFAULT_BULKHEAD);
+            }
+            return bulkhead;
+        });
+    }
+
+    private void work() {
+        while (true) {
+            Bulkhead bulkhead;
+            int lane;
+            Task task;
+            lock.lock();
+            try {
+                while ((bulkhead = nextBulkhead()) == null) {
+                    if (!running && queued == 0) {
+                        return;
+                    }
+                    workAvailable.await();
+                }
+                lane = bulkhead.runnableLane();
+                task = bulkhead.lanes[lane].poll();
+                bulkhead.busy[lane] = true;
+                bulkhead.active++;
+                bulkhead.queued--;
+                queued--;
+                virtualTime = bulkhead.finishTag;
+                bulkhead.finishTag += 1.0 / bulkhead.weight;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            bulkhead.wait.record(System.nanoTime() - task.enqueuedNanos(), TimeUnit.NANOSECONDS);
+            try {
+                task.runnable().run();
+            } catch (Exception ex) {
+                log.error("Rule evaluation failed bulkhead={}", bulkhead.name, ex);
+            } finally {
+                lock.lock();
+                try {
+                    bulkhead.busy[lane] = false;
+                    bulkhead.active--;
+                    workAvailable.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Backlogged bulkhead with a free lane and the smallest finish tag, or null when nothing can run.
+     */
+    private Bulkhead nextBulkhead() {
+        Bulkhead next = null;
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            if (bulkhead.queued > 0 && bulkhead.hasRunnableLane()
+                    && (next == null || bulkhead.finishTag < next.finishTag)) {
+                next = bulkhead;
+            }
+        }
+        return next;
+    }
+
+    private static final class Bulkhead {
+        private final String name;
+        private final int weight;
+        private final int queueCapacity;
+        private final ArrayDeque<Task>[] lanes;
+        private final boolean[] busy;
+        private final Timer wait;
+        private final Counter rejected;
+        private int queued;
+        private int active;
+        private int nextLane;
+        private double finishTag;
+
+        @SuppressWarnings("unchecked")
+        private Bulkhead(String name, BulkheadSettings settings, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.weight = settings.getWeight();
+            this.queueCapacity = settings.getQueueCapacity();
+            this.lanes = new ArrayDeque[settings.getMaxConcurrency()];
+            for (int i = 0; i < lanes.length; i++) {
+                lanes[i] = new ArrayDeque<>();
+            }
+            this.busy = new boolean[lanes.length];
+            this.wait = Timer.builder("ruleengine.bulkhead.wait").tag("bulkhead", name).register(meterRegistry);
+            this.rejected = Counter.builder("ruleengine.bulkhead.rejected").tag("bulkhead", name).register(meterRegistry);
+            Gauge.builder("ruleengine.bulkhead.queue.depth", this, b -> b.queued).tag("bulkhead", name).register(meterRegistry);
+            Gauge.builder("ruleengine.bulkhead.active", this, b -> b.active).tag("bulkhead", name).register(meterRegistry);
+        }
+
+        private boolean hasRunnableLane() {
+            for (int i = 0; i < lanes.length; i++) {
+                if (!busy[i] && !lanes[i].isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Next non-empty lane that is not running a task, rotating the starting lane so keys share the slots.
+         */
+        private int runnableLane() {
+            for (int i = 0; i < lanes.length; i++) {
+                int lane = (nextLane + i) % lanes.length;
+                if (!busy[lane] && !lanes[lane].isEmpty()) {
+                    nextLane = (lane + 1) % lanes.length;
+                    return lane;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * One evaluation to queue: the workflow version picks the bulkhead, the key the lane.
+     */
+    public record Submission(Long workflowVersionId, String key, Runnable task) {}
+
+    private record Task(Runnable runnable, long enqueuedNanos) {}
+}
@@ -0,0 +1,84 @@
+package com.sentinel.platform.ruleengine.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.sentinel.platform.retention.repository.PartitionRepository;
+import com.sentinel.platform.ruleengine.config.RuleEngineProperties;
+import com.sentinel.platform.ruleengine.repository.ExpectationRepository;
+
+@Service
+public class ExpectationCompactionService {
+    /**
+     * Keeps the live {@code expectation} table down to actionable timers by moving resolved rows
+     * (cleared, cancelled) past the compaction horizon into {@code expectation_history}. Works in
+     * small batches with a pause between them so it never holds long locks against the scheduler or the
+     * rule engine, and caps the batches per run; whatever is left is picked up on the next run.
+     */
+    private static final Logger log = LoggerFactory.getLogger(ExpectationCompactionService.class);
+    public static final String LOCK_NAME = "sentinel.expectation-compaction";
+
+    private final ExpectationRepository expectationRepository;
+    private final PartitionRepository partitionRepository;
+    private final RuleEngineProperties properties;
+    private final Clock clock;
+
+    public ExpectationCompactionService(ExpectationRepository expectationRepository,
+                                        PartitionRepository partitionRepository,
+                                        RuleEngineProperties properties,
+                                        Clock clock) {
+        this.expectationRepository = expectationRepository;
+        this.partitionRepository = partitionRepository;
+        this.properties = properties;
+        this.clock = clock;
+    }
+
+    @Scheduled(fixedDelayString = "${ruleengine.compaction-interval-seconds:300}000")
+    public void scheduledCompact() {
+        if (!properties.isCompactionEnabled()) {
+            return;
+        }
+        boolean ran = partitionRepository.withMaintenanceLock(LOCK_NAME, this::compact);
+        if (!ran) {
+            log.debug("Expectation compaction skipped; lock held elsewhere lock={}", LOCK_NAME);
+        }
+    }
+
+    /**
+     * Runs one compaction pass and returns the number of rows moved.
+     */
+    public long compact() {
+        Instant horizon = clock.instant().minus(Duration.ofMinutes(properties.getCompactionHorizonMinutes()));
+        int batchSize = properties.getCompactionBatchSize();
+        long moved = 0;
+        int batches = 0;
+        try {
+            while (batches < properties.getCompactionMaxBatches()) {
+                int count = expectationRepository.moveResolvedToHistory(horizon, batchSize);
+                moved += count;
+                batches++;
+                if (count < batchSize) {
+                    break;
+                }
+                if (properties.getCompactionPauseMillis() > 0) {
+                    TimeUnit.MILLISECONDS.sleep(properties.getCompactionPauseMillis());
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ex) {
+            log.warn("Expectation compaction failed horizon={} movedSoFar={}", horizon, moved, ex);
+        }
+        if (moved > 0) {
+            log.info("Compacted expectations into history horizon={} moved={} batches={}", horizon, moved, batches);
+        }
+        return moved;
+    }
+}
@@ -2,7 +2,9 @@ package com.sentinel.platform.ruleengine.service;
 
 import java.time.Clock;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +16,9 @@ import com.sentinel.platform.ruleengine.config.RuleEngineProperties;
 import com.sentinel.platform.ruleengine.model.SyntheticMissedEvent;
 import com.sentinel.platform.ruleengine.repository.ExpectationRepository;
 import com.sentinel.platform.ruleengine.repository.ExpectationRepository.ExpectationRow;
+import com.sentinel.platform.ruleengine.state.PartitionOwnership;
+import com.sentinel.platform.shared.logging.HotPathCategory;
+import com.sentinel.platform.shared.logging.HotPathLogSampler;
 
 @Service
 public class ExpectationSchedulerService {
@@ -23,33 +28,61 @@ public class ExpectationSchedulerService {
     private final RuleEngineProperties properties;
     private final Clock clock;
     private final RuleEngineService ruleEngineService;
+    private final PartitionOwnership partitionOwnership;
+    private final HotPathLogSampler logSampler;
 
     public ExpectationSchedulerService(ExpectationRepository expectationRepository,
                                        RuleEngineProperties properties,
                                        Clock clock,
-                                       RuleEngineService ruleEngineService) {
+                                       RuleEngineService ruleEngineService,
+                                       PartitionOwnership partitionOwnership,
+                                       HotPathLogSampler logSampler) {
         this.expectationRepository = expectationRepository;
         this.properties = properties;
         this.clock = clock;
         this.ruleEngineService = ruleEngineService;
+        this.partitionOwnership = partitionOwnership;
+        this.logSampler = logSampler;
     }
 
+    /**
+     * Drains due expectations: keeps claiming full batches back to back until a batch comes back short
+     * (caught up) or the drain budget for this tick is spent, so a burst of timers after an outage is
+     * worked off continuously instead of one batch per fixed-delay interval. Each node only claims the
+     * timers of the normalized-topic partitions it consumes (see {@link PartitionOwnership}).
+     */
     @Scheduled(fixedDelayString = "${ruleengine.scheduler-interval-seconds:15}000")
     public void scheduledPoll() {
         if (!properties.isSchedulerEnabled()) {
             return;
         }
-        pollAndEmit(properties.getSchedulerPollLimit());
+        int limit = properties.getSchedulerPollLimit();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(properties.getSchedulerMaxDrainSeconds());
+        long emitted = 0;
+        int batches = 0;
+        int claimed;
+        do {
+            claimed = pollAndEmit(limit);
+            emitted += claimed;
+            batches++;
+        } while (claimed >= limit && System.nanoTime() < deadline);
+        if (batches > 1) {
+            log.info("Drained due expectations emitted={} batches={} caughtUp={}", emitted, batches, claimed < limit);
+        }
     }
 
     @Transactional
-    public void pollAndEmit(int limit) {
-        List<ExpectationRow> due = expectationRepository.claimDuePending(limit, "scheduler");
+    public int pollAndEmit(int limit) {
+        List<ExpectationRow> due = expectationRepository.claimDuePending(limit, "scheduler", partitionOwnership.timerPartitions());
         if (due.isEmpty()) {
             log.debug("No due expectations to emit");
-            return;
+            return 0;
+        }
+        if (logSampler.sample(HotPathCategory.SCHEDULER)) {
+            log.info("Claimed due expectations for synthetic emission count={} seen={}",
+                    due.size(), logSampler.seen(HotPathCategory.SCHEDULER));
         }
-        log.info("Claimed {} due expectations for synthetic emission", due.size());
+        List<SyntheticMissedEvent> batch = new ArrayList<>(due.size());
         for (ExpectationRow row : due) {
             SyntheticMissedEvent event = new SyntheticMissedEvent();
             event.setExpectationId(row.id());
@@ -58,9 +91,13 @@ public class ExpectationSchedulerService {
             event.setToNode(row.toNodeKey());
             event.setDueAt(row.dueAt());
             event.setSeverity(row.severity());
+            event.setExpectedCount(row.expectedCount());
+            event.setMissingCount(row.remainingCount());
             event.setDedupeKey("exp-" + row.id() + "-" + row.dueAt().toEpochMilli());
-            ruleEngineService.handleSyntheticMissed(event);
-            log.info("Emitted synthetic.missed in-process for expectationId={} run={} toNode={}", row.id(), row.workflowRunId(), row.toNodeKey());
+            batch.add(event);
         }
+        ruleEngineService.handleSyntheticMissedBatch(batch);
+        log.debug("Emitted synthetic.missed in-process batch size={}", batch.size());
+        return due.size();
     }
 }
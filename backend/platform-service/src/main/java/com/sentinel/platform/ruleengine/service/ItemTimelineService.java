@@ -1,5 +1,7 @@
 package com.sentinel.platform.ruleengine.service;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.List;
@@ -73,18 +75,23 @@ public class ItemTimelineService {
             currentStage = events.get(events.size() - 1).node();
         }
         List<TimelineExpectationView> expectations = jdbcTemplate.query("""
-                        select from_node_key, to_node_key, due_at, status, severity
+                        select from_node_key, to_node_key, due_at, status, severity, expected_count, remaining_count
                         from expectation where workflow_run_id = ? and status = 'pending'
                         order by due_at
                         """,
-                (rs, rowNum) -> new TimelineExpectationView(
-                        rs.getString("from_node_key"),
-                        rs.getString("to_node_key"),
-                        getInstant(rs.getTimestamp("due_at")),
-                        rs.getString("severity"),
-                        rs.getString("status")
-                ),
+                this::mapExpectation,
                 runId);
+        // Resolved expectations live in the hot table until compaction moves them to history.
+        List<TimelineExpectationView> resolvedExpectations = jdbcTemplate.query("""
+                        select from_node_key, to_node_key, due_at, status, severity, expected_count, remaining_count
+                        from expectation where workflow_run_id = ? and status <> 'pending'
+                        union all
+                        select from_node_key, to_node_key, due_at, status, severity, expected_count, remaining_count
+                        from expectation_history where workflow_run_id = ?
+                        order by due_at
+                        """,
+                this::mapExpectation,
+                runId, runId);
         List<TimelineAlertView> alerts = jdbcTemplate.query("""
                         select id, node_key, severity, state, correlation_key, first_triggered_at, last_triggered_at, acked_by, acked_at
                         from alert where correlation_key = ? and workflow_version_id = ?
@@ -118,10 +125,23 @@ public class ItemTimelineService {
                 group,
                 events,
                 expectations,
+                resolvedExpectations,
                 alerts
         );
     }
 
+    private TimelineExpectationView mapExpectation(ResultSet rs, int rowNum) throws SQLException {
+        return new TimelineExpectationView(
+                rs.getString("from_node_key"),
+                rs.getString("to_node_key"),
+                getInstant(rs.getTimestamp("due_at")),
+                rs.getString("severity"),
+                rs.getString("status"),
+                rs.getInt("expected_count"),
+                rs.getInt("remaining_count")
+        );
+    }
+
     private Instant getInstant(Object value) {
         if (value instanceof Timestamp ts) {
             return ts.toInstant();
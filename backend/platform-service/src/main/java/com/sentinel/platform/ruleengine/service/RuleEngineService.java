@@ -3,19 +3,22 @@ package com.sentinel.platform.ruleengine.service;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.OffsetTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -31,13 +34,21 @@ import com.sentinel.platform.ruleconfig.model.WorkflowVersion;
 import com.sentinel.platform.ruleconfig.repository.WorkflowNodeRepository;
 import com.sentinel.platform.ruleconfig.repository.WorkflowRepository;
 import com.sentinel.platform.ruleconfig.repository.WorkflowVersionRepository;
+import com.sentinel.platform.ruleengine.graph.CompiledWorkflowGraph;
+import com.sentinel.platform.ruleengine.model.BacklogDelta;
+import com.sentinel.platform.ruleengine.model.NodeCounts;
 import com.sentinel.platform.ruleengine.model.RuleEvaluatedEvent;
+import com.sentinel.platform.ruleengine.model.Severity;
 import com.sentinel.platform.ruleengine.model.SyntheticMissedEvent;
-import com.sentinel.platform.ruleengine.repository.RuleEngineStateRepository;
-import com.sentinel.platform.ruleengine.repository.RuleEngineStateRepository.ExpectationRecord;
-import com.sentinel.platform.ruleengine.repository.RuleEngineStateRepository.NodeDescriptor;
-import com.sentinel.platform.ruleengine.repository.RuleEngineStateRepository.OutgoingEdge;
-import com.sentinel.platform.ruleengine.repository.RuleEngineStateRepository.RunContext;
+import com.sentinel.platform.ruleengine.repository.RuleEngineStateStore;
+import com.sentinel.platform.ruleengine.repository.RuleEngineStateStore.CancelledExpectation;
+import com.sentinel.platform.ruleengine.repository.RuleEngineStateStore.ExpectationRecord;
+import com.sentinel.platform.ruleengine.repository.RuleEngineStateStore.NodeDescriptor;
+import com.sentinel.platform.ruleengine.repository.RuleEngineStateStore.OutgoingEdge;
+import com.sentinel.platform.ruleengine.repository.RuleEngineStateStore.RunContext;
+import com.sentinel.platform.ruleengine.repository.RuleEngineStateStore.RunUpdate;
+import com.sentinel.platform.shared.logging.HotPathCategory;
+import com.sentinel.platform.shared.logging.HotPathLogSampler;
 
 @Service
 public class RuleEngineService {
@@ -46,22 +57,50 @@ public class RuleEngineService {
      * both rule evaluation and alert trigger events for downstream aggregation/alerting.
      */
     private static final Logger log = LoggerFactory.getLogger(RuleEngineService.class);
+    /**
+     * Group dimensions have low cardinality, so their hashes are memoised, least recently used first out
+     * once this many groups are held.
+     */
+    private static final int GROUP_HASH_CACHE_SIZE = 10_000;
+    private static final Map<Map<String, Object>, String> GROUP_HASH_CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Map<String, Object>, String> eldest) {
+                    return size() > GROUP_HASH_CACHE_SIZE;
+                }
+            });
 
     private final WorkflowRepository workflowRepository;
     private final WorkflowVersionRepository workflowVersionRepository;
     private final WorkflowNodeRepository workflowNodeRepository;
-    private final RuleEngineStateRepository stateRepository;
-    private final RuleEventPublisher eventPublisher;
+    private final RuleEngineStateStore stateRepository;
+    private final RuleEventSink eventPublisher;
     private final ObjectMapper objectMapper;
     private final Clock clock;
+    private final HotPathLogSampler logSampler;
+    private final boolean logAnomalies;
 
     public RuleEngineService(WorkflowRepository workflowRepository,
                              WorkflowVersionRepository workflowVersionRepository,
                              WorkflowNodeRepository workflowNodeRepository,
-                             RuleEngineStateRepository stateRepository,
-                             RuleEventPublisher eventPublisher,
+                             RuleEngineStateStore stateRepository,
+                             RuleEventSink eventPublisher,
                              ObjectMapper objectMapper,
-                             Clock clock) {
+                             Clock clock,
+                             HotPathLogSampler logSampler) {
+        this(workflowRepository, workflowVersionRepository, workflowNodeRepository, stateRepository, eventPublisher,
+                objectMapper, clock, logSampler, true);
+    }
+
+    private RuleEngineService(WorkflowRepository workflowRepository,
+                              WorkflowVersionRepository workflowVersionRepository,
+                              WorkflowNodeRepository workflowNodeRepository,
+                              RuleEngineStateStore stateRepository,
+                              RuleEventSink eventPublisher,
+                              ObjectMapper objectMapper,
+                              Clock clock,
+                              HotPathLogSampler logSampler,
+                              boolean logAnomalies) {
         this.workflowRepository = workflowRepository;
         this.workflowVersionRepository = workflowVersionRepository;
         this.workflowNodeRepository = workflowNodeRepository;
@@ -69,6 +108,25 @@ public class RuleEngineService {
         this.eventPublisher = eventPublisher;
         this.objectMapper = objectMapper;
         this.clock = clock;
+        this.logSampler = logSampler;
+        this.logAnomalies = logAnomalies;
+    }
+
+    /**
+     * Copy of this service bound to different runtime state, outcome sink and clock. Used by replays,
+     * which evaluate history against a virtual clock and optionally an isolated shadow state set.
+     */
+    public RuleEngineService fork(RuleEngineStateStore stateRepository, RuleEventSink eventSink, Clock clock) {
+        return fork(stateRepository, eventSink, clock, logAnomalies);
+    }
+
+    /**
+     * As {@link #fork(RuleEngineStateStore, RuleEventSink, Clock)}; with {@code logAnomalies} false the
+     * per-event anomaly and miss warnings are not logged (simulations report them in their result instead).
+     */
+    public RuleEngineService fork(RuleEngineStateStore stateRepository, RuleEventSink eventSink, Clock clock, boolean logAnomalies) {
+        return new RuleEngineService(workflowRepository, workflowVersionRepository, workflowNodeRepository,
+                stateRepository, eventSink, objectMapper, clock, logSampler, logAnomalies);
     }
 
     /**
@@ -76,20 +134,50 @@ public class RuleEngineService {
      * and processes the event against each version's runtime state.
      */
     public void handleNormalizedEvent(NormalizedEvent event) {
-        List<WorkflowVersion> targets = resolveTargetVersions(event);
-        if (targets.isEmpty()) {
-            log.debug("No workflow versions resolved for eventType={} workflowKey={} correlationKey={}",
-                    event.getEventType(), event.getWorkflowKey(), event.getCorrelationKey());
-            return;
+        for (WorkflowVersion version : resolveTargets(event)) {
+            processEventForVersion(event, version, PendingOutcomes.NONE);
         }
-        log.info("Processing normalized event correlationKey={} eventType={} targets={}", event.getCorrelationKey(), event.getEventType(), targets.size());
-        for (WorkflowVersion version : targets) {
-            processEventForVersion(event, version);
+    }
+
+    /**
+     * As {@link #handleNormalizedEvent(NormalizedEvent)}, but each workflow version's evaluation is queued
+     * in that workflow's bulkhead, keyed by version and correlation key so one run stays in order.
+     * {@code onApplied} runs once every version's evaluation has finished (or failed) and the pipeline
+     * stages are done with the outcomes it published, so an applied offset covers aggregation and alerting.
+     * When a target bulkhead is full nothing is queued, {@code onApplied} never runs and the full
+     * bulkhead's name is returned; the caller is expected to dispatch the event again later.
+     */
+    public Optional<String> dispatchNormalizedEvent(NormalizedEvent event, EvaluationScheduler scheduler, Runnable onApplied) {
+        PendingOutcomes pending = new PendingOutcomes(onApplied);
+        List<EvaluationScheduler.Submission> submissions = new ArrayList<>();
+        for (WorkflowVersion version : resolveTargets(event)) {
+            Runnable evaluated = pending.hold();
+            submissions.add(new EvaluationScheduler.Submission(version.getId(), version.getId() + ":" + event.getCorrelationKey(), () -> {
+                try {
+                    processEventForVersion(event, version, pending);
+                } finally {
+                    evaluated.run();
+                }
+            }));
+        }
+        Optional<String> fullBulkhead = scheduler.submitAll(submissions);
+        if (fullBulkhead.isEmpty()) {
+            pending.release();
         }
+        return fullBulkhead;
     }
 
     /**
-     * Handles scheduler-produced synthetic misses to close out expectations and emit alerts.
+     * Applies an event to one explicitly chosen workflow version, bypassing version resolution.
+     */
+    public void handleEventForVersion(NormalizedEvent event, WorkflowVersion version) {
+        processEventForVersion(event, version, PendingOutcomes.NONE);
+    }
+
+    /**
+     * Handles scheduler-produced synthetic misses to close out expectations and emit alerts. A counted
+     * expectation misses once; its shortfall is reported as the late delta so aggregates still count
+     * every occurrence that did not arrive in time.
      */
     public void handleSyntheticMissed(String payload) {
         try {
@@ -102,116 +190,239 @@ public class RuleEngineService {
 
     public void handleSyntheticMissed(SyntheticMissedEvent missed) {
         try {
-            log.info("Handling synthetic missed workflowRunId={} toNode={} severity={}", missed.getWorkflowRunId(), missed.getToNode(), missed.getSeverity());
+            logMiss(missed);
             RunContext runContext = stateRepository.loadRunContext(missed.getWorkflowRunId());
             Map<String, Object> group = parseGroup(runContext.groupJson());
-
-            RuleEvaluatedEvent evaluated = new RuleEvaluatedEvent();
-            evaluated.setWorkflowVersionId(runContext.workflowVersionId());
-            evaluated.setWorkflowRunId(missed.getWorkflowRunId());
-            evaluated.setNode(missed.getToNode());
-            evaluated.setCorrelationKey(runContext.correlationKey());
-            evaluated.setStatus(normalizeSeverity(missed.getSeverity()));
-            evaluated.setLate(true);
-            evaluated.setOrderViolation(false);
-            evaluated.setLateDelta(1);
-            evaluated.setCompletedDelta(0);
-            evaluated.setInFlightDeltas(Map.of());
-            evaluated.setGroup(group);
-            evaluated.setGroupHash(hashGroup(group));
-            evaluated.setEventTime(missed.getDueAt());
-            evaluated.setReceivedAt(clock.instant());
-            eventPublisher.publishRuleEvaluated(evaluated);
-            stateRepository.updateRun(missed.getWorkflowRunId(), normalizeSeverity(missed.getSeverity()), clock.instant(), missed.getToNode());
-
-            AlertTriggerEvent alert = new AlertTriggerEvent();
-            alert.setWorkflowVersionId(runContext.workflowVersionId());
-            alert.setWorkflowRunId(missed.getWorkflowRunId());
-            alert.setNode(missed.getToNode());
-            alert.setCorrelationKey(runContext.correlationKey());
-            alert.setSeverity(normalizeSeverity(missed.getSeverity()));
-            alert.setReason("EXPECTED_MISSED");
-            alert.setDedupeKey(missed.getDedupeKey());
-            alert.setTriggeredAt(clock.instant());
-            eventPublisher.publishAlertTriggered(alert);
+            Instant now = clock.instant();
+            eventPublisher.publishRuleEvaluated(missEvaluation(missed, runContext, group, now));
+            stateRepository.updateRun(missed.getWorkflowRunId(), Severity.parse(missed.getSeverity()).wire(), now, missed.getToNode());
+            eventPublisher.publishAlertTriggered(missAlert(missed, runContext, now));
         } catch (Exception ex) {
             log.error("Failed to handle synthetic missed event", ex);
         }
     }
 
+    /**
+     * Bulk form of {@link #handleSyntheticMissed(SyntheticMissedEvent)} for a claimed scheduler batch:
+     * run contexts are loaded in one query and each run's group parsed once, run updates go out as one
+     * JDBC batch (the last miss per run wins, as it would serially) and alerts are upserted together.
+     * Miss evaluations are published only once the runs are updated. If the bulk path fails before that,
+     * the whole batch falls back to the per-miss path; after it, only what was not yet published is sent
+     * again, one at a time, so no miss is counted twice.
+     */
+    public void handleSyntheticMissedBatch(List<SyntheticMissedEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<RuleEvaluatedEvent> evaluations = new ArrayList<>(batch.size());
+        List<AlertTriggerEvent> alerts = new ArrayList<>(batch.size());
+        boolean runsUpdated = false;
+        int published = 0;
+        try {
+            Map<Long, RunContext> contexts = stateRepository.loadRunContexts(
+                    batch.stream().map(SyntheticMissedEvent::getWorkflowRunId).collect(Collectors.toSet()));
+            Map<Long, Map<String, Object>> groups = new HashMap<>();
+            Map<Long, RunUpdate> runUpdates = new LinkedHashMap<>();
+            Instant now = clock.instant();
+            for (SyntheticMissedEvent missed : batch) {
+                logMiss(missed);
+                RunContext runContext = contexts.get(missed.getWorkflowRunId());
+                if (runContext == null) {
+                    log.warn("Synthetic miss for unknown run workflowRunId={} expectationId={}",
+                            missed.getWorkflowRunId(), missed.getExpectationId());
+                    continue;
+                }
+                Map<String, Object> group = groups.computeIfAbsent(missed.getWorkflowRunId(), id -> parseGroup(runContext.groupJson()));
+                evaluations.add(missEvaluation(missed, runContext, group, now));
+                runUpdates.put(missed.getWorkflowRunId(),
+                        new RunUpdate(missed.getWorkflowRunId(), Severity.parse(missed.getSeverity()).wire(), now, missed.getToNode()));
+                alerts.add(missAlert(missed, runContext, now));
+            }
+            stateRepository.updateRuns(new ArrayList<>(runUpdates.values()));
+            runsUpdated = true;
+            for (RuleEvaluatedEvent evaluation : evaluations) {
+                eventPublisher.publishRuleEvaluated(evaluation);
+                published++;
+            }
+            eventPublisher.publishAlertsTriggered(alerts);
+            log.debug("Handled synthetic miss batch misses={} runs={} alerts={}", batch.size(), runUpdates.size(), alerts.size());
+        } catch (Exception ex) {
+            if (!runsUpdated) {
+                log.warn("Bulk synthetic miss handling failed; falling back to per-miss handling batchSize={}", batch.size(), ex);
+                batch.forEach(this::handleSyntheticMissed);
+                return;
+            }
+            log.warn("Publishing synthetic miss batch failed; resending the rest one by one batchSize={} evaluationsPublished={}",
+                    batch.size(), published, ex);
+            finishMisses(evaluations.subList(published, evaluations.size()), alerts);
+        }
+    }
+
+    /**
+     * Publishes the miss evaluations and alerts a failed bulk publish left behind. Alerts fold by dedupe
+     * key, so resending one that did go out only repeats the same upsert.
+     */
+    private void finishMisses(List<RuleEvaluatedEvent> evaluations, List<AlertTriggerEvent> alerts) {
+        for (RuleEvaluatedEvent evaluation : evaluations) {
+            try {
+                eventPublisher.publishRuleEvaluated(evaluation);
+            } catch (Exception ex) {
+                log.error("Failed to publish miss evaluation workflowRunId={} node={}", evaluation.getWorkflowRunId(), evaluation.getNode(), ex);
+            }
+        }
+        for (AlertTriggerEvent alert : alerts) {
+            try {
+                eventPublisher.publishAlertTriggered(alert);
+            } catch (Exception ex) {
+                log.error("Failed to publish miss alert workflowRunId={} dedupeKey={}", alert.getWorkflowRunId(), alert.getDedupeKey(), ex);
+            }
+        }
+    }
+
+    private void logMiss(SyntheticMissedEvent missed) {
+        if (logAnomalies) {
+            log.warn("Expectation missed workflowRunId={} fromNode={} toNode={} dueAt={} severity={} missing={}/{}",
+                    missed.getWorkflowRunId(), missed.getFromNode(), missed.getToNode(), missed.getDueAt(), missed.getSeverity(),
+                    missed.getMissingCount(), missed.getExpectedCount());
+        }
+    }
+
+    private RuleEvaluatedEvent missEvaluation(SyntheticMissedEvent missed, RunContext runContext, Map<String, Object> group, Instant now) {
+        RuleEvaluatedEvent evaluated = new RuleEvaluatedEvent();
+        evaluated.setWorkflowVersionId(runContext.workflowVersionId());
+        evaluated.setWorkflowRunId(missed.getWorkflowRunId());
+        evaluated.setNode(missed.getToNode());
+        evaluated.setCorrelationKey(runContext.correlationKey());
+        evaluated.setStatus(Severity.parse(missed.getSeverity()).wire());
+        evaluated.setLate(true);
+        evaluated.setOrderViolation(false);
+        evaluated.setLateDelta(Math.max(1, missed.getMissingCount()));
+        evaluated.setCompletedDelta(0);
+        evaluated.setInFlightDeltas(Map.of());
+        evaluated.setGroup(group);
+        evaluated.setGroupHash(hashGroup(group));
+        evaluated.setEventTime(missed.getDueAt());
+        evaluated.setReceivedAt(now);
+        return evaluated;
+    }
+
+    private AlertTriggerEvent missAlert(SyntheticMissedEvent missed, RunContext runContext, Instant now) {
+        AlertTriggerEvent alert = new AlertTriggerEvent();
+        alert.setWorkflowVersionId(runContext.workflowVersionId());
+        alert.setWorkflowRunId(missed.getWorkflowRunId());
+        alert.setNode(missed.getToNode());
+        alert.setCorrelationKey(runContext.correlationKey());
+        alert.setSeverity(Severity.parse(missed.getSeverity()).wire());
+        alert.setReason("EXPECTED_MISSED");
+        alert.setDedupeKey(missed.getDedupeKey());
+        alert.setTriggeredAt(now);
+        return alert;
+    }
+
     /**
      * Applies a normalized event to a specific workflow version, managing run creation,
      * expectation clearing/creation, and downstream emissions.
      */
-    private void processEventForVersion(NormalizedEvent event, WorkflowVersion version) {
-        Optional<NodeDescriptor> nodeOpt = stateRepository.findNodeForEvent(version.getId(), event.getEventType());
+    private void processEventForVersion(NormalizedEvent event, WorkflowVersion version, PendingOutcomes pending) {
+        CompiledWorkflowGraph graph = stateRepository.graph(version.getId());
+        Optional<NodeDescriptor> nodeOpt = graph.nodeForEvent(event.getEventType());
         if (nodeOpt.isEmpty()) {
-            log.warn("No node found for eventType={} workflowVersion={} correlationKey={}",
-                    event.getEventType(), version.getId(), event.getCorrelationKey());
+            if (logSampler.sample(HotPathCategory.RULE_EVALUATION)) {
+                log.warn("No node found for eventType={} workflowVersion={} correlationKey={}",
+                        event.getEventType(), version.getId(), event.getCorrelationKey());
+            }
             return;
         }
         NodeDescriptor node = nodeOpt.get();
         Long runId = stateRepository.findRunId(version.getId(), event.getCorrelationKey());
         if (runId == null) {
             runId = stateRepository.createRun(version.getId(), event.getCorrelationKey(), "green", event.getEventTime(), toJson(event.getGroup()));
-            log.info("Created new workflow run version={} runId={} correlationKey={} startNode={}",
+            log.debug("Created new workflow run version={} runId={} correlationKey={} startNode={}",
                     version.getId(), runId, event.getCorrelationKey(), node.nodeKey());
         }
         boolean duplicate = StringUtils.hasText(event.getEventId()) && stateRepository.hasSeenEvent(runId, event.getEventId());
         if (duplicate) {
-            log.info("Duplicate event ignored correlationKey={} eventId={} version={}", event.getCorrelationKey(), event.getEventId(), version.getId());
+            log.debug("Duplicate event ignored correlationKey={} eventId={} version={}", event.getCorrelationKey(), event.getEventId(), version.getId());
             return;
         }
 
         List<ExpectationRecord> cleared = stateRepository.clearExpectations(runId, node.nodeKey(), event.getReceivedAt());
         boolean late = cleared.stream().anyMatch(rec -> event.getReceivedAt().isAfter(rec.dueAt()));
-        boolean optionalInbound = stateRepository.hasOptionalInbound(version.getId(), node.nodeKey());
-        boolean orderViolation = cleared.isEmpty() && !node.start() && !optionalInbound;
+        boolean orderViolation = cleared.isEmpty() && !node.start() && !graph.hasOptionalInbound(node.id());
 
-        Map<String, Integer> inFlightDeltas = new HashMap<>();
+        int[] inFlightDeltas = new int[graph.nodeCount()];
+        List<BacklogDelta> backlogDeltas = new ArrayList<>();
+        for (ExpectationRecord record : cleared) {
+            backlogDeltas.add(new BacklogDelta(node.nodeKey(), record.dueAt(), -1));
+        }
         if (!cleared.isEmpty()) {
-            inFlightDeltas.merge(node.nodeKey(), -cleared.size(), Integer::sum);
-            log.info("Cleared expectations runId={} node={} clearedCount={} late={}", runId, node.nodeKey(), cleared.size(), late);
+            inFlightDeltas[node.id()] -= cleared.size();
+            log.debug("Cleared expectations runId={} node={} clearedCount={} late={}", runId, node.nodeKey(), cleared.size(), late);
         }
 
-        for (OutgoingEdge edge : stateRepository.fetchOutgoingEdges(version.getId(), node.nodeKey())) {
+        for (OutgoingEdge edge : graph.outgoingEdges(node.id())) {
             if (edge.optional()) {
                 continue;
             }
-            Instant dueAt = computeDueAt(event.getEventTime(), edge);
-            int expectedCount = edge.expectedCount() != null && edge.expectedCount() > 0 ? edge.expectedCount() : 1;
-            for (int i = 0; i < expectedCount; i++) {
-                stateRepository.createExpectation(runId, node.nodeKey(), edge.toNodeKey(), dueAt, edge.severity());
-                inFlightDeltas.merge(edge.toNodeKey(), 1, Integer::sum);
-            }
-            log.debug("Created expectation runId={} fromNode={} toNode={} dueAt={} severity={}", runId, node.nodeKey(), edge.toNodeKey(), dueAt, edge.severity());
+            Instant dueAt = edge.deadline().dueAt(event.getEventTime());
+            stateRepository.createExpectation(runId, node.nodeKey(), edge.toNodeKey(), event.getEventTime(), dueAt, edge.severity(),
+                    edge.expectedCount());
+            inFlightDeltas[edge.toNodeId()] += edge.expectedCount();
+            backlogDeltas.add(new BacklogDelta(edge.toNodeKey(), dueAt, edge.expectedCount()));
+            log.debug("Created expectation runId={} fromNode={} toNode={} dueAt={} severity={} expectedCount={}",
+                    runId, node.nodeKey(), edge.toNodeKey(), dueAt, edge.severity(), edge.expectedCount());
         }
 
         stateRepository.saveOccurrence(runId, node.nodeKey(), event.getEventId(), event.getEventTime(), event.getReceivedAt(),
                 payloadExcerpt(event.getPayload()), late, duplicate, orderViolation, null);
 
-        String status = deriveStatus(late, orderViolation, cleared);
-        stateRepository.updateRun(runId, status, clock.instant(), node.nodeKey());
-        log.info("Rule evaluated runId={} version={} node={} status={} late={} orderViolation={} inFlightDeltas={}",
-                runId, version.getId(), node.nodeKey(), status, late, orderViolation, inFlightDeltas);
+        if (node.terminal() && cleared.stream().allMatch(rec -> rec.remaining() == 0)) {
+            List<CancelledExpectation> released = stateRepository.completeRun(runId, clock.instant());
+            for (CancelledExpectation cancelled : released) {
+                int nodeId = graph.nodeId(cancelled.toNodeKey());
+                if (nodeId >= 0) {
+                    inFlightDeltas[nodeId] -= cancelled.remaining();
+                }
+                backlogDeltas.add(new BacklogDelta(cancelled.toNodeKey(), cancelled.dueAt(), -cancelled.remaining()));
+            }
+            log.debug("Completed workflow run runId={} version={} terminalNode={} cancelledExpectations={}",
+                    runId, version.getId(), node.nodeKey(), released.size());
+        }
+
+        Severity status = deriveStatus(late, orderViolation, cleared);
+        NodeCounts inFlightByNode = graph.nodeCounts(inFlightDeltas);
+        stateRepository.updateRun(runId, status.wire(), clock.instant(), node.nodeKey());
+        if ((late || orderViolation) && logAnomalies) {
+            log.warn("Rule anomaly runId={} version={} node={} correlationKey={} status={} late={} orderViolation={}",
+                    runId, version.getId(), node.nodeKey(), event.getCorrelationKey(), status.wire(), late, orderViolation);
+        } else if (!late && !orderViolation && logSampler.sample(HotPathCategory.RULE_EVALUATION)) {
+            log.info("Rule evaluated runId={} version={} node={} status={} inFlightDeltas={} seen={}",
+                    runId, version.getId(), node.nodeKey(), status.wire(), inFlightByNode, logSampler.seen(HotPathCategory.RULE_EVALUATION));
+        }
 
         RuleEvaluatedEvent evaluated = new RuleEvaluatedEvent();
         evaluated.setWorkflowVersionId(version.getId());
         evaluated.setWorkflowRunId(runId);
         evaluated.setNode(node.nodeKey());
         evaluated.setCorrelationKey(event.getCorrelationKey());
-        evaluated.setStatus(status);
+        evaluated.setStatus(status.wire());
         evaluated.setLate(late);
         evaluated.setOrderViolation(orderViolation);
         evaluated.setCompletedDelta(1);
         evaluated.setLateDelta(late ? 1 : 0);
         evaluated.setFailedDelta(orderViolation ? 1 : 0);
-        evaluated.setInFlightDeltas(inFlightDeltas);
+        evaluated.setInFlightCounts(inFlightByNode);
+        evaluated.setBacklogDeltas(backlogDeltas);
         evaluated.setGroup(event.getGroup());
         evaluated.setGroupHash(hashGroup(event.getGroup()));
         evaluated.setEventTime(event.getEventTime());
         evaluated.setReceivedAt(event.getReceivedAt());
-        eventPublisher.publishRuleEvaluated(evaluated);
+        evaluated.setStageLatencyMs(stageLatencyMs(cleared, event.getEventTime()));
+        if (pending == PendingOutcomes.NONE) {
+            eventPublisher.publishRuleEvaluated(evaluated);
+        } else {
+            eventPublisher.publishRuleEvaluated(evaluated, pending.hold());
+        }
 
         if (late || orderViolation) {
             AlertTriggerEvent alert = new AlertTriggerEvent();
@@ -219,12 +430,27 @@ public class RuleEngineService {
             alert.setWorkflowRunId(runId);
             alert.setNode(node.nodeKey());
             alert.setCorrelationKey(event.getCorrelationKey());
-            alert.setSeverity(severityFromExpectations(cleared, orderViolation));
+            alert.setSeverity(severityFromExpectations(cleared, orderViolation).wire());
             alert.setReason(late ? "SLA_MISSED" : "ORDER_VIOLATION");
             alert.setDedupeKey(version.getId() + ":" + node.nodeKey() + ":" + event.getCorrelationKey());
             alert.setTriggeredAt(event.getReceivedAt());
-            eventPublisher.publishAlertTriggered(alert);
+            if (pending == PendingOutcomes.NONE) {
+                eventPublisher.publishAlertTriggered(alert);
+            } else {
+                eventPublisher.publishAlertTriggered(alert, pending.hold());
+            }
+        }
+    }
+
+    private List<WorkflowVersion> resolveTargets(NormalizedEvent event) {
+        List<WorkflowVersion> targets = resolveTargetVersions(event);
+        if (targets.isEmpty()) {
+            log.debug("No workflow versions resolved for eventType={} workflowKey={} correlationKey={}",
+                    event.getEventType(), event.getWorkflowKey(), event.getCorrelationKey());
+        } else {
+            log.debug("Processing normalized event correlationKey={} eventType={} targets={}", event.getCorrelationKey(), event.getEventType(), targets.size());
         }
+        return targets;
     }
 
     private List<WorkflowVersion> resolveTargetVersions(NormalizedEvent event) {
@@ -259,85 +485,54 @@ public class RuleEngineService {
         return workflowVersionRepository.findFirstByWorkflowIdOrderByVersionNumDesc(workflow.getId());
     }
 
-    private Instant computeDueAt(Instant eventTime, OutgoingEdge edge) {
-        Instant dueAt = eventTime;
-        if (edge.absoluteDeadline() != null) {
-            try {
-                String deadline = edge.absoluteDeadline();
-                if (deadline.contains("+") || deadline.contains("Z") || deadline.contains("-")) {
-                    OffsetTime ot = OffsetTime.parse(deadline);
-                    dueAt = LocalDate.ofInstant(eventTime, ZoneOffset.UTC).atTime(ot.toLocalTime()).toInstant(ZoneOffset.UTC);
-                } else {
-                    LocalTime lt = LocalTime.parse(deadline, DateTimeFormatter.ofPattern("HH:mm"));
-                    dueAt = LocalDate.ofInstant(eventTime, ZoneOffset.UTC).atTime(lt).toInstant(ZoneOffset.UTC);
-                }
-                if (dueAt.isBefore(eventTime)) {
-                    dueAt = dueAt.plusSeconds(86400);
-                }
-            } catch (Exception ex) {
-                log.warn("Failed to parse absolute deadline {} for edge to {}. Falling back to eventTime", edge.absoluteDeadline(), edge.toNodeKey());
-                dueAt = eventTime;
-            }
-        } else if (edge.maxLatencySec() != null && edge.maxLatencySec() > 0) {
-            dueAt = dueAt.plusSeconds(edge.maxLatencySec());
-        }
-        return dueAt;
-    }
-
-    private String deriveStatus(boolean late, boolean orderViolation, List<ExpectationRecord> cleared) {
+    private Severity deriveStatus(boolean late, boolean orderViolation, List<ExpectationRecord> cleared) {
         if (orderViolation) {
-            return "red";
+            return Severity.RED;
         }
         if (late) {
-            return normalizeSeverity(severityFromExpectations(cleared, false));
+            return severityFromExpectations(cleared, false);
         }
-        return "green";
+        return Severity.GREEN;
     }
 
-    private String severityFromExpectations(List<ExpectationRecord> cleared, boolean orderViolation) {
+    private Severity severityFromExpectations(List<ExpectationRecord> cleared, boolean orderViolation) {
         if (orderViolation) {
-            return "red";
+            return Severity.RED;
         }
-        return cleared.stream()
-                .map(ExpectationRecord::severity)
-                .map(this::normalizeSeverity)
-                .max((a, b) -> Integer.compare(severityRank(a), severityRank(b)))
-                .orElse("amber");
-    }
-
-    private String normalizeSeverity(String severity) {
-        if (!StringUtils.hasText(severity)) {
-            return "amber";
-        }
-        String s = severity.toLowerCase();
-        if (s.equals("red") || s.equals("amber") || s.equals("green")) {
-            return s;
+        Severity worst = null;
+        for (ExpectationRecord record : cleared) {
+            worst = worst == null ? record.severity() : Severity.max(worst, record.severity());
         }
-        return "amber";
+        return worst != null ? worst : Severity.AMBER;
     }
 
-    private int severityRank(String severity) {
-        return switch (normalizeSeverity(severity)) {
-            case "red" -> 3;
-            case "amber" -> 2;
-            default -> 1;
-        };
+    /**
+     * Event-time latency from the event that raised the cleared expectation to this one; null when nothing
+     * was cleared or the expectation predates origin tracking.
+     */
+    private static Long stageLatencyMs(List<ExpectationRecord> cleared, Instant eventTime) {
+        if (cleared.isEmpty() || cleared.get(0).originAt() == null || eventTime == null) {
+            return null;
+        }
+        return Math.max(0, Duration.between(cleared.get(0).originAt(), eventTime).toMillis());
     }
 
     private String hashGroup(Map<String, Object> group) {
         if (group == null || group.isEmpty()) {
             return null;
         }
+        String cached = GROUP_HASH_CACHE.get(group);
+        if (cached != null) {
+            return cached;
+        }
         try {
             Map<String, Object> sorted = new TreeMap<>(group);
             String serialized = objectMapper.writeValueAsString(sorted);
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             byte[] hash = digest.digest(serialized.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < 8 && i < hash.length; i++) {
-                sb.append(String.format("%02x", hash[i]));
-            }
-            return sb.toString();
+            String hex = HexFormat.of().formatHex(hash, 0, Math.min(8, hash.length));
+            GROUP_HASH_CACHE.put(Collections.unmodifiableMap(new HashMap<>(group)), hex);
+            return hex;
         } catch (Exception e) {
             log.warn("Failed to hash group dims", e);
             return null;
@@ -374,4 +569,35 @@ public class RuleEngineService {
             return null;
         }
     }
+
+    /**
+     * Evaluations and published outcomes of one dispatched event that are not done yet, plus one hold for
+     * the dispatch itself; the event's {@code onApplied} runs when the last is released.
+     */
+    private static final class PendingOutcomes {
+        private static final PendingOutcomes NONE = new PendingOutcomes(() -> { });
+
+        private final AtomicInteger outstanding = new AtomicInteger(1);
+        private final Runnable onApplied;
+
+        private PendingOutcomes(Runnable onApplied) {
+            this.onApplied = onApplied;
+        }
+
+        private Runnable hold() {
+            outstanding.incrementAndGet();
+            AtomicBoolean released = new AtomicBoolean();
+            return () -> {
+                if (released.compareAndSet(false, true)) {
+                    release();
+                }
+            };
+        }
+
+        private void release() {
+            if (outstanding.decrementAndGet() == 0) {
+                onApplied.run();
+            }
+        }
+    }
 }
@@ -1,7 +1,12 @@
 package com.sentinel.platform.ruleengine.service;
 
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -9,46 +14,78 @@ import org.springframework.stereotype.Component;
 import com.sentinel.platform.alerting.model.AlertTriggerEvent;
 import com.sentinel.platform.alerting.service.AlertingService;
 import com.sentinel.platform.aggregation.service.AggregationService;
+import com.sentinel.platform.pipeline.config.PipelineProperties;
+import com.sentinel.platform.pipeline.stage.PipelineStage;
 import com.sentinel.platform.ruleengine.model.RuleEvaluatedEvent;
 
 @Component
-public class RuleEventPublisher {
+public class RuleEventPublisher implements RuleEventSink {
 
     /**
-     * Emits rule outcomes internally without Kafka hops: directly invokes aggregation and alerting services
-     * to keep the workflow in-process while still serializing payloads consistently.
+     * Emits rule outcomes internally without Kafka hops. Evaluations and alerts are handed to the
+     * {@code aggregation} and {@code alerting} pipeline stages, each with its own bounded queues and
+     * workers, so a slow aggregate upsert or alert write no longer stalls rule evaluation. A batch of
+     * evaluations is applied in one transaction, so a failed one is retried by the stage without counting
+     * any of it twice. With {@code pipeline.enabled=false} both stages run inline on the evaluating thread.
      */
     private static final Logger log = LoggerFactory.getLogger(RuleEventPublisher.class);
 
-    private final AggregationService aggregationService;
-    private final AlertingService alertingService;
-    private final ObjectMapper objectMapper;
+    private final PipelineProperties pipelineProperties;
+    private final PipelineStage<RuleEvaluatedEvent> aggregationStage;
+    private final PipelineStage<AlertTriggerEvent> alertingStage;
 
     public RuleEventPublisher(AggregationService aggregationService,
                               AlertingService alertingService,
-                              ObjectMapper objectMapper) {
-        this.aggregationService = aggregationService;
-        this.alertingService = alertingService;
-        this.objectMapper = objectMapper;
+                              ObjectMapper objectMapper,
+                              PipelineProperties pipelineProperties,
+                              MeterRegistry meterRegistry) {
+        this.pipelineProperties = pipelineProperties;
+        if (pipelineProperties.isEnabled()) {
+            Path spillDirectory = Path.of(pipelineProperties.getSpillDirectory());
+            this.aggregationStage = PipelineStage.start("aggregation", RuleEvaluatedEvent.class, aggregationService::applyRuleEvaluations,
+                    pipelineProperties.stage("aggregation"), spillDirectory, objectMapper, meterRegistry);
+            this.alertingStage = PipelineStage.start("alerting", AlertTriggerEvent.class, alertingService::handleAlertsTriggered,
+                    pipelineProperties.stage("alerting"), spillDirectory, objectMapper, meterRegistry);
+        } else {
+            this.aggregationStage = PipelineStage.inline("aggregation", aggregationService::applyRuleEvaluations, meterRegistry);
+            this.alertingStage = PipelineStage.inline("alerting", alertingService::handleAlertsTriggered, meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(pipelineProperties.getShutdownTimeoutSeconds());
+        aggregationStage.stop(timeoutMillis);
+        alertingStage.stop(timeoutMillis);
     }
 
+    @Override
     public void publishRuleEvaluated(RuleEvaluatedEvent event) {
-        aggregationService.handleRuleEvaluated(serialize(event));
-        log.info("Published rule evaluated in-process correlationKey={} workflowVersionId={} node={}",
+        publishRuleEvaluated(event, null);
+    }
+
+    @Override
+    public void publishRuleEvaluated(RuleEvaluatedEvent event, Runnable onDelivered) {
+        aggregationStage.submit(event.getWorkflowVersionId() + ":" + event.getGroupHash(), event, onDelivered);
+        log.debug("Published rule evaluated in-process correlationKey={} workflowVersionId={} node={}",
                 event.getCorrelationKey(), event.getWorkflowVersionId(), event.getNode());
     }
 
+    @Override
     public void publishAlertTriggered(AlertTriggerEvent alert) {
-        alertingService.handleAlertTriggered(serialize(alert));
-        log.info("Published alert triggered in-process correlationKey={} dedupeKey={} workflowRunId={}",
+        publishAlertTriggered(alert, null);
+    }
+
+    @Override
+    public void publishAlertTriggered(AlertTriggerEvent alert, Runnable onDelivered) {
+        alertingStage.submit(alert.getDedupeKey(), alert, onDelivered);
+        log.debug("Published alert triggered in-process correlationKey={} dedupeKey={} workflowRunId={}",
                 alert.getCorrelationKey(), alert.getDedupeKey(), alert.getWorkflowRunId());
     }
 
-    private String serialize(Object payload) {
-        try {
-            return objectMapper.writeValueAsString(payload);
-        } catch (Exception ex) {
-            throw new IllegalStateException("Failed to serialize event payload", ex);
-        }
+    @Override
+    public void publishAlertsTriggered(List<AlertTriggerEvent> alerts) {
+        alerts.forEach(alert -> alertingStage.submit(alert.getDedupeKey(), alert));
+        log.debug("Published alert batch in-process alerts={}", alerts.size());
     }
 }
@@ -0,0 +1,47 @@
+package com.sentinel.platform.ruleengine.service;
+
+import java.util.List;
+
+import com.sentinel.platform.alerting.model.AlertTriggerEvent;
+import com.sentinel.platform.ruleengine.model.RuleEvaluatedEvent;
+
+/**
+ * Destination for rule engine outcomes. The live implementation is {@link RuleEventPublisher}; replays
+ * substitute sinks that write shadow aggregates or suppress alerts.
+ */
+public interface RuleEventSink {
+
+    void publishRuleEvaluated(RuleEvaluatedEvent event);
+
+    void publishAlertTriggered(AlertTriggerEvent alert);
+
+    /**
+     * As {@link #publishRuleEvaluated(RuleEvaluatedEvent)}; {@code onDelivered} runs once the sink is done
+     * with the event. Sinks that queue outcomes override this to run it after delivery.
+     */
+    default void publishRuleEvaluated(RuleEvaluatedEvent event, Runnable onDelivered) {
+        try {
+            publishRuleEvaluated(event);
+        } finally {
+            onDelivered.run();
+        }
+    }
+
+    /**
+     * As {@link #publishAlertTriggered(AlertTriggerEvent)}, with a delivery callback as for evaluations.
+     */
+    default void publishAlertTriggered(AlertTriggerEvent alert, Runnable onDelivered) {
+        try {
+            publishAlertTriggered(alert);
+        } finally {
+            onDelivered.run();
+        }
+    }
+
+    /**
+     * Publishes several alerts at once; sinks that can upsert in bulk override this.
+     */
+    default void publishAlertsTriggered(List<AlertTriggerEvent> alerts) {
+        alerts.forEach(this::publishAlertTriggered);
+    }
+}
@@ -35,6 +35,7 @@ public class WorkflowInstanceQueryService {
                                               String groupHash,
                                               String stage,
                                               DateRange dateRange,
+                                              boolean activeOnly,
                                               int page,
                                               int size) {
         if (size <= 0) {
@@ -50,7 +51,7 @@ public class WorkflowInstanceQueryService {
         int fetchLimit = Math.max(size * 3, size + 1);
         List<Object> args = new ArrayList<>();
         StringBuilder sql = new StringBuilder("""
-                select wr.id as run_id, wr.workflow_version_id, wr.correlation_key, wr.status, wr.started_at, wr.updated_at, wr.last_node_key, wr.group_dims,
+                select wr.id as run_id, wr.workflow_version_id, wr.correlation_key, wr.status, wr.started_at, wr.updated_at, wr.completed_at, wr.last_node_key, wr.group_dims,
                        last_ev.node_key as last_event_node, last_ev.received_at as last_received_at, last_ev.event_time_utc as last_event_time,
                        last_ev.is_late as last_event_late, last_ev.order_violation as last_event_order_violation
                 from workflow_run wr
@@ -63,6 +64,9 @@ public class WorkflowInstanceQueryService {
                 where wr.workflow_version_id = ?
                 """);
         args.add(workflow.getActiveVersionId());
+        if (activeOnly) {
+            sql.append(" and wr.completed_at is null");
+        }
 
         boolean boundByDate = dateRange != null && !dateRange.isAllDays();
         if (boundByDate) {
@@ -125,6 +129,7 @@ public class WorkflowInstanceQueryService {
                 currentStage,
                 startedAt,
                 updatedAt,
+                toInstant(row.get("completed_at")),
                 lastEventAt,
                 groupHash,
                 groupLabel,
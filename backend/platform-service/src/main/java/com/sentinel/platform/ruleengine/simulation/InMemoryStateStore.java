@@ -0,0 +1,250 @@
+package com.sentinel.platform.ruleengine.simulation;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.sentinel.platform.ruleengine.graph.CompiledWorkflowGraph;
+import com.sentinel.platform.ruleengine.model.Severity;
+import com.sentinel.platform.ruleengine.repository.RuleEngineStateStore;
+
+/**
+ * Single-threaded, heap-only {@link RuleEngineStateStore} for one workflow version. Graph lookups come
+ * from the compiled graph; runs, expectations and seen event ids live in hash maps, and pending
+ * expectations are additionally kept in a due-time heap so the simulation can fire misses in order.
+ * Mirrors the SQL semantics of {@code RuleEngineStateRepository}: an arrival counts against the
+ * earliest-due pending or fired expectation for the node, which clears when nothing remains, and
+ * completing a run cancels whatever it still has open.
+ */
+final class InMemoryStateStore implements RuleEngineStateStore {
+    private static final Comparator<Expectation> DUE_ORDER =
+            Comparator.comparing((Expectation e) -> e.dueAt).thenComparingLong(e -> e.id);
+
+    private final long workflowVersionId;
+    private final CompiledWorkflowGraph graph;
+    private final Map<String, Long> runIdsByKey = new HashMap<>();
+    private final List<Run> runs = new ArrayList<>();
+    private final PriorityQueue<Expectation> pendingByDue = new PriorityQueue<>(DUE_ORDER);
+    private long nextExpectationId = 1;
+    private long expectationsCreated;
+    private long completedRuns;
+    private long occurrences;
+    private long duplicateEvents;
+
+    InMemoryStateStore(long workflowVersionId, CompiledWorkflowGraph graph) {
+        this.workflowVersionId = workflowVersionId;
+        this.graph = graph;
+    }
+
+    @Override
+    public Long findRunId(Long versionId, String correlationKey) {
+        return runIdsByKey.get(correlationKey);
+    }
+
+    @Override
+    public Long createRun(Long versionId, String correlationKey, String status, Instant startedAt, String groupJson) {
+        Run run = new Run(correlationKey, groupJson);
+        runs.add(run);
+        long runId = runs.size();
+        runIdsByKey.put(correlationKey, runId);
+        return runId;
+    }
+
+    @Override
+    public void updateRun(Long runId, String status, Instant updatedAt, String lastNodeKey) {
+        Run run = run(runId);
+        run.status = status;
+    }
+
+    @Override
+    public void saveOccurrence(Long runId, String nodeKey, String eventId, Instant eventTimeUtc, Instant receivedAt,
+                               String payloadExcerpt, boolean isLate, boolean isDuplicate, boolean orderViolation, Long rawEventId) {
+        if (eventId != null) {
+            run(runId).seenEventIds.add(eventId);
+        }
+        occurrences++;
+    }
+
+    @Override
+    public CompiledWorkflowGraph graph(Long versionId) {
+        return graph;
+    }
+
+    @Override
+    public List<ExpectationRecord> clearExpectations(Long runId, String toNodeKey, Instant receivedAtUtc) {
+        PriorityQueue<Expectation> open = run(runId).openByNode.get(toNodeKey);
+        if (open == null || open.isEmpty()) {
+            return List.of();
+        }
+        Expectation counted = open.peek();
+        ExpectationRecord record = new ExpectationRecord(counted.id, counted.originAt, counted.dueAt, counted.severity, counted.status, counted.remaining - 1);
+        if (--counted.remaining == 0) {
+            open.poll();
+            counted.status = "cleared";
+        }
+        return List.of(record);
+    }
+
+    @Override
+    public void createExpectation(Long runId, String fromNodeKey, String toNodeKey, Instant originAt, Instant dueAt, Severity severity, int expectedCount) {
+        Expectation expectation = new Expectation(nextExpectationId++, runId, fromNodeKey, toNodeKey, originAt, dueAt, severity, expectedCount);
+        run(runId).openByNode.computeIfAbsent(toNodeKey, k -> new PriorityQueue<>(DUE_ORDER)).add(expectation);
+        pendingByDue.add(expectation);
+        expectationsCreated++;
+    }
+
+    @Override
+    public List<CancelledExpectation> completeRun(Long runId, Instant completedAt) {
+        Run run = run(runId);
+        if (run.completed) {
+            return List.of();
+        }
+        run.completed = true;
+        completedRuns++;
+        runIdsByKey.remove(run.correlationKey, runId);
+        List<CancelledExpectation> outstanding = new ArrayList<>();
+        for (PriorityQueue<Expectation> open : run.openByNode.values()) {
+            for (Expectation expectation : open) {
+                if (expectation.remaining > 0) {
+                    outstanding.add(new CancelledExpectation(expectation.toNodeKey, expectation.dueAt, expectation.remaining));
+                }
+                expectation.status = "cancelled";
+            }
+        }
+        run.openByNode.clear();
+        return outstanding;
+    }
+
+    @Override
+    public boolean hasSeenEvent(Long runId, String eventId) {
+        boolean seen = eventId != null && run(runId).seenEventIds.contains(eventId);
+        if (seen) {
+            duplicateEvents++;
+        }
+        return seen;
+    }
+
+    @Override
+    public RunContext loadRunContext(long runId) {
+        Run run = run(runId);
+        return new RunContext(workflowVersionId, run.correlationKey, run.groupJson);
+    }
+
+    @Override
+    public Map<Long, RunContext> loadRunContexts(Collection<Long> runIds) {
+        Map<Long, RunContext> contexts = new HashMap<>();
+        for (Long runId : runIds) {
+            contexts.put(runId, loadRunContext(runId));
+        }
+        return contexts;
+    }
+
+    @Override
+    public void updateRuns(List<RunUpdate> updates) {
+        for (RunUpdate update : updates) {
+            updateRun(update.runId(), update.status(), update.updatedAt(), update.lastNodeKey());
+        }
+    }
+
+    /**
+     * Marks and returns every still-pending expectation due at or before {@code watermark}, earliest
+     * first, as the live scheduler would claim them.
+     */
+    List<Expectation> claimDue(Instant watermark) {
+        List<Expectation> due = new ArrayList<>();
+        while (!pendingByDue.isEmpty() && !pendingByDue.peek().dueAt.isAfter(watermark)) {
+            Expectation expectation = pendingByDue.poll();
+            if ("pending".equals(expectation.status)) {
+                expectation.status = "fired";
+                due.add(expectation);
+            }
+        }
+        return due;
+    }
+
+    long pendingExpectations() {
+        return pendingByDue.stream().filter(e -> "pending".equals(e.status)).count();
+    }
+
+    long runCount() {
+        return runs.size();
+    }
+
+    Map<String, Long> runsByStatus() {
+        Map<String, Long> counts = new HashMap<>();
+        for (Run run : runs) {
+            counts.merge(run.status != null ? run.status : "green", 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    long completedRuns() {
+        return completedRuns;
+    }
+
+    long expectationsCreated() {
+        return expectationsCreated;
+    }
+
+    long occurrences() {
+        return occurrences;
+    }
+
+    long duplicateEvents() {
+        return duplicateEvents;
+    }
+
+    private Run run(long runId) {
+        if (runId < 1 || runId > runs.size()) {
+            throw new IllegalStateException("unknown simulated run " + runId);
+        }
+        return runs.get((int) runId - 1);
+    }
+
+    private static final class Run {
+        private final String correlationKey;
+        private final String groupJson;
+        private final Map<String, PriorityQueue<Expectation>> openByNode = new HashMap<>();
+        private final Set<String> seenEventIds = new HashSet<>();
+        private String status;
+        private boolean completed;
+
+        private Run(String correlationKey, String groupJson) {
+            this.correlationKey = correlationKey;
+            this.groupJson = groupJson;
+        }
+    }
+
+    static final class Expectation {
+        final long id;
+        final long runId;
+        final String fromNodeKey;
+        final String toNodeKey;
+        final Instant originAt;
+        final Instant dueAt;
+        final Severity severity;
+        final int expected;
+        int remaining;
+        String status = "pending";
+
+        private Expectation(long id, long runId, String fromNodeKey, String toNodeKey, Instant originAt, Instant dueAt,
+                            Severity severity, int expected) {
+            this.id = id;
+            this.runId = runId;
+            this.fromNodeKey = fromNodeKey;
+            this.toNodeKey = toNodeKey;
+            this.originAt = originAt;
+            this.dueAt = dueAt;
+            this.severity = severity;
+            this.expected = expected;
+            this.remaining = expected;
+        }
+    }
+}
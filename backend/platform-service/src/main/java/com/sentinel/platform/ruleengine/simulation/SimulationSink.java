@@ -0,0 +1,74 @@
+package com.sentinel.platform.ruleengine.simulation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.sentinel.platform.alerting.model.AlertTriggerEvent;
+import com.sentinel.platform.ruleengine.model.RuleEvaluatedEvent;
+import com.sentinel.platform.ruleengine.service.RuleEventSink;
+import com.sentinel.platform.ruleengine.web.dto.SimulationNodeView;
+
+/**
+ * Collects simulated outcomes in memory: per-node completed/late/failed/in-flight totals (the same
+ * deltas the aggregation service would apply) and the raised alerts up to a cap.
+ */
+final class SimulationSink implements RuleEventSink {
+    private final Map<String, long[]> nodeTotals = new TreeMap<>();
+    private final Map<String, Long> alertsByReason = new LinkedHashMap<>();
+    private final List<AlertTriggerEvent> alerts = new ArrayList<>();
+    private final int maxAlerts;
+    private boolean alertsTruncated;
+
+    SimulationSink(int maxAlerts) {
+        this.maxAlerts = maxAlerts;
+    }
+
+    @Override
+    public void publishRuleEvaluated(RuleEvaluatedEvent event) {
+        long[] totals = totals(event.getNode());
+        totals[0] += event.getCompletedDelta();
+        totals[1] += event.getLateDelta();
+        totals[2] += event.getFailedDelta();
+        event.forEachInFlightDelta((node, delta) -> totals(node)[3] += delta);
+    }
+
+    @Override
+    public void publishAlertTriggered(AlertTriggerEvent alert) {
+        alertsByReason.merge(alert.getReason(), 1L, Long::sum);
+        if (alerts.size() < maxAlerts) {
+            alerts.add(alert);
+        } else {
+            alertsTruncated = true;
+        }
+    }
+
+    void registerNodes(Iterable<String> nodeKeys) {
+        nodeKeys.forEach(this::totals);
+    }
+
+    List<SimulationNodeView> nodes() {
+        return nodeTotals.entrySet().stream()
+                .map(e -> new SimulationNodeView(e.getKey(), e.getValue()[0], e.getValue()[1], e.getValue()[2],
+                        Math.max(0, e.getValue()[3])))
+                .toList();
+    }
+
+    Map<String, Long> alertsByReason() {
+        return alertsByReason;
+    }
+
+    List<AlertTriggerEvent> alerts() {
+        return alerts;
+    }
+
+    boolean alertsTruncated() {
+        return alertsTruncated;
+    }
+
+    private long[] totals(String node) {
+        return nodeTotals.computeIfAbsent(node, k -> new long[4]);
+    }
+}
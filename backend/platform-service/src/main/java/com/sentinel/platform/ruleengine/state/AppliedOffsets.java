@@ -0,0 +1,122 @@
+package com.sentinel.platform.ruleengine.state;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+@Component
+public class AppliedOffsets {
+    /**
+     * Tracks, per partition of the normalized topic, which records the rule engine has fully applied.
+     * Evaluations finish out of offset order once they are spread over bulkheads, so the last record read
+     * says nothing about engine state; the watermark here is the lowest offset still being evaluated (or
+     * the next offset to arrive when nothing is), i.e. every record below it has been applied to the
+     * database and to {@link RunStateCache}, and the pipeline stages are done with its outcomes. It is also
+     * the offset the engine commits to Kafka.
+     */
+    private final Map<Integer, Progress> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * Starts tracking a newly assigned partition whose next record is at {@code position}.
+     */
+    public void reset(int partition, long position) {
+        partitions.put(partition, new Progress(position));
+    }
+
+    public void remove(int partition) {
+        partitions.remove(partition);
+    }
+
+    public void dispatched(int partition, long offset) {
+        partitions.computeIfAbsent(partition, p -> new Progress(offset)).dispatched(offset);
+    }
+
+    public void applied(int partition, long offset) {
+        Progress progress = partitions.get(partition);
+        if (progress != null) {
+            progress.applied(offset);
+        }
+    }
+
+    /**
+     * Forgets a dispatched record that was refused after all; its partition will be read again from
+     * {@code offset}, so nothing at or after it counts as dispatched.
+     */
+    public void withdrawn(int partition, long offset) {
+        Progress progress = partitions.get(partition);
+        if (progress != null) {
+            progress.withdrawn(offset);
+        }
+    }
+
+    /**
+     * Offset below which every record of {@code partition} has been applied, or -1 if untracked.
+     */
+    public long watermark(int partition) {
+        Progress progress = partitions.get(partition);
+        return progress != null ? progress.watermark() : -1;
+    }
+
+    /**
+     * Waits until every record dispatched so far for {@code partitions} has been applied; the caller must
+     * stop dispatching to them first. Returns false if evaluations were still running at the timeout.
+     */
+    public boolean awaitApplied(Collection<Integer> partitions, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (Integer partition : partitions) {
+            Progress progress = this.partitions.get(partition);
+            if (progress != null && !progress.awaitIdle(deadline)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Progress {
+        private final TreeSet<Long> inFlight = new TreeSet<>();
+        private long next;
+
+        private Progress(long next) {
+            this.next = next;
+        }
+
+        private synchronized void dispatched(long offset) {
+            inFlight.add(offset);
+            next = Math.max(next, offset + 1);
+        }
+
+        private synchronized void applied(long offset) {
+            inFlight.remove(offset);
+            if (inFlight.isEmpty()) {
+                notifyAll();
+            }
+        }
+
+        private synchronized void withdrawn(long offset) {
+            inFlight.remove(offset);
+            next = Math.min(next, offset);
+            if (inFlight.isEmpty()) {
+                notifyAll();
+            }
+        }
+
+        private synchronized boolean awaitIdle(long deadlineNanos) throws InterruptedException {
+            while (!inFlight.isEmpty()) {
+                long remaining = deadlineNanos - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return true;
+        }
+
+        private synchronized long watermark() {
+            return inFlight.isEmpty() ? next : inFlight.first();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.sentinel.platform.ruleengine.state;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.stereotype.Component;
+
+import com.sentinel.platform.ruleengine.config.RuleEngineProperties;
+
+@Component
+public class PartitionOwnership {
+    /**
+     * The normalized-topic partitions this node currently consumes, as handed out by the consumer group.
+     * Normalized events are keyed by correlation key, so every run, and every timer of the run, belongs
+     * to exactly one partition and therefore to exactly one node at a time. Runs are stamped with that
+     * partition when created, the scheduler claims only the timers of owned partitions, and the run
+     * state cache is warmed and dropped as partitions come and go.
+     */
+    private final boolean enabled;
+    private final Set<Integer> owned = ConcurrentHashMap.newKeySet();
+    private volatile int partitionCount;
+
+    public PartitionOwnership(RuleEngineProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isPartitionOwnershipEnabled();
+        Gauge.builder("ruleengine.partitions.owned", owned, Set::size).register(meterRegistry);
+    }
+
+    /**
+     * Partition of {@code correlationKey} in a topic of {@code partitionCount} partitions, the same
+     * assignment the producer's default partitioner makes for a keyed record; -1 if the count is unknown.
+     */
+    public static int partitionFor(String correlationKey, int partitionCount) {
+        if (partitionCount <= 0 || correlationKey == null) {
+            return -1;
+        }
+        return Utils.toPositive(Utils.murmur2(correlationKey.getBytes(StandardCharsets.UTF_8))) % partitionCount;
+    }
+
+    public int partitionOf(String correlationKey) {
+        return partitionFor(correlationKey, partitionCount);
+    }
+
+    public int partitionCount() {
+        return partitionCount;
+    }
+
+    public void assigned(int count, Collection<Integer> partitions) {
+        partitionCount = count;
+        owned.addAll(partitions);
+    }
+
+    public void revoked(Collection<Integer> partitions) {
+        owned.removeAll(partitions);
+    }
+
+    /**
+     * Partitions whose timers this node fires, or null when ownership is disabled and every node fires
+     * every timer. Rows without a partition are fired by whichever node claims them first either way.
+     */
+    public List<Integer> timerPartitions() {
+        return enabled ? List.copyOf(owned) : null;
+    }
+}
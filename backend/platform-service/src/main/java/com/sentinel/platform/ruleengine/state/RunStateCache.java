@@ -0,0 +1,307 @@
+package com.sentinel.platform.ruleengine.state;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.sentinel.platform.ruleengine.config.RuleEngineProperties;
+
+@Component
+public class RunStateCache {
+    /**
+     * In-memory run state for the normalized-topic partitions this node consumes: the run id of each
+     * {@code (workflowVersionId, correlationKey)} and the event ids already applied to the run, so the
+     * per-event run lookup and duplicate check are answered without a query once a run is warm. Events
+     * are keyed by correlation key, so each run belongs to one partition and only its consumer mutates
+     * it; entries are held per partition and only consulted while that partition is active here. A
+     * revoked or restored partition is dormant: its entries are valid for every record below a known
+     * offset and become active again once the keys consumed elsewhere since then have been evicted.
+     * Least recently used runs are evicted beyond {@code ruleengine.state-cache-max-runs}; expectations
+     * stay database-only because the scheduler and compaction change them outside the event stream.
+     */
+    private static final Logger log = LoggerFactory.getLogger(RunStateCache.class);
+
+    private final boolean enabled;
+    private final int maxRuns;
+    private final LinkedHashMap<Long, CachedRun> byRunId = new LinkedHashMap<>(1024, 0.75f, true);
+    private final Map<RunKey, CachedRun> byKey = new HashMap<>();
+    private final Set<Integer> active = new HashSet<>();
+    private final Map<Integer, Long> dormant = new HashMap<>();
+    private final Set<Long> changed = new LinkedHashSet<>();
+    private int partitionCount;
+
+    public RunStateCache(RuleEngineProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isStateCacheEnabled();
+        this.maxRuns = properties.getStateCacheMaxRuns();
+        Gauge.builder("ruleengine.state.cache.runs", this, RunStateCache::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized Long runId(Long workflowVersionId, String correlationKey) {
+        if (!enabled || correlationKey == null) {
+            return null;
+        }
+        CachedRun run = byKey.get(new RunKey(workflowVersionId, correlationKey));
+        if (run == null || !active.contains(run.partition)) {
+            return null;
+        }
+        byRunId.get(run.runId);
+        return run.runId;
+    }
+
+    /**
+     * Caches the run id for a key of an active partition. A run this node just created has no events
+     * yet, so its seen set starts complete; a run found in the database loads its seen set on the first
+     * duplicate check.
+     */
+    public synchronized void putRun(Long workflowVersionId, String correlationKey, long runId, boolean created) {
+        if (!enabled || correlationKey == null) {
+            return;
+        }
+        int partition = PartitionOwnership.partitionFor(correlationKey, partitionCount);
+        if (partition < 0 || !active.contains(partition)) {
+            return;
+        }
+        RunKey key = new RunKey(workflowVersionId, correlationKey);
+        CachedRun existing = byKey.get(key);
+        if (existing != null && existing.runId == runId) {
+            return;
+        }
+        if (existing != null) {
+            remove(existing);
+        }
+        add(new CachedRun(partition, workflowVersionId, correlationKey, runId, created));
+        while (byRunId.size() > maxRuns) {
+            remove(byRunId.values().iterator().next());
+        }
+    }
+
+    /**
+     * Drops a completed run, so the next event for its key looks up (or starts) an open run instead.
+     */
+    public synchronized void evictRun(long runId) {
+        CachedRun run = byRunId.get(runId);
+        if (run != null) {
+            remove(run);
+        }
+    }
+
+    /**
+     * Whether the run has already applied {@code eventId}, or null when the cache cannot tell and the
+     * caller has to ask the database.
+     */
+    public synchronized Boolean hasSeen(long runId, String eventId) {
+        CachedRun run = activeRun(runId);
+        if (run == null) {
+            return null;
+        }
+        if (run.seen.contains(eventId)) {
+            return Boolean.TRUE;
+        }
+        return run.seenComplete ? Boolean.FALSE : null;
+    }
+
+    public synchronized boolean isCached(long runId) {
+        return activeRun(runId) != null;
+    }
+
+    /**
+     * Completes a cached run's seen set with the event ids stored for it.
+     */
+    public synchronized void loadSeen(long runId, Collection<String> eventIds) {
+        CachedRun run = activeRun(runId);
+        if (run != null) {
+            run.seen.addAll(eventIds);
+            run.seenComplete = true;
+            changed.add(runId);
+        }
+    }
+
+    public synchronized void markSeen(long runId, String eventId) {
+        CachedRun run = activeRun(runId);
+        if (run != null && run.seen.add(eventId)) {
+            changed.add(runId);
+        }
+    }
+
+    /**
+     * Records the topic's partition count, which decides the partition of each correlation key. If it
+     * changed, keys have moved between partitions and nothing cached can be attributed any more.
+     */
+    public synchronized void partitionCount(int count) {
+        if (partitionCount != 0 && partitionCount != count) {
+            log.warn("Normalized topic partition count changed; clearing run state cache previous={} current={} runs={}",
+                    partitionCount, count, byRunId.size());
+            new ArrayList<>(byRunId.values()).forEach(this::remove);
+            active.clear();
+            dormant.clear();
+        }
+        partitionCount = count;
+    }
+
+    /**
+     * Offset below which the dormant entries of {@code partition} are valid, or null if it has none.
+     */
+    public synchronized Long dormantWatermark(int partition) {
+        return dormant.get(partition);
+    }
+
+    /**
+     * Makes {@code partition} active after evicting the runs of {@code staleKeys}, the correlation keys
+     * consumed since its dormant entries were valid; with null keys its entries are all dropped.
+     */
+    public synchronized void activate(int partition, Set<String> staleKeys) {
+        dormant.remove(partition);
+        int evicted = evict(partition, staleKeys);
+        active.add(partition);
+        log.debug("Run state cache partition active partition={} evicted={}", partition, evicted);
+    }
+
+    /**
+     * Stops serving {@code partition}; its entries stay dormant, valid below {@code watermark}, or are
+     * dropped when the watermark is unknown (-1).
+     */
+    public synchronized void deactivate(int partition, long watermark) {
+        active.remove(partition);
+        if (watermark >= 0) {
+            dormant.put(partition, watermark);
+        } else {
+            dormant.remove(partition);
+            evict(partition, null);
+        }
+    }
+
+    /**
+     * Captures the state to persist: the applied-offset watermark of every partition with entries and
+     * either every entry ({@code full}) or only those changed since the previous capture. Watermarks are
+     * read under the same lock as the entries, so every record below a watermark is reflected.
+     */
+    synchronized Checkpoint capture(AppliedOffsets offsets, boolean full) {
+        Map<Integer, Long> watermarks = new HashMap<>(dormant);
+        for (int partition : active) {
+            long watermark = offsets.watermark(partition);
+            if (watermark >= 0) {
+                watermarks.put(partition, watermark);
+            }
+        }
+        List<RunEntry> upserts = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+        if (full) {
+            byRunId.values().forEach(run -> upserts.add(run.toEntry()));
+        } else {
+            for (Long runId : changed) {
+                CachedRun run = byRunId.get(runId);
+                if (run != null) {
+                    upserts.add(run.toEntry());
+                } else {
+                    removed.add(runId);
+                }
+            }
+        }
+        changed.clear();
+        return new Checkpoint(partitionCount, watermarks, upserts, removed);
+    }
+
+    /**
+     * Loads restored entries as dormant partitions; entries of partitions without a watermark are skipped.
+     */
+    synchronized void restore(int restoredPartitionCount, Map<Integer, Long> watermarks, Collection<RunEntry> entries) {
+        partitionCount = restoredPartitionCount;
+        dormant.putAll(watermarks);
+        for (RunEntry entry : entries) {
+            if (watermarks.containsKey(entry.partition())) {
+                CachedRun run = new CachedRun(entry.partition(), entry.workflowVersionId(), entry.correlationKey(),
+                        entry.runId(), entry.seenComplete());
+                run.seen.addAll(entry.seenEventIds());
+                byRunId.put(run.runId, run);
+                byKey.put(new RunKey(run.workflowVersionId, run.correlationKey), run);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return byRunId.size();
+    }
+
+    private CachedRun activeRun(long runId) {
+        if (!enabled) {
+            return null;
+        }
+        CachedRun run = byRunId.get(runId);
+        return run != null && active.contains(run.partition) ? run : null;
+    }
+
+    private int evict(int partition, Set<String> keys) {
+        int evicted = 0;
+        for (Iterator<CachedRun> it = byRunId.values().iterator(); it.hasNext(); ) {
+            CachedRun run = it.next();
+            if (run.partition == partition && (keys == null || keys.contains(run.correlationKey))) {
+                it.remove();
+                byKey.remove(new RunKey(run.workflowVersionId, run.correlationKey));
+                changed.add(run.runId);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private void add(CachedRun run) {
+        byRunId.put(run.runId, run);
+        byKey.put(new RunKey(run.workflowVersionId, run.correlationKey), run);
+        changed.add(run.runId);
+    }
+
+    private void remove(CachedRun run) {
+        byRunId.remove(run.runId);
+        byKey.remove(new RunKey(run.workflowVersionId, run.correlationKey));
+        changed.add(run.runId);
+    }
+
+    public record RunEntry(int partition,
+                           long workflowVersionId,
+                           String correlationKey,
+                           long runId,
+                           boolean seenComplete,
+                           List<String> seenEventIds) {}
+
+    record Checkpoint(int partitionCount, Map<Integer, Long> watermarks, List<RunEntry> upserts, List<Long> removedRunIds) {}
+
+    private record RunKey(long workflowVersionId, String correlationKey) {}
+
+    private static final class CachedRun {
+        private final int partition;
+        private final long workflowVersionId;
+        private final String correlationKey;
+        private final long runId;
+        private final Set<String> seen = new HashSet<>();
+        private boolean seenComplete;
+
+        private CachedRun(int partition, long workflowVersionId, String correlationKey, long runId, boolean seenComplete) {
+            this.partition = partition;
+            this.workflowVersionId = workflowVersionId;
+            this.correlationKey = correlationKey;
+            this.runId = runId;
+            this.seenComplete = seenComplete;
+        }
+
+        private RunEntry toEntry() {
+            return new RunEntry(partition, workflowVersionId, correlationKey, runId, seenComplete, List.copyOf(seen));
+        }
+    }
+}
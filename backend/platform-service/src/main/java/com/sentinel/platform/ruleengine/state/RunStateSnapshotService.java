@@ -0,0 +1,230 @@
+package com.sentinel.platform.ruleengine.state;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.sentinel.platform.ruleengine.config.RuleEngineProperties;
+import com.sentinel.platform.ruleengine.repository.RuleEngineStateRepository;
+import com.sentinel.platform.ruleengine.state.RunStateCache.Checkpoint;
+
+@Service
+public class RunStateSnapshotService {
+    /**
+     * Persists {@link RunStateCache} to a local snapshot every {@code ruleengine.state-snapshot-interval-seconds}
+     * and on shutdown, and restores it on startup so a restarted node begins warm. Each checkpoint carries
+     * the applied-offset watermark of every partition it covers. Restored partitions stay dormant until
+     * Kafka assigns them back: the records between the watermark and the group's position were applied
+     * by this node after the checkpoint or by another node meanwhile, so only that offset gap is read back
+     * (keys only) and the runs it touched are evicted. If the gap is too large or no longer retained, the
+     * partition starts cold instead, and is warmed with its most recently updated unfinished runs. A
+     * revoked partition is checkpointed straight away, so whichever node takes it over and later hands
+     * it back finds its state on disk.
+     */
+    private static final Logger log = LoggerFactory.getLogger(RunStateSnapshotService.class);
+    private static final Duration GAP_POLL = Duration.ofMillis(500);
+    private static final long GAP_READ_TIMEOUT_MILLIS = 60_000;
+
+    private final RuleEngineProperties properties;
+    private final RunStateCache cache;
+    private final AppliedOffsets appliedOffsets;
+    private final PartitionOwnership partitionOwnership;
+    private final RuleEngineStateRepository stateRepository;
+    private final ConsumerFactory<?, ?> consumerFactory;
+    private final StateSnapshotStore store;
+
+    public RunStateSnapshotService(RuleEngineProperties properties,
+                                   RunStateCache cache,
+                                   AppliedOffsets appliedOffsets,
+                                   PartitionOwnership partitionOwnership,
+                                   RuleEngineStateRepository stateRepository,
+                                   ConsumerFactory<?, ?> consumerFactory) {
+        this.properties = properties;
+        this.cache = cache;
+        this.appliedOffsets = appliedOffsets;
+        this.partitionOwnership = partitionOwnership;
+        this.stateRepository = stateRepository;
+        this.consumerFactory = consumerFactory;
+        this.store = cache.isEnabled() ? new StateSnapshotStore(Path.of(properties.getStateSnapshotDirectory())) : null;
+        if (store != null) {
+            restore();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ruleengine.state-snapshot-interval-seconds:30}000")
+    public void scheduledCheckpoint() {
+        if (store == null) {
+            return;
+        }
+        try {
+            checkpoint();
+        } catch (RuntimeException ex) {
+            log.warn("Run state checkpoint failed; retrying with a full snapshot next time", ex);
+        }
+    }
+
+    /**
+     * Writes the changes since the last checkpoint, or the whole cache when no base exists yet or the
+     * appended changes have grown past the base.
+     */
+    public synchronized void checkpoint() {
+        boolean full = !store.hasBase() || store.logBytes() > 2 * Math.max(store.baseBytes(), 1024 * 1024);
+        long started = System.nanoTime();
+        Checkpoint checkpoint = cache.capture(appliedOffsets, full);
+        if (full) {
+            store.writeBase(checkpoint);
+        } else if (!checkpoint.upserts().isEmpty() || !checkpoint.removedRunIds().isEmpty()) {
+            store.append(checkpoint);
+        } else {
+            return;
+        }
+        log.debug("Run state checkpoint written full={} upserts={} removed={} partitions={} logBytes={} tookMs={}",
+                full, checkpoint.upserts().size(), checkpoint.removedRunIds().size(), checkpoint.watermarks().size(),
+                store.logBytes(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Activates newly assigned partitions of the normalized topic. {@code consumer} is the listener's
+     * consumer, positioned where consumption of each partition resumes; {@link PartitionOwnership} and
+     * {@link AppliedOffsets} have already recorded the assignment.
+     */
+    public void partitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (store == null || partitions.isEmpty()) {
+            return;
+        }
+        cache.partitionCount(partitionOwnership.partitionCount());
+        for (TopicPartition partition : partitions) {
+            long position = consumer.position(partition);
+            Long watermark = cache.dormantWatermark(partition.partition());
+            Set<String> staleKeys = Set.of();
+            if (watermark != null && watermark < position) {
+                staleKeys = gapKeys(partition, watermark, position);
+            } else if (watermark != null && watermark > position) {
+                // The group is behind the snapshot (offsets reset or a different cluster): trust nothing.
+                staleKeys = null;
+            }
+            cache.activate(partition.partition(), staleKeys);
+            int warmed = 0;
+            if (watermark == null || staleKeys == null) {
+                warmed = warm(partition.partition());
+            }
+            log.info("Run state partition assigned partition={} position={} restoredWatermark={} gapKeys={} warmedRuns={}",
+                    partition.partition(), position, watermark, staleKeys != null ? staleKeys.size() : "cold", warmed);
+        }
+    }
+
+    /**
+     * Stops serving revoked partitions from the cache and flushes their state to the snapshot; called
+     * before {@link AppliedOffsets} forgets them, so the snapshot records their final watermark.
+     */
+    public void partitionsRevoked(Collection<TopicPartition> partitions) {
+        if (store == null || partitions.isEmpty()) {
+            return;
+        }
+        for (TopicPartition partition : partitions) {
+            cache.deactivate(partition.partition(), appliedOffsets.watermark(partition.partition()));
+        }
+        try {
+            checkpoint();
+        } catch (RuntimeException ex) {
+            log.warn("Run state checkpoint after revocation failed partitions={}", partitions, ex);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (store == null) {
+            return;
+        }
+        try {
+            checkpoint();
+        } catch (RuntimeException ex) {
+            log.warn("Final run state checkpoint failed", ex);
+        } finally {
+            store.close();
+        }
+    }
+
+    private void restore() {
+        try {
+            StateSnapshotStore.Restored restored = store.load();
+            if (restored == null) {
+                log.info("No run state snapshot to restore directory={}", properties.getStateSnapshotDirectory());
+                return;
+            }
+            cache.restore(restored.partitionCount(), restored.watermarks(), restored.entries());
+            log.info("Run state snapshot restored runs={} partitions={} watermarks={}",
+                    cache.size(), restored.watermarks().size(), restored.watermarks());
+        } catch (RuntimeException ex) {
+            log.warn("Run state snapshot unreadable; starting cold directory={}", properties.getStateSnapshotDirectory(), ex);
+        }
+    }
+
+    private int warm(int partition) {
+        try {
+            return stateRepository.warmRunCache(partition, properties.getStateCacheWarmRunsPerPartition());
+        } catch (RuntimeException ex) {
+            log.warn("Run state cache warm-up failed partition={}", partition, ex);
+            return 0;
+        }
+    }
+
+    /**
+     * Correlation keys of the records in {@code [from, to)}, or null if they cannot all be read.
+     */
+    private Set<String> gapKeys(TopicPartition partition, long from, long to) {
+        if (to - from > properties.getStateSnapshotMaxGapRecords()) {
+            log.info("Run state gap too large; starting partition cold partition={} gap={}", partition.partition(), to - from);
+            return null;
+        }
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        overrides.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        try (Consumer<?, ?> reader = consumerFactory.createConsumer(null, null, "-state-gap", overrides)) {
+            reader.assign(List.of(partition));
+            Long earliest = reader.beginningOffsets(List.of(partition)).get(partition);
+            if (earliest != null && earliest > from) {
+                log.info("Run state gap no longer retained; starting partition cold partition={} from={} earliest={}",
+                        partition.partition(), from, earliest);
+                return null;
+            }
+            reader.seek(partition, from);
+            Set<String> keys = new HashSet<>();
+            long deadline = System.currentTimeMillis() + GAP_READ_TIMEOUT_MILLIS;
+            while (reader.position(partition) < to) {
+                if (System.currentTimeMillis() > deadline) {
+                    log.warn("Run state gap read timed out; starting partition cold partition={} from={} to={}",
+                            partition.partition(), from, to);
+                    return null;
+                }
+                for (ConsumerRecord<?, ?> record : reader.poll(GAP_POLL)) {
+                    if (record.offset() < to && record.key() != null) {
+                        keys.add(record.key().toString());
+                    }
+                }
+            }
+            return keys;
+        } catch (RuntimeException ex) {
+            log.warn("Run state gap read failed; starting partition cold partition={}", partition.partition(), ex);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.sentinel.platform.ruleengine.state;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import com.sentinel.platform.ruleengine.state.RunStateCache.Checkpoint;
+import com.sentinel.platform.ruleengine.state.RunStateCache.RunEntry;
+
+/**
+ * Local snapshot of {@link RunStateCache}: an append-only log of entry upserts and removals plus an
+ * index with one checksummed record per checkpoint (log length, partition count and per-partition
+ * applied-offset watermarks). A checkpoint appends only what changed since the previous one; the log is
+ * fsynced before its index record, so the last intact index record always describes a complete log
+ * prefix and anything after it is a torn write that is ignored. Once the appended changes outgrow the
+ * base the state is rewritten as a new generation (written aside, fsynced and renamed into place, index
+ * last) and older generations are deleted.
+ */
+final class StateSnapshotStore implements Closeable {
+    private static final String PREFIX = "engine-state-";
+    private static final Pattern INDEX_NAME = Pattern.compile(PREFIX + "(\\d+)\\.idx");
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+
+    private final Path directory;
+    private long generation;
+    private long sequence;
+    private FileChannel log;
+    private FileChannel index;
+    private long logBytes;
+    private long baseBytes;
+
+    StateSnapshotStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create state snapshot directory " + directory, e);
+        }
+    }
+
+    /**
+     * Reads the newest generation up to its last intact checkpoint, or returns null if there is none.
+     */
+    Restored load() {
+        Path indexPath = latestIndex();
+        if (indexPath == null) {
+            return null;
+        }
+        Matcher matcher = INDEX_NAME.matcher(indexPath.getFileName().toString());
+        matcher.matches();
+        generation = Long.parseLong(matcher.group(1));
+        IndexRecord last = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            while (true) {
+                IndexRecord record = readIndexRecord(in);
+                if (record == null) {
+                    break;
+                }
+                last = record;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read state snapshot index " + indexPath, e);
+        }
+        if (last == null) {
+            return null;
+        }
+        sequence = last.sequence();
+        Map<Long, RunEntry> entries = new LinkedHashMap<>();
+        Path logPath = logPath(generation);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logPath)))) {
+            long remaining = last.logEnd();
+            while (remaining > 0) {
+                byte op = in.readByte();
+                if (op == PUT) {
+                    RunEntry entry = readEntry(in);
+                    entries.put(entry.runId(), entry);
+                    remaining -= entrySize(entry);
+                } else if (op == REMOVE) {
+                    entries.remove(in.readLong());
+                    remaining -= 1 + Long.BYTES;
+                } else {
+                    throw new IOException("Unknown state snapshot op " + op + " at offset " + (last.logEnd() - remaining));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read state snapshot log " + logPath, e);
+        }
+        return new Restored(last.partitionCount(), last.watermarks(), new ArrayList<>(entries.values()));
+    }
+
+    /**
+     * Writes {@code checkpoint} (which must hold every entry) as a new generation and continues appending
+     * to it.
+     */
+    void writeBase(Checkpoint checkpoint) {
+        close();
+        long next = generation + 1;
+        Path tmpLog = directory.resolve(PREFIX + next + ".log.tmp");
+        Path tmpIndex = directory.resolve(PREFIX + next + ".idx.tmp");
+        try {
+            long logEnd;
+            try (FileChannel channel = FileChannel.open(tmpLog, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                logEnd = write(channel, encodeChanges(checkpoint));
+                channel.force(true);
+            }
+            try (FileChannel channel = FileChannel.open(tmpIndex, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                write(channel, encodeIndexRecord(++sequence, logEnd, checkpoint));
+                channel.force(true);
+            }
+            Files.move(tmpLog, logPath(next), StandardCopyOption.ATOMIC_MOVE);
+            Files.move(tmpIndex, indexPath(next), StandardCopyOption.ATOMIC_MOVE);
+            generation = next;
+            logBytes = logEnd;
+            baseBytes = logEnd;
+            log = FileChannel.open(logPath(next), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            index = FileChannel.open(indexPath(next), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            deleteGenerationsBefore(next);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write state snapshot generation " + next, e);
+        }
+    }
+
+    /**
+     * Appends the changes in {@code checkpoint} to the current generation.
+     */
+    void append(Checkpoint checkpoint) {
+        if (log == null) {
+            throw new IllegalStateException("no state snapshot generation open for append");
+        }
+        try {
+            logBytes += write(log, encodeChanges(checkpoint));
+            log.force(false);
+            write(index, encodeIndexRecord(++sequence, logBytes, checkpoint));
+            index.force(false);
+        } catch (IOException e) {
+            // The log may now end in a partial write; stop appending so the next checkpoint writes a base.
+            close();
+            throw new UncheckedIOException("Unable to append state snapshot checkpoint", e);
+        }
+    }
+
+    boolean hasBase() {
+        return log != null;
+    }
+
+    long logBytes() {
+        return logBytes;
+    }
+
+    long baseBytes() {
+        return baseBytes;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (log != null) {
+                log.close();
+                log = null;
+            }
+            if (index != null) {
+                index.close();
+                index = null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to close state snapshot", e);
+        }
+    }
+
+    private Path latestIndex() {
+        Path latest = null;
+        long latestGeneration = -1;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*.idx")) {
+            for (Path path : stream) {
+                Matcher matcher = INDEX_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches() && Long.parseLong(matcher.group(1)) > latestGeneration
+                        && Files.exists(logPath(Long.parseLong(matcher.group(1))))) {
+                    latestGeneration = Long.parseLong(matcher.group(1));
+                    latest = path;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to list state snapshot directory " + directory, e);
+        }
+        return latest;
+    }
+
+    private void deleteGenerationsBefore(long keep) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*")) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                String number = name.substring(PREFIX.length(), name.indexOf('.'));
+                if (number.chars().allMatch(Character::isDigit) && Long.parseLong(number) < keep) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private Path logPath(long gen) {
+        return directory.resolve(PREFIX + gen + ".log");
+    }
+
+    private Path indexPath(long gen) {
+        return directory.resolve(PREFIX + gen + ".idx");
+    }
+
+    private static byte[] encodeChanges(Checkpoint checkpoint) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (RunEntry entry : checkpoint.upserts()) {
+            out.writeByte(PUT);
+            out.writeInt(entry.partition());
+            out.writeLong(entry.workflowVersionId());
+            out.writeUTF(entry.correlationKey());
+            out.writeLong(entry.runId());
+            out.writeBoolean(entry.seenComplete());
+            out.writeInt(entry.seenEventIds().size());
+            for (String eventId : entry.seenEventIds()) {
+                out.writeUTF(eventId);
+            }
+        }
+        for (Long runId : checkpoint.removedRunIds()) {
+            out.writeByte(REMOVE);
+            out.writeLong(runId);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static RunEntry readEntry(DataInputStream in) throws IOException {
+        int partition = in.readInt();
+        long workflowVersionId = in.readLong();
+        String correlationKey = in.readUTF();
+        long runId = in.readLong();
+        boolean seenComplete = in.readBoolean();
+        int seenCount = in.readInt();
+        List<String> seen = new ArrayList<>(seenCount);
+        for (int i = 0; i < seenCount; i++) {
+            seen.add(in.readUTF());
+        }
+        return new RunEntry(partition, workflowVersionId, correlationKey, runId, seenComplete, seen);
+    }
+
+    private static long entrySize(RunEntry entry) {
+        long size = 1 + Integer.BYTES + Long.BYTES + utfSize(entry.correlationKey()) + Long.BYTES + 1 + Integer.BYTES;
+        for (String eventId : entry.seenEventIds()) {
+            size += utfSize(eventId);
+        }
+        return size;
+    }
+
+    private static long utfSize(String value) {
+        long size = 2;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            size += c >= 0x0001 && c <= 0x007F ? 1 : c > 0x07FF ? 3 : 2;
+        }
+        return size;
+    }
+
+    private static byte[] encodeIndexRecord(long sequence, long logEnd, Checkpoint checkpoint) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeLong(sequence);
+        body.writeLong(logEnd);
+        body.writeInt(checkpoint.partitionCount());
+        body.writeInt(checkpoint.watermarks().size());
+        for (Map.Entry<Integer, Long> watermark : checkpoint.watermarks().entrySet()) {
+            body.writeInt(watermark.getKey());
+            body.writeLong(watermark.getValue());
+        }
+        body.flush();
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + payload.length + Long.BYTES);
+        record.putInt(payload.length).put(payload).putLong(crc.getValue());
+        return record.array();
+    }
+
+    /**
+     * Next intact index record, or null at the end of the index or at a torn or corrupt record.
+     */
+    private static IndexRecord readIndexRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0 || length > 1 << 24) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            long expected = in.readLong();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if (crc.getValue() != expected) {
+                return null;
+            }
+            DataInputStream body = new DataInputStream(new ByteArrayInputStream(payload));
+            long sequence = body.readLong();
+            long logEnd = body.readLong();
+            int partitionCount = body.readInt();
+            int watermarkCount = body.readInt();
+            Map<Integer, Long> watermarks = new HashMap<>();
+            for (int i = 0; i < watermarkCount; i++) {
+                watermarks.put(body.readInt(), body.readLong());
+            }
+            return new IndexRecord(sequence, logEnd, partitionCount, watermarks);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static int write(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return bytes.length;
+    }
+
+    record Restored(int partitionCount, Map<Integer, Long> watermarks, List<RunEntry> entries) {}
+
+    private record IndexRecord(long sequence, long logEnd, int partitionCount, Map<Integer, Long> watermarks) {}
+}
@@ -0,0 +1,32 @@
+package com.sentinel.platform.ruleengine.web;
+
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.sentinel.platform.ruleengine.simulation.SimulationService;
+import com.sentinel.platform.ruleengine.web.dto.SimulationRequest;
+import com.sentinel.platform.ruleengine.web.dto.SimulationResult;
+
+@RestController
+public class SimulationController {
+    private final SimulationService simulationService;
+
+    public SimulationController(SimulationService simulationService) {
+        this.simulationService = simulationService;
+    }
+
+    @PostMapping("/simulate")
+    @PreAuthorize("hasRole('operator') or hasRole('config-admin')")
+    public SimulationResult simulate(@Valid @RequestBody SimulationRequest request) {
+        try {
+            return simulationService.simulate(request);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+}
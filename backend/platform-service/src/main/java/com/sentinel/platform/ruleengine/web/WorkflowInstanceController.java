@@ -33,8 +33,9 @@ public class WorkflowInstanceController {
                                              @RequestParam(value = "page", defaultValue = "0") int page,
                                              @RequestParam(value = "size", defaultValue = "20") int size,
                                              @RequestParam(value = "date", required = false) String date,
-                                             @RequestParam(value = "allDays", defaultValue = "false") boolean allDays) {
+                                             @RequestParam(value = "allDays", defaultValue = "false") boolean allDays,
+                                             @RequestParam(value = "activeOnly", defaultValue = "false") boolean activeOnly) {
         DateRange range = dateRangeParser.resolve(date, allDays);
-        return workflowInstanceQueryService.findInstances(key, groupHash, stage, range, page, size);
+        return workflowInstanceQueryService.findInstances(key, groupHash, stage, range, activeOnly, page, size);
     }
 }
@@ -19,6 +19,7 @@ public record ItemTimelineView(
         Map<String, Object> group,
         List<TimelineEventView> events,
         List<TimelineExpectationView> pendingExpectations,
+        List<TimelineExpectationView> resolvedExpectations,
         List<TimelineAlertView> alerts
 ) {
 }
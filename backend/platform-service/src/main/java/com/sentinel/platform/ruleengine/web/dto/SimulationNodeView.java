@@ -0,0 +1,4 @@
+package com.sentinel.platform.ruleengine.web.dto;
+
+public record SimulationNodeView(String nodeKey, long completed, long late, long failed, long inFlight) {
+}
@@ -0,0 +1,59 @@
+package com.sentinel.platform.ruleengine.web.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.validation.constraints.NotEmpty;
+
+import com.sentinel.platform.ingestion.model.NormalizedEvent;
+
+public class SimulationRequest {
+    /**
+     * Stored version to simulate; alternatively supply an unpublished {@link #graph}.
+     */
+    private Long workflowVersionId;
+
+    private Map<String, Object> graph;
+
+    @NotEmpty
+    private List<NormalizedEvent> sampleEvents;
+
+    /**
+     * Advance the simulated clock to this instant after the last event so outstanding expectations due
+     * by then are fired as misses.
+     */
+    private Instant until;
+
+    public Long getWorkflowVersionId() {
+        return workflowVersionId;
+    }
+
+    public void setWorkflowVersionId(Long workflowVersionId) {
+        this.workflowVersionId = workflowVersionId;
+    }
+
+    public Map<String, Object> getGraph() {
+        return graph;
+    }
+
+    public void setGraph(Map<String, Object> graph) {
+        this.graph = graph;
+    }
+
+    public List<NormalizedEvent> getSampleEvents() {
+        return sampleEvents;
+    }
+
+    public void setSampleEvents(List<NormalizedEvent> sampleEvents) {
+        this.sampleEvents = sampleEvents;
+    }
+
+    public Instant getUntil() {
+        return until;
+    }
+
+    public void setUntil(Instant until) {
+        this.until = until;
+    }
+}
@@ -0,0 +1,24 @@
+package com.sentinel.platform.ruleengine.web.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import com.sentinel.platform.alerting.model.AlertTriggerEvent;
+
+public record SimulationResult(Long workflowVersionId,
+                               long eventsProcessed,
+                               long eventsUnmatched,
+                               long eventsDuplicate,
+                               long runs,
+                               Map<String, Long> runsByStatus,
+                               long runsCompleted,
+                               long expectationsCreated,
+                               long expectationsPending,
+                               long missesFired,
+                               Map<String, Long> alertsByReason,
+                               List<AlertTriggerEvent> alerts,
+                               boolean alertsTruncated,
+                               List<SimulationNodeView> nodes,
+                               long tookMs,
+                               long eventsPerSecond) {
+}
@@ -7,6 +7,8 @@ public record TimelineExpectationView(
         String to,
         Instant dueAt,
         String severity,
-        String status
+        String status,
+        int expected,
+        int remaining
 ) {
 }
@@ -12,6 +12,7 @@ public record WorkflowInstanceView(
         String currentStage,
         Instant startedAt,
         Instant updatedAt,
+        Instant completedAt,
         Instant lastEventAt,
         String groupHash,
         String groupLabel,
@@ -0,0 +1,12 @@
+package com.sentinel.platform.shared.logging;
+
+/**
+ * Per-event log categories that are rate limited by {@link HotPathLogSampler}. Anomalies
+ * (late, order violation, DLQ) are intentionally not categories: they are always logged.
+ */
+public enum HotPathCategory {
+    INGEST,
+    RULE_EVALUATION,
+    AGGREGATION,
+    SCHEDULER
+}
@@ -0,0 +1,69 @@
+package com.sentinel.platform.shared.logging;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+@Component
+public class HotPathLogSampler {
+    /**
+     * Decides whether a per-event log line should be written. Callers guard the log statement with
+     * {@link #sample(HotPathCategory)} so argument formatting (maps, instants) only happens for the
+     * lines that are actually emitted. Each category combines 1-in-N sampling with a per-second cap.
+     */
+    private final boolean enabled;
+    private final Map<HotPathCategory, CategoryWindow> windows = new EnumMap<>(HotPathCategory.class);
+
+    public HotPathLogSampler(HotPathLoggingProperties properties) {
+        this.enabled = properties.isEnabled();
+        for (HotPathCategory category : HotPathCategory.values()) {
+            HotPathLoggingProperties.CategoryLimits limits = properties.getCategories().get(category);
+            long sampleEvery = limits != null && limits.getSampleEvery() != null ? limits.getSampleEvery() : properties.getSampleEvery();
+            int maxPerSecond = limits != null && limits.getMaxPerSecond() != null ? limits.getMaxPerSecond() : properties.getMaxPerSecond();
+            windows.put(category, new CategoryWindow(Math.max(1, sampleEvery), Math.max(0, maxPerSecond)));
+        }
+    }
+
+    public boolean sample(HotPathCategory category) {
+        if (!enabled) {
+            return false;
+        }
+        return windows.get(category).tryAcquire(System.currentTimeMillis() / 1000);
+    }
+
+    /**
+     * Number of events seen for the category since startup, sampled or not. Useful as context in the
+     * sampled line itself so operators can tell how much was skipped.
+     */
+    public long seen(HotPathCategory category) {
+        return windows.get(category).seen.get();
+    }
+
+    private static final class CategoryWindow {
+        private final long sampleEvery;
+        private final int maxPerSecond;
+        private final AtomicLong seen = new AtomicLong();
+        private final AtomicLong windowSecond = new AtomicLong();
+        private final AtomicInteger emittedInWindow = new AtomicInteger();
+
+        private CategoryWindow(long sampleEvery, int maxPerSecond) {
+            this.sampleEvery = sampleEvery;
+            this.maxPerSecond = maxPerSecond;
+        }
+
+        boolean tryAcquire(long nowSecond) {
+            long count = seen.incrementAndGet();
+            if (maxPerSecond == 0 || (sampleEvery > 1 && count % sampleEvery != 0)) {
+                return false;
+            }
+            long current = windowSecond.get();
+            if (current != nowSecond && windowSecond.compareAndSet(current, nowSecond)) {
+                emittedInWindow.set(0);
+            }
+            return emittedInWindow.incrementAndGet() <= maxPerSecond;
+        }
+    }
+}
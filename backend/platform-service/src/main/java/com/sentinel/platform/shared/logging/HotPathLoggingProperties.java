@@ -0,0 +1,96 @@
+package com.sentinel.platform.shared.logging;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import jakarta.validation.constraints.Min;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Validated
+@ConfigurationProperties(prefix = "hot-path-logging")
+public class HotPathLoggingProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Emit one in every N events per category (1 logs every event subject to the rate cap).
+     */
+    @Min(1)
+    private long sampleEvery = 100;
+
+    /**
+     * Hard cap of sampled lines per category per second.
+     */
+    @Min(0)
+    private int maxPerSecond = 5;
+
+    /**
+     * Capacity of the async console appender queue; read by logback-spring.xml.
+     */
+    @Min(256)
+    private int asyncQueueSize = 8192;
+
+    private Map<HotPathCategory, CategoryLimits> categories = new EnumMap<>(HotPathCategory.class);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getSampleEvery() {
+        return sampleEvery;
+    }
+
+    public void setSampleEvery(long sampleEvery) {
+        this.sampleEvery = sampleEvery;
+    }
+
+    public int getMaxPerSecond() {
+        return maxPerSecond;
+    }
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    public void setAsyncQueueSize(int asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
+    public Map<HotPathCategory, CategoryLimits> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(Map<HotPathCategory, CategoryLimits> categories) {
+        this.categories = categories;
+    }
+
+    public static class CategoryLimits {
+        private Long sampleEvery;
+        private Integer maxPerSecond;
+
+        public Long getSampleEvery() {
+            return sampleEvery;
+        }
+
+        public void setSampleEvery(Long sampleEvery) {
+            this.sampleEvery = sampleEvery;
+        }
+
+        public Integer getMaxPerSecond() {
+            return maxPerSecond;
+        }
+
+        public void setMaxPerSecond(Integer maxPerSecond) {
+            this.maxPerSecond = maxPerSecond;
+        }
+    }
+}
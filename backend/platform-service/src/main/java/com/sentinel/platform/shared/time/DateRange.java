@@ -19,6 +19,12 @@ public record DateRange(Instant start, Instant end, boolean allDays) {
         return new DateRange(start, end, false);
     }
 
+    public static DateRange forDays(LocalDate first, LocalDate last) {
+        Instant start = first.atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant end = last.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        return new DateRange(start, end, false);
+    }
+
     public boolean isAllDays() {
         return allDays;
     }
@@ -1,12 +1,16 @@
 package com.sentinel.platform.shared.time;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 
 import org.springframework.stereotype.Service;
 
 @Service
 public class DateRangeParser {
+    private static final int MAX_LAST_MINUTES = 7 * 24 * 60;
 
     public DateRange resolve(String date, boolean allDays) {
         if (allDays || (date != null && "all".equalsIgnoreCase(date.trim()))) {
@@ -24,4 +28,44 @@ public class DateRangeParser {
         }
         return DateRange.forDay(day);
     }
+
+    /**
+     * Like {@link #resolve(String, boolean)}, but an inclusive {@code from}..{@code to} span of days wins
+     * when either is given (a missing end means that single day). Unlike {@code date}, malformed or
+     * reversed days are rejected rather than replaced by today.
+     */
+    public DateRange resolve(String date, String from, String to, boolean allDays) {
+        if (isBlank(from) && isBlank(to)) {
+            return resolve(date, allDays);
+        }
+        LocalDate first = parseDay(isBlank(from) ? to : from);
+        LocalDate last = parseDay(isBlank(to) ? from : to);
+        if (last.isBefore(first)) {
+            throw new IllegalArgumentException("to " + last + " is before from " + first);
+        }
+        return DateRange.forDays(first, last);
+    }
+
+    /**
+     * The current minute and the {@code minutes - 1} before it.
+     */
+    public DateRange lastMinutes(int minutes) {
+        if (minutes < 1 || minutes > MAX_LAST_MINUTES) {
+            throw new IllegalArgumentException("lastMinutes must be between 1 and " + MAX_LAST_MINUTES);
+        }
+        Instant end = Instant.now().truncatedTo(ChronoUnit.MINUTES).plus(1, ChronoUnit.MINUTES);
+        return new DateRange(end.minus(minutes, ChronoUnit.MINUTES), end, false);
+    }
+
+    private static LocalDate parseDay(String value) {
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("invalid day " + value + " (expected YYYY-MM-DD)");
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
 }
@@ -0,0 +1,38 @@
+package com.sentinel.platform.shared.time;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Settable UTC clock for replays and simulations: the driver moves it to the received time of the event
+ * about to be evaluated (or the due time of a miss being fired), so timestamps the rule engine derives
+ * from "now" reflect the replayed timeline rather than wall-clock time.
+ */
+public final class VirtualClock extends Clock {
+    private volatile Instant instant;
+
+    public VirtualClock(Instant start) {
+        this.instant = start;
+    }
+
+    public void set(Instant instant) {
+        this.instant = instant;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return Clock.fixed(instant, zone);
+    }
+
+    @Override
+    public Instant instant() {
+        return instant;
+    }
+}
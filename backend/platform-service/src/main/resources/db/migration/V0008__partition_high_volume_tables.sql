@@ -0,0 +1,56 @@
+-- Convert the high-volume runtime tables to daily RANGE partitions. MariaDB requires the partitioning
+-- column in every unique key and does not allow foreign keys on partitioned tables, so primary/unique
+-- keys are widened with the time column and the child-side foreign keys are dropped. Idempotency is
+-- still enforced by the repositories (event_raw lookup by source id, event_occurrence lookup by event id).
+--
+-- Every table starts with a single catch-all partition; PartitionMaintenanceService splits it into
+-- daily pYYYYMMDD partitions ahead of time and drops/detaches the expired ones.
+
+ALTER TABLE event_raw
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, received_at),
+    DROP INDEX uq_event_source,
+    ADD UNIQUE KEY uq_event_source (source_system, source_event_id, received_at);
+
+ALTER TABLE event_raw
+    PARTITION BY RANGE (TO_DAYS(received_at)) (
+        PARTITION p_future VALUES LESS THAN MAXVALUE
+    );
+
+ALTER TABLE event_occurrence
+    DROP FOREIGN KEY fk_occurrence_run;
+
+ALTER TABLE event_occurrence
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, received_at),
+    DROP INDEX uq_occurrence_run_event,
+    ADD UNIQUE KEY uq_occurrence_run_event (workflow_run_id, event_id, received_at);
+
+ALTER TABLE event_occurrence
+    PARTITION BY RANGE (TO_DAYS(received_at)) (
+        PARTITION p_future VALUES LESS THAN MAXVALUE
+    );
+
+ALTER TABLE expectation
+    DROP FOREIGN KEY fk_expectation_run;
+
+ALTER TABLE expectation
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, created_at);
+
+ALTER TABLE expectation
+    PARTITION BY RANGE (TO_DAYS(created_at)) (
+        PARTITION p_future VALUES LESS THAN MAXVALUE
+    );
+
+ALTER TABLE stage_aggregate
+    DROP FOREIGN KEY fk_stageagg_workflow_version;
+
+ALTER TABLE stage_aggregate
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, bucket_start);
+
+ALTER TABLE stage_aggregate
+    PARTITION BY RANGE (TO_DAYS(bucket_start)) (
+        PARTITION p_future VALUES LESS THAN MAXVALUE
+    );
@@ -0,0 +1,38 @@
+-- Replay jobs re-evaluate historical event_raw rows through the rule engine. A job walks the
+-- (received_at, id) keyset in chunks and checkpoints its cursor after every chunk so it can resume.
+CREATE TABLE replay_job (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    workflow_key VARCHAR(100) NOT NULL,
+    workflow_version_id BIGINT NOT NULL,
+    mode VARCHAR(20) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    from_time DATETIME(3) NOT NULL,
+    to_time DATETIME(3) NOT NULL,
+    workers INT NOT NULL,
+    max_events_per_sec INT NOT NULL,
+    emit_alerts BOOLEAN NOT NULL DEFAULT FALSE,
+    cursor_received_at DATETIME(3),
+    cursor_event_id BIGINT,
+    events_processed BIGINT NOT NULL DEFAULT 0,
+    misses_emitted BIGINT NOT NULL DEFAULT 0,
+    alerts_suppressed BIGINT NOT NULL DEFAULT 0,
+    error_message VARCHAR(1000),
+    requested_by VARCHAR(200),
+    created_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    started_at DATETIME(3),
+    heartbeat_at DATETIME(3),
+    finished_at DATETIME(3),
+    KEY idx_replay_status (status, heartbeat_at),
+    KEY idx_replay_version (workflow_version_id, mode, status)
+);
+
+-- Shadow state set: same shape as the live runtime tables, written only by SHADOW replays so a new
+-- workflow version can be evaluated against history without touching live runs, alerts or wallboards.
+CREATE TABLE shadow_workflow_run LIKE workflow_run;
+CREATE TABLE shadow_event_occurrence LIKE event_occurrence;
+CREATE TABLE shadow_expectation LIKE expectation;
+CREATE TABLE shadow_stage_aggregate LIKE stage_aggregate;
+
+ALTER TABLE shadow_event_occurrence REMOVE PARTITIONING;
+ALTER TABLE shadow_expectation REMOVE PARTITIONING;
+ALTER TABLE shadow_stage_aggregate REMOVE PARTITIONING;
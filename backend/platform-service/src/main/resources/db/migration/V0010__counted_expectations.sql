@@ -0,0 +1,10 @@
+-- Counted expectations: an edge with expected_count N creates one expectation row that tracks how many
+-- occurrences are still outstanding instead of N identical rows. Arrivals decrement remaining_count and
+-- the row clears when it reaches zero; a miss fires once and reports remaining_count as the shortfall.
+ALTER TABLE expectation
+    ADD COLUMN expected_count INT NOT NULL DEFAULT 1 AFTER severity,
+    ADD COLUMN remaining_count INT NOT NULL DEFAULT 1 AFTER expected_count;
+
+ALTER TABLE shadow_expectation
+    ADD COLUMN expected_count INT NOT NULL DEFAULT 1 AFTER severity,
+    ADD COLUMN remaining_count INT NOT NULL DEFAULT 1 AFTER expected_count;
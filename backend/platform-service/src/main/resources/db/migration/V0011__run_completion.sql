@@ -0,0 +1,10 @@
+-- Runs that reach a terminal node are stamped with completed_at and their outstanding expectations are
+-- cancelled in bulk. Active-run queries filter on completed_at IS NULL, so the index keeps the in-flight
+-- working set separate from completed history.
+ALTER TABLE workflow_run
+    ADD COLUMN completed_at DATETIME(3) NULL AFTER last_node_key,
+    ADD INDEX idx_run_active (workflow_version_id, completed_at, updated_at);
+
+ALTER TABLE shadow_workflow_run
+    ADD COLUMN completed_at DATETIME(3) NULL AFTER last_node_key,
+    ADD INDEX idx_run_active (workflow_version_id, completed_at, updated_at);
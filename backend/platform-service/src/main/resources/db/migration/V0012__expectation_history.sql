@@ -0,0 +1,9 @@
+-- Resolved expectations (cleared, fired, cancelled) are compacted out of the live expectation table into
+-- expectation_history once they are past the compaction horizon, so the (status, due_at) index the
+-- scheduler polls only covers actionable timers. The history table keeps the same shape and daily
+-- partitioning; it is read by the item timeline and rotated by PartitionMaintenanceService.
+CREATE TABLE expectation_history LIKE expectation;
+
+ALTER TABLE expectation_history
+    DROP INDEX idx_due_status,
+    DROP INDEX idx_expectation_status_due;
@@ -0,0 +1,4 @@
+-- Names the rule engine bulkhead a workflow's evaluations run in (ruleengine.bulkheads.*). NULL means
+-- the default bulkhead.
+ALTER TABLE workflow
+    ADD COLUMN bulkhead VARCHAR(64) NULL AFTER owner;
@@ -0,0 +1,5 @@
+-- Absolute edge deadlines can be read in an IANA zone and restricted to the business days of a named
+-- calendar (ruleengine.calendar-directory). NULL keeps the UTC, every-day behaviour.
+ALTER TABLE workflow_edge
+    ADD COLUMN deadline_zone VARCHAR(64) NULL AFTER absolute_deadline,
+    ADD COLUMN deadline_calendar VARCHAR(64) NULL AFTER deadline_zone;
@@ -0,0 +1,20 @@
+-- Records the normalized-topic partition each run's events are keyed to, copied onto its expectations, so
+-- an engine node fires only the timers of the partitions it consumes and can warm its run state cache
+-- for a newly assigned partition. NULL means the partition was unknown when the row was written; any
+-- node fires those.
+ALTER TABLE workflow_run
+    ADD COLUMN kafka_partition INT NULL AFTER correlation_key,
+    ADD INDEX idx_run_partition_updated (kafka_partition, updated_at);
+
+ALTER TABLE expectation
+    ADD COLUMN kafka_partition INT NULL AFTER workflow_run_id,
+    ADD INDEX idx_expectation_partition_due (status, kafka_partition, due_at);
+
+ALTER TABLE shadow_workflow_run
+    ADD COLUMN kafka_partition INT NULL AFTER correlation_key;
+
+ALTER TABLE shadow_expectation
+    ADD COLUMN kafka_partition INT NULL AFTER workflow_run_id;
+
+ALTER TABLE expectation_history
+    ADD COLUMN kafka_partition INT NULL AFTER workflow_run_id;
@@ -0,0 +1,17 @@
+-- Stage-to-stage latency. Expectations keep the event time of the event that raised them, so clearing
+-- one yields the latency of the stage it guards; each stage_aggregate row carries a mergeable log-linear
+-- histogram (LatencyHistogram) of the latencies that cleared into its node during its minute.
+ALTER TABLE expectation
+    ADD COLUMN origin_at DATETIME(3) NULL AFTER to_node_key;
+
+ALTER TABLE shadow_expectation
+    ADD COLUMN origin_at DATETIME(3) NULL AFTER to_node_key;
+
+ALTER TABLE expectation_history
+    ADD COLUMN origin_at DATETIME(3) NULL AFTER to_node_key;
+
+ALTER TABLE stage_aggregate
+    ADD COLUMN latency_histogram BLOB NULL AFTER failed;
+
+ALTER TABLE shadow_stage_aggregate
+    ADD COLUMN latency_histogram BLOB NULL AFTER failed;
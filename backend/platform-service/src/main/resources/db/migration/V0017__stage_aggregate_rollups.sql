@@ -0,0 +1,41 @@
+-- Hour and day rollups of stage_aggregate, built by AggregateRollupService from closed buckets of the
+-- next finer resolution, so long-range queries read one row per node, group and hour/day instead of
+-- every minute. Rollups hold no NULL group hash ('' stands for "no group") so the primary key is a real
+-- upsert key. The hour table rotates daily partitions like stage_aggregate; day rows are pruned by the
+-- rollup job. aggregate_rollup_state records up to where each resolution has been rolled.
+CREATE TABLE stage_aggregate_hour (
+    workflow_version_id BIGINT NOT NULL,
+    group_dim_hash VARCHAR(200) NOT NULL DEFAULT '',
+    node_key VARCHAR(100) NOT NULL,
+    bucket_start DATETIME(0) NOT NULL,
+    in_flight BIGINT NOT NULL DEFAULT 0,
+    completed BIGINT NOT NULL DEFAULT 0,
+    late BIGINT NOT NULL DEFAULT 0,
+    failed BIGINT NOT NULL DEFAULT 0,
+    latency_histogram BLOB NULL,
+    PRIMARY KEY (workflow_version_id, group_dim_hash, node_key, bucket_start),
+    KEY idx_stage_hour_version (workflow_version_id, bucket_start)
+)
+    PARTITION BY RANGE (TO_DAYS(bucket_start)) (
+        PARTITION p_future VALUES LESS THAN MAXVALUE
+    );
+
+CREATE TABLE stage_aggregate_day (
+    workflow_version_id BIGINT NOT NULL,
+    group_dim_hash VARCHAR(200) NOT NULL DEFAULT '',
+    node_key VARCHAR(100) NOT NULL,
+    bucket_start DATETIME(0) NOT NULL,
+    in_flight BIGINT NOT NULL DEFAULT 0,
+    completed BIGINT NOT NULL DEFAULT 0,
+    late BIGINT NOT NULL DEFAULT 0,
+    failed BIGINT NOT NULL DEFAULT 0,
+    latency_histogram BLOB NULL,
+    PRIMARY KEY (workflow_version_id, group_dim_hash, node_key, bucket_start),
+    KEY idx_stage_day_version (workflow_version_id, bucket_start),
+    KEY idx_stage_day_bucket (bucket_start)
+);
+
+CREATE TABLE aggregate_rollup_state (
+    resolution VARCHAR(10) NOT NULL PRIMARY KEY,
+    rolled_until DATETIME(0) NOT NULL
+);
@@ -0,0 +1,12 @@
+-- Current in-flight count per workflow version, group and node. AggregationService adds every
+-- in-flight delta here as it does to the minute bucket, so the backlog is one row read instead of a sum
+-- over all of stage_aggregate; InFlightReconciliationService corrects drift against the pending and
+-- fired expectations. '' stands for "no group" so the primary key is a real upsert key.
+CREATE TABLE stage_inflight (
+    workflow_version_id BIGINT NOT NULL,
+    group_dim_hash VARCHAR(200) NOT NULL DEFAULT '',
+    node_key VARCHAR(100) NOT NULL,
+    in_flight BIGINT NOT NULL DEFAULT 0,
+    updated_at DATETIME(3) NOT NULL,
+    PRIMARY KEY (workflow_version_id, group_dim_hash, node_key)
+);
@@ -0,0 +1,14 @@
+-- Distinct correlation keys per stage. Every stage_aggregate row carries a HyperLogLog sketch
+-- (DistinctSketch) of the correlation keys whose events reached its node during its bucket; rollups merge
+-- the sketches of their finer rows, so distinct counts over any range read sketches instead of events.
+ALTER TABLE stage_aggregate
+    ADD COLUMN distinct_sketch BLOB NULL AFTER latency_histogram;
+
+ALTER TABLE shadow_stage_aggregate
+    ADD COLUMN distinct_sketch BLOB NULL AFTER latency_histogram;
+
+ALTER TABLE stage_aggregate_hour
+    ADD COLUMN distinct_sketch BLOB NULL AFTER latency_histogram;
+
+ALTER TABLE stage_aggregate_day
+    ADD COLUMN distinct_sketch BLOB NULL AFTER latency_histogram;
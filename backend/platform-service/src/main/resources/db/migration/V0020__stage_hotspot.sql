@@ -0,0 +1,15 @@
+-- Hotspot lists (longest overdue expectations, slowest stage latencies) are kept in memory by each node
+-- for the runs it evaluates. Every node writes its lists here per workflow version and group ('' for no
+-- group) whenever they change, so any node can answer /workflows/{id}/hotspots for the whole cluster.
+-- Nodes touch updated_at on every flush; rows of nodes that stopped flushing are ignored, then deleted.
+CREATE TABLE stage_hotspot (
+    workflow_version_id BIGINT NOT NULL,
+    group_dim_hash VARCHAR(200) NOT NULL DEFAULT '',
+    instance_id VARCHAR(64) NOT NULL,
+    overdue JSON,
+    slowest JSON,
+    updated_at DATETIME(3) NOT NULL,
+    PRIMARY KEY (workflow_version_id, group_dim_hash, instance_id),
+    KEY idx_stage_hotspot_instance (instance_id),
+    KEY idx_stage_hotspot_updated (updated_at)
+);
@@ -0,0 +1,14 @@
+-- Outstanding expectations per workflow version, group ('' for no group), target node and due minute.
+-- The rule engine adds each expectation's occurrences when it is created and subtracts them when arrivals
+-- clear it or run completion cancels it, so the age of a stage's backlog is read from due_minute against
+-- the clock instead of rescanning expectation. Minutes overdue past the last age boundary are folded into
+-- one row per stage at due_minute 1970-01-01, which keeps the table to a few rows per stage and minute.
+CREATE TABLE stage_backlog (
+    workflow_version_id BIGINT NOT NULL,
+    group_dim_hash VARCHAR(200) NOT NULL DEFAULT '',
+    node_key VARCHAR(100) NOT NULL,
+    due_minute DATETIME NOT NULL,
+    outstanding BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (workflow_version_id, group_dim_hash, node_key, due_minute),
+    KEY idx_stage_backlog_due (due_minute)
+);
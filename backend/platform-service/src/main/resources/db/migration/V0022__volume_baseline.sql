@@ -0,0 +1,16 @@
+-- Completions baseline per workflow version, group ('' for no group), node and hour of the UTC week
+-- (0 = Monday 00:00). VolumeAnomalyService folds every closed hour of stage_aggregate_hour into its slot
+-- as a running mean and variance, and compares the trailing window's completions with the slots it spans
+-- to alert on feeds that went quiet. How far hours have been learned is kept in aggregate_rollup_state
+-- under resolution 'baseline'.
+CREATE TABLE volume_baseline (
+    workflow_version_id BIGINT NOT NULL,
+    group_dim_hash VARCHAR(200) NOT NULL DEFAULT '',
+    node_key VARCHAR(100) NOT NULL,
+    hour_of_week SMALLINT NOT NULL,
+    samples INT NOT NULL,
+    mean DOUBLE NOT NULL,
+    variance DOUBLE NOT NULL,
+    PRIMARY KEY (workflow_version_id, group_dim_hash, node_key, hour_of_week),
+    KEY idx_volume_baseline_hour (hour_of_week)
+);
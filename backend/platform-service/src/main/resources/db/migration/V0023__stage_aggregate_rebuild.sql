@@ -0,0 +1,16 @@
+-- Staging for aggregate rebuilds: minute buckets recomputed from event_occurrence and expectation history
+-- are written here per time slice, then swapped into stage_aggregate one slice per transaction. Slices own
+-- disjoint bucket ranges, so rows are written once and never merged. A null group is stored as ''.
+CREATE TABLE stage_aggregate_rebuild (
+    workflow_version_id BIGINT NOT NULL,
+    group_dim_hash VARCHAR(200) NOT NULL DEFAULT '',
+    node_key VARCHAR(100) NOT NULL,
+    bucket_start DATETIME(0) NOT NULL,
+    in_flight INT NOT NULL DEFAULT 0,
+    completed INT NOT NULL DEFAULT 0,
+    late INT NOT NULL DEFAULT 0,
+    failed INT NOT NULL DEFAULT 0,
+    latency_histogram BLOB NULL,
+    distinct_sketch BLOB NULL,
+    PRIMARY KEY (workflow_version_id, bucket_start, group_dim_hash, node_key)
+);
@@ -0,0 +1,41 @@
+-- V0008 had to widen the natural unique keys of the partitioned tables with their partitioning column,
+-- so the database stopped rejecting a duplicate that arrives with a different received_at. The natural
+-- keys move into small unpartitioned tables that keep the original uniqueness; writers claim the key
+-- in the same transaction (or just before) the partitioned row is inserted. received_at is carried so
+-- partition maintenance can prune keys together with the expired partitions.
+--
+-- The child-side foreign keys dropped by V0008 are replaced by guarded inserts: occurrences and
+-- expectations are written with insert ... select from workflow_run, and stage_aggregate rows with
+-- insert ... select from workflow_version, so a row can no longer reference a missing parent.
+
+CREATE TABLE event_raw_key (
+    source_system VARCHAR(100) NOT NULL,
+    source_event_id VARCHAR(200) NOT NULL,
+    received_at DATETIME(3) NOT NULL,
+    PRIMARY KEY (source_system, source_event_id),
+    KEY idx_event_raw_key_received (received_at)
+);
+
+INSERT IGNORE INTO event_raw_key (source_system, source_event_id, received_at)
+SELECT source_system, source_event_id, MIN(received_at)
+FROM event_raw
+GROUP BY source_system, source_event_id;
+
+CREATE TABLE event_occurrence_key (
+    workflow_run_id BIGINT NOT NULL,
+    event_id VARCHAR(200) NOT NULL,
+    received_at DATETIME(3) NOT NULL,
+    PRIMARY KEY (workflow_run_id, event_id),
+    KEY idx_event_occurrence_key_received (received_at)
+);
+
+INSERT IGNORE INTO event_occurrence_key (workflow_run_id, event_id, received_at)
+SELECT workflow_run_id, event_id, MIN(received_at)
+FROM event_occurrence
+WHERE event_id IS NOT NULL
+GROUP BY workflow_run_id, event_id;
+
+-- The shadow copy is not partitioned, so it can carry the original key directly.
+ALTER TABLE shadow_event_occurrence
+    DROP INDEX uq_occurrence_run_event,
+    ADD UNIQUE KEY uq_occurrence_run_event (workflow_run_id, event_id);
@@ -0,0 +1,12 @@
+-- Catalog of event_raw partitions archived into segments. The segment files live in archive.directory;
+-- this row is the cluster-wide record that the partition's parts were committed, so any node can tell an
+-- archived day from a missing one and partition rotation can wait for it before dropping the partition.
+CREATE TABLE raw_event_archive (
+    source VARCHAR(100) NOT NULL PRIMARY KEY,
+    partition_day DATE NOT NULL,
+    parts INT NOT NULL,
+    record_count BIGINT NOT NULL,
+    segment_bytes BIGINT NOT NULL,
+    archived_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    UNIQUE KEY uq_raw_event_archive_day (partition_day)
+);
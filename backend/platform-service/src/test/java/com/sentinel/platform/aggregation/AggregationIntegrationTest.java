@@ -0,0 +1,317 @@
+package com.sentinel.platform.aggregation;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.MariaDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.sentinel.platform.PlatformApplication;
+import com.sentinel.platform.aggregation.model.AggregateResolution;
+import com.sentinel.platform.aggregation.repository.StageAggregateRollupRepository;
+import com.sentinel.platform.aggregation.service.InFlightReconciliationService;
+import com.sentinel.platform.ingestion.model.NormalizedEvent;
+import com.sentinel.platform.ruleconfig.service.WorkflowService;
+import com.sentinel.platform.ruleconfig.web.dto.WorkflowRequest;
+import com.sentinel.platform.ruleengine.service.RuleEngineService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Testcontainers
+@SpringBootTest(classes = PlatformApplication.class, webEnvironment = WebEnvironment.MOCK)
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = {
+        "ruleengine.scheduler-enabled=false",
+        "logging.level.com.sentinel.platform=DEBUG",
+        "spring.kafka.listener.auto-startup=false"
+})
+class AggregationIntegrationTest {
+
+    @Container
+    static MariaDBContainer<?> mariaDb = new MariaDBContainer<>("mariadb:10.6")
+            .withDatabaseName("aggregation")
+            .withUsername("aggregation_user")
+            .withPassword("password");
+
+    @DynamicPropertySource
+    static void registerProperties(DynamicPropertyRegistry registry) {
+        if (!mariaDb.isRunning()) {
+            mariaDb.start();
+        }
+        registry.add("spring.datasource.url", mariaDb::getJdbcUrl);
+        registry.add("spring.datasource.username", mariaDb::getUsername);
+        registry.add("spring.datasource.password", mariaDb::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+    }
+
+    @Autowired
+    private WorkflowService workflowService;
+
+    @Autowired
+    private RuleEngineService ruleEngineService;
+
+    @Autowired
+    private StageAggregateRollupRepository rollupRepository;
+
+    @Autowired
+    private InFlightReconciliationService inFlightReconciliationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private KafkaTemplate<Object, Object> kafkaTemplate;
+
+    @BeforeEach
+    void stubKafka() {
+        lenient().when(kafkaTemplate.send(any(Message.class))).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    @WithMockUser(roles = {"viewer"})
+    void latencyEndpointReportsClearedStageLatency() throws Exception {
+        long versionId = createWorkflow("settlement-flow", "PAYMENT");
+        Instant origin = Instant.now().minusSeconds(60);
+        handle("PAYMENT_INGEST", "payment-1", origin);
+        handle("PAYMENT_SETTLED", "payment-1", origin.plusSeconds(30));
+
+        waitFor(() -> jdbcTemplate.queryForObject("""
+                select count(*) from stage_aggregate
+                where workflow_version_id = ? and node_key = 'settled' and latency_histogram is not null
+                """, Integer.class, versionId) > 0, Duration.ofSeconds(15));
+
+        mockMvc.perform(get("/workflows/" + versionId + "/latency").param("allDays", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.nodeKey == 'settled')].samples", contains(1)))
+                .andExpect(jsonPath("$[?(@.nodeKey == 'settled')].p50Ms",
+                        everyItem(allOf(greaterThanOrEqualTo(27_000), lessThanOrEqualTo(33_000)))));
+        String today = LocalDate.now(ZoneOffset.UTC).toString();
+        mockMvc.perform(get("/workflows/" + versionId + "/latency").param("from", today).param("to", today))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.nodeKey == 'settled')].samples", contains(1)));
+        mockMvc.perform(get("/workflows/" + versionId + "/latency").param("from", "not-a-day"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(roles = {"viewer"})
+    void distinctEndpointCountsEachCorrelationKeyOnce() throws Exception {
+        long versionId = createWorkflow("refund-flow", "REFUND");
+        Instant now = Instant.now();
+        handle("REFUND_INGEST", "refund-1", now.minusSeconds(30));
+        handle("REFUND_INGEST", "refund-2", now.minusSeconds(20));
+        handle("REFUND_INGEST", "refund-1", now.minusSeconds(10));
+
+        waitFor(() -> {
+            Integer completed = jdbcTemplate.queryForObject("""
+                    select coalesce(sum(completed), 0) from stage_aggregate
+                    where workflow_version_id = ? and node_key = 'ingest'
+                    """, Integer.class, versionId);
+            return completed >= 3 && distinctAtIngest(versionId).contains("\"distinctCorrelations\":2");
+        }, Duration.ofSeconds(15));
+
+        mockMvc.perform(get("/workflows/" + versionId + "/distinct").param("allDays", "true").param("node", "ingest"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].nodeKey", contains("ingest")))
+                .andExpect(jsonPath("$[*].distinctCorrelations", contains(2)));
+        mockMvc.perform(get("/workflows/" + versionId + "/distinct").param("lastMinutes", "60").param("step", "bogus"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(roles = {"viewer"})
+    void distinctOverLastMinutesReadsPartialHourBeforeWatermarkFromMinutes() throws Exception {
+        long versionId = createWorkflow("chargeback-flow", "CHARGEBACK");
+        Instant now = Instant.now();
+        Instant rolledHour = AggregateResolution.HOUR.truncate(now.minus(Duration.ofMinutes(60)));
+        // Before the range but in the same rolled hour, inside the range ahead of the watermark, and after it.
+        handle("CHARGEBACK_INGEST", "chargeback-early", now.minus(Duration.ofMinutes(65)), now.minus(Duration.ofMinutes(65)));
+        handle("CHARGEBACK_INGEST", "chargeback-head", now.minus(Duration.ofMinutes(58)), now.minus(Duration.ofMinutes(58)));
+        handle("CHARGEBACK_INGEST", "chargeback-tail", now.minus(Duration.ofMinutes(2)), now.minus(Duration.ofMinutes(2)));
+
+        waitFor(() -> jdbcTemplate.queryForObject("""
+                select coalesce(sum(completed), 0) from stage_aggregate
+                where workflow_version_id = ? and node_key = 'ingest'
+                """, Integer.class, versionId) >= 3, Duration.ofSeconds(15));
+        rollupRepository.rollUp(AggregateResolution.HOUR, rolledHour);
+
+        mockMvc.perform(get("/workflows/" + versionId + "/distinct").param("lastMinutes", "60").param("node", "ingest"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].nodeKey", contains("ingest")))
+                .andExpect(jsonPath("$[*].distinctCorrelations", contains(2)));
+    }
+
+    @Test
+    @WithMockUser(roles = {"viewer"})
+    void inFlightGaugeHoldsTheBacklogAndReconcilesDrift() throws Exception {
+        long versionId = createWorkflow("payout-flow", "PAYOUT");
+        Instant now = Instant.now();
+        // Spread over three minutes, so the latest minute bucket only holds the settlement's -1.
+        handle("PAYOUT_INGEST", "payout-1", now.minus(Duration.ofMinutes(3)), now.minus(Duration.ofMinutes(3)));
+        handle("PAYOUT_INGEST", "payout-2", now.minus(Duration.ofMinutes(2)), now.minus(Duration.ofMinutes(2)));
+        handle("PAYOUT_SETTLED", "payout-1", now.minus(Duration.ofMinutes(1)), now.minus(Duration.ofMinutes(1)));
+
+        waitFor(() -> inFlightGauge(versionId) == 1 && jdbcTemplate.queryForObject("""
+                select coalesce(sum(completed), 0) from stage_aggregate where workflow_version_id = ? and node_key = 'settled'
+                """, Integer.class, versionId) == 1, Duration.ofSeconds(15));
+        mockMvc.perform(get("/wallboard").param("allDays", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.workflows[?(@.workflowKey == 'payout-flow')].groups[*].inFlight", contains(1)));
+
+        // A lost delta: the first pass only notes the drift, the second sees it again and corrects it.
+        jdbcTemplate.update("update stage_inflight set in_flight = 5 where workflow_version_id = ? and node_key = 'settled'", versionId);
+        inFlightReconciliationService.reconcile();
+        assertThat(inFlightGauge(versionId)).isEqualTo(5);
+        inFlightReconciliationService.reconcile();
+        assertThat(inFlightGauge(versionId)).isEqualTo(1);
+    }
+
+    @Test
+    @WithMockUser(roles = {"viewer"})
+    void seriesAlignsGroupedLinesOnADenseBucketAxis() throws Exception {
+        long versionId = createWorkflow("ledger-flow", "LEDGER");
+        Instant now = Instant.now();
+        Instant first = now.minus(Duration.ofMinutes(4));
+        Instant last = now.minus(Duration.ofMinutes(2));
+        handle("LEDGER_INGEST", "ledger-1", first, first, Map.of("region", "NY"));
+        handle("LEDGER_INGEST", "ledger-2", last, last, Map.of("region", "LDN"));
+        handle("LEDGER_INGEST", "ledger-3", last, last, Map.of("region", "NY"));
+
+        waitFor(() -> jdbcTemplate.queryForObject("""
+                select coalesce(sum(completed), 0) from stage_aggregate where workflow_version_id = ? and node_key = 'ingest'
+                """, Integer.class, versionId) == 3, Duration.ofSeconds(15));
+
+        // The minute between the two active ones is present with zeros.
+        mockMvc.perform(get("/workflows/" + versionId + "/series").param("allDays", "true").param("step", "minute")
+                        .param("groupBy", "dimension:region").param("metrics", "completed"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.groupBy").value("dimension:region"))
+                .andExpect(jsonPath("$.buckets.length()").value(3))
+                .andExpect(jsonPath("$.series[*].key", contains("LDN", "NY")))
+                .andExpect(jsonPath("$.series[*].label", contains("region=LDN", "region=NY")))
+                .andExpect(jsonPath("$.series[0].values.completed", contains(0, 0, 1)))
+                .andExpect(jsonPath("$.series[1].values.completed", contains(1, 0, 1)))
+                .andExpect(jsonPath("$.series[1].values.inFlight").doesNotExist());
+        mockMvc.perform(get("/workflows/" + versionId + "/series").param("allDays", "true").param("step", "minute")
+                        .param("groupBy", "node").param("metrics", "completed,inFlight"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.series[*].key", contains("ingest", "settled")))
+                .andExpect(jsonPath("$.series[0].values.completed", contains(1, 0, 2)))
+                .andExpect(jsonPath("$.series[1].values.inFlight", contains(1, 0, 2)));
+        String today = LocalDate.now(ZoneOffset.UTC).toString();
+        mockMvc.perform(get("/workflows/" + versionId + "/series").param("from", today).param("to", today).param("step", "minute"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.buckets.length()").value(1440));
+        mockMvc.perform(get("/workflows/" + versionId + "/series").param("from", LocalDate.now(ZoneOffset.UTC).minusDays(7).toString())
+                        .param("to", today).param("step", "minute"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/workflows/" + versionId + "/series").param("allDays", "true").param("groupBy", "region"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private long inFlightGauge(long versionId) {
+        return jdbcTemplate.queryForObject("""
+                select coalesce(sum(in_flight), 0) from stage_inflight where workflow_version_id = ? and node_key = 'settled'
+                """, Long.class, versionId);
+    }
+
+    private String distinctAtIngest(long versionId) {
+        try {
+            return mockMvc.perform(get("/workflows/" + versionId + "/distinct").param("allDays", "true").param("node", "ingest"))
+                    .andReturn().getResponse().getContentAsString();
+        } catch (Exception ex) {
+            return "";
+        }
+    }
+
+    /**
+     * Creates a two-node workflow whose {@code ingest} node starts on {@code <prefix>_INGEST} and expects one
+     * {@code <prefix>_SETTLED} at {@code settled}; returns its active version id.
+     */
+    private long createWorkflow(String key, String eventPrefix) {
+        WorkflowRequest request = new WorkflowRequest();
+        request.setName(key);
+        request.setKey(key);
+        request.setCreatedBy("test-user");
+        Map<String, Object> graph = new HashMap<>();
+        graph.put("nodes", List.of(
+                Map.of("key", "ingest", "eventType", eventPrefix + "_INGEST", "start", true),
+                Map.of("key", "settled", "eventType", eventPrefix + "_SETTLED")
+        ));
+        graph.put("edges", List.of(
+                Map.of("from", "ingest", "to", "settled", "maxLatencySec", 300, "severity", "amber", "expectedCount", 1, "optional", false)
+        ));
+        request.setGraph(graph);
+        return workflowService.createWorkflow(request).getActiveVersionId();
+    }
+
+    private void handle(String eventType, String correlationKey, Instant eventTime) {
+        handle(eventType, correlationKey, eventTime, Instant.now());
+    }
+
+    private void handle(String eventType, String correlationKey, Instant eventTime, Instant receivedAt) {
+        handle(eventType, correlationKey, eventTime, receivedAt, null);
+    }
+
+    private void handle(String eventType, String correlationKey, Instant eventTime, Instant receivedAt, Map<String, Object> group) {
+        NormalizedEvent event = new NormalizedEvent();
+        event.setEventId(UUID.randomUUID().toString());
+        event.setSourceSystem("aggregation-test");
+        event.setEventType(eventType);
+        event.setEventTime(eventTime);
+        event.setCorrelationKey(correlationKey);
+        event.setGroup(group);
+        event.setReceivedAt(receivedAt);
+        ruleEngineService.handleNormalizedEvent(event);
+    }
+
+    private void waitFor(Supplier<Boolean> condition, Duration timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        while (System.currentTimeMillis() < deadline) {
+            if (Boolean.TRUE.equals(condition.get())) {
+                return;
+            }
+            Thread.sleep(250);
+        }
+        throw new AssertionError("Condition not met within timeout");
+    }
+}
@@ -0,0 +1,107 @@
+package com.sentinel.platform.aggregation.model;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class DistinctSketchTest {
+
+    @Test
+    void emptySketchEstimatesZero() {
+        DistinctSketch sketch = new DistinctSketch();
+        sketch.offer(null);
+
+        assertThat(sketch.isEmpty()).isTrue();
+        assertThat(sketch.estimate()).isZero();
+        assertThat(DistinctSketch.fromBytes(null).isEmpty()).isTrue();
+        assertThat(DistinctSketch.fromBytes(new byte[0]).isEmpty()).isTrue();
+    }
+
+    @Test
+    void repeatsDoNotCountAndSmallCardinalitiesAreNearlyExact() {
+        DistinctSketch sketch = sketchOf(0, 100);
+        for (int i = 0; i < 100; i++) {
+            sketch.offer("corr-" + i);
+        }
+
+        assertThat(sketch.estimate()).isBetween(98L, 102L);
+    }
+
+    @Test
+    void largeCardinalitiesStayWithinFivePercent() {
+        for (int distinct : new int[] {10_000, 100_000, 1_000_000}) {
+            assertThat((double) sketchOf(0, distinct).estimate())
+                    .as("distinct=%d", distinct)
+                    .isCloseTo(distinct, within(distinct * 0.05));
+        }
+    }
+
+    @Test
+    void mergeEstimatesTheUnion() {
+        DistinctSketch first = sketchOf(0, 60_000);
+        DistinctSketch second = sketchOf(40_000, 100_000);
+
+        first.merge(second);
+
+        assertThat(first.toBytes()).isEqualTo(sketchOf(0, 100_000).toBytes());
+        assertThat((double) first.estimate()).isCloseTo(100_000, within(5_000.0));
+    }
+
+    @Test
+    void fewRegistersUseSparseEncoding() {
+        DistinctSketch sketch = sketchOf(0, 50);
+
+        byte[] bytes = sketch.toBytes();
+        DistinctSketch read = DistinctSketch.fromBytes(bytes);
+
+        assertThat(bytes[0]).isEqualTo((byte) 1);
+        assertThat(bytes.length).isLessThan(50 * 3 + 3);
+        assertThat(read.toBytes()).isEqualTo(bytes);
+        assertThat(read.estimate()).isEqualTo(sketch.estimate());
+    }
+
+    @Test
+    void manyRegistersUseDenseEncoding() {
+        DistinctSketch sketch = sketchOf(0, 20_000);
+
+        byte[] bytes = sketch.toBytes();
+        DistinctSketch read = DistinctSketch.fromBytes(bytes);
+
+        assertThat(bytes[0]).isEqualTo((byte) 2);
+        assertThat(bytes).hasSize(4097);
+        assertThat(read.estimate()).isEqualTo(sketch.estimate());
+    }
+
+    @Test
+    void rejectsForeignOrTruncatedBytes() {
+        byte[] sparse = sketchOf(0, 50).toBytes();
+        byte[] dense = sketchOf(0, 20_000).toBytes();
+
+        assertThatThrownBy(() -> DistinctSketch.fromBytes(new byte[] {9})).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DistinctSketch.fromBytes(Arrays.copyOf(sparse, sparse.length - 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DistinctSketch.fromBytes(Arrays.copyOf(dense, 100)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DistinctSketch.fromBytes(new byte[] {1, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F, 3}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void hashDependsOnWholeKey() {
+        assertThat(DistinctSketch.hash("corr-1")).isNotEqualTo(DistinctSketch.hash("corr-2"));
+        assertThat(DistinctSketch.hash("corr-1")).isEqualTo(DistinctSketch.hash("corr-1"));
+        assertThat(Long.bitCount(DistinctSketch.hash("a") ^ DistinctSketch.hash("b"))).isBetween(16, 48);
+    }
+
+    private static DistinctSketch sketchOf(int from, int to) {
+        DistinctSketch sketch = new DistinctSketch();
+        for (int i = from; i < to; i++) {
+            sketch.offer("corr-" + i);
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,122 @@
+package com.sentinel.platform.aggregation.model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 0; value < 32; value++) {
+            histogram.record(value);
+        }
+
+        assertThat(histogram.count()).isEqualTo(32);
+        assertThat(histogram.percentile(0.5)).isEqualTo(15);
+        assertThat(histogram.percentile(1.0)).isEqualTo(31);
+        assertThat(histogram.percentile(0.0)).isZero();
+    }
+
+    @Test
+    void bucketsCoverEveryValueWithinThreePercent() {
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int index = LatencyHistogram.indexOf(value);
+
+            assertThat(LatencyHistogram.lowerBound(index)).isLessThanOrEqualTo(value);
+            assertThat(LatencyHistogram.upperBound(index)).isGreaterThanOrEqualTo(value);
+            assertThat((double) (LatencyHistogram.upperBound(index) - LatencyHistogram.lowerBound(index)))
+                    .isLessThanOrEqualTo(Math.max(0, LatencyHistogram.lowerBound(index) / 32.0));
+        }
+        assertThat(LatencyHistogram.indexOf(31)).isEqualTo(31);
+        assertThat(LatencyHistogram.indexOf(32)).isEqualTo(32);
+        assertThat(LatencyHistogram.indexOf(64)).isEqualTo(64);
+    }
+
+    @Test
+    void percentilesTrackUniformLatencies() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+
+        assertThat((double) histogram.percentile(0.5)).isCloseTo(50_000, within(1_500.0));
+        assertThat((double) histogram.percentile(0.95)).isCloseTo(95_000, within(2_850.0));
+        assertThat((double) histogram.percentile(0.99)).isCloseTo(99_000, within(2_970.0));
+    }
+
+    @Test
+    void emptyHistogramHasNoPercentile() {
+        assertThat(new LatencyHistogram().percentile(0.5)).isEqualTo(-1);
+        assertThat(LatencyHistogram.fromBytes(null).count()).isZero();
+        assertThat(LatencyHistogram.fromBytes(new byte[0]).count()).isZero();
+    }
+
+    @Test
+    void mergeEqualsRecordingEverything() {
+        Random random = new Random(3);
+        LatencyHistogram all = new LatencyHistogram();
+        LatencyHistogram merged = new LatencyHistogram();
+        for (int part = 0; part < 5; part++) {
+            LatencyHistogram minute = new LatencyHistogram();
+            for (int i = 0; i < 1_000; i++) {
+                long value = (long) Math.exp(random.nextDouble() * 15);
+                minute.record(value);
+                all.record(value);
+            }
+            merged.merge(minute);
+        }
+
+        assertThat(merged.count()).isEqualTo(5_000);
+        assertThat(merged.toBytes()).isEqualTo(all.toBytes());
+        for (double q : new double[] {0.5, 0.9, 0.99, 0.999}) {
+            assertThat(merged.percentile(q)).isEqualTo(all.percentile(q));
+        }
+    }
+
+    @Test
+    void roundTripsThroughBinaryForm() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(7);
+        histogram.record(7);
+        histogram.record(1_234);
+        histogram.record(86_400_000);
+
+        LatencyHistogram read = LatencyHistogram.fromBytes(histogram.toBytes());
+
+        assertThat(read.count()).isEqualTo(5);
+        assertThat(read.toBytes()).isEqualTo(histogram.toBytes());
+        assertThat(read.percentile(0.2)).isZero();
+        assertThat(read.percentile(0.6)).isEqualTo(7);
+    }
+
+    @Test
+    void largestValuesDoNotOverflow() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+
+        assertThat(histogram.percentile(1.0)).isGreaterThan(Long.MAX_VALUE / 64 * 63);
+    }
+
+    @Test
+    void rejectsForeignOrTruncatedBytes() {
+        byte[] bytes = new LatencyHistogram().toBytes();
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000);
+        byte[] valid = histogram.toBytes();
+        byte[] truncated = Arrays.copyOf(valid, valid.length - 1);
+
+        assertThat(bytes).hasSize(2);
+        assertThatThrownBy(() -> LatencyHistogram.fromBytes(new byte[] {9, 0})).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LatencyHistogram.fromBytes(truncated)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
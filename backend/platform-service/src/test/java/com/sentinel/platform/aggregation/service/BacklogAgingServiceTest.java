@@ -0,0 +1,80 @@
+package com.sentinel.platform.aggregation.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import com.sentinel.platform.aggregation.config.AggregationProperties;
+import com.sentinel.platform.aggregation.repository.StageBacklogRepository;
+import com.sentinel.platform.aggregation.repository.StageBacklogRepository.AgeCount;
+import com.sentinel.platform.aggregation.repository.StageBacklogRepository.Key;
+import com.sentinel.platform.aggregation.web.dto.StageBacklogView;
+import com.sentinel.platform.retention.repository.PartitionRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BacklogAgingServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-01T12:00:30Z");
+    private static final List<Instant> CUTOFFS = List.of(Instant.parse("2024-03-01T12:00:00Z"),
+            Instant.parse("2024-03-01T11:55:00Z"), Instant.parse("2024-03-01T11:30:00Z"));
+    private static final Instant FOLD_BEFORE = Instant.parse("2024-03-01T11:30:00Z");
+
+    private final StageBacklogRepository repository = mock(StageBacklogRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BacklogAgingService service = new BacklogAgingService(repository, mock(PartitionRepository.class),
+            new AggregationProperties(), Clock.fixed(NOW, ZoneOffset.UTC), meterRegistry);
+
+    @Test
+    void labelsBucketsFromAgeBounds() {
+        assertThat(service.labels()).containsExactly("notDue", "0-5m", "5-30m", "30m+");
+    }
+
+    @Test
+    void foldsMinutesOverduePastLastBound() {
+        when(repository.fold(FOLD_BEFORE)).thenReturn(4);
+
+        assertThat(service.fold()).isEqualTo(4);
+    }
+
+    @Test
+    void sumsAgeBucketsPerNodeOrPerGroup() {
+        when(repository.ages(7L, null, CUTOFFS)).thenReturn(List.of(
+                new AgeCount(7L, "g1", "settled", 0, 2),
+                new AgeCount(7L, "g2", "settled", 1, 3),
+                new AgeCount(7L, "g1", "settled", 3, 1),
+                new AgeCount(7L, "g1", "ingest", 2, 0)));
+
+        assertThat(service.backlog(7L, null, false)).containsExactly(
+                new StageBacklogView(null, "settled", 6, Map.of("notDue", 2L, "0-5m", 3L, "5-30m", 0L, "30m+", 1L)));
+        List<StageBacklogView> byGroup = service.backlog(7L, null, true);
+        assertThat(byGroup).extracting(StageBacklogView::groupHash).containsExactly("g1", "g2");
+        assertThat(byGroup.get(0).ages()).containsExactly(
+                Map.entry("notDue", 2L), Map.entry("0-5m", 0L), Map.entry("5-30m", 0L), Map.entry("30m+", 1L));
+    }
+
+    @Test
+    void correctsDriftSeenOnTwoConsecutivePasses() {
+        Key settled = new Key(7L, "g1", "settled", Instant.parse("2024-03-01T11:58:00Z"));
+        Key folded = new Key(7L, "g1", "settled", StageBacklogRepository.FOLDED);
+        when(repository.findAll(FOLD_BEFORE)).thenReturn(Map.of(settled, 1L, folded, 4L));
+        when(repository.expectedFromExpectations(FOLD_BEFORE)).thenReturn(Map.of(settled, 3L, folded, 4L));
+
+        assertThat(service.reconcile()).isZero();
+        verify(repository, never()).add(anyMap());
+
+        assertThat(service.reconcile()).isEqualTo(1);
+        verify(repository).add(Map.of(settled, 2L));
+        assertThat(meterRegistry.counter("aggregation.backlog.corrections").count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,105 @@
+package com.sentinel.platform.aggregation.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import com.sentinel.platform.aggregation.config.AggregationProperties;
+import com.sentinel.platform.aggregation.repository.StageHotspotRepository;
+import com.sentinel.platform.aggregation.repository.StageHotspotRepository.Snapshot;
+import com.sentinel.platform.aggregation.state.HotspotTracker;
+import com.sentinel.platform.aggregation.web.dto.HotspotView;
+import com.sentinel.platform.aggregation.web.dto.LatencyHotspot;
+import com.sentinel.platform.aggregation.web.dto.OverdueHotspot;
+import com.sentinel.platform.ruleengine.model.RuleEvaluatedEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HotspotServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-01T12:00:00Z");
+    private static final long VERSION = 7L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final AggregationProperties properties = new AggregationProperties();
+    private final HotspotTracker tracker = new HotspotTracker(properties, new SimpleMeterRegistry());
+    private final StageHotspotRepository repository = mock(StageHotspotRepository.class);
+    private final HotspotService service = new HotspotService(tracker, repository, objectMapper, properties,
+            Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void mergesOtherNodesOldestFirstKeepingEarliestEntryPerRun() throws Exception {
+        tracker.record(miss(1L, NOW.minusSeconds(60)));
+        tracker.record(miss(2L, NOW.minusSeconds(300)));
+        List<OverdueHotspot> remoteOverdue = List.of(overdue(2L, NOW.minusSeconds(900)), overdue(3L, NOW.minusSeconds(120)));
+        List<LatencyHotspot> remoteSlowest = List.of(
+                new LatencyHotspot(4L, "order-4", "g1", "settled", 8_000, NOW.minusSeconds(30)),
+                new LatencyHotspot(5L, "order-5", "g1", "settled", 9_000, NOW.minusSeconds(7200)));
+        when(repository.find(anyLong(), any(), any(), anyString())).thenReturn(List.of(
+                new Snapshot(objectMapper.writeValueAsString(remoteOverdue), objectMapper.writeValueAsString(remoteSlowest))));
+
+        HotspotView view = service.hotspots(VERSION, null, 10);
+
+        assertThat(view.overdue()).extracting(OverdueHotspot::workflowRunId).containsExactly(2L, 3L, 1L);
+        assertThat(view.overdue().get(0).dueAt()).isEqualTo(NOW.minusSeconds(900));
+        // The remote arrival observed two hours ago is outside the window.
+        assertThat(view.slowest()).extracting(LatencyHotspot::workflowRunId).containsExactly(4L);
+    }
+
+    @Test
+    void clearedItemIsNoLongerListedAndFlushRewritesItsGroup() {
+        when(repository.find(anyLong(), any(), any(), anyString())).thenReturn(List.of());
+        tracker.record(miss(1L, NOW.minusSeconds(60)));
+        assertThat(service.flush()).isEqualTo(1);
+
+        RuleEvaluatedEvent arrival = event(1L);
+        arrival.setCompletedDelta(1);
+        arrival.setInFlightDeltas(Map.of("settled", -1));
+        tracker.record(arrival);
+
+        assertThat(service.hotspots(VERSION, null, 10).overdue()).isEmpty();
+        assertThat(service.flush()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsLimitBelowOne() {
+        assertThatThrownBy(() -> service.hotspots(VERSION, null, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static OverdueHotspot overdue(long runId, Instant dueAt) {
+        return new OverdueHotspot(runId, "order-" + runId, "g1", "settled", dueAt, 1);
+    }
+
+    private static RuleEvaluatedEvent miss(long runId, Instant dueAt) {
+        RuleEvaluatedEvent event = event(runId);
+        event.setLate(true);
+        event.setLateDelta(1);
+        event.setCompletedDelta(0);
+        event.setEventTime(dueAt);
+        return event;
+    }
+
+    private static RuleEvaluatedEvent event(long runId) {
+        RuleEvaluatedEvent event = new RuleEvaluatedEvent();
+        event.setWorkflowVersionId(VERSION);
+        event.setWorkflowRunId(runId);
+        event.setCorrelationKey("order-" + runId);
+        event.setGroupHash("g1");
+        event.setNode("settled");
+        event.setReceivedAt(NOW.minusSeconds(5));
+        return event;
+    }
+}
@@ -0,0 +1,62 @@
+package com.sentinel.platform.aggregation.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import com.sentinel.platform.aggregation.config.AggregationProperties;
+import com.sentinel.platform.aggregation.repository.StageInFlightRepository;
+import com.sentinel.platform.aggregation.repository.StageInFlightRepository.Key;
+import com.sentinel.platform.retention.repository.PartitionRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InFlightReconciliationServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-01T12:00:00Z");
+    private static final Key SETTLED = new Key(7L, "g1", "settled");
+    private static final Key SHIPPED = new Key(7L, "g1", "shipped");
+
+    private final StageInFlightRepository repository = mock(StageInFlightRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InFlightReconciliationService service = new InFlightReconciliationService(repository,
+            mock(PartitionRepository.class), new AggregationProperties(), Clock.fixed(NOW, ZoneOffset.UTC), meterRegistry);
+
+    @Test
+    void correctsOnlyDriftThatHoldsForTwoPasses() {
+        when(repository.findAll()).thenReturn(Map.of(SETTLED, 3L, SHIPPED, 2L));
+        when(repository.expectedFromExpectations()).thenReturn(Map.of(SETTLED, 5L, SHIPPED, 1L));
+
+        assertThat(service.reconcile()).isZero();
+        verify(repository, never()).add(anyLong(), any(), anyMap(), any());
+
+        // The shipped gauge caught up meanwhile, as a queued evaluation landed.
+        when(repository.findAll()).thenReturn(Map.of(SETTLED, 3L, SHIPPED, 1L));
+        assertThat(service.reconcile()).isEqualTo(1);
+        verify(repository).add(7L, "g1", Map.of("settled", 2), NOW);
+        verify(repository, never()).add(7L, "g1", Map.of("shipped", -1), NOW);
+        assertThat(meterRegistry.counter("aggregation.inflight.corrections").count()).isEqualTo(1);
+    }
+
+    @Test
+    void restartsWhenDriftChanges() {
+        when(repository.findAll()).thenReturn(Map.of(SETTLED, 3L));
+        when(repository.expectedFromExpectations()).thenReturn(Map.of(SETTLED, 5L), Map.of(SETTLED, 6L), Map.of(SETTLED, 6L));
+
+        assertThat(service.reconcile()).isZero();
+        assertThat(service.reconcile()).isZero();
+        assertThat(service.reconcile()).isEqualTo(1);
+        verify(repository).add(7L, "g1", Map.of("settled", 3), NOW);
+    }
+}
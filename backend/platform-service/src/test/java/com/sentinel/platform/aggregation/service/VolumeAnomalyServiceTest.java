@@ -0,0 +1,106 @@
+package com.sentinel.platform.aggregation.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.sentinel.platform.aggregation.config.AggregationProperties;
+import com.sentinel.platform.aggregation.model.AggregateResolution;
+import com.sentinel.platform.aggregation.model.VolumeBaseline;
+import com.sentinel.platform.aggregation.repository.StageAggregateRollupRepository;
+import com.sentinel.platform.aggregation.repository.VolumeBaselineRepository;
+import com.sentinel.platform.aggregation.repository.VolumeBaselineRepository.SeriesKey;
+import com.sentinel.platform.aggregation.state.RecentAggregateStore;
+import com.sentinel.platform.alerting.model.AlertTriggerEvent;
+import com.sentinel.platform.alerting.service.AlertingService;
+import com.sentinel.platform.retention.repository.PartitionRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VolumeAnomalyServiceTest {
+
+    // Monday 10:30 UTC: the trailing hour spans hour-of-week slots 9 and 10.
+    private static final Instant NOW = Instant.parse("2024-03-04T10:30:00Z");
+    private static final SeriesKey SILENT = new SeriesKey(7L, "", "ingest");
+    private static final SeriesKey STEADY = new SeriesKey(7L, "", "settled");
+    private static final SeriesKey YOUNG = new SeriesKey(8L, "", "ingest");
+    private static final SeriesKey QUIET = new SeriesKey(9L, "", "ingest");
+
+    private final VolumeBaselineRepository repository = mock(VolumeBaselineRepository.class);
+    private final StageAggregateRollupRepository rollupRepository = mock(StageAggregateRollupRepository.class);
+    private final RecentAggregateStore recentStore = mock(RecentAggregateStore.class);
+    private final VolumeAnomalyService service = new VolumeAnomalyService(repository, rollupRepository, recentStore,
+            mock(AlertingService.class), mock(PartitionRepository.class), new AggregationProperties(),
+            Clock.fixed(NOW, ZoneOffset.UTC), new SimpleMeterRegistry());
+
+    @Test
+    void silentSeriesFallsBelowItsBand() {
+        Map<SeriesKey, VolumeBaseline> slot = Map.of(
+                SILENT, new VolumeBaseline(10, 120, 100),
+                STEADY, new VolumeBaseline(10, 120, 100),
+                YOUNG, new VolumeBaseline(2, 120, 100),
+                QUIET, new VolumeBaseline(10, 2, 1));
+        when(repository.findSlot(9)).thenReturn(slot);
+        when(repository.findSlot(10)).thenReturn(slot);
+        when(repository.windowCompletions(NOW.minusSeconds(3600), NOW)).thenReturn(Map.of(STEADY, 104L));
+
+        List<AlertTriggerEvent> alerts = service.check();
+
+        // Only the silent series is judged: the young slot has too few samples, the quiet one too little traffic.
+        assertThat(alerts).singleElement().satisfies(alert -> {
+            assertThat(alert.getWorkflowVersionId()).isEqualTo(7L);
+            assertThat(alert.getNode()).isEqualTo("ingest");
+            assertThat(alert.getSeverity()).isEqualTo("amber");
+            assertThat(alert.getDedupeKey()).isEqualTo("volume:7:ingest:");
+            assertThat(alert.getReason()).contains("observed 0, expected 120 over 60 minutes");
+            assertThat(alert.getTriggeredAt()).isEqualTo(NOW);
+        });
+    }
+
+    @Test
+    void readsTheWindowFromTheRecentStoreWhenItCoversIt() {
+        when(repository.findSlot(9)).thenReturn(Map.of(SILENT, new VolumeBaseline(10, 120, 100)));
+        when(repository.findSlot(10)).thenReturn(Map.of(SILENT, new VolumeBaseline(10, 120, 100)));
+        when(recentStore.coveredFrom()).thenReturn(NOW.minusSeconds(7200));
+        when(recentStore.completions(NOW.minusSeconds(3600), NOW)).thenReturn(Map.of(SILENT, 115L));
+
+        assertThat(service.check()).isEmpty();
+        verify(repository, never()).windowCompletions(NOW.minusSeconds(3600), NOW);
+    }
+
+    @Test
+    void learnsEachRolledHourIntoItsSlotCountingSilentHoursAsZero() {
+        Instant learned = Instant.parse("2024-03-04T01:00:00Z");
+        when(repository.learnedUntil()).thenReturn(learned);
+        when(rollupRepository.rolledUntil(AggregateResolution.HOUR)).thenReturn(Instant.parse("2024-03-04T03:00:00Z"));
+        when(repository.findSlot(2)).thenReturn(Map.of(SILENT, new VolumeBaseline(1, 80, 0)));
+        when(repository.hourCompletions(learned)).thenReturn(Map.of(SILENT, 90L));
+        when(repository.hourCompletions(learned.plusSeconds(3600))).thenReturn(Map.of());
+
+        assertThat(service.learn()).isEqualTo(2);
+
+        ArgumentCaptor<Map<SeriesKey, VolumeBaseline>> first = slotCaptor();
+        ArgumentCaptor<Map<SeriesKey, VolumeBaseline>> second = slotCaptor();
+        verify(repository).saveSlot(eq(1), first.capture());
+        verify(repository).saveSlot(eq(2), second.capture());
+        assertThat(first.getValue()).containsEntry(SILENT, new VolumeBaseline(1, 90, 0));
+        assertThat(second.getValue()).containsEntry(SILENT, new VolumeBaseline(1, 80, 0).update(0, 0.2));
+        verify(repository).markLearned(Instant.parse("2024-03-04T03:00:00Z"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Map<SeriesKey, VolumeBaseline>> slotCaptor() {
+        return ArgumentCaptor.forClass(Map.class);
+    }
+}
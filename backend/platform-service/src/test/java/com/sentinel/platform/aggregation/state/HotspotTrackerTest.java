@@ -0,0 +1,105 @@
+package com.sentinel.platform.aggregation.state;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import com.sentinel.platform.aggregation.config.AggregationProperties;
+import com.sentinel.platform.aggregation.state.HotspotTracker.GroupKey;
+import com.sentinel.platform.aggregation.state.HotspotTracker.Lists;
+import com.sentinel.platform.aggregation.web.dto.LatencyHotspot;
+import com.sentinel.platform.aggregation.web.dto.OverdueHotspot;
+import com.sentinel.platform.ruleengine.model.RuleEvaluatedEvent;
+import com.sentinel.platform.ruleengine.state.PartitionOwnership;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotspotTrackerTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-01T12:00:00Z");
+    private static final long VERSION = 7L;
+
+    private final HotspotTracker tracker = new HotspotTracker(new AggregationProperties(), new SimpleMeterRegistry());
+
+    @Test
+    void listsOverdueOldestFirstAndLatenciesSlowestFirst() {
+        tracker.record(miss(1L, "order-1", "settled", NOW.minusSeconds(60), 1));
+        tracker.record(miss(2L, "order-2", "settled", NOW.minusSeconds(600), 2));
+        tracker.record(arrival(3L, "order-3", "settled", 4_000, Map.of()));
+        tracker.record(arrival(4L, "order-4", "settled", 9_000, Map.of()));
+
+        Lists lists = tracker.current(VERSION, null, NOW);
+
+        assertThat(lists.overdue()).extracting(OverdueHotspot::workflowRunId).containsExactly(2L, 1L);
+        assertThat(lists.overdue()).extracting(OverdueHotspot::missing).containsExactly(2, 1);
+        assertThat(lists.slowest()).extracting(LatencyHotspot::workflowRunId).containsExactly(4L, 3L);
+    }
+
+    @Test
+    void lateArrivalsShrinkAndThenClearOverdueItem() {
+        tracker.record(miss(1L, "order-1", "settled", NOW.minusSeconds(60), 2));
+
+        tracker.record(arrival(1L, "order-1", "settled", 1_000, Map.of("settled", -1)));
+        assertThat(tracker.current(VERSION, null, NOW).overdue()).extracting(OverdueHotspot::missing).containsExactly(1);
+
+        tracker.record(arrival(1L, "order-1", "settled", 1_000, Map.of("settled", -1)));
+        assertThat(tracker.current(VERSION, null, NOW).overdue()).isEmpty();
+    }
+
+    @Test
+    void dropsOverdueItemsOfRevokedPartitions() {
+        String revokedKey = keyInPartition(0);
+        String keptKey = keyInPartition(1);
+        tracker.record(miss(1L, revokedKey, "settled", NOW.minusSeconds(60), 1));
+        tracker.record(miss(2L, keptKey, "settled", NOW.minusSeconds(30), 1));
+        tracker.drainChanged(NOW);
+
+        assertThat(tracker.revoked(List.of(0), 2)).isEqualTo(1);
+
+        assertThat(tracker.current(VERSION, null, NOW).overdue()).extracting(OverdueHotspot::correlationKey).containsExactly(keptKey);
+        Map<GroupKey, Lists> changed = tracker.drainChanged(NOW);
+        assertThat(changed).containsOnlyKeys(new GroupKey(VERSION, "g1"));
+        assertThat(changed.get(new GroupKey(VERSION, "g1")).overdue()).hasSize(1);
+    }
+
+    private static String keyInPartition(int partition) {
+        for (int n = 0; ; n++) {
+            String key = "order-" + n;
+            if (PartitionOwnership.partitionFor(key, 2) == partition) {
+                return key;
+            }
+        }
+    }
+
+    private static RuleEvaluatedEvent miss(long runId, String correlationKey, String node, Instant dueAt, int missing) {
+        RuleEvaluatedEvent event = event(runId, correlationKey, node);
+        event.setLate(true);
+        event.setLateDelta(missing);
+        event.setCompletedDelta(0);
+        event.setEventTime(dueAt);
+        return event;
+    }
+
+    private static RuleEvaluatedEvent arrival(long runId, String correlationKey, String node, long latencyMs, Map<String, Integer> inFlight) {
+        RuleEvaluatedEvent event = event(runId, correlationKey, node);
+        event.setCompletedDelta(1);
+        event.setStageLatencyMs(latencyMs);
+        event.setInFlightDeltas(inFlight);
+        event.setEventTime(NOW.minusSeconds(5));
+        return event;
+    }
+
+    private static RuleEvaluatedEvent event(long runId, String correlationKey, String node) {
+        RuleEvaluatedEvent event = new RuleEvaluatedEvent();
+        event.setWorkflowVersionId(VERSION);
+        event.setWorkflowRunId(runId);
+        event.setCorrelationKey(correlationKey);
+        event.setGroupHash("g1");
+        event.setNode(node);
+        event.setReceivedAt(NOW.minusSeconds(5));
+        return event;
+    }
+}
@@ -0,0 +1,61 @@
+package com.sentinel.platform.aggregation.state;
+
+import java.time.Instant;
+import java.util.List;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import com.sentinel.platform.aggregation.config.AggregationProperties;
+import com.sentinel.platform.aggregation.model.AggregateResolution;
+import com.sentinel.platform.aggregation.web.dto.StageAggregateView;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentAggregateStoreTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-01T12:30:00Z");
+
+    @Test
+    void clampsInFlightAtZeroLikeTheUpsert() {
+        RecentAggregateStore store = store(10);
+
+        store.add(1L, "g", "settled", NOW, 1, 0, 0, 0);
+        store.add(1L, "g", "settled", NOW, -3, 1, 0, 0);
+        store.add(1L, "g", "settled", NOW, 1, 0, 0, 0);
+
+        List<StageAggregateView> views = store.findSeries(AggregateResolution.MINUTE, 1L, null, NOW, NOW.plusSeconds(60), 10);
+        assertThat(views).singleElement().satisfies(view -> {
+            assertThat(view.inFlight()).isEqualTo(1);
+            assertThat(view.completed()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void asksForReloadOnceSeriesFallBelowLimit() {
+        RecentAggregateStore store = store(1);
+        store.markLoaded();
+        store.add(1L, "g", "ingest", NOW, 0, 1, 0, 0);
+        assertThat(store.coveredFrom()).isNotNull();
+
+        store.add(1L, "g", "settled", NOW, 0, 1, 0, 0);
+        assertThat(store.coveredFrom()).isNull();
+        assertThat(store.needsLoad()).isFalse();
+
+        // The ring spans two hour blocks for a one-hour window; both expire two hours on.
+        store.advance(NOW.plusSeconds(2 * 3600));
+        assertThat(store.size()).isZero();
+        assertThat(store.needsLoad()).isTrue();
+        assertThat(store.coveredFrom()).isNull();
+
+        store.markLoaded();
+        assertThat(store.coveredFrom()).isNotNull();
+    }
+
+    private static RecentAggregateStore store(int maxSeries) {
+        AggregationProperties properties = new AggregationProperties();
+        properties.setRecentStoreWindowMinutes(60);
+        properties.setRecentStoreMaxSeries(maxSeries);
+        return new RecentAggregateStore(properties, new SimpleMeterRegistry());
+    }
+}
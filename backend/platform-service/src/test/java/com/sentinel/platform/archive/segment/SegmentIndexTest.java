@@ -0,0 +1,73 @@
+package com.sentinel.platform.archive.segment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.sentinel.platform.archive.segment.SegmentIndex.BlockEntry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SegmentIndexTest {
+
+    private final SegmentIndex index = new SegmentIndex(40, 100, 102, List.of(
+            new BlockEntry("a", 0, 10, 10),
+            new BlockEntry("c", 10, 10, 10),
+            new BlockEntry("c", 20, 10, 10),
+            new BlockEntry("e", 30, 10, 10)));
+
+    @Test
+    void candidateBlocksStartOneBlockEarly() {
+        assertThat(index.candidateBlocks("b")).extracting(BlockEntry::offset).containsExactly(0L);
+        assertThat(index.candidateBlocks("c")).extracting(BlockEntry::offset).containsExactly(0L, 10L, 20L);
+        assertThat(index.candidateBlocks("d")).extracting(BlockEntry::offset).containsExactly(20L);
+        assertThat(index.candidateBlocks("z")).extracting(BlockEntry::offset).containsExactly(30L);
+        assertThat(index.candidateBlocks("0")).extracting(BlockEntry::offset).containsExactly(0L);
+    }
+
+    @Test
+    void coversOnlyItsDayRange() {
+        assertThat(index.coversDay(99)).isFalse();
+        assertThat(index.coversDay(100)).isTrue();
+        assertThat(index.coversDay(102)).isTrue();
+        assertThat(index.coversDay(103)).isFalse();
+        assertThat(new SegmentIndex(0, 0, 0, List.of()).coversDay(0)).isFalse();
+    }
+
+    @Test
+    void roundTripsThroughItsBinaryForm() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+
+        SegmentIndex read = SegmentIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(read.recordCount()).isEqualTo(40);
+        assertThat(read.minEpochDay()).isEqualTo(100);
+        assertThat(read.maxEpochDay()).isEqualTo(102);
+        assertThat(read.blocks()).isEqualTo(index.blocks());
+    }
+
+    @Test
+    void rejectsForeignFiles() {
+        byte[] garbage = {1, 2, 3, 4, 5, 6, 7, 8};
+
+        assertThatThrownBy(() -> SegmentIndex.readFrom(new DataInputStream(new ByteArrayInputStream(garbage))))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void ordersKeysByCodePoint() {
+        String supplementary = new String(Character.toChars(0x1F600));
+
+        assertThat(SegmentIndex.KEY_ORDER.compare(supplementary, "￿")).isPositive();
+        assertThat(supplementary.compareTo("￿")).isNegative();
+        assertThat(SegmentIndex.KEY_ORDER.compare("ab", "abc")).isNegative();
+        assertThat(SegmentIndex.KEY_ORDER.compare("abc", "abc")).isZero();
+    }
+}
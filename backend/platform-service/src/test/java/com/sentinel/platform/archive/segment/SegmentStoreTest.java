@@ -0,0 +1,147 @@
+package com.sentinel.platform.archive.segment;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SegmentStoreTest {
+
+    private static final int BLOCK_SIZE = 4096;
+    private static final long DAY = 20_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsRecordsOfKeyAndDayAcrossBlocks() {
+        SegmentStore store = new SegmentStore(directory, BLOCK_SIZE, 6);
+        try (SegmentWriter writer = store.create("event_raw-p20241001", 0)) {
+            for (int key = 0; key < 200; key++) {
+                for (int i = 0; i < 5; i++) {
+                    writer.append(key(key), DAY + (i % 2), record(key, i));
+                }
+            }
+            SegmentIndex index = writer.commit();
+            assertThat(index.recordCount()).isEqualTo(1000);
+            assertThat(index.blocks()).hasSizeGreaterThan(1);
+            assertThat(index.minEpochDay()).isEqualTo(DAY);
+            assertThat(index.maxEpochDay()).isEqualTo(DAY + 1);
+        }
+
+        SegmentReader reader = store.readers("event_raw-p20241001", 1).get(0);
+
+        assertThat(reader.find(key(137), DAY)).extracting(SegmentStoreTest::text)
+                .containsExactly("137/0", "137/2", "137/4");
+        assertThat(reader.find(key(137), DAY + 1)).extracting(SegmentStoreTest::text)
+                .containsExactly("137/1", "137/3");
+        assertThat(reader.find(key(137), DAY + 2)).isEmpty();
+        assertThat(reader.find("missing", DAY)).isEmpty();
+    }
+
+    @Test
+    void findsKeyStraddlingBlockBoundary() {
+        SegmentStore store = new SegmentStore(directory, BLOCK_SIZE, 6);
+        byte[] payload = new byte[1000];
+        try (SegmentWriter writer = store.create("event_raw-p20241002", 0)) {
+            writer.append("a", DAY, payload);
+            for (int i = 0; i < 12; i++) {
+                writer.append("b", DAY, payload);
+            }
+            writer.append("c", DAY, payload);
+            SegmentIndex index = writer.commit();
+            assertThat(index.blocks()).hasSizeGreaterThanOrEqualTo(3);
+        }
+
+        SegmentReader reader = store.readers("event_raw-p20241002", 1).get(0);
+
+        assertThat(reader.find("b", DAY)).hasSize(12);
+        assertThat(reader.find("a", DAY)).hasSize(1);
+        assertThat(reader.find("c", DAY)).hasSize(1);
+    }
+
+    @Test
+    void rejectsRecordsOutOfKeyOrder() {
+        SegmentStore store = new SegmentStore(directory, BLOCK_SIZE, 6);
+        try (SegmentWriter writer = store.create("event_raw-p20241003", 0)) {
+            writer.append("b", DAY, record(1, 0));
+            assertThatThrownBy(() -> writer.append("a", DAY, record(0, 0)))
+                    .isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void uncommittedPartIsNotVisible() {
+        SegmentStore store = new SegmentStore(directory, BLOCK_SIZE, 6);
+        try (SegmentWriter writer = store.create("event_raw-p20241004", 0)) {
+            writer.append("a", DAY, record(0, 0));
+        }
+
+        assertThat(store.readers()).isEmpty();
+        assertThatThrownBy(() -> store.readers("event_raw-p20241004", 1))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("event_raw-p20241004-000");
+    }
+
+    @Test
+    void readsEveryPartOfSource() {
+        SegmentStore store = new SegmentStore(directory, BLOCK_SIZE, 6);
+        for (int part = 0; part < 2; part++) {
+            try (SegmentWriter writer = store.create("event_raw-p20241005", part)) {
+                writer.append("k", DAY, record(part, 0));
+                writer.commit();
+            }
+        }
+        store.markComplete("event_raw-p20241005");
+
+        List<SegmentReader> readers = store.readers("event_raw-p20241005", 2);
+
+        assertThat(store.isComplete("event_raw-p20241005")).isTrue();
+        assertThat(readers).extracting(SegmentReader::name)
+                .containsExactly("event_raw-p20241005-000", "event_raw-p20241005-001");
+        assertThat(readers).flatExtracting(reader -> reader.find("k", DAY)).extracting(SegmentStoreTest::text)
+                .containsExactly("0/0", "1/0");
+    }
+
+    @Test
+    void discardRemovesEveryPart() throws Exception {
+        SegmentStore store = new SegmentStore(directory, BLOCK_SIZE, 6);
+        try (SegmentWriter writer = store.create("event_raw-p20241006", 0)) {
+            writer.append("k", DAY, record(0, 0));
+            writer.commit();
+        }
+        store.readers("event_raw-p20241006", 1);
+
+        store.discard("event_raw-p20241006");
+
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+        assertThatThrownBy(() -> store.readers("event_raw-p20241006", 1)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsInvalidSourceNames() {
+        SegmentStore store = new SegmentStore(directory, BLOCK_SIZE, 6);
+
+        assertThatThrownBy(() -> store.create("../escape", 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String key(int key) {
+        return "corr-%05d".formatted(key);
+    }
+
+    private static byte[] record(int key, int sequence) {
+        return (key + "/" + sequence).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] record) {
+        return new String(record, StandardCharsets.UTF_8);
+    }
+}
@@ -38,7 +38,9 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @Testcontainers
@@ -157,4 +159,24 @@ class IngestionIntegrationTest {
         verify(kafkaTemplate, times(1)).send(captor.capture());
         assertThat(captor.getValue().getHeaders().get(KafkaHeaders.TOPIC)).isEqualTo("events.dlq");
     }
+
+    @Test
+    @WithMockUser(roles = {"viewer"})
+    void archiveReadsOnlyCatalogedDays() throws Exception {
+        mockMvc.perform(get("/archive/raw-events")
+                        .param("day", "2024-01-15")
+                        .param("correlationKey", "corr-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+
+        jdbcTemplate.update("insert into raw_event_archive (source, partition_day, parts, record_count, segment_bytes) "
+                + "values ('event_raw-p20240116', '2024-01-16', 1, 10, 1024)");
+
+        mockMvc.perform(get("/archive/raw-events")
+                        .param("day", "2024-01-16")
+                        .param("correlationKey", "corr-1"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(get("/archive/raw-events").param("day", "2024-01-16"))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,187 @@
+package com.sentinel.platform.pipeline.stage;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sentinel.platform.pipeline.config.PipelineProperties.OverflowPolicy;
+import com.sentinel.platform.pipeline.config.PipelineProperties.StageSettings;
+import com.sentinel.platform.pipeline.stage.SpillJournalTest.Item;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PipelineStageTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void spillingKeepsPerKeyOrder() throws Exception {
+        List<Item> delivered = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        PipelineStage<Item> stage = PipelineStage.start("alerting", Item.class, items -> {
+            await(release);
+            delivered.addAll(items);
+        }, new StageSettings(2, 4, 3, OverflowPolicy.SPILL), directory, objectMapper, meterRegistry);
+
+        for (int n = 0; n < 200; n++) {
+            stage.submit("key-" + (n % 5), new Item("key-" + (n % 5), n));
+        }
+        assertThat(meterRegistry.get("pipeline.stage.spilled").counter().count()).isPositive();
+        release.countDown();
+        waitFor(() -> delivered.size() == 200);
+        stage.stop(1000);
+
+        Map<String, List<Integer>> byKey = new HashMap<>();
+        delivered.forEach(item -> byKey.computeIfAbsent(item.key(), k -> new ArrayList<>()).add(item.n()));
+        byKey.values().forEach(sequence -> assertThat(sequence).isSorted());
+        assertThat(meterRegistry.get("pipeline.stage.spill.pending").gauge().value()).isZero();
+    }
+
+    @Test
+    void drainsSpillLeftOverByPreviousProcess() throws Exception {
+        SpillJournal<Item> leftover = new SpillJournal<>(directory, "alerting-0", Item.class, objectMapper);
+        leftover.append(new Item("a", 1));
+        leftover.close();
+        SpillJournal<Item> removedWorker = new SpillJournal<>(directory, "alerting-5", Item.class, objectMapper);
+        removedWorker.append(new Item("b", 2));
+        removedWorker.close();
+
+        List<Item> delivered = new CopyOnWriteArrayList<>();
+        PipelineStage<Item> stage = PipelineStage.start("alerting", Item.class, delivered::addAll,
+                new StageSettings(2, 4, 10, OverflowPolicy.SPILL), directory, objectMapper, meterRegistry);
+        waitFor(() -> delivered.size() == 2);
+        stage.stop(1000);
+
+        assertThat(delivered).extracting(Item::n).containsExactlyInAnyOrder(1, 2);
+        assertThat(new SpillJournal<>(directory, "alerting-0", Item.class, objectMapper).pending()).isZero();
+        assertThat(new SpillJournal<>(directory, "alerting-5", Item.class, objectMapper).pending()).isZero();
+    }
+
+    @Test
+    void shedsOverflowAndCountsIt() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PipelineStage<Item> stage = PipelineStage.start("aggregation", Item.class, items -> await(release),
+                new StageSettings(1, 2, 1, OverflowPolicy.SHED), directory, objectMapper, meterRegistry);
+
+        for (int n = 0; n < 20; n++) {
+            stage.submit("k", new Item("k", n));
+        }
+        release.countDown();
+        stage.stop(1000);
+
+        assertThat(meterRegistry.get("pipeline.stage.shed").counter().count()).isBetween(17.0, 18.0);
+    }
+
+    @Test
+    void inlineStageDeliversOnCallingThread() {
+        List<String> threads = new ArrayList<>();
+        PipelineStage<Item> stage = PipelineStage.inline("aggregation", items -> threads.add(Thread.currentThread().getName()),
+                meterRegistry);
+
+        stage.submit("k", new Item("k", 1));
+
+        assertThat(threads).containsExactly(Thread.currentThread().getName());
+    }
+
+    @Test
+    void runsCallbackOnlyAfterDelivery() throws Exception {
+        List<Item> delivered = new CopyOnWriteArrayList<>();
+        List<Integer> done = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        PipelineStage<Item> stage = PipelineStage.start("aggregation", Item.class, items -> {
+            await(release);
+            delivered.addAll(items);
+        }, new StageSettings(1, 10, 10, OverflowPolicy.BLOCK), directory, objectMapper, meterRegistry);
+
+        for (int n = 0; n < 3; n++) {
+            int current = n;
+            stage.submit("k", new Item("k", n), () -> done.add(current));
+        }
+        Thread.sleep(100);
+        assertThat(done).isEmpty();
+        release.countDown();
+        waitFor(() -> done.size() == 3);
+        stage.stop(1000);
+
+        assertThat(delivered).hasSize(3);
+        assertThat(done).containsExactlyInAnyOrder(0, 1, 2);
+    }
+
+    @Test
+    void blockingStageRetriesFailedBatchUntilDelivered() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        List<Item> delivered = new CopyOnWriteArrayList<>();
+        List<Integer> done = new CopyOnWriteArrayList<>();
+        PipelineStage<Item> stage = PipelineStage.start("aggregation", Item.class, items -> {
+            if (attempts.incrementAndGet() <= 2) {
+                throw new IllegalStateException("database unavailable");
+            }
+            delivered.addAll(items);
+        }, new StageSettings(1, 10, 10, OverflowPolicy.BLOCK), directory, objectMapper, meterRegistry);
+
+        stage.submit("k", new Item("k", 1), () -> done.add(1));
+        waitFor(() -> done.size() == 1);
+        stage.stop(1000);
+
+        assertThat(delivered).extracting(Item::n).containsExactly(1);
+        assertThat(attempts).hasValue(3);
+        assertThat(meterRegistry.get("pipeline.stage.retried").counter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("pipeline.stage.failed").counter().count()).isZero();
+    }
+
+    @Test
+    void spillingStageJournalsBatchItKeepsFailing() throws Exception {
+        AtomicBoolean healthy = new AtomicBoolean();
+        List<Item> delivered = new CopyOnWriteArrayList<>();
+        List<Integer> done = new CopyOnWriteArrayList<>();
+        PipelineStage<Item> stage = PipelineStage.start("alerting", Item.class, items -> {
+            if (!healthy.get()) {
+                throw new IllegalStateException("database unavailable");
+            }
+            delivered.addAll(items);
+        }, new StageSettings(1, 10, 10, OverflowPolicy.SPILL), directory, objectMapper, meterRegistry);
+
+        stage.submit("k", new Item("k", 1), () -> done.add(1));
+        waitFor(() -> done.size() == 1);
+        assertThat(delivered).isEmpty();
+        assertThat(meterRegistry.get("pipeline.stage.spilled").counter().count()).isEqualTo(1.0);
+        healthy.set(true);
+        waitFor(() -> delivered.size() == 1);
+        stage.stop(1000);
+
+        assertThat(meterRegistry.get("pipeline.stage.retried").counter().count()).isGreaterThanOrEqualTo(PipelineStage.RETRY_ATTEMPTS);
+        assertThat(meterRegistry.get("pipeline.stage.failed").counter().count()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,116 @@
+package com.sentinel.platform.pipeline.stage;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpillJournalTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsItemsBackInAppendOrder() {
+        SpillJournal<Item> journal = open("alerting-0");
+        for (int i = 0; i < 5; i++) {
+            journal.append(new Item("k", i));
+        }
+
+        assertThat(journal.pending()).isEqualTo(5);
+        assertThat(journal.poll(3)).extracting(Item::n).containsExactly(0, 1, 2);
+        assertThat(journal.poll(10)).extracting(Item::n).containsExactly(3, 4);
+        assertThat(journal.pending()).isZero();
+        assertThat(journal.poll(10)).isEmpty();
+    }
+
+    @Test
+    void keepsSegmentsUntilCommitted() throws Exception {
+        SpillJournal<Item> journal = open("alerting-0");
+        journal.append(new Item("k", 1));
+        assertThat(journal.poll(10)).hasSize(1);
+        assertThat(journal.poll(10)).isEmpty();
+
+        assertThat(segments()).hasSize(1);
+        journal.commit();
+        assertThat(segments()).isEmpty();
+    }
+
+    @Test
+    void replaysOnlyUncommittedItemsAfterRestart() {
+        SpillJournal<Item> journal = open("alerting-0");
+        for (int i = 0; i < 6; i++) {
+            journal.append(new Item("k", i));
+        }
+        assertThat(journal.poll(2)).extracting(Item::n).containsExactly(0, 1);
+        journal.commit();
+        assertThat(journal.poll(2)).extracting(Item::n).containsExactly(2, 3);
+        journal.close();
+
+        SpillJournal<Item> reopened = open("alerting-0");
+
+        assertThat(reopened.pending()).isEqualTo(4);
+        assertThat(reopened.poll(10)).extracting(Item::n).containsExactly(2, 3, 4, 5);
+    }
+
+    @Test
+    void continuesSequenceAfterRestart() {
+        SpillJournal<Item> journal = open("alerting-0");
+        journal.append(new Item("k", 0));
+        journal.poll(10);
+        journal.poll(10);
+        journal.commit();
+        journal.close();
+
+        SpillJournal<Item> reopened = open("alerting-0");
+        reopened.append(new Item("k", 1));
+
+        assertThat(reopened.pending()).isEqualTo(1);
+        assertThat(reopened.poll(10)).extracting(Item::n).containsExactly(1);
+    }
+
+    @Test
+    void skipsTornLastLine() throws Exception {
+        SpillJournal<Item> journal = open("alerting-0");
+        journal.append(new Item("k", 0));
+        journal.close();
+        Files.writeString(segments().get(0), "2\t{\"key\":\"k\",\"n\"", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        SpillJournal<Item> reopened = open("alerting-0");
+
+        assertThat(reopened.poll(10)).extracting(Item::n).containsExactly(0);
+        assertThat(reopened.pending()).isZero();
+    }
+
+    @Test
+    void listsWorkersWithLeftoverSegments() {
+        open("alerting-0").append(new Item("k", 0));
+        open("alerting-3").append(new Item("k", 0));
+        open("aggregation-1").append(new Item("k", 0));
+
+        assertThat(SpillJournal.workersWithSegments(directory, "alerting")).containsExactly(0, 3);
+        assertThat(SpillJournal.workersWithSegments(directory.resolve("missing"), "alerting")).isEmpty();
+    }
+
+    private SpillJournal<Item> open(String name) {
+        return new SpillJournal<>(directory, name, Item.class, objectMapper);
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".spill")).toList();
+        }
+    }
+
+    record Item(String key, int n) {}
+}
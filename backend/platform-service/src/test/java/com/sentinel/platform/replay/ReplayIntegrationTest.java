@@ -0,0 +1,243 @@
+package com.sentinel.platform.replay;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.MariaDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.sentinel.platform.PlatformApplication;
+import com.sentinel.platform.aggregation.service.AggregationService;
+import com.sentinel.platform.alerting.service.AlertingService;
+import com.sentinel.platform.ingestion.model.NormalizedEvent;
+import com.sentinel.platform.ingestion.model.RawEventRecord;
+import com.sentinel.platform.ingestion.repository.EventRawRepository;
+import com.sentinel.platform.replay.model.ReplayJob;
+import com.sentinel.platform.replay.model.ReplayMode;
+import com.sentinel.platform.replay.model.ReplayStatus;
+import com.sentinel.platform.replay.service.ReplayService;
+import com.sentinel.platform.replay.web.dto.ReplayRequest;
+import com.sentinel.platform.ruleconfig.service.WorkflowService;
+import com.sentinel.platform.ruleconfig.web.dto.WorkflowRequest;
+import com.sentinel.platform.ruleengine.config.RuleEngineProperties;
+import com.sentinel.platform.ruleengine.service.ExpectationSchedulerService;
+import com.sentinel.platform.ruleengine.service.RuleEngineService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+
+@Testcontainers
+@SpringBootTest(classes = PlatformApplication.class, webEnvironment = WebEnvironment.MOCK)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = {
+        "ruleengine.scheduler-enabled=false",
+        "logging.level.com.sentinel.platform=DEBUG",
+        "spring.kafka.listener.auto-startup=false"
+})
+class ReplayIntegrationTest {
+
+    @Container
+    static MariaDBContainer<?> mariaDb = new MariaDBContainer<>("mariadb:10.6")
+            .withDatabaseName("replay")
+            .withUsername("replay_user")
+            .withPassword("password");
+
+    @DynamicPropertySource
+    static void registerProperties(DynamicPropertyRegistry registry) {
+        if (!mariaDb.isRunning()) {
+            mariaDb.start();
+        }
+        registry.add("spring.datasource.url", mariaDb::getJdbcUrl);
+        registry.add("spring.datasource.username", mariaDb::getUsername);
+        registry.add("spring.datasource.password", mariaDb::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+    }
+
+    @Autowired
+    private WorkflowService workflowService;
+
+    @Autowired
+    private RuleEngineService ruleEngineService;
+
+    @Autowired
+    private ExpectationSchedulerService schedulerService;
+
+    @Autowired
+    private ReplayService replayService;
+
+    @Autowired
+    private EventRawRepository eventRawRepository;
+
+    @Autowired
+    private AggregationService aggregationService;
+
+    @Autowired
+    private AlertingService alertingService;
+
+    @Autowired
+    private RuleEngineProperties ruleEngineProperties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private KafkaTemplate<Object, Object> kafkaTemplate;
+
+    @BeforeEach
+    void routeKafka() {
+        lenient().when(kafkaTemplate.send(any(Message.class))).thenAnswer(invocation -> {
+            Message<?> msg = invocation.getArgument(0);
+            String topic = (String) msg.getHeaders().get(KafkaHeaders.TOPIC);
+            Object payload = msg.getPayload();
+            String serialized = payload instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : payload.toString();
+            if (ruleEngineProperties.getRuleEvaluatedTopic().equals(topic)) {
+                aggregationService.handleRuleEvaluated(serialized);
+            } else if (ruleEngineProperties.getAlertsTriggeredTopic().equals(topic)) {
+                alertingService.handleAlertTriggered(serialized);
+            }
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    @Test
+    void shadowReplayReproducesLiveRun() throws Exception {
+        long versionId = createWorkflow("replay-flow", "REPLAY");
+        Instant origin = Instant.now().minus(Duration.ofHours(2)).truncatedTo(ChronoUnit.MILLIS);
+        // On time and completed, late and completed, and never settled (missed once its deadline passes).
+        ingestLive("REPLAY_INGEST", "replay-1", origin);
+        ingestLive("REPLAY_SETTLED", "replay-1", origin.plusSeconds(60));
+        ingestLive("REPLAY_INGEST", "replay-2", origin.plusSeconds(10));
+        ingestLive("REPLAY_SETTLED", "replay-2", origin.plusSeconds(400));
+        ingestLive("REPLAY_INGEST", "replay-3", origin.plusSeconds(20));
+        schedulerService.pollAndEmit(100);
+        waitFor(() -> nodeTotals("stage_aggregate", versionId).equals(List.of("ingest:3:0:0", "settled:2:2:0"))
+                && liveAlerts() == 2, Duration.ofSeconds(15));
+
+        ReplayRequest request = new ReplayRequest();
+        request.setWorkflowKey("replay-flow");
+        request.setFrom(origin.minusSeconds(60));
+        request.setTo(Instant.now());
+        request.setMode(ReplayMode.SHADOW);
+        request.setWorkers(2);
+        ReplayJob job = replayService.start(request, "test-user");
+        waitFor(() -> replayService.find(job.id()).map(ReplayJob::status).filter(s -> s != ReplayStatus.PENDING
+                && s != ReplayStatus.RUNNING).isPresent(), Duration.ofSeconds(30));
+
+        ReplayJob finished = replayService.find(job.id()).orElseThrow();
+        assertThat(finished.status()).isEqualTo(ReplayStatus.COMPLETED);
+        assertThat(finished.eventsProcessed()).isEqualTo(5);
+        assertThat(finished.missesEmitted()).isEqualTo(1);
+        assertThat(finished.alertsSuppressed()).isEqualTo(liveAlerts());
+        assertThat(runs("shadow_", versionId)).isEqualTo(runs("", versionId))
+                .containsExactly("replay-1:green:completed", "replay-2:amber:completed", "replay-3:amber:open");
+        assertThat(occurrences("shadow_", versionId)).isEqualTo(occurrences("", versionId));
+        assertThat(expectations("shadow_", versionId)).isEqualTo(expectations("", versionId));
+        assertThat(nodeTotals("shadow_stage_aggregate", versionId)).isEqualTo(nodeTotals("stage_aggregate", versionId));
+    }
+
+    private List<String> runs(String prefix, long versionId) {
+        return jdbcTemplate.queryForList("""
+                select concat(correlation_key, ':', status, ':', if(completed_at is null, 'open', 'completed'))
+                from %sworkflow_run where workflow_version_id = ? order by correlation_key
+                """.formatted(prefix), String.class, versionId);
+    }
+
+    private List<String> occurrences(String prefix, long versionId) {
+        return jdbcTemplate.queryForList("""
+                select concat(r.correlation_key, ':', o.node_key, ':', o.is_late, ':', o.order_violation)
+                from %1$sevent_occurrence o join %1$sworkflow_run r on r.id = o.workflow_run_id
+                where r.workflow_version_id = ? order by r.correlation_key, o.event_time_utc
+                """.formatted(prefix), String.class, versionId);
+    }
+
+    private List<String> expectations(String prefix, long versionId) {
+        return jdbcTemplate.queryForList("""
+                select concat(r.correlation_key, ':', e.to_node_key, ':', e.status, ':', e.remaining_count, ':', e.due_at)
+                from %1$sexpectation e join %1$sworkflow_run r on r.id = e.workflow_run_id
+                where r.workflow_version_id = ? order by r.correlation_key, e.to_node_key
+                """.formatted(prefix), String.class, versionId);
+    }
+
+    private List<String> nodeTotals(String table, long versionId) {
+        return jdbcTemplate.queryForList("""
+                select concat(node_key, ':', sum(completed), ':', sum(late), ':', sum(failed))
+                from %s where workflow_version_id = ? group by node_key order by node_key
+                """.formatted(table), String.class, versionId);
+    }
+
+    private long liveAlerts() {
+        return jdbcTemplate.queryForObject("select count(*) from alert where correlation_key like 'replay-%'", Long.class);
+    }
+
+    /**
+     * Stores the event as ingestion would and evaluates it live, received when it happened.
+     */
+    private void ingestLive(String eventType, String correlationKey, Instant at) {
+        String eventId = UUID.randomUUID().toString();
+        eventRawRepository.save(new RawEventRecord(eventId, "replay-test", eventType, null, correlationKey, null, null, at, at, "STORED"));
+        NormalizedEvent event = new NormalizedEvent();
+        event.setEventId(eventId);
+        event.setSourceSystem("replay-test");
+        event.setEventType(eventType);
+        event.setEventTime(at);
+        event.setCorrelationKey(correlationKey);
+        event.setReceivedAt(at);
+        ruleEngineService.handleNormalizedEvent(event);
+    }
+
+    /**
+     * Creates a workflow whose {@code ingest} node starts on {@code <prefix>_INGEST} and expects one
+     * {@code <prefix>_SETTLED} within five minutes at the terminal {@code settled}; returns its version id.
+     */
+    private long createWorkflow(String key, String eventPrefix) {
+        WorkflowRequest request = new WorkflowRequest();
+        request.setName(key);
+        request.setKey(key);
+        request.setCreatedBy("test-user");
+        Map<String, Object> graph = new HashMap<>();
+        graph.put("nodes", List.of(
+                Map.of("key", "ingest", "eventType", eventPrefix + "_INGEST", "start", true),
+                Map.of("key", "settled", "eventType", eventPrefix + "_SETTLED", "terminal", true)
+        ));
+        graph.put("edges", List.of(
+                Map.of("from", "ingest", "to", "settled", "maxLatencySec", 300, "severity", "amber", "expectedCount", 1, "optional", false)
+        ));
+        request.setGraph(graph);
+        return workflowService.createWorkflow(request).getActiveVersionId();
+    }
+
+    private void waitFor(Supplier<Boolean> condition, Duration timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        while (System.currentTimeMillis() < deadline) {
+            if (Boolean.TRUE.equals(condition.get())) {
+                return;
+            }
+            Thread.sleep(250);
+        }
+        throw new AssertionError("Condition not met within timeout");
+    }
+}
@@ -0,0 +1,129 @@
+package com.sentinel.platform.replay.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sentinel.platform.aggregation.service.AggregateRollupService;
+import com.sentinel.platform.aggregation.state.RecentAggregateLoader;
+import com.sentinel.platform.replay.config.ReplayProperties;
+import com.sentinel.platform.replay.model.AggregateRebuild;
+import com.sentinel.platform.replay.model.ReplayStatus;
+import com.sentinel.platform.replay.repository.AggregateRebuildRepository;
+import com.sentinel.platform.replay.repository.AggregateRebuildRepository.SourceMark;
+import com.sentinel.platform.replay.web.dto.AggregateRebuildRequest;
+import com.sentinel.platform.retention.repository.PartitionRepository;
+import com.sentinel.platform.ruleconfig.model.WorkflowVersion;
+import com.sentinel.platform.ruleconfig.repository.WorkflowVersionRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AggregateRebuildServiceTest {
+
+    private static final long VERSION = 7L;
+    private static final Instant FROM = Instant.parse("2024-03-01T10:00:00Z");
+    private static final Instant TO = Instant.parse("2024-03-01T11:00:00Z");
+    private static final SourceMark STAGED = new SourceMark(4, 40);
+    private static final SourceMark MOVED = new SourceMark(5, 41);
+
+    private final AggregateRebuildRepository repository = mock(AggregateRebuildRepository.class);
+    private final ReplayProperties properties = new ReplayProperties();
+    private AggregateRebuildService service;
+
+    @BeforeEach
+    void setUp() {
+        WorkflowVersionRepository workflowVersionRepository = mock(WorkflowVersionRepository.class);
+        when(workflowVersionRepository.findById(VERSION)).thenReturn(Optional.of(new WorkflowVersion()));
+        PartitionRepository partitionRepository = mock(PartitionRepository.class);
+        when(partitionRepository.withMaintenanceLock(anyString(), any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        });
+        service = new AggregateRebuildService(repository, workflowVersionRepository, partitionRepository,
+                mock(AggregateRollupService.class), mock(RecentAggregateLoader.class), properties,
+                Clock.fixed(Instant.parse("2024-03-01T12:00:00Z"), ZoneOffset.UTC), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void swapsStagedSliceWhenSourcesUnchanged() throws Exception {
+        when(repository.sourceMark(VERSION, FROM, TO)).thenReturn(STAGED);
+        when(repository.swap(VERSION, FROM, TO, STAGED)).thenReturn(OptionalInt.of(3));
+
+        AggregateRebuild rebuild = await(service.start(request(TO), "operator"));
+
+        assertThat(rebuild.status()).isEqualTo(ReplayStatus.COMPLETED);
+        assertThat(rebuild.bucketsSwapped()).isEqualTo(3);
+        assertThat(rebuild.slicesRestaged()).isZero();
+        verify(repository, never()).clearStaging(VERSION, FROM, TO);
+    }
+
+    @Test
+    void restagesSliceThatReceivedArrivalsAfterItWasRead() throws Exception {
+        when(repository.sourceMark(VERSION, FROM, TO)).thenReturn(STAGED, MOVED);
+        when(repository.swap(VERSION, FROM, TO, STAGED)).thenReturn(OptionalInt.empty());
+        when(repository.swap(VERSION, FROM, TO, MOVED)).thenReturn(OptionalInt.of(3));
+
+        AggregateRebuild rebuild = await(service.start(request(TO), "operator"));
+
+        assertThat(rebuild.status()).isEqualTo(ReplayStatus.COMPLETED);
+        assertThat(rebuild.bucketsSwapped()).isEqualTo(3);
+        assertThat(rebuild.slicesRestaged()).isEqualTo(1);
+        assertThat(rebuild.slicesDone()).isEqualTo(1);
+        verify(repository).clearStaging(VERSION, FROM, TO);
+        verify(repository, times(2)).findRuns(any(Long.class), any(), any(), any());
+    }
+
+    @Test
+    void failsWhenSliceKeepsMoving() throws Exception {
+        when(repository.sourceMark(VERSION, FROM, TO)).thenReturn(STAGED);
+        when(repository.swap(VERSION, FROM, TO, STAGED)).thenReturn(OptionalInt.empty());
+
+        AggregateRebuild rebuild = await(service.start(request(TO), "operator"));
+
+        assertThat(rebuild.status()).isEqualTo(ReplayStatus.FAILED);
+        assertThat(rebuild.errorMessage()).contains("2024-03-01T10:00:00Z");
+        assertThat(rebuild.slicesRestaged()).isEqualTo(3);
+        verify(repository, times(4)).swap(VERSION, FROM, TO, STAGED);
+    }
+
+    @Test
+    void rejectsRangeEndingInsideSettleMargin() {
+        properties.setRebuildSettleMinutes(5);
+
+        assertThatThrownBy(() -> service.start(request(Instant.parse("2024-03-01T11:56:00Z")), "operator"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(service.start(request(Instant.parse("2024-03-01T11:55:00Z")), "operator").toTime()).isEqualTo("2024-03-01T11:55:00Z");
+    }
+
+    private static AggregateRebuildRequest request(Instant to) {
+        AggregateRebuildRequest request = new AggregateRebuildRequest();
+        request.setWorkflowVersionId(VERSION);
+        request.setFrom(FROM);
+        request.setTo(to);
+        request.setParallelism(1);
+        request.setMaxRowsPerSec(1_000_000);
+        return request;
+    }
+
+    private static AggregateRebuild await(AggregateRebuild rebuild) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (rebuild.active() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return rebuild;
+    }
+}
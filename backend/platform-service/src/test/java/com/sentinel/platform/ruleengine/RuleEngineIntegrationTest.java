@@ -3,6 +3,7 @@ package com.sentinel.platform.ruleengine;
 import java.sql.Timestamp;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,14 +38,22 @@ import com.sentinel.platform.alerting.service.AlertingService;
 import com.sentinel.platform.ruleconfig.service.WorkflowService;
 import com.sentinel.platform.ruleconfig.web.dto.WorkflowRequest;
 import com.sentinel.platform.ruleengine.config.RuleEngineProperties;
+import com.sentinel.platform.ruleengine.repository.ExpectationRepository;
 import com.sentinel.platform.ruleengine.service.ExpectationSchedulerService;
 import com.sentinel.platform.ruleengine.service.RuleEngineService;
+import com.sentinel.platform.ruleengine.simulation.SimulationService;
+import com.sentinel.platform.ruleengine.state.PartitionOwnership;
+import com.sentinel.platform.ruleengine.web.dto.SimulationNodeView;
+import com.sentinel.platform.ruleengine.web.dto.SimulationRequest;
+import com.sentinel.platform.ruleengine.web.dto.SimulationResult;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.lenient;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @Testcontainers
@@ -99,6 +108,15 @@ class RuleEngineIntegrationTest {
     @Autowired
     private RuleEngineProperties ruleEngineProperties;
 
+    @Autowired
+    private ExpectationRepository expectationRepository;
+
+    @Autowired
+    private SimulationService simulationService;
+
+    @Autowired
+    private PartitionOwnership partitionOwnership;
+
     @MockBean
     private KafkaTemplate<Object, Object> kafkaTemplate;
 
@@ -147,7 +165,9 @@ class RuleEngineIntegrationTest {
         waitFor(() -> jdbcTemplate.queryForObject("select count(*) from workflow_run", Integer.class) > 0, Duration.ofSeconds(15));
 
         Integer expectationCount = jdbcTemplate.queryForObject("select count(*) from expectation where status = 'pending'", Integer.class);
-        assertThat(expectationCount).isEqualTo(2);
+        assertThat(expectationCount).isEqualTo(1);
+        Integer remainingCount = jdbcTemplate.queryForObject("select remaining_count from expectation where status = 'pending'", Integer.class);
+        assertThat(remainingCount).isEqualTo(2);
         Instant dueAt = jdbcTemplate.queryForObject("select due_at from expectation limit 1", Timestamp.class).toInstant();
         System.out.println("Expectation dueAt=" + dueAt + " now=" + Instant.now());
 
@@ -193,21 +213,228 @@ class RuleEngineIntegrationTest {
         assertThat(state).isEqualTo("ack");
     }
 
+    @Test
+    void compactionKeepsFiredExpectationUntilItsOccurrencesArrive() {
+        createWorkflow("Refund Flow", "refund-flow", "REFUND");
+        Instant origin = Instant.now().minus(Duration.ofHours(2));
+        handle("REFUND_INGEST", "refund-1", origin);
+        Long runId = jdbcTemplate.queryForObject("select id from workflow_run where correlation_key = 'refund-1'", Long.class);
+        jdbcTemplate.update("update expectation set status = 'fired', fired_at = ? where workflow_run_id = ?",
+                Timestamp.from(origin.plusSeconds(60)), runId);
+
+        expectationRepository.moveResolvedToHistory(Instant.now(), 100);
+        handle("REFUND_TO_SYSTEM", "refund-1", origin.plusSeconds(600));
+
+        assertThat(jdbcTemplate.queryForObject("select remaining_count from expectation where workflow_run_id = ?", Integer.class, runId))
+                .isEqualTo(1);
+        assertThat(jdbcTemplate.queryForMap("""
+                select is_late, order_violation from event_occurrence where workflow_run_id = ? and node_key = 'to-system'
+                """, runId)).containsEntry("is_late", true).containsEntry("order_violation", false);
+
+        handle("REFUND_TO_SYSTEM", "refund-1", origin.plusSeconds(660));
+        expectationRepository.moveResolvedToHistory(Instant.now(), 100);
+
+        assertThat(jdbcTemplate.queryForObject("select count(*) from expectation where workflow_run_id = ?", Integer.class, runId))
+                .isZero();
+        assertThat(jdbcTemplate.queryForObject("select status from expectation_history where workflow_run_id = ?", String.class, runId))
+                .isEqualTo("cleared");
+    }
+
+    @Test
+    void simulationReproducesLiveRun() throws Exception {
+        long versionId = createWorkflow("Payment Flow", "payment-flow", "PAYMENT");
+        Instant origin = Instant.now().minus(Duration.ofHours(3)).truncatedTo(ChronoUnit.MILLIS);
+        List<NormalizedEvent> events = List.of(
+                event("PAYMENT_INGEST", "payment-1", origin),
+                event("PAYMENT_INGEST", "payment-2", origin.plusSeconds(5)),
+                event("PAYMENT_TO_SYSTEM", "payment-1", origin.plusSeconds(10)),
+                event("PAYMENT_TO_SYSTEM", "payment-1", origin.plusSeconds(20)),
+                event("PAYMENT_TO_SYSTEM", "payment-2", origin.plusSeconds(90)),
+                event("PAYMENT_INGEST", "payment-3", origin.plusSeconds(100)));
+        // Live, the scheduler fires payment-2's deadline (+65s) before its late arrival and payment-3's at the end,
+        // where the simulated clock fires them.
+        events.subList(0, 4).forEach(ruleEngineService::handleNormalizedEvent);
+        schedulerService.pollAndEmit(100);
+        events.subList(4, 6).forEach(ruleEngineService::handleNormalizedEvent);
+        schedulerService.pollAndEmit(100);
+
+        SimulationRequest request = new SimulationRequest();
+        request.setWorkflowVersionId(versionId);
+        request.setSampleEvents(events);
+        request.setUntil(origin.plusSeconds(200));
+        SimulationResult simulated = simulationService.simulate(request);
+
+        assertThat(simulated.missesFired()).isEqualTo(2);
+        assertThat(simulated.alertsByReason()).isEqualTo(Map.of("EXPECTED_MISSED", 2L, "SLA_MISSED", 1L));
+        List<String> simulatedNodes = simulated.nodes().stream()
+                .map(n -> n.nodeKey() + ":" + n.completed() + ":" + n.late() + ":" + n.failed() + ":" + n.inFlight())
+                .toList();
+        waitFor(() -> liveNodes(versionId, simulated.nodes()).equals(simulatedNodes)
+                && jdbcTemplate.queryForObject("select count(*) from alert where correlation_key like 'payment-%'", Long.class) == 3,
+                Duration.ofSeconds(15));
+        Map<String, Long> liveRunsByStatus = new HashMap<>();
+        jdbcTemplate.query("select status, count(*) from workflow_run where workflow_version_id = ? group by status",
+                rs -> {
+                    liveRunsByStatus.put(rs.getString(1), rs.getLong(2));
+                }, versionId);
+        assertThat(simulated.runsByStatus()).isEqualTo(liveRunsByStatus).isEqualTo(Map.of("green", 1L, "red", 2L));
+        assertThat(simulated.expectationsCreated()).isEqualTo(jdbcTemplate.queryForObject("""
+                select count(*) from expectation e join workflow_run r on r.id = e.workflow_run_id
+                where r.workflow_version_id = ?
+                """, Long.class, versionId));
+        assertThat(simulated.missesFired()).isEqualTo(jdbcTemplate.queryForObject("""
+                select count(*) from expectation e join workflow_run r on r.id = e.workflow_run_id
+                where r.workflow_version_id = ? and e.fired_at is not null
+                """, Long.class, versionId));
+    }
+
+    @Test
+    @WithMockUser(roles = {"viewer"})
+    void terminalNodeCompletesRunAndCancelsItsOpenExpectations() throws Exception {
+        Map<String, Object> graph = new HashMap<>();
+        graph.put("nodes", List.of(
+                Map.of("key", "ingest", "eventType", "TRANSFER_INGEST", "start", true),
+                Map.of("key", "booked", "eventType", "TRANSFER_BOOKED", "terminal", true),
+                Map.of("key", "notified", "eventType", "TRANSFER_NOTIFIED")
+        ));
+        graph.put("edges", List.of(
+                Map.of("from", "ingest", "to", "booked", "maxLatencySec", 300, "severity", "red", "expectedCount", 1, "optional", false),
+                Map.of("from", "ingest", "to", "notified", "maxLatencySec", 300, "severity", "amber", "expectedCount", 2, "optional", false)
+        ));
+        long versionId = createWorkflow("Transfer Flow", "transfer-flow", graph);
+        Instant origin = Instant.now().minusSeconds(30);
+        handle("TRANSFER_INGEST", "transfer-1", origin);
+        handle("TRANSFER_INGEST", "transfer-2", origin);
+        handle("TRANSFER_BOOKED", "transfer-1", origin.plusSeconds(5));
+
+        Long runId = jdbcTemplate.queryForObject("select id from workflow_run where correlation_key = 'transfer-1'", Long.class);
+        assertThat(jdbcTemplate.queryForObject("select completed_at from workflow_run where id = ?", Timestamp.class, runId)).isNotNull();
+        assertThat(jdbcTemplate.queryForList("""
+                select concat(to_node_key, ':', status) from expectation where workflow_run_id = ? order by to_node_key
+                """, String.class, runId)).containsExactly("booked:cleared", "notified:cancelled");
+        // Only transfer-2's two notifications are still in flight once the cancelled ones are released.
+        waitFor(() -> jdbcTemplate.queryForObject("""
+                select coalesce(sum(in_flight), 0) from stage_inflight where workflow_version_id = ? and node_key = 'notified'
+                """, Long.class, versionId) == 2, Duration.ofSeconds(15));
+        mockMvc.perform(get("/workflows/transfer-flow/correlations").param("allDays", "true").param("activeOnly", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].correlationId", containsInAnyOrder("transfer-2")));
+
+        // A completed run is off the hot path: the same key starts a new run.
+        handle("TRANSFER_INGEST", "transfer-1", origin.plusSeconds(10));
+        assertThat(jdbcTemplate.queryForObject("select count(*) from workflow_run where correlation_key = 'transfer-1'", Integer.class))
+                .isEqualTo(2);
+        mockMvc.perform(get("/workflows/transfer-flow/correlations").param("allDays", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].correlationId", containsInAnyOrder("transfer-1", "transfer-1", "transfer-2")));
+    }
+
+    @Test
+    void schedulerFiresOnlyTimersOfOwnedPartitions() {
+        createWorkflow("Invoice Flow", "invoice-flow", "INVOICE");
+        String owned = keyInPartition("invoice-", 0, 4);
+        String foreign = keyInPartition("invoice-", 2, 4);
+        Instant origin = Instant.now().minus(Duration.ofHours(1));
+        handle("INVOICE_INGEST", "invoice-legacy", origin);
+        partitionOwnership.assigned(4, List.of(0, 1));
+        try {
+            handle("INVOICE_INGEST", owned, origin);
+            handle("INVOICE_INGEST", foreign, origin);
+            assertThat(expectationPartition(owned)).isEqualTo(0);
+            assertThat(expectationPartition(foreign)).isEqualTo(2);
+            assertThat(expectationPartition("invoice-legacy")).isNull();
+
+            schedulerService.pollAndEmit(100);
+
+            // Rows written before the partition count was known are fired by whichever node gets them.
+            assertThat(expectationStatus(owned)).isEqualTo("fired");
+            assertThat(expectationStatus("invoice-legacy")).isEqualTo("fired");
+            assertThat(expectationStatus(foreign)).isEqualTo("pending");
+
+            partitionOwnership.revoked(List.of(0, 1));
+            partitionOwnership.assigned(4, List.of(2));
+            schedulerService.pollAndEmit(100);
+
+            assertThat(expectationStatus(foreign)).isEqualTo("fired");
+        } finally {
+            partitionOwnership.revoked(List.of(0, 1, 2, 3));
+            partitionOwnership.assigned(0, List.of());
+        }
+    }
+
+    private String expectationStatus(String correlationKey) {
+        return jdbcTemplate.queryForObject("""
+                select e.status from expectation e join workflow_run r on r.id = e.workflow_run_id where r.correlation_key = ?
+                """, String.class, correlationKey);
+    }
+
+    private Integer expectationPartition(String correlationKey) {
+        return jdbcTemplate.queryForObject("""
+                select e.kafka_partition from expectation e join workflow_run r on r.id = e.workflow_run_id where r.correlation_key = ?
+                """, Integer.class, correlationKey);
+    }
+
+    private static String keyInPartition(String prefix, int partition, int partitionCount) {
+        for (int i = 0; ; i++) {
+            if (PartitionOwnership.partitionFor(prefix + i, partitionCount) == partition) {
+                return prefix + i;
+            }
+        }
+    }
+
+    private List<String> liveNodes(long versionId, List<SimulationNodeView> nodes) {
+        return nodes.stream().map(node -> jdbcTemplate.queryForObject("""
+                select concat(?, ':', coalesce(sum(completed), 0), ':', coalesce(sum(late), 0), ':', coalesce(sum(failed), 0), ':',
+                       (select coalesce(sum(in_flight), 0) from stage_inflight where workflow_version_id = ? and node_key = ?))
+                from stage_aggregate where workflow_version_id = ? and node_key = ?
+                """, String.class, node.nodeKey(), versionId, node.nodeKey(), versionId, node.nodeKey())).toList();
+    }
+
+    private NormalizedEvent event(String eventType, String correlationKey, Instant at) {
+        NormalizedEvent event = new NormalizedEvent();
+        event.setEventId(UUID.randomUUID().toString());
+        event.setSourceSystem("engine-test");
+        event.setEventType(eventType);
+        event.setEventTime(at);
+        event.setCorrelationKey(correlationKey);
+        event.setReceivedAt(at);
+        return event;
+    }
+
+    private void handle(String eventType, String correlationKey, Instant eventTime) {
+        NormalizedEvent event = new NormalizedEvent();
+        event.setEventId(UUID.randomUUID().toString());
+        event.setSourceSystem("engine-test");
+        event.setEventType(eventType);
+        event.setEventTime(eventTime);
+        event.setCorrelationKey(correlationKey);
+        event.setReceivedAt(Instant.now());
+        ruleEngineService.handleNormalizedEvent(event);
+    }
+
     private void createWorkflow() {
-        WorkflowRequest request = new WorkflowRequest();
-        request.setName("Order Flow");
-        request.setKey("order-flow");
-        request.setCreatedBy("test-user");
+        createWorkflow("Order Flow", "order-flow", "ORDER");
+    }
+
+    private long createWorkflow(String name, String key, String eventPrefix) {
         Map<String, Object> graph = new HashMap<>();
         graph.put("nodes", List.of(
-                Map.of("key", "ingest", "eventType", "ORDER_INGEST", "start", true),
-                Map.of("key", "to-system", "eventType", "ORDER_TO_SYSTEM")
+                Map.of("key", "ingest", "eventType", eventPrefix + "_INGEST", "start", true),
+                Map.of("key", "to-system", "eventType", eventPrefix + "_TO_SYSTEM")
         ));
         graph.put("edges", List.of(
                 Map.of("from", "ingest", "to", "to-system", "maxLatencySec", 60, "severity", "red", "expectedCount", 2, "optional", false)
         ));
+        return createWorkflow(name, key, graph);
+    }
+
+    private long createWorkflow(String name, String key, Map<String, Object> graph) {
+        WorkflowRequest request = new WorkflowRequest();
+        request.setName(name);
+        request.setKey(key);
+        request.setCreatedBy("test-user");
         request.setGraph(graph);
-        workflowService.createWorkflow(request);
+        return workflowService.createWorkflow(request).getActiveVersionId();
     }
 
     private void waitFor(Supplier<Boolean> condition, Duration timeout) throws InterruptedException {
@@ -0,0 +1,116 @@
+package com.sentinel.platform.ruleengine.deadline;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeadlineCalculatorTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+    private static final ZoneId LONDON = ZoneId.of("Europe/London");
+    private static final BusinessCalendar UK = new BusinessCalendar("uk",
+            Set.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY), Set.of(LocalDate.parse("2024-03-11")));
+
+    @Test
+    void latencyIsAddedToEventTime() {
+        Instant event = Instant.parse("2024-03-01T10:00:00Z");
+
+        assertThat(DeadlineCalculator.latency(90).dueAt(event)).isEqualTo("2024-03-01T10:01:30Z");
+        assertThat(DeadlineCalculator.latency(0)).isSameAs(DeadlineCalculator.NONE);
+        assertThat(DeadlineCalculator.NONE.dueAt(event)).isEqualTo(event);
+    }
+
+    @Test
+    void fixedOffsetCutoffIsFirstOneAtOrAfterEvent() {
+        DeadlineCalculator calculator = new DeadlineCalculator(0, LocalTime.of(17, 30), ZoneOffset.ofHours(1), null);
+
+        assertThat(calculator.dueAt(Instant.parse("2024-03-01T10:00:00Z"))).isEqualTo("2024-03-01T16:30:00Z");
+        assertThat(calculator.dueAt(Instant.parse("2024-03-01T16:30:00Z"))).isEqualTo("2024-03-01T16:30:00Z");
+        assertThat(calculator.dueAt(Instant.parse("2024-03-01T16:30:01Z"))).isEqualTo("2024-03-02T16:30:00Z");
+    }
+
+    @Test
+    void fixedOffsetCutoffUsesLocalDayOfEvent() {
+        // 03:00Z is still the evening of 29 February at -05:00.
+        DeadlineCalculator calculator = new DeadlineCalculator(0, LocalTime.of(1, 0), ZoneOffset.ofHours(-5), null);
+
+        assertThat(calculator.dueAt(Instant.parse("2024-03-01T03:00:00Z"))).isEqualTo("2024-03-01T06:00:00Z");
+        assertThat(calculator.dueAt(Instant.parse("2024-03-01T06:00:01Z"))).isEqualTo("2024-03-02T06:00:00Z");
+    }
+
+    @Test
+    void fixedOffsetArithmeticMatchesZonedComputation() {
+        Random random = new Random(7);
+        for (int i = 0; i < 1_000; i++) {
+            ZoneOffset offset = ZoneOffset.ofTotalSeconds((random.nextInt(26 * 4) - 12 * 4) * 900);
+            LocalTime cutoff = LocalTime.ofSecondOfDay(random.nextInt(86_400));
+            Instant event = Instant.ofEpochSecond(1_700_000_000L + random.nextInt(400 * 86_400));
+            DeadlineCalculator calculator = new DeadlineCalculator(0, cutoff, offset, null);
+
+            assertThat(calculator.dueAt(event)).as("%s %s %s", cutoff, offset, event).isEqualTo(zonedDueAt(event, cutoff, offset));
+        }
+    }
+
+    @Test
+    void cutoffInDstGapMovesForwardByGap() {
+        // 2024-03-10 02:30 does not exist in New York; clocks jump from 02:00 EST to 03:00 EDT.
+        DeadlineCalculator calculator = new DeadlineCalculator(0, LocalTime.of(2, 30), NEW_YORK, null);
+
+        assertThat(calculator.dueAt(Instant.parse("2024-03-10T05:00:00Z"))).isEqualTo("2024-03-10T07:30:00Z");
+        assertThat(calculator.dueAt(Instant.parse("2024-03-09T05:00:00Z"))).isEqualTo("2024-03-09T07:30:00Z");
+        assertThat(calculator.dueAt(Instant.parse("2024-03-11T05:00:00Z"))).isEqualTo("2024-03-11T06:30:00Z");
+    }
+
+    @Test
+    void cutoffInDstOverlapUsesEarlierInstant() {
+        // 2024-11-03 01:30 happens twice in New York: 05:30Z (EDT) and 06:30Z (EST).
+        DeadlineCalculator calculator = new DeadlineCalculator(0, LocalTime.of(1, 30), NEW_YORK, null);
+
+        assertThat(calculator.dueAt(Instant.parse("2024-11-03T04:00:00Z"))).isEqualTo("2024-11-03T05:30:00Z");
+        assertThat(calculator.dueAt(Instant.parse("2024-11-03T05:45:00Z"))).isEqualTo("2024-11-04T06:30:00Z");
+    }
+
+    @Test
+    void cutoffRollsPastWeekendAndHolidays() {
+        DeadlineCalculator calculator = new DeadlineCalculator(0, LocalTime.of(17, 0), LONDON, UK);
+
+        // Friday before the cut-off.
+        assertThat(calculator.dueAt(Instant.parse("2024-03-08T09:00:00Z"))).isEqualTo("2024-03-08T17:00:00Z");
+        // Friday after the cut-off: Saturday, Sunday and the Monday holiday are skipped.
+        assertThat(calculator.dueAt(Instant.parse("2024-03-08T18:00:00Z"))).isEqualTo("2024-03-12T17:00:00Z");
+        assertThat(calculator.dueAt(Instant.parse("2024-03-09T09:00:00Z"))).isEqualTo("2024-03-12T17:00:00Z");
+        // After the switch to BST the cut-off is 16:00Z.
+        assertThat(calculator.dueAt(Instant.parse("2024-04-02T09:00:00Z"))).isEqualTo("2024-04-02T16:00:00Z");
+    }
+
+    @Test
+    void fixedOffsetWithCalendarStillSkipsNonBusinessDays() {
+        DeadlineCalculator calculator = new DeadlineCalculator(0, LocalTime.of(17, 0), ZoneOffset.UTC, UK);
+
+        assertThat(calculator.dueAt(Instant.parse("2024-03-09T09:00:00Z"))).isEqualTo("2024-03-12T17:00:00Z");
+    }
+
+    @Test
+    void calendarWithoutBusinessDaysFallsBackToEventTime() {
+        BusinessCalendar closed = new BusinessCalendar("closed", Set.of(DayOfWeek.values()), Set.of());
+        DeadlineCalculator calculator = new DeadlineCalculator(0, LocalTime.of(17, 0), LONDON, closed);
+        Instant event = Instant.parse("2024-03-08T09:00:00Z");
+
+        assertThat(calculator.dueAt(event)).isEqualTo(event);
+    }
+
+    private static Instant zonedDueAt(Instant event, LocalTime cutoff, ZoneOffset offset) {
+        ZonedDateTime candidate = ZonedDateTime.of(LocalDate.ofInstant(event, offset), cutoff, offset);
+        return candidate.toInstant().isBefore(event) ? candidate.plusDays(1).toInstant() : candidate.toInstant();
+    }
+}
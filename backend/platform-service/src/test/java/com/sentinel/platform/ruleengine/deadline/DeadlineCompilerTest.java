@@ -0,0 +1,79 @@
+package com.sentinel.platform.ruleengine.deadline;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sentinel.platform.ruleengine.config.RuleEngineProperties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeadlineCompilerTest {
+
+    @TempDir
+    Path directory;
+
+    private DeadlineCompiler compiler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.writeString(directory.resolve("uk.json"), "{\"holidays\":[\"2024-03-11\"]}");
+        Files.writeString(directory.resolve("gulf.json"), "{\"weekend\":[\"friday\",\"saturday\"]}");
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.setCalendarDirectory(directory.toString());
+        compiler = new DeadlineCompiler(properties, new ObjectMapper());
+    }
+
+    @Test
+    void loadsCalendarsWithDefaultAndCustomWeekends() {
+        assertThat(compiler.calendarNames()).containsExactlyInAnyOrder("uk", "gulf");
+
+        DeadlineCalculator uk = compiler.compile(null, "17:00", "Europe/London", "uk");
+        DeadlineCalculator gulf = compiler.compile(null, "17:00Z", null, "gulf");
+
+        assertThat(uk.dueAt(Instant.parse("2024-03-09T09:00:00Z"))).isEqualTo("2024-03-12T17:00:00Z");
+        assertThat(gulf.dueAt(Instant.parse("2024-03-08T09:00:00Z"))).isEqualTo("2024-03-10T17:00:00Z");
+    }
+
+    @Test
+    void parsesOffsetsAndZones() {
+        Instant event = Instant.parse("2024-07-01T10:00:00Z");
+
+        assertThat(compiler.compile(null, "17:30+01:00", null, null).dueAt(event)).isEqualTo("2024-07-01T16:30:00Z");
+        assertThat(compiler.compile(null, "17:30", "Europe/Paris", null).dueAt(event)).isEqualTo("2024-07-01T15:30:00Z");
+        assertThat(compiler.compile(null, "17:30:15", null, null).dueAt(event)).isEqualTo("2024-07-01T17:30:15Z");
+        assertThat(compiler.compile(120, null, null, null).dueAt(event)).isEqualTo("2024-07-01T10:02:00Z");
+    }
+
+    @Test
+    void memoisesBySetting() {
+        assertThat(compiler.compile(null, " 17:30 ", "Europe/Paris", null))
+                .isSameAs(compiler.compile(null, "17:30", "Europe/Paris", null));
+        // The latency is ignored once a cut-off is set.
+        assertThat(compiler.compile(60, "17:30", null, null)).isSameAs(compiler.compile(null, "17:30", null, null));
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThatThrownBy(() -> compiler.compile(null, "17:30+01:00", "Europe/Paris", null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> compiler.compile(null, "25:00", null, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> compiler.compile(null, "17:30", "Mars/Olympus", null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> compiler.compile(null, "17:30", null, "nowhere")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> compiler.compile(60, null, "Europe/Paris", null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void storedInvalidSettingDegradesToEventTime() {
+        Instant event = Instant.parse("2024-07-01T10:00:00Z");
+
+        assertThat(compiler.compileOrNone(null, "17:30", null, "nowhere")).isSameAs(DeadlineCalculator.NONE);
+        assertThat(compiler.compileOrNone(null, "17:30", null, "nowhere").dueAt(event)).isEqualTo(event);
+    }
+}
@@ -0,0 +1,72 @@
+package com.sentinel.platform.ruleengine.kafka;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sentinel.platform.ruleengine.service.EvaluationScheduler;
+import com.sentinel.platform.ruleengine.state.AppliedOffsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PartitionBackpressureTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("normalized", 0);
+
+    private final EvaluationScheduler scheduler = mock(EvaluationScheduler.class);
+    private final AppliedOffsets appliedOffsets = new AppliedOffsets();
+    private final MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final PartitionBackpressure backpressure = new PartitionBackpressure(scheduler, appliedOffsets);
+
+    @BeforeEach
+    void setUp() {
+        consumer.assign(List.of(PARTITION));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        consumer.seek(PARTITION, 13);
+        appliedOffsets.reset(0, 10);
+        // 10 was evaluated, 11 is being refused and 12 is still in the fetched batch.
+        appliedOffsets.dispatched(0, 10);
+        appliedOffsets.dispatched(0, 11);
+        appliedOffsets.applied(0, 10);
+    }
+
+    @Test
+    void pausesAndRewindsUntilBulkheadHasRoom() {
+        backpressure.hold(consumer, PARTITION, 11, "default");
+
+        assertThat(consumer.paused()).containsExactly(PARTITION);
+        assertThat(consumer.position(PARTITION)).isEqualTo(11);
+        assertThat(appliedOffsets.watermark(0)).isEqualTo(11);
+        assertThat(backpressure.skip(consumer, PARTITION, 12)).isTrue();
+
+        when(scheduler.hasRoom("default")).thenReturn(false);
+        backpressure.resumeReady(consumer);
+        assertThat(consumer.paused()).containsExactly(PARTITION);
+
+        when(scheduler.hasRoom("default")).thenReturn(true);
+        backpressure.resumeReady(consumer);
+        assertThat(consumer.paused()).isEmpty();
+        // Still fetched before the rewind, so read again later.
+        assertThat(backpressure.skip(consumer, PARTITION, 12)).isTrue();
+
+        consumer.seek(PARTITION, 13);
+        assertThat(backpressure.skip(consumer, PARTITION, 11)).isFalse();
+        assertThat(backpressure.skip(consumer, PARTITION, 12)).isFalse();
+    }
+
+    @Test
+    void forgetsRevokedPartitions() {
+        backpressure.hold(consumer, PARTITION, 11, "default");
+
+        backpressure.forget(List.of(PARTITION));
+
+        assertThat(backpressure.skip(consumer, PARTITION, 12)).isFalse();
+    }
+}
@@ -0,0 +1,54 @@
+package com.sentinel.platform.ruleengine.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuleEvaluatedEventTest {
+
+    private static final String[] NODE_KEYS = {"ingest", "enrich", "publish"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void writesNodeCountsAsObjectOfNonZeroEntries() throws Exception {
+        RuleEvaluatedEvent event = new RuleEvaluatedEvent();
+        event.setInFlightCounts(new NodeCounts(NODE_KEYS, new int[] {-1, 0, 2}));
+
+        String json = objectMapper.writeValueAsString(event);
+
+        assertThat(json).contains("\"inFlightDeltas\":{\"ingest\":-1,\"publish\":2}").doesNotContain("inFlightCounts");
+        RuleEvaluatedEvent read = objectMapper.readValue(json, RuleEvaluatedEvent.class);
+        assertThat(read.getInFlightDeltas()).containsExactly(Map.entry("ingest", -1), Map.entry("publish", 2));
+    }
+
+    @Test
+    void readsEitherForm() throws Exception {
+        RuleEvaluatedEvent counted = new RuleEvaluatedEvent();
+        counted.setInFlightCounts(new NodeCounts(NODE_KEYS, new int[] {0, 3, 0}));
+        RuleEvaluatedEvent mapped = new RuleEvaluatedEvent();
+        mapped.setInFlightDeltas(Map.of("enrich", 3));
+        List<String> seen = new ArrayList<>();
+
+        counted.forEachInFlightDelta((node, delta) -> seen.add(node + "=" + delta));
+        mapped.forEachInFlightDelta((node, delta) -> seen.add(node + "=" + delta));
+
+        assertThat(seen).containsExactly("enrich=3", "enrich=3");
+        assertThat(counted.getInFlightDeltas()).containsExactly(Map.entry("enrich", 3));
+        assertThat(objectMapper.writeValueAsString(mapped)).contains("\"inFlightDeltas\":{\"enrich\":3}");
+    }
+
+    @Test
+    void emptyCountsWriteEmptyObject() throws Exception {
+        RuleEvaluatedEvent event = new RuleEvaluatedEvent();
+        event.setInFlightCounts(new NodeCounts(NODE_KEYS, new int[3]));
+
+        assertThat(objectMapper.writeValueAsString(event)).contains("\"inFlightDeltas\":{}");
+        assertThat(new NodeCounts(NODE_KEYS, new int[] {1, 0, -2})).hasToString("{ingest=1, publish=-2}");
+    }
+}
@@ -0,0 +1,190 @@
+package com.sentinel.platform.ruleengine.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.sentinel.platform.ruleconfig.repository.WorkflowVersionRepository;
+import com.sentinel.platform.ruleengine.config.RuleEngineProperties;
+import com.sentinel.platform.ruleengine.config.RuleEngineProperties.BulkheadSettings;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EvaluationSchedulerTest {
+
+    private static final long CRITICAL_VERSION = 1L;
+    private static final long DEFAULT_VERSION = 2L;
+
+    private final WorkflowVersionRepository workflowVersionRepository = mock(WorkflowVersionRepository.class);
+    private EvaluationScheduler scheduler;
+
+    @AfterEach
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void runsTasksOfOneKeyInSubmissionOrder() throws Exception {
+        scheduler = start(4, Map.of("default", new BulkheadSettings(1, 4, 1000)));
+        List<Integer> ran = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(200);
+
+        for (int i = 0; i < 200; i++) {
+            int n = i;
+            scheduler.submit(DEFAULT_VERSION, "run-" + (n % 2), () -> {
+                ran.add(n);
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(ran.stream().filter(n -> n % 2 == 0).toList()).isSorted();
+        assertThat(ran.stream().filter(n -> n % 2 == 1).toList()).isSorted();
+    }
+
+    @Test
+    void capsConcurrencyOfBulkhead() throws Exception {
+        scheduler = start(6, Map.of("default", new BulkheadSettings(1, 2, 1000)));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(40);
+
+        for (int i = 0; i < 40; i++) {
+            scheduler.submit(DEFAULT_VERSION, "run-" + i, () -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(5);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(peak.get()).isEqualTo(2);
+    }
+
+    @Test
+    void sharesWorkersByWeightWhileBothBulkheadsAreBacklogged() throws Exception {
+        scheduler = start(1, Map.of(
+                "critical", new BulkheadSettings(3, 1, 1000),
+                "default", new BulkheadSettings(1, 1, 1000)));
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(81);
+        List<String> ran = new CopyOnWriteArrayList<>();
+        scheduler.submit(DEFAULT_VERSION, "gate", () -> {
+            await(gate);
+            done.countDown();
+        });
+
+        for (int i = 0; i < 40; i++) {
+            scheduler.submit(CRITICAL_VERSION, "run-" + i, () -> {
+                ran.add("critical");
+                done.countDown();
+            });
+            scheduler.submit(DEFAULT_VERSION, "run-" + i, () -> {
+                ran.add("default");
+                done.countDown();
+            });
+        }
+        gate.countDown();
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        List<String> first = new ArrayList<>(ran.subList(0, 20));
+        assertThat(first.stream().filter("critical"::equals).count()).isBetween(14L, 16L);
+        assertThat(ran).hasSize(80);
+    }
+
+    @Test
+    void refusesWholeEventWhenAnyBulkheadIsFull() throws Exception {
+        scheduler = start(1, Map.of(
+                "critical", new BulkheadSettings(1, 1, 2),
+                "default", new BulkheadSettings(1, 1, 2)));
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger ran = new AtomicInteger();
+        scheduler.submit(DEFAULT_VERSION, "gate", () -> {
+            started.countDown();
+            await(gate);
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(scheduler.submit(DEFAULT_VERSION, "run-1", ran::incrementAndGet)).isTrue();
+        assertThat(scheduler.submit(DEFAULT_VERSION, "run-2", ran::incrementAndGet)).isTrue();
+
+        Optional<String> full = scheduler.submitAll(List.of(
+                new EvaluationScheduler.Submission(CRITICAL_VERSION, "run-3", ran::incrementAndGet),
+                new EvaluationScheduler.Submission(DEFAULT_VERSION, "run-3", ran::incrementAndGet)));
+
+        assertThat(full).contains("default");
+        assertThat(scheduler.hasRoom("default")).isFalse();
+        assertThat(scheduler.hasRoom("critical")).isTrue();
+        gate.countDown();
+        scheduler.shutdown();
+        assertThat(ran.get()).isEqualTo(2);
+        assertThat(scheduler.hasRoom("default")).isTrue();
+    }
+
+    @Test
+    void runsOnCallingThreadWhenDisabled() {
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.setBulkheadsEnabled(false);
+        scheduler = new EvaluationScheduler(properties, workflowVersionRepository, new SimpleMeterRegistry());
+        List<Thread> ran = new ArrayList<>();
+
+        scheduler.submit(DEFAULT_VERSION, "run", () -> ran.add(Thread.currentThread()));
+
+        assertThat(ran).containsExactly(Thread.currentThread());
+    }
+
+    @Test
+    void shutdownFinishesQueuedTasks() {
+        scheduler = start(1, Map.of("default", new BulkheadSettings(1, 1, 1000)));
+        AtomicInteger ran = new AtomicInteger();
+        for (int i = 0; i < 20; i++) {
+            scheduler.submit(DEFAULT_VERSION, "run", () -> {
+                sleep(2);
+                ran.incrementAndGet();
+            });
+        }
+
+        scheduler.shutdown();
+
+        assertThat(ran.get()).isEqualTo(20);
+    }
+
+    private EvaluationScheduler start(int workers, Map<String, BulkheadSettings> bulkheads) {
+        when(workflowVersionRepository.findBulkheadByVersionId(CRITICAL_VERSION)).thenReturn(Optional.of("critical"));
+        when(workflowVersionRepository.findBulkheadByVersionId(DEFAULT_VERSION)).thenReturn(Optional.of("default"));
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.setEvaluationWorkers(workers);
+        properties.setBulkheads(bulkheads);
+        return new EvaluationScheduler(properties, workflowVersionRepository, new SimpleMeterRegistry());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
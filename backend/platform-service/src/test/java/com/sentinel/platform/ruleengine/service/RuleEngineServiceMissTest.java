@@ -0,0 +1,135 @@
+package com.sentinel.platform.ruleengine.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.sentinel.platform.alerting.model.AlertTriggerEvent;
+import com.sentinel.platform.ruleconfig.repository.WorkflowNodeRepository;
+import com.sentinel.platform.ruleconfig.repository.WorkflowRepository;
+import com.sentinel.platform.ruleconfig.repository.WorkflowVersionRepository;
+import com.sentinel.platform.ruleengine.model.RuleEvaluatedEvent;
+import com.sentinel.platform.ruleengine.model.SyntheticMissedEvent;
+import com.sentinel.platform.ruleengine.repository.RuleEngineStateStore;
+import com.sentinel.platform.ruleengine.repository.RuleEngineStateStore.RunContext;
+import com.sentinel.platform.shared.logging.HotPathLogSampler;
+import com.sentinel.platform.shared.logging.HotPathLoggingProperties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RuleEngineServiceMissTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-01T12:00:00Z");
+
+    private final RuleEngineStateStore stateStore = mock(RuleEngineStateStore.class);
+    private final RuleEventSink sink = mock(RuleEventSink.class);
+    private RuleEngineService service;
+
+    @BeforeEach
+    void setUp() {
+        RunContext first = new RunContext(7L, "order-1", "{\"region\":\"NY\"}");
+        RunContext second = new RunContext(7L, "order-2", null);
+        when(stateStore.loadRunContext(1L)).thenReturn(first);
+        when(stateStore.loadRunContext(2L)).thenReturn(second);
+        when(stateStore.loadRunContexts(any())).thenReturn(Map.of(1L, first, 2L, second));
+        service = new RuleEngineService(mock(WorkflowRepository.class), mock(WorkflowVersionRepository.class),
+                mock(WorkflowNodeRepository.class), stateStore, sink, new ObjectMapper(),
+                Clock.fixed(NOW, ZoneOffset.UTC), new HotPathLogSampler(new HotPathLoggingProperties()));
+    }
+
+    @Test
+    void bulkMissesMatchPerMissPath() {
+        service.handleSyntheticMissedBatch(misses());
+        List<String> bulk = evaluations(2).stream().map(RuleEngineServiceMissTest::describe).toList();
+
+        for (SyntheticMissedEvent missed : misses()) {
+            service.handleSyntheticMissed(missed);
+        }
+        List<String> all = evaluations(4).stream().map(RuleEngineServiceMissTest::describe).toList();
+
+        assertThat(bulk).containsExactlyElementsOf(all.subList(2, 4));
+        assertThat(bulk.get(0)).contains("node=settled", "late=3", "received=" + NOW);
+    }
+
+    @Test
+    void failedRunUpdateFallsBackToPerMissPathOnce() {
+        doThrow(new IllegalStateException("db down")).when(stateStore).updateRuns(anyList());
+
+        service.handleSyntheticMissedBatch(misses());
+
+        evaluations(2);
+        verify(sink, times(2)).publishAlertTriggered(any(AlertTriggerEvent.class));
+        verify(sink, never()).publishAlertsTriggered(anyList());
+        verify(stateStore, times(2)).updateRun(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void failedEvaluationPublishResendsOnlyTheRest() {
+        doThrow(new IllegalStateException("stage stopped")).doNothing().when(sink).publishRuleEvaluated(any());
+
+        service.handleSyntheticMissedBatch(misses());
+
+        // The first publish failed and is retried with the second; nothing goes out twice.
+        List<RuleEvaluatedEvent> published = evaluations(3);
+        assertThat(published.subList(1, 3)).extracting(RuleEvaluatedEvent::getWorkflowRunId).containsExactly(1L, 2L);
+        verify(sink, times(2)).publishAlertTriggered(any(AlertTriggerEvent.class));
+        verify(stateStore, never()).updateRun(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void failedAlertPublishDoesNotRepublishEvaluations() {
+        doThrow(new IllegalStateException("stage stopped")).when(sink).publishAlertsTriggered(anyList());
+
+        service.handleSyntheticMissedBatch(misses());
+
+        evaluations(2);
+        verify(sink, times(2)).publishAlertTriggered(any(AlertTriggerEvent.class));
+    }
+
+    private List<RuleEvaluatedEvent> evaluations(int expected) {
+        ArgumentCaptor<RuleEvaluatedEvent> captor = ArgumentCaptor.forClass(RuleEvaluatedEvent.class);
+        verify(sink, times(expected)).publishRuleEvaluated(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static List<SyntheticMissedEvent> misses() {
+        return List.of(miss(10L, 1L, 3), miss(11L, 2L, 1));
+    }
+
+    private static SyntheticMissedEvent miss(long expectationId, long runId, int missing) {
+        SyntheticMissedEvent missed = new SyntheticMissedEvent();
+        missed.setExpectationId(expectationId);
+        missed.setWorkflowRunId(runId);
+        missed.setFromNode("ingest");
+        missed.setToNode("settled");
+        missed.setDueAt(NOW.minusSeconds(60));
+        missed.setSeverity("red");
+        missed.setDedupeKey("miss-" + expectationId);
+        missed.setExpectedCount(3);
+        missed.setMissingCount(missing);
+        return missed;
+    }
+
+    private static String describe(RuleEvaluatedEvent event) {
+        return "version=" + event.getWorkflowVersionId() + " run=" + event.getWorkflowRunId() + " node=" + event.getNode()
+                + " key=" + event.getCorrelationKey() + " status=" + event.getStatus() + " late=" + event.getLateDelta()
+                + " completed=" + event.getCompletedDelta() + " group=" + event.getGroupHash() + " event=" + event.getEventTime()
+                + " received=" + event.getReceivedAt();
+    }
+}
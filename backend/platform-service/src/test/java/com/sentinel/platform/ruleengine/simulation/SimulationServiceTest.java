@@ -0,0 +1,119 @@
+package com.sentinel.platform.ruleengine.simulation;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sentinel.platform.ingestion.model.NormalizedEvent;
+import com.sentinel.platform.ruleconfig.repository.WorkflowNodeRepository;
+import com.sentinel.platform.ruleconfig.repository.WorkflowRepository;
+import com.sentinel.platform.ruleconfig.repository.WorkflowVersionRepository;
+import com.sentinel.platform.ruleengine.config.RuleEngineProperties;
+import com.sentinel.platform.ruleengine.deadline.DeadlineCompiler;
+import com.sentinel.platform.ruleengine.graph.WorkflowGraphCompiler;
+import com.sentinel.platform.ruleengine.repository.RuleEngineStateStore;
+import com.sentinel.platform.ruleengine.service.RuleEngineService;
+import com.sentinel.platform.ruleengine.service.RuleEventSink;
+import com.sentinel.platform.ruleengine.web.dto.SimulationNodeView;
+import com.sentinel.platform.ruleengine.web.dto.SimulationRequest;
+import com.sentinel.platform.ruleengine.web.dto.SimulationResult;
+import com.sentinel.platform.shared.logging.HotPathLogSampler;
+import com.sentinel.platform.shared.logging.HotPathLoggingProperties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class SimulationServiceTest {
+
+    private static final Instant ORIGIN = Instant.parse("2024-03-01T09:00:00Z");
+
+    @TempDir
+    Path calendars;
+
+    private SimulationService service;
+
+    @BeforeEach
+    void setUp() {
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.setCalendarDirectory(calendars.toString());
+        ObjectMapper objectMapper = new ObjectMapper();
+        RuleEngineService engine = new RuleEngineService(mock(WorkflowRepository.class), mock(WorkflowVersionRepository.class),
+                mock(WorkflowNodeRepository.class), mock(RuleEngineStateStore.class), mock(RuleEventSink.class), objectMapper,
+                Clock.fixed(ORIGIN, ZoneOffset.UTC), new HotPathLogSampler(new HotPathLoggingProperties()));
+        WorkflowGraphCompiler compiler = new WorkflowGraphCompiler(mock(WorkflowVersionRepository.class), objectMapper,
+                new DeadlineCompiler(properties, objectMapper));
+        service = new SimulationService(engine, compiler, properties);
+    }
+
+    @Test
+    void firesMissesOnTheSimulatedClockAndCompletesRuns() {
+        List<NormalizedEvent> events = new ArrayList<>();
+        events.add(event("e1", "PAY_INGEST", "pay-1", 0));
+        events.add(event("e2", "PAY_SETTLED", "pay-1", 30));
+        events.add(event("e3", "PAY_INGEST", "pay-2", 10));
+        events.add(event("e3", "PAY_INGEST", "pay-2", 15));
+        // Due at +70: missed before it arrives at +100, then counted late against the fired expectation.
+        events.add(event("e4", "PAY_SETTLED", "pay-2", 100));
+        events.add(event("e5", "PAY_INGEST", "pay-3", 20));
+        events.add(event("e6", "PAY_AUDITED", "pay-3", 25));
+
+        SimulationResult result = service.simulate(request(events, ORIGIN.plusSeconds(300)));
+
+        assertThat(result.eventsProcessed()).isEqualTo(7);
+        assertThat(result.eventsUnmatched()).isEqualTo(1);
+        assertThat(result.eventsDuplicate()).isEqualTo(1);
+        assertThat(result.runs()).isEqualTo(3);
+        assertThat(result.runsCompleted()).isEqualTo(2);
+        assertThat(result.runsByStatus()).isEqualTo(Map.of("green", 1L, "amber", 2L));
+        assertThat(result.expectationsCreated()).isEqualTo(3);
+        assertThat(result.expectationsPending()).isZero();
+        assertThat(result.missesFired()).isEqualTo(2);
+        assertThat(result.alertsByReason()).isEqualTo(Map.of("EXPECTED_MISSED", 2L, "SLA_MISSED", 1L));
+        assertThat(result.nodes()).containsExactly(
+                new SimulationNodeView("ingest", 3, 0, 0, 0),
+                new SimulationNodeView("settled", 2, 3, 0, 1));
+    }
+
+    @Test
+    void rejectsRequestsWithoutAGraph() {
+        SimulationRequest request = new SimulationRequest();
+        request.setSampleEvents(List.of(event("e1", "PAY_INGEST", "pay-1", 0)));
+
+        assertThatThrownBy(() -> service.simulate(request))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("workflowVersionId or graph");
+    }
+
+    private static SimulationRequest request(List<NormalizedEvent> events, Instant until) {
+        SimulationRequest request = new SimulationRequest();
+        request.setGraph(Map.of(
+                "nodes", List.of(
+                        Map.of("key", "ingest", "eventType", "PAY_INGEST", "start", true),
+                        Map.of("key", "settled", "eventType", "PAY_SETTLED", "terminal", true)),
+                "edges", List.of(
+                        Map.of("from", "ingest", "to", "settled", "maxLatencySec", 60, "severity", "amber",
+                                "expectedCount", 1, "optional", false))));
+        request.setSampleEvents(events);
+        request.setUntil(until);
+        return request;
+    }
+
+    private static NormalizedEvent event(String eventId, String eventType, String correlationKey, int offsetSeconds) {
+        NormalizedEvent event = new NormalizedEvent();
+        event.setEventId(eventId);
+        event.setEventType(eventType);
+        event.setCorrelationKey(correlationKey);
+        event.setEventTime(ORIGIN.plusSeconds(offsetSeconds));
+        return event;
+    }
+}
@@ -0,0 +1,87 @@
+package com.sentinel.platform.ruleengine.state;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AppliedOffsetsTest {
+
+    private final AppliedOffsets offsets = new AppliedOffsets();
+
+    @Test
+    void watermarkStopsAtOldestRecordInFlight() {
+        offsets.reset(0, 100);
+        assertThat(offsets.watermark(0)).isEqualTo(100);
+
+        offsets.dispatched(0, 100);
+        offsets.dispatched(0, 101);
+        offsets.dispatched(0, 102);
+        offsets.applied(0, 101);
+        offsets.applied(0, 102);
+        assertThat(offsets.watermark(0)).isEqualTo(100);
+
+        offsets.applied(0, 100);
+        assertThat(offsets.watermark(0)).isEqualTo(103);
+        assertThat(offsets.watermark(1)).isEqualTo(-1);
+    }
+
+    @Test
+    void withdrawnRecordIsReadAgain() {
+        offsets.reset(0, 10);
+        offsets.dispatched(0, 10);
+        offsets.dispatched(0, 11);
+
+        offsets.withdrawn(0, 11);
+        offsets.applied(0, 10);
+
+        assertThat(offsets.watermark(0)).isEqualTo(11);
+    }
+
+    @Test
+    void forgetsRemovedPartitions() {
+        offsets.reset(0, 10);
+        offsets.dispatched(0, 10);
+
+        offsets.remove(0);
+        offsets.applied(0, 10);
+
+        assertThat(offsets.watermark(0)).isEqualTo(-1);
+    }
+
+    @Test
+    void awaitAppliedReturnsOnceInFlightRecordsAreApplied() throws Exception {
+        offsets.reset(0, 0);
+        offsets.reset(1, 0);
+        offsets.dispatched(0, 0);
+        offsets.dispatched(1, 0);
+        Thread applier = new Thread(() -> {
+            sleep(50);
+            offsets.applied(0, 0);
+            offsets.applied(1, 0);
+        });
+        applier.start();
+
+        assertThat(offsets.awaitApplied(List.of(0, 1, 2), 5_000)).isTrue();
+        assertThat(offsets.watermark(0)).isEqualTo(1);
+        applier.join();
+    }
+
+    @Test
+    void awaitAppliedTimesOutWhileRecordsAreInFlight() throws Exception {
+        offsets.reset(0, 0);
+        offsets.dispatched(0, 0);
+
+        assertThat(offsets.awaitApplied(List.of(0), 50)).isFalse();
+        assertThat(offsets.watermark(0)).isZero();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.sentinel.platform.ruleengine.state;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+
+import com.sentinel.platform.ruleengine.config.RuleEngineProperties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionOwnershipTest {
+
+    private static final String TOPIC = "events.normalized";
+
+    @Test
+    void partitionOfKeyMatchesTheProducersDefaultPartitioner() throws Exception {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> partitions = new ArrayList<>();
+        for (int p = 0; p < 6; p++) {
+            partitions.add(new PartitionInfo(TOPIC, p, node, new Node[]{node}, new Node[]{node}));
+        }
+        Cluster cluster = new Cluster("test", List.of(node), partitions, Set.of(), Set.of());
+        MockProducer<String, String> producer = new MockProducer<>(cluster, true, new StringSerializer(), new StringSerializer());
+
+        for (int i = 0; i < 50; i++) {
+            String key = "order-" + i;
+            int sent = producer.send(new ProducerRecord<>(TOPIC, key, "event")).get().partition();
+            assertThat(PartitionOwnership.partitionFor(key, 6)).as(key).isEqualTo(sent);
+        }
+        assertThat(PartitionOwnership.partitionFor("order-1", 0)).isEqualTo(-1);
+    }
+
+    @Test
+    void timerPartitionsFollowAssignments() {
+        PartitionOwnership ownership = new PartitionOwnership(new RuleEngineProperties(), new SimpleMeterRegistry());
+        assertThat(ownership.timerPartitions()).isEmpty();
+        assertThat(ownership.partitionOf("order-1")).isEqualTo(-1);
+
+        ownership.assigned(6, List.of(0, 1, 4));
+        ownership.revoked(List.of(1));
+
+        assertThat(ownership.timerPartitions()).containsExactlyInAnyOrder(0, 4);
+        assertThat(ownership.partitionOf("order-1")).isEqualTo(PartitionOwnership.partitionFor("order-1", 6));
+    }
+
+    @Test
+    void disabledOwnershipFiresEveryTimer() {
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.setPartitionOwnershipEnabled(false);
+        PartitionOwnership ownership = new PartitionOwnership(properties, new SimpleMeterRegistry());
+
+        ownership.assigned(6, List.of(0));
+
+        assertThat(ownership.timerPartitions()).isNull();
+    }
+}
@@ -0,0 +1,175 @@
+package com.sentinel.platform.ruleengine.state;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import com.sentinel.platform.ruleengine.config.RuleEngineProperties;
+import com.sentinel.platform.ruleengine.repository.RuleEngineStateRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RunStateSnapshotServiceTest {
+
+    private static final String TOPIC = "events.normalized";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+    private static final long VERSION = 7L;
+
+    @TempDir
+    Path directory;
+
+    private final RuleEngineProperties properties = new RuleEngineProperties();
+    private MockConsumer<String, byte[]> gapReader;
+
+    @BeforeEach
+    void setUp() {
+        properties.setNormalizedTopic(TOPIC);
+        properties.setStateSnapshotDirectory(directory.toString());
+        gapReader = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        gapReader.assign(List.of(PARTITION));
+        gapReader.updateBeginningOffsets(Map.of(PARTITION, 0L));
+    }
+
+    @Test
+    void restoredPartitionEvictsOnlyKeysConsumedInGap() {
+        checkpointRuns(5);
+        gapRecord(5, "key-a");
+        gapRecord(6, "key-c");
+        gapRecord(7, "key-a");
+
+        Node restarted = new Node();
+        restarted.assign(8);
+
+        assertThat(restarted.cache.runId(VERSION, "key-a")).isNull();
+        assertThat(restarted.cache.runId(VERSION, "key-b")).isEqualTo(11L);
+        verify(restarted.stateRepository, never()).warmRunCache(anyInt(), anyInt());
+    }
+
+    @Test
+    void restoredPartitionAtWatermarkKeepsEveryRun() {
+        checkpointRuns(5);
+
+        Node restarted = new Node();
+        restarted.assign(5);
+
+        assertThat(restarted.cache.runId(VERSION, "key-a")).isEqualTo(10L);
+        assertThat(restarted.cache.runId(VERSION, "key-b")).isEqualTo(11L);
+    }
+
+    @Test
+    void gapLargerThanLimitStartsCold() {
+        checkpointRuns(5);
+        properties.setStateSnapshotMaxGapRecords(2);
+
+        Node restarted = new Node();
+        restarted.assign(8);
+
+        assertThat(restarted.cache.runId(VERSION, "key-b")).isNull();
+        verify(restarted.stateRepository).warmRunCache(0, properties.getStateCacheWarmRunsPerPartition());
+    }
+
+    @Test
+    void gapNoLongerRetainedStartsCold() {
+        checkpointRuns(5);
+        gapReader.updateBeginningOffsets(Map.of(PARTITION, 6L));
+
+        Node restarted = new Node();
+        restarted.assign(8);
+
+        assertThat(restarted.cache.runId(VERSION, "key-b")).isNull();
+        verify(restarted.stateRepository).warmRunCache(0, properties.getStateCacheWarmRunsPerPartition());
+    }
+
+    @Test
+    void groupBehindSnapshotStartsCold() {
+        checkpointRuns(5);
+
+        Node restarted = new Node();
+        restarted.assign(3);
+
+        assertThat(restarted.cache.runId(VERSION, "key-a")).isNull();
+        verify(restarted.stateRepository).warmRunCache(0, properties.getStateCacheWarmRunsPerPartition());
+    }
+
+    @Test
+    void completedRunIsNotRestored() {
+        Node node = new Node();
+        node.assign(0);
+        node.cache.putRun(VERSION, "key-a", 10, true);
+        node.service.checkpoint();
+        node.cache.evictRun(10);
+        node.applied(3);
+        node.service.shutdown();
+
+        Node restarted = new Node();
+        restarted.assign(3);
+
+        assertThat(restarted.cache.runId(VERSION, "key-a")).isNull();
+    }
+
+    /**
+     * Runs key-a (10) and key-b (11) cached by a node that applied every record below {@code watermark}
+     * and then shut down.
+     */
+    private void checkpointRuns(long watermark) {
+        Node node = new Node();
+        node.assign(0);
+        node.cache.putRun(VERSION, "key-a", 10, true);
+        node.cache.putRun(VERSION, "key-b", 11, true);
+        node.applied(watermark);
+        node.service.shutdown();
+    }
+
+    private void gapRecord(long offset, String key) {
+        gapReader.addRecord(new ConsumerRecord<>(TOPIC, 0, offset, key, new byte[0]));
+    }
+
+    private final class Node {
+        private final RunStateCache cache = new RunStateCache(properties, new SimpleMeterRegistry());
+        private final AppliedOffsets appliedOffsets = new AppliedOffsets();
+        private final PartitionOwnership partitionOwnership = new PartitionOwnership(properties, new SimpleMeterRegistry());
+        private final RuleEngineStateRepository stateRepository = mock(RuleEngineStateRepository.class);
+        private final RunStateSnapshotService service;
+
+        @SuppressWarnings("unchecked")
+        private Node() {
+            ConsumerFactory<String, byte[]> consumerFactory = mock(ConsumerFactory.class);
+            when(consumerFactory.createConsumer(any(), any(), any(), any(Properties.class))).thenReturn(gapReader);
+            service = new RunStateSnapshotService(properties, cache, appliedOffsets, partitionOwnership, stateRepository,
+                    consumerFactory);
+        }
+
+        private void assign(long position) {
+            Consumer<?, ?> listenerConsumer = mock(Consumer.class);
+            when(listenerConsumer.position(PARTITION)).thenReturn(position);
+            partitionOwnership.assigned(1, List.of(0));
+            appliedOffsets.reset(0, position);
+            service.partitionsAssigned(listenerConsumer, List.of(PARTITION));
+        }
+
+        private void applied(long watermark) {
+            for (long offset = 0; offset < watermark; offset++) {
+                appliedOffsets.dispatched(0, offset);
+                appliedOffsets.applied(0, offset);
+            }
+        }
+    }
+}
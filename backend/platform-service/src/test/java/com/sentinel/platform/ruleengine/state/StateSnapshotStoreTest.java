@@ -0,0 +1,98 @@
+package com.sentinel.platform.ruleengine.state;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sentinel.platform.ruleengine.state.RunStateCache.Checkpoint;
+import com.sentinel.platform.ruleengine.state.RunStateCache.RunEntry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StateSnapshotStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void emptyDirectoryHasNothingToRestore() {
+        try (StateSnapshotStore store = new StateSnapshotStore(directory)) {
+            assertThat(store.load()).isNull();
+            assertThat(store.hasBase()).isFalse();
+        }
+    }
+
+    @Test
+    void restoresBaseWithAppendedChanges() {
+        try (StateSnapshotStore store = new StateSnapshotStore(directory)) {
+            store.writeBase(new Checkpoint(4, Map.of(0, 10L, 1, 20L),
+                    List.of(entry(0, "a", 1, "e1"), entry(1, "b", 2, "e2")), List.of()));
+            store.append(new Checkpoint(4, Map.of(0, 15L, 1, 25L),
+                    List.of(entry(0, "a", 1, "e1", "e3"), entry(0, "c", 3)), List.of(2L)));
+        }
+
+        StateSnapshotStore.Restored restored = new StateSnapshotStore(directory).load();
+
+        assertThat(restored.partitionCount()).isEqualTo(4);
+        assertThat(restored.watermarks()).containsOnly(Map.entry(0, 15L), Map.entry(1, 25L));
+        assertThat(restored.entries()).containsExactlyInAnyOrder(entry(0, "a", 1, "e1", "e3"), entry(0, "c", 3));
+    }
+
+    @Test
+    void ignoresTornCheckpointAtEndOfIndex() throws Exception {
+        try (StateSnapshotStore store = new StateSnapshotStore(directory)) {
+            store.writeBase(new Checkpoint(1, Map.of(0, 10L), List.of(entry(0, "a", 1)), List.of()));
+            store.append(new Checkpoint(1, Map.of(0, 12L), List.of(entry(0, "b", 2)), List.of()));
+        }
+        Path index = directory.resolve("engine-state-1.idx");
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(index) - 3);
+        }
+
+        StateSnapshotStore.Restored restored = new StateSnapshotStore(directory).load();
+
+        assertThat(restored.watermarks()).containsOnly(Map.entry(0, 10L));
+        assertThat(restored.entries()).containsExactly(entry(0, "a", 1));
+    }
+
+    @Test
+    void newBaseReplacesOlderGenerations() throws Exception {
+        try (StateSnapshotStore store = new StateSnapshotStore(directory)) {
+            store.writeBase(new Checkpoint(1, Map.of(0, 10L), List.of(entry(0, "a", 1)), List.of()));
+            store.append(new Checkpoint(1, Map.of(0, 11L), List.of(entry(0, "b", 2)), List.of()));
+            store.writeBase(new Checkpoint(1, Map.of(0, 12L), List.of(entry(0, "c", 3)), List.of()));
+            assertThat(store.logBytes()).isEqualTo(store.baseBytes());
+        }
+
+        try (var files = Files.list(directory)) {
+            assertThat(files.map(path -> path.getFileName().toString()))
+                    .containsExactlyInAnyOrder("engine-state-2.log", "engine-state-2.idx");
+        }
+        StateSnapshotStore.Restored restored = new StateSnapshotStore(directory).load();
+        assertThat(restored.entries()).containsExactly(entry(0, "c", 3));
+    }
+
+    @Test
+    void readsEntriesWithNonAsciiKeysBackInStep() {
+        try (StateSnapshotStore store = new StateSnapshotStore(directory)) {
+            store.writeBase(new Checkpoint(1, Map.of(0, 1L), List.of(), List.of()));
+            store.append(new Checkpoint(1, Map.of(0, 2L),
+                    List.of(entry(0, "clé-漢字-😀", 1, "évt\u0000"), entry(0, "plain", 2)), List.of()));
+        }
+
+        StateSnapshotStore.Restored restored = new StateSnapshotStore(directory).load();
+
+        assertThat(restored.entries()).containsExactlyInAnyOrder(
+                entry(0, "clé-漢字-😀", 1, "évt\u0000"), entry(0, "plain", 2));
+    }
+
+    private static RunEntry entry(int partition, String correlationKey, long runId, String... seen) {
+        return new RunEntry(partition, 7L, correlationKey, runId, seen.length > 0, List.of(seen));
+    }
+}
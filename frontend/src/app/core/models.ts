@@ -19,6 +19,8 @@ export interface WorkflowEdge {
   to: string;
   maxLatencySec?: number;
   absoluteDeadline?: string;
+  deadlineZone?: string;
+  deadlineCalendar?: string;
   expectedCount?: number;
   severity?: Severity;
   optional?: boolean;
@@ -67,6 +69,7 @@ export interface WallboardGroupTile {
   late: number;
   failed: number;
   countdowns: WallboardCountdown[];
+  backlogAge?: Record<string, number>;
 }
 
 export interface WallboardWorkflowTile {
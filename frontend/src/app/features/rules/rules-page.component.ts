@@ -65,6 +65,8 @@ import { GraphCanvasComponent } from '../../shared/components/graph-canvas/graph
               <input formControlName="to" placeholder="sys2-verify" />
               <input type="number" formControlName="maxLatencySec" placeholder="300" />
               <input formControlName="absoluteDeadline" placeholder="08:00Z" />
+              <input formControlName="deadlineZone" placeholder="Europe/London" />
+              <input formControlName="deadlineCalendar" placeholder="calendar" />
               <input type="number" formControlName="expectedCount" placeholder="1" />
               <select formControlName="severity">
                 <option value="green">green</option>
@@ -193,6 +195,8 @@ export class RulesPageComponent implements OnInit {
           to: this.fb.control('sys2-verify', { nonNullable: true }),
           maxLatencySec: this.fb.control(300, { nonNullable: false }),
           absoluteDeadline: this.fb.control('', { nonNullable: false }),
+          deadlineZone: this.fb.control('', { nonNullable: false }),
+          deadlineCalendar: this.fb.control('', { nonNullable: false }),
           expectedCount: this.fb.control<number | null>(1, { nonNullable: false }),
           severity: this.fb.control<'green' | 'amber' | 'red'>('amber', { nonNullable: true }),
           optional: this.fb.control(false, { nonNullable: true })
@@ -255,6 +259,8 @@ export class RulesPageComponent implements OnInit {
         to: this.fb.control('', { nonNullable: true }),
         maxLatencySec: this.fb.control(300, { nonNullable: false }),
         absoluteDeadline: this.fb.control('', { nonNullable: false }),
+        deadlineZone: this.fb.control('', { nonNullable: false }),
+        deadlineCalendar: this.fb.control('', { nonNullable: false }),
         expectedCount: this.fb.control<number | null>(1, { nonNullable: false }),
         severity: this.fb.control<'green' | 'amber' | 'red'>('amber', { nonNullable: true }),
         optional: this.fb.control(false, { nonNullable: true })